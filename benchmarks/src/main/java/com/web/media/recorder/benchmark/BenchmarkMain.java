@@ -0,0 +1,47 @@
+package com.web.media.recorder.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准入口，参数与 JMH 命令行相同
+ * <p>
+ * 未指定时默认输出 JSON 结果（-rf json -rff target/jmh-result.json）并启用 GC 分析器（-prof gc），
+ * 便于不同版本之间直接比较结果文件。
+ */
+public final class BenchmarkMain {
+	private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+	private BenchmarkMain() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+				|| cmd.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+		if (!cmd.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!cmd.getResult().hasValue()) {
+			File result = new File(DEFAULT_RESULT_FILE);
+			if (result.getParentFile() != null) {
+				result.getParentFile().mkdirs();
+			}
+			options.result(result.getPath());
+		}
+		if (cmd.getProfilers().isEmpty()) {
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,128 @@
+package com.web.media.recorder.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.web.media.recorder.media.file.AudioStorageMode;
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.jni.DirectCaptureBuffer;
+
+/**
+ * 采集回调的数据交接方式：每次回调复制为新数组后调用 {@code processData(byte[])}，
+ * 与直接传递 {@link DirectCaptureBuffer} 区间视图调用 {@code processData(ByteBuffer)} 的对比
+ * <p>
+ * 回调按本地层的方式在共享缓冲区中循环推进；{@code record} 为 true 时同时写录音文件。
+ * 配合 GC 分析器比较两种方式每次回调的分配量。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CaptureTransportBenchmark {
+	@Param({ "1024", "4096" })
+	private int callbackSize;
+
+	@Param({ "false", "true" })
+	private boolean record;
+
+	private DirectCaptureBuffer captureBuffer;
+	private BenchmarkProcessor processor;
+	private RotatingRecording recording;
+	private int offset;
+
+	/**
+	 * 只做数据分发的处理器，不打开采集设备
+	 */
+	static final class BenchmarkProcessor extends AbstractMediaProcessor {
+		BenchmarkProcessor(RotatingRecording recording) {
+			this.isAudio = true;
+			this.mediaFile = recording == null ? null : recording.file();
+		}
+
+		void recordTo(RotatingRecording recording) {
+			this.mediaFile = recording.file();
+		}
+
+		@Override
+		public void start(boolean isAudio) {
+		}
+
+		@Override
+		public void stop() {
+		}
+
+		@Override
+		public int[] getAudioParams() {
+			return new int[] { SyntheticPcm.SAMPLE_RATE, SyntheticPcm.CHANNELS, SyntheticPcm.BITS_PER_SAMPLE };
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		captureBuffer = new DirectCaptureBuffer();
+		ByteBuffer pcm = SyntheticPcm.directSine(captureBuffer.buffer().capacity());
+		captureBuffer.buffer().put(pcm).clear();
+		if (record) {
+			recording = new RotatingRecording(AudioStorageMode.SINGLE, RotatingRecording.DEFAULT_ROTATE_BYTES);
+			recording.open();
+		}
+		processor = new BenchmarkProcessor(recording);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (recording != null) {
+			recording.close();
+		}
+	}
+
+	@Benchmark
+	public void copyPerCallback() {
+		ByteBuffer region = nextRegion();
+		byte[] data = new byte[region.remaining()];
+		region.get(data);
+		processor.processData(data);
+		written(data.length);
+	}
+
+	@Benchmark
+	public void directRegion() {
+		ByteBuffer region = nextRegion();
+		int length = region.remaining();
+		processor.processData(region);
+		written(length);
+	}
+
+	private ByteBuffer nextRegion() {
+		int capacity = captureBuffer.buffer().capacity();
+		if (offset + callbackSize > capacity) {
+			offset = 0;
+		}
+		ByteBuffer region = captureBuffer.region(offset, callbackSize);
+		offset += callbackSize;
+		return region;
+	}
+
+	private void written(int length) {
+		if (recording != null) {
+			recording.written(length);
+			processor.recordTo(recording);
+		}
+	}
+}
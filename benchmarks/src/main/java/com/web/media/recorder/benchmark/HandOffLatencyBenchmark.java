@@ -0,0 +1,90 @@
+package com.web.media.recorder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.SpscByteRingBuffer;
+import com.web.media.recorder.media.processor.SpscByteRingBuffer.OverflowPolicy;
+
+/**
+ * 跨线程交接延迟：基准线程写入请求环，回显线程读出后写回应答环，测量一次往返的耗时分布
+ * <p>
+ * 单程交接延迟约为往返的一半，包含消费者自旋/挂起后被唤醒的开销。
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class HandOffLatencyBenchmark {
+	private static final long READ_TIMEOUT_MS = 100;
+
+	@Param({ "512", "4096" })
+	private int chunkSize;
+
+	private SpscByteRingBuffer request;
+	private SpscByteRingBuffer response;
+	private byte[] ping;
+	private byte[] pong;
+	private Thread echo;
+	private volatile boolean running;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		request = new SpscByteRingBuffer(AbstractMediaProcessor.DEFAULT_BUFFER_CAPACITY, OverflowPolicy.BLOCK);
+		response = new SpscByteRingBuffer(AbstractMediaProcessor.DEFAULT_BUFFER_CAPACITY, OverflowPolicy.BLOCK);
+		ping = SyntheticPcm.sine(chunkSize);
+		pong = new byte[ping.length];
+		running = true;
+		echo = new Thread(this::echo, "bench-echo");
+		echo.setDaemon(true);
+		echo.start();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		running = false;
+		echo.join(TimeUnit.SECONDS.toMillis(1));
+	}
+
+	private void echo() {
+		byte[] buf = new byte[ping.length];
+		while (running) {
+			int n = request.read(buf, 0, buf.length, READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			if (n > 0) {
+				response.offer(buf, 0, n);
+			}
+		}
+	}
+
+	@Benchmark
+	public int roundTrip() {
+		request.offer(ping, 0, ping.length);
+		int received = 0;
+		while (received < pong.length) {
+			int n = response.read(pong, received, pong.length - received, READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			if (n <= 0) {
+				break;
+			}
+			received += n;
+		}
+		return received;
+	}
+}
@@ -0,0 +1,90 @@
+package com.web.media.recorder.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.web.media.recorder.media.file.AudioStorageMode;
+
+/**
+ * 录音写盘吞吐：{@code MediaFile.writeData} 按不同块大小、数据来源（堆数组/直接内存）与存储方式写入
+ * <p>
+ * 每次操作写入一个采集块，吞吐以块/秒计，{@code bytes} 辅助计数给出字节/秒。
+ * 包含按检查点间隔触发的头部回写与分段滚动的开销。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MediaFileWriteBenchmark {
+	@Param({ "512", "4096", "65536" })
+	private int chunkSize;
+
+	@Param({ "HEAP", "DIRECT" })
+	private String source;
+
+	@Param({ "SINGLE", "RF64", "SEGMENTED" })
+	private AudioStorageMode storage;
+
+	private RotatingRecording recording;
+	private byte[] heapChunk;
+	private ByteBuffer directChunk;
+
+	/**
+	 * 每次迭代写入的字节数
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Bytes {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		heapChunk = SyntheticPcm.sine(chunkSize);
+		directChunk = SyntheticPcm.directSine(chunkSize);
+		recording = new RotatingRecording(storage, RotatingRecording.DEFAULT_ROTATE_BYTES);
+		recording.open();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		recording.close();
+	}
+
+	@Benchmark
+	public void writeChunk(Bytes counter) {
+		int length;
+		if ("DIRECT".equals(source)) {
+			directChunk.clear();
+			length = directChunk.remaining();
+			recording.file().writeData(directChunk);
+		} else {
+			length = heapChunk.length;
+			recording.file().writeData(heapChunk);
+		}
+		counter.bytes += length;
+		recording.written(length);
+	}
+}
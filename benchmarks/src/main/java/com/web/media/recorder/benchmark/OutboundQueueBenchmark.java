@@ -0,0 +1,110 @@
+package com.web.media.recorder.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.broadcast.BroadcastRing;
+import com.web.media.recorder.websocket.BufferPool;
+import com.web.media.recorder.websocket.OutboundQueue;
+
+/**
+ * 推流路径的重新分帧：采集块发布到广播缓冲区，订阅者按帧大小读入池化缓冲区并交给 {@link OutboundQueue} 发送
+ * <p>
+ * 与 {@code WebSocketHandler} 中的 MediaStream 相同的读帧方式，会话丢弃消息以排除网络开销。
+ * {@code INLINE} 在调用线程内完成发送，衡量分帧与出队本身；{@code THREAD} 使用独立发送线程，
+ * 包含跨线程唤醒，发送跟不上时按 DROP_OLDEST 丢帧并计入 {@code droppedBytes}。
+ * 每次操作处理一个 64KB 采集块。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OutboundQueueBenchmark {
+	private static final int CAPTURE_CHUNK_SIZE = 64 * 1024;
+	private static final long MAX_QUEUED_BYTES = 1024 * 1024;
+	private static final int MAX_POOLED = 256;
+
+	@Param({ "1024", "4096", "16384" })
+	private int frameSize;
+
+	@Param({ "INLINE", "THREAD" })
+	private String sender;
+
+	private BroadcastRing ring;
+	private BroadcastRing.Subscription subscription;
+	private BufferPool pool;
+	private OutboundQueue queue;
+	private ExecutorService sendExecutor;
+	private byte[] capture;
+	private long droppedAtStart;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Dropped {
+		public long droppedBytes;
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		ring = new BroadcastRing(AbstractMediaProcessor.DEFAULT_BUFFER_CAPACITY,
+				AbstractMediaProcessor.DEFAULT_BUFFER_CAPACITY);
+		subscription = ring.subscribe();
+		pool = new BufferPool(frameSize, MAX_POOLED);
+		sendExecutor = "THREAD".equals(sender) ? Executors.newSingleThreadExecutor() : null;
+		queue = new OutboundQueue(new DiscardingSession(), null, pool,
+				sendExecutor == null ? Runnable::run : sendExecutor, MAX_QUEUED_BYTES,
+				OutboundQueue.OverflowPolicy.DROP_OLDEST, e -> {
+					throw new IllegalStateException(e);
+				});
+		capture = SyntheticPcm.sine(CAPTURE_CHUNK_SIZE);
+		droppedAtStart = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws InterruptedException {
+		queue.close();
+		subscription.close();
+		if (sendExecutor != null) {
+			sendExecutor.shutdown();
+			sendExecutor.awaitTermination(1, TimeUnit.SECONDS);
+		}
+	}
+
+	@Benchmark
+	public void rechunk(Dropped counter) {
+		ring.publish(capture, 0, capture.length);
+		while (subscription.getLag() > 0) {
+			ByteBuffer frame = pool.acquire();
+			int n = subscription.read(frame.array(), frame.arrayOffset(), frame.capacity(), 0, TimeUnit.MILLISECONDS);
+			if (n <= 0) {
+				pool.release(frame);
+				break;
+			}
+			frame.limit(n);
+			queue.offer(frame, true);
+		}
+		long dropped = queue.getDroppedBytes();
+		counter.droppedBytes += dropped - droppedAtStart;
+		droppedAtStart = dropped;
+	}
+}
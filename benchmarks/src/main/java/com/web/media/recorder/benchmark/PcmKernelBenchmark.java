@@ -0,0 +1,114 @@
+package com.web.media.recorder.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.web.media.recorder.media.dsp.PcmConverter;
+import com.web.media.recorder.media.dsp.PcmKernels;
+
+/**
+ * 监听流格式转换：标量与 Vector API 计算核心的对比
+ * <p>
+ * 各基准处理一个回调大小的合成立体声数据，分别测量下混、FIR 点积、量化以及完整的转换流程（下混 + 降采样 + 打包）。
+ * 需在 JDK 17 及以上运行，fork 出的 JVM 会加上 {@code --add-modules jdk.incubator.vector}。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Thread)
+public class PcmKernelBenchmark {
+	private static final int TAPS = 32;
+
+	@Param({ "scalar", "vector" })
+	private String kernel;
+
+	@Param({ "4096" })
+	private int callbackSize;
+
+	@Param({ "16000" })
+	private int outputRate;
+
+	private PcmKernels kernels;
+	private PcmConverter converter;
+	private byte[] pcm;
+	private short[] samples;
+	private int frames;
+	private float[] mono;
+	private float[] taps;
+	private short[] quantized;
+	private byte[] output;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		kernels = "vector".equals(kernel) ? PcmKernels.vector() : PcmKernels.scalar();
+		if (kernels == null) {
+			throw new IllegalStateException("运行时不支持 Vector API，需 JDK 17+ 并加 --add-modules jdk.incubator.vector");
+		}
+		pcm = SyntheticPcm.sine(callbackSize);
+		frames = pcm.length / SyntheticPcm.BLOCK_ALIGN;
+		samples = new short[frames * SyntheticPcm.CHANNELS];
+		ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+		mono = new float[frames + TAPS];
+		kernels.downmix(samples, frames, SyntheticPcm.CHANNELS, mono, 0);
+		taps = new float[TAPS];
+		for (int i = 0; i < TAPS; i++) {
+			taps[i] = 1f / TAPS;
+		}
+		quantized = new short[frames];
+		converter = new PcmConverter(SyntheticPcm.SAMPLE_RATE, SyntheticPcm.CHANNELS, outputRate, 1, 16, kernels);
+		output = new byte[callbackSize * 2];
+	}
+
+	@Benchmark
+	public float[] downmix() {
+		kernels.downmix(samples, frames, SyntheticPcm.CHANNELS, mono, 0);
+		return mono;
+	}
+
+	/**
+	 * 对每个输入位置做一次 32 阶点积，相当于不抽取的 FIR 滤波
+	 */
+	@Benchmark
+	public float fir() {
+		float sum = 0;
+		for (int i = 0; i < frames; i++) {
+			sum += kernels.dot(mono, i, taps, 0, TAPS);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public short[] quantize() {
+		kernels.quantize(mono, frames, quantized);
+		return quantized;
+	}
+
+	@Benchmark
+	public int convert() {
+		int produced = 0;
+		int offset = 0;
+		while (offset < pcm.length) {
+			int length = Math.min(pcm.length - offset, converter.inputCapacity(output.length - produced));
+			System.arraycopy(pcm, offset, converter.inputBuffer(), converter.inputOffset(), length);
+			produced += converter.convert(length, output, produced);
+			offset += length;
+		}
+		return produced;
+	}
+}
@@ -0,0 +1,144 @@
+package com.web.media.recorder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.SpscByteRingBuffer;
+import com.web.media.recorder.media.processor.SpscByteRingBuffer.OverflowPolicy;
+import com.web.media.recorder.media.processor.broadcast.BroadcastRing;
+
+/**
+ * 采集线程与推流线程之间的实时数据交接，生产者与消费者同时运行
+ * <p>
+ * {@code spsc}：单订阅时的 {@link SpscByteRingBuffer}，一个生产者一个消费者；
+ * {@code broadcast}：{@link BroadcastRing} 一写多读，消费者落后过多被剔除时重新订阅并计入 {@code evictions}。
+ * 吞吐按每个线程的操作数分别给出。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RealtimeQueueBenchmark {
+	private static final long READ_TIMEOUT_MS = 1;
+
+	@State(Scope.Group)
+	public static class Spsc {
+		@Param({ "512", "4096" })
+		int chunkSize;
+
+		@Param({ "DROP_OLDEST", "BLOCK" })
+		OverflowPolicy policy;
+
+		SpscByteRingBuffer ring;
+		byte[] chunk;
+		byte[] dst;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			ring = new SpscByteRingBuffer(AbstractMediaProcessor.DEFAULT_BUFFER_CAPACITY, policy);
+			chunk = SyntheticPcm.sine(chunkSize);
+			dst = new byte[chunkSize];
+		}
+	}
+
+	@State(Scope.Group)
+	public static class Broadcast {
+		@Param({ "4096" })
+		int chunkSize;
+
+		BroadcastRing ring;
+		byte[] chunk;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			ring = new BroadcastRing(AbstractMediaProcessor.DEFAULT_BUFFER_CAPACITY,
+					AbstractMediaProcessor.DEFAULT_BUFFER_CAPACITY);
+			chunk = SyntheticPcm.sine(chunkSize);
+		}
+	}
+
+	/**
+	 * 每个消费者线程各自的订阅
+	 */
+	@State(Scope.Thread)
+	public static class Subscriber {
+		BroadcastRing ring;
+		BroadcastRing.Subscription subscription;
+		byte[] dst;
+
+		@Setup(Level.Iteration)
+		public void setUp(Broadcast broadcast) {
+			ring = broadcast.ring;
+			subscription = ring.subscribe();
+			dst = new byte[broadcast.chunkSize];
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() {
+			subscription.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Evictions {
+		public long evictions;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			evictions = 0;
+		}
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	public boolean spscOffer(Spsc state) {
+		return state.ring.offer(state.chunk, 0, state.chunk.length);
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	public int spscRead(Spsc state) {
+		return state.ring.read(state.dst, 0, state.dst.length, READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+	}
+
+	@Benchmark
+	@Group("broadcast")
+	@GroupThreads(1)
+	public void broadcastPublish(Broadcast state) {
+		state.ring.publish(state.chunk, 0, state.chunk.length);
+	}
+
+	@Benchmark
+	@Group("broadcast")
+	@GroupThreads(3)
+	public int broadcastRead(Subscriber subscriber, Evictions counter) {
+		int n = subscriber.subscription.read(subscriber.dst, 0, subscriber.dst.length, READ_TIMEOUT_MS,
+				TimeUnit.MILLISECONDS);
+		if (n < 0 && subscriber.subscription.isEvicted()) {
+			counter.evictions++;
+			subscriber.subscription = subscriber.ring.subscribe();
+		}
+		return n;
+	}
+}
@@ -0,0 +1,71 @@
+package com.web.media.recorder.benchmark;
+
+import java.nio.file.Path;
+
+import com.web.media.recorder.media.file.AudioFile;
+import com.web.media.recorder.media.file.AudioStorageMode;
+import com.web.media.recorder.media.file.MediaFile;
+import com.web.media.recorder.media.file.SegmentedAudioFile;
+
+/**
+ * 基准中持续写入的录音文件，写满上限后删除并重新创建，避免长时间运行占满磁盘
+ */
+final class RotatingRecording {
+	static final long DEFAULT_ROTATE_BYTES = 256L * 1024 * 1024;
+	// 分段模式下每段的时长，取较短值使基准覆盖段滚动
+	private static final long SEGMENT_DURATION_MS = 10_000;
+
+	private final AudioStorageMode mode;
+	private final long rotateBytes;
+	private Path directory;
+	private MediaFile file;
+	private long written;
+
+	RotatingRecording(AudioStorageMode mode, long rotateBytes) {
+		this.mode = mode;
+		this.rotateBytes = rotateBytes;
+	}
+
+	void open() {
+		directory = TempDirectory.create("recorder-bench");
+		String dir = directory.toString();
+		switch (mode) {
+		case RF64:
+			file = new AudioFile(dir, SyntheticPcm.SAMPLE_RATE, SyntheticPcm.CHANNELS, SyntheticPcm.BITS_PER_SAMPLE,
+					true);
+			break;
+		case SEGMENTED:
+			file = new SegmentedAudioFile(dir, SyntheticPcm.SAMPLE_RATE, SyntheticPcm.CHANNELS,
+					SyntheticPcm.BITS_PER_SAMPLE, SEGMENT_DURATION_MS, 0);
+			break;
+		default:
+			file = new AudioFile(dir, SyntheticPcm.SAMPLE_RATE, SyntheticPcm.CHANNELS, SyntheticPcm.BITS_PER_SAMPLE);
+			break;
+		}
+		written = 0;
+	}
+
+	MediaFile file() {
+		return file;
+	}
+
+	/**
+	 * 记录写入量，达到上限时换新文件
+	 */
+	void written(int bytes) {
+		written += bytes;
+		if (written >= rotateBytes) {
+			close();
+			open();
+		}
+	}
+
+	void close() {
+		if (file != null) {
+			file.close();
+			file = null;
+		}
+		TempDirectory.delete(directory);
+		directory = null;
+	}
+}
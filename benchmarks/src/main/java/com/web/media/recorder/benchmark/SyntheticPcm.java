@@ -0,0 +1,39 @@
+package com.web.media.recorder.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 合成 PCM 数据，基准不依赖音频设备
+ */
+final class SyntheticPcm {
+	static final int SAMPLE_RATE = 44100;
+	static final int CHANNELS = 2;
+	static final int BITS_PER_SAMPLE = 16;
+	static final int BLOCK_ALIGN = CHANNELS * BITS_PER_SAMPLE / 8;
+
+	private SyntheticPcm() {
+	}
+
+	/**
+	 * 生成 440Hz 正弦波的 16 位立体声小端 PCM，长度按采样帧向下对齐
+	 */
+	static byte[] sine(int length) {
+		int frames = Math.max(1, length / BLOCK_ALIGN);
+		ByteBuffer buffer = ByteBuffer.allocate(frames * BLOCK_ALIGN).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < frames; i++) {
+			short sample = (short) (Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE) * 8000);
+			for (int c = 0; c < CHANNELS; c++) {
+				buffer.putShort(sample);
+			}
+		}
+		return buffer.array();
+	}
+
+	static ByteBuffer directSine(int length) {
+		byte[] pcm = sine(length);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(pcm.length);
+		buffer.put(pcm).flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,41 @@
+package com.web.media.recorder.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准写入文件使用的临时目录，结束时连同内容删除
+ */
+final class TempDirectory {
+	private TempDirectory() {
+	}
+
+	static Path create(String prefix) {
+		try {
+			return Files.createTempDirectory(prefix);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static void delete(Path directory) {
+		if (directory == null || !Files.exists(directory)) {
+			return;
+		}
+		try {
+			if (Files.isDirectory(directory)) {
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+					for (Path child : stream) {
+						delete(child);
+					}
+				}
+			}
+			Files.deleteIfExists(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
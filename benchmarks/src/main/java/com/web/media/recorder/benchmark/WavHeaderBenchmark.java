@@ -0,0 +1,79 @@
+package com.web.media.recorder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.web.media.recorder.media.file.AudioStorageMode;
+import com.web.media.recorder.media.file.WavHeader;
+
+/**
+ * WAV 头部的生成与回写开销
+ * <p>
+ * {@code appendOnly} 与 {@code appendAndCheckpoint} 写入同样大小的数据，
+ * 两者之差即每次检查点回写头部（定位写 + 落盘）的成本。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WavHeaderBenchmark {
+	private static final int CHUNK_SIZE = 4096;
+
+	@Param({ "SINGLE", "RF64" })
+	private AudioStorageMode storage;
+
+	private RotatingRecording recording;
+	private byte[] chunk;
+	private long dataSize;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		chunk = SyntheticPcm.sine(CHUNK_SIZE);
+		recording = new RotatingRecording(storage, RotatingRecording.DEFAULT_ROTATE_BYTES);
+		recording.open();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		recording.close();
+	}
+
+	@Benchmark
+	public byte[] createHeader() {
+		dataSize += CHUNK_SIZE;
+		if (storage == AudioStorageMode.RF64) {
+			return WavHeader.createRf64Header(dataSize, SyntheticPcm.SAMPLE_RATE, SyntheticPcm.CHANNELS,
+					SyntheticPcm.BITS_PER_SAMPLE);
+		}
+		return WavHeader.createHeader(dataSize, SyntheticPcm.SAMPLE_RATE, SyntheticPcm.CHANNELS,
+				SyntheticPcm.BITS_PER_SAMPLE);
+	}
+
+	@Benchmark
+	public void appendOnly() {
+		recording.file().writeData(chunk);
+		recording.written(chunk.length);
+	}
+
+	@Benchmark
+	public void appendAndCheckpoint() {
+		recording.file().writeData(chunk);
+		recording.file().checkpoint();
+		recording.written(chunk.length);
+	}
+}
@@ -0,0 +1,119 @@
+package com.web.media.recorder.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以独立进程启动被测应用（合成采集源），压测端的内存与 GC 不计入被测进程
+ */
+final class AppProcess implements AutoCloseable {
+	private static final long STARTUP_TIMEOUT_MS = 120_000;
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 20;
+
+	private final Process process;
+	private final URI baseUri;
+	private final Path log;
+
+	private AppProcess(Process process, URI baseUri, Path log) {
+		this.process = process;
+		this.baseUri = baseUri;
+		this.log = log;
+	}
+
+	/**
+	 * 启动应用并等待健康检查通过；工作目录为 jar 所在工程的根目录，与 mvn spring-boot:run 一致
+	 *
+	 * @param audioDir 录音目录
+	 */
+	static AppProcess start(LoadTestOptions options, Path audioDir, Path log) throws IOException, InterruptedException {
+		Path jar = options.jar.toAbsolutePath().normalize();
+		if (!Files.isRegularFile(jar)) {
+			throw new IOException("未找到被测应用: " + jar + "，请先在工程根目录执行 mvn package -DskipTests");
+		}
+		Map<String, String> appArgs = new LinkedHashMap<>();
+		appArgs.put("server.port", String.valueOf(options.port));
+		appArgs.put("media.processor.type", "synthetic");
+		appArgs.put("media.audio.dir", audioDir.toString());
+		// 所有会话都应进入活动状态，排队另行统计
+		appArgs.put("media.websocket.max-sessions", String.valueOf(options.uploads + options.listeners));
+		appArgs.putAll(options.appArgs);
+
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(options.jvmArgs);
+		command.add("-jar");
+		command.add(jar.toString());
+		appArgs.forEach((name, value) -> command.add("--" + name + "=" + value));
+
+		Path parent = jar.getParent() == null ? null : jar.getParent().getParent();
+		File workDir = parent != null && Files.isDirectory(parent) ? parent.toFile() : null;
+		Files.createDirectories(log.toAbsolutePath().getParent());
+		Process process = new ProcessBuilder(command)
+				.directory(workDir)
+				.redirectErrorStream(true)
+				.redirectOutput(log.toFile())
+				.start();
+		AppProcess app = new AppProcess(process, URI.create("http://localhost:" + appArgs.get("server.port")), log);
+		try {
+			app.awaitHealthy();
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			app.close();
+			throw e;
+		}
+		return app;
+	}
+
+	private void awaitHealthy() throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+		HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/actuator/health"))
+				.timeout(Duration.ofSeconds(5))
+				.GET()
+				.build();
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MS;
+		while (System.currentTimeMillis() < deadline) {
+			if (!process.isAlive()) {
+				throw new IOException("被测应用启动失败，退出码 " + process.exitValue() + "，见 " + log);
+			}
+			try {
+				HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+				if (response.statusCode() == 200 && response.body().contains("\"UP\"")) {
+					return;
+				}
+			} catch (IOException e) {
+				// 尚未开始监听
+			}
+			Thread.sleep(500);
+		}
+		throw new IOException("等待被测应用启动超时，见 " + log);
+	}
+
+	URI getBaseUri() {
+		return baseUri;
+	}
+
+	@Override
+	public void close() {
+		process.destroy();
+		try {
+			if (!process.waitFor(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.web.media.recorder.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 以微秒为单位的对数分桶直方图，可被多个会话线程并发记录
+ * <p>
+ * 每个 2 的幂区间再均分 32 档，相对误差约 3%，内存固定，不随样本数增长。
+ */
+final class LatencyHistogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	void recordNanos(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts.incrementAndGet(index(micros));
+		total.incrementAndGet();
+		max.accumulateAndGet(micros, Math::max);
+	}
+
+	long count() {
+		return total.get();
+	}
+
+	/**
+	 * @return 分位数对应的微秒数，没有样本时为 0
+	 */
+	long percentileMicros(double quantile) {
+		long n = total.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(valueOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	ObjectNode toJson() {
+		ObjectNode node = JsonNodeFactory.instance.objectNode();
+		node.put("count", count());
+		node.put("p50Ms", percentileMicros(0.50) / 1000.0);
+		node.put("p90Ms", percentileMicros(0.90) / 1000.0);
+		node.put("p99Ms", percentileMicros(0.99) / 1000.0);
+		node.put("p999Ms", percentileMicros(0.999) / 1000.0);
+		node.put("maxMs", max.get() / 1000.0);
+		return node;
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	// 桶的中点
+	private static long valueOf(int index) {
+		int bucket = index / SUB_BUCKETS;
+		int sub = index % SUB_BUCKETS;
+		if (bucket == 0) {
+			return sub;
+		}
+		int shift = bucket - 1;
+		return ((long) (SUB_BUCKETS + sub) << shift) + ((1L << shift) >> 1);
+	}
+}
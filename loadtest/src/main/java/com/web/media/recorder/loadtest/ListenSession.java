@@ -0,0 +1,130 @@
+package com.web.media.recorder.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 监听会话：发送只含类型字节的消息开始接收实时推流，连接地址带 timing=1，
+ * 格式头之后的每帧以 8 字节大端的服务端采集时间开头，据此计算采集到收到整帧的延迟
+ */
+final class ListenSession implements WebSocket.Listener {
+	private static final byte TYPE_AUDIO = 0;
+	private static final int TIMING_HEADER_SIZE = Long.BYTES;
+
+	private final LoadStats stats;
+	// 服务端在同一台机器上时两端的单调时钟相同，延迟才有意义
+	private final boolean sameClock;
+	private volatile WebSocket socket;
+	private volatile boolean closing;
+	private boolean preambleReceived;
+	// 当前消息已读到的时间戳字节数与值（时间戳可能被拆在多个分片中）
+	private int timingBytes;
+	private long captureNanos;
+	private boolean queuedReported;
+	private final StringBuilder text = new StringBuilder();
+
+	private ListenSession(LoadStats stats, boolean sameClock) {
+		this.stats = stats;
+		this.sameClock = sameClock;
+	}
+
+	static CompletableFuture<ListenSession> open(HttpClient client, URI uri, LoadStats stats, boolean sameClock) {
+		ListenSession session = new ListenSession(stats, sameClock);
+		return client.newWebSocketBuilder()
+				.connectTimeout(Duration.ofSeconds(10))
+				.buildAsync(uri, session)
+				.handle((socket, error) -> {
+					if (error != null) {
+						stats.listenersFailed.incrementAndGet();
+						return null;
+					}
+					stats.listenersOpened.incrementAndGet();
+					return session;
+				});
+	}
+
+	@Override
+	public void onOpen(WebSocket webSocket) {
+		this.socket = webSocket;
+		webSocket.sendBinary(ByteBuffer.wrap(new byte[] { TYPE_AUDIO }), true);
+		webSocket.request(1);
+	}
+
+	@Override
+	public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+		if (!preambleReceived) {
+			// 第一条二进制消息是格式头
+			preambleReceived = last;
+			webSocket.request(1);
+			return null;
+		}
+		while (timingBytes < TIMING_HEADER_SIZE && data.hasRemaining()) {
+			captureNanos = (captureNanos << 8) | (data.get() & 0xFF);
+			timingBytes++;
+		}
+		boolean measuring = stats.isMeasuring();
+		if (measuring) {
+			stats.listenedBytes.add(data.remaining());
+		}
+		if (last) {
+			long now = System.nanoTime();
+			if (measuring) {
+				stats.listenedFrames.increment();
+				if (sameClock && captureNanos != 0 && timingBytes == TIMING_HEADER_SIZE) {
+					stats.listenLatency.recordNanos(now - captureNanos);
+				}
+			}
+			timingBytes = 0;
+			captureNanos = 0;
+		}
+		webSocket.request(1);
+		return null;
+	}
+
+	@Override
+	public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+		text.append(data);
+		if (last) {
+			// 排队通知 {"type":"queued","position":N}；静音通知等其他控制消息不影响统计
+			if (!queuedReported && text.indexOf("\"queued\"") >= 0) {
+				queuedReported = true;
+				stats.queued.incrementAndGet();
+			}
+			text.setLength(0);
+		}
+		webSocket.request(1);
+		return null;
+	}
+
+	@Override
+	public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+		if (!closing) {
+			stats.listenersClosed.incrementAndGet();
+			stats.closedByServer(statusCode);
+		}
+		closing = true;
+		return null;
+	}
+
+	@Override
+	public void onError(WebSocket webSocket, Throwable error) {
+		if (!closing) {
+			stats.listenersClosed.incrementAndGet();
+			stats.closedByServer(-1);
+		}
+		closing = true;
+	}
+
+	void close() {
+		closing = true;
+		WebSocket ws = socket;
+		if (ws != null && !ws.isOutputClosed()) {
+			ws.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.web.media.recorder.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 压测报告：压测端统计与服务端指标在稳态窗口内的变化，写为 JSON 并可与之前的报告逐项对比
+ */
+final class LoadReport {
+	private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+	private static final double MB = 1024 * 1024;
+	// 对比时列出的指标
+	private static final String[] COMPARED = {
+			"/throughput/uploadMbps", "/throughput/listenMbps", "/throughput/listenFramesPerSecond",
+			"/latency/listen/p50Ms", "/latency/listen/p99Ms", "/latency/listen/p999Ms",
+			"/latency/uploadSend/p99Ms", "/sessions/uploadsClosed", "/sessions/listenersClosed",
+			"/server/heapUsedMaxMb", "/server/gcPauseMs", "/server/allocatedMbPerSecond", "/server/cpuAverage" };
+
+	private final ObjectNode root = MAPPER.createObjectNode();
+
+	/**
+	 * @param heapUsedMax 窗口内采样到的最大已用堆内存（字节）
+	 * @param cpuAverage  窗口内采样的进程 CPU 使用率平均值
+	 */
+	LoadReport(LoadTestOptions options, String build, LoadStats stats, ServerMetrics before, ServerMetrics after,
+			double seconds, double heapUsedMax, double cpuAverage) {
+		root.put("build", build);
+		root.put("timestamp", OffsetDateTime.now().toString());
+		root.put("java", System.getProperty("java.version"));
+
+		ObjectNode config = root.putObject("config");
+		config.put("uploads", options.uploads);
+		config.put("listeners", options.listeners);
+		config.put("uploadKbps", options.uploadKbps);
+		config.put("uploadIntervalMs", options.uploadIntervalMs);
+		config.put("rampSeconds", options.rampSeconds);
+		config.put("durationSeconds", options.durationSeconds);
+		config.put("listenQuery", options.listenQuery);
+		config.put("target", options.url == null ? "spawned" : options.url);
+		ObjectNode appArgs = config.putObject("appArgs");
+		options.appArgs.forEach(appArgs::put);
+		root.put("windowSeconds", round(seconds));
+
+		ObjectNode sessions = root.putObject("sessions");
+		sessions.put("uploadsOpened", stats.uploadsOpened.get());
+		sessions.put("uploadsFailed", stats.uploadsFailed.get());
+		sessions.put("uploadsClosed", stats.uploadsClosed.get());
+		sessions.put("listenersOpened", stats.listenersOpened.get());
+		sessions.put("listenersFailed", stats.listenersFailed.get());
+		sessions.put("listenersClosed", stats.listenersClosed.get());
+		sessions.put("queued", stats.queued.get());
+		ObjectNode codes = sessions.putObject("closeCodes");
+		stats.getCloseCodes().forEach((code, count) -> codes.put(String.valueOf(code), count));
+		ObjectNode disconnects = sessions.putObject("serverDisconnects");
+		deltaBy(before, after, "recorder_websocket_disconnects_total", "reason")
+				.forEach((reason, count) -> disconnects.put(reason, count.longValue()));
+		sessions.put("serverRejected", (long) delta(before, after, "recorder_websocket_rejected_total"));
+
+		ObjectNode throughput = root.putObject("throughput");
+		throughput.put("uploadMbps", round(stats.uploadedBytes.sum() * 8 / 1e6 / seconds));
+		throughput.put("uploadTargetMbps", round(options.uploads * options.uploadKbps / 1000.0));
+		throughput.put("uploadStalls", stats.uploadStalls.sum());
+		throughput.put("uploadErrors", stats.uploadErrors.sum());
+		throughput.put("listenMbps", round(stats.listenedBytes.sum() * 8 / 1e6 / seconds));
+		throughput.put("listenFramesPerSecond", round(stats.listenedFrames.sum() / seconds));
+		throughput.put("serverReceivedMbps",
+				round(delta(before, after, "recorder_websocket_received_bytes_total") * 8 / 1e6 / seconds));
+		throughput.put("serverSentMbps",
+				round(delta(before, after, "recorder_websocket_sent_bytes_total") * 8 / 1e6 / seconds));
+		throughput.put("serverWrittenMbps",
+				round(delta(before, after, "recorder_file_written_bytes_total") * 8 / 1e6 / seconds));
+
+		ObjectNode latency = root.putObject("latency");
+		latency.set("listen", stats.listenLatency.toJson());
+		latency.set("uploadSend", stats.uploadSendLatency.toJson());
+		// 服务端各阶段的 p99（指标自带的滑动窗口）
+		ObjectNode serverP99 = latency.putObject("serverP99Ms");
+		after.select("recorder_latency_seconds", "stage", "quantile", "0.99")
+				.forEach((stage, value) -> serverP99.put(stage, round(value * 1000)));
+
+		ObjectNode server = root.putObject("server");
+		server.put("heapUsedMaxMb", round(heapUsedMax / MB));
+		server.put("heapUsedEndMb", round(after.sum("jvm_memory_used_bytes", "area", "heap") / MB));
+		server.put("heapCommittedMb", round(after.sum("jvm_memory_committed_bytes", "area", "heap") / MB));
+		server.put("gcPauses", (long) delta(before, after, "jvm_gc_pause_seconds_count"));
+		server.put("gcPauseMs", round(delta(before, after, "jvm_gc_pause_seconds_sum") * 1000));
+		server.put("gcPauseMaxMs", round(after.max("jvm_gc_pause_seconds_max") * 1000));
+		server.put("allocatedMbPerSecond",
+				round(delta(before, after, "jvm_gc_memory_allocated_bytes_total") / MB / seconds));
+		server.put("cpuAverage", round(cpuAverage));
+		server.put("liveThreads", (long) after.sum("jvm_threads_live_threads"));
+		server.put("broadcastEvictions", (long) delta(before, after, "recorder_broadcast_evictions_total"));
+		server.put("outboundDroppedBytes",
+				(long) delta(before, after, "recorder_websocket_session_dropped_bytes_total"));
+	}
+
+	private static double delta(ServerMetrics before, ServerMetrics after, String name) {
+		return after.sum(name) - before.sum(name);
+	}
+
+	private static Map<String, Double> deltaBy(ServerMetrics before, ServerMetrics after, String name, String label) {
+		Map<String, Double> result = after.sumBy(name, label);
+		before.sumBy(name, label).forEach((key, value) -> result.merge(key, -value, Double::sum));
+		result.values().removeIf(value -> value == 0);
+		return result;
+	}
+
+	private static double round(double value) {
+		return Double.isFinite(value) ? Math.round(value * 1000) / 1000.0 : 0;
+	}
+
+	void write(Path path) throws IOException {
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		MAPPER.writeValue(path.toFile(), root);
+	}
+
+	void print(PrintStream out) {
+		JsonNode t = root.path("throughput");
+		JsonNode l = root.path("latency").path("listen");
+		JsonNode s = root.path("sessions");
+		JsonNode v = root.path("server");
+		out.printf("构建 %s，窗口 %.1f 秒%n", root.path("build").asText(), root.path("windowSeconds").asDouble());
+		out.printf("会话：录音 %d/%d（失败 %d，中断 %d），监听 %d/%d（失败 %d，中断 %d），排队 %d%n",
+				s.path("uploadsOpened").asInt(), root.path("config").path("uploads").asInt(),
+				s.path("uploadsFailed").asInt(), s.path("uploadsClosed").asInt(),
+				s.path("listenersOpened").asInt(), root.path("config").path("listeners").asInt(),
+				s.path("listenersFailed").asInt(), s.path("listenersClosed").asInt(), s.path("queued").asInt());
+		out.printf("吞吐：上传 %.2f/%.2f Mbps（停顿 %d），监听 %.2f Mbps，%.1f 帧/秒%n",
+				t.path("uploadMbps").asDouble(), t.path("uploadTargetMbps").asDouble(), t.path("uploadStalls").asLong(),
+				t.path("listenMbps").asDouble(), t.path("listenFramesPerSecond").asDouble());
+		out.printf("监听延迟：p50 %.1f ms，p99 %.1f ms，p99.9 %.1f ms，最大 %.1f ms（%d 帧）%n",
+				l.path("p50Ms").asDouble(), l.path("p99Ms").asDouble(), l.path("p999Ms").asDouble(),
+				l.path("maxMs").asDouble(), l.path("count").asLong());
+		out.printf("服务端：堆最大 %.1f MB，GC %d 次共 %.1f ms（最长 %.1f ms），分配 %.1f MB/s，CPU %.1f%%%n",
+				v.path("heapUsedMaxMb").asDouble(), v.path("gcPauses").asLong(), v.path("gcPauseMs").asDouble(),
+				v.path("gcPauseMaxMs").asDouble(), v.path("allocatedMbPerSecond").asDouble(),
+				v.path("cpuAverage").asDouble() * 100);
+	}
+
+	/**
+	 * 与之前的报告逐项对比
+	 */
+	void compare(Path baselinePath, PrintStream out) throws IOException {
+		JsonNode baseline = MAPPER.readTree(baselinePath.toFile());
+		out.printf("对比 %s（构建 %s）:%n", baselinePath, baseline.path("build").asText());
+		for (String pointer : COMPARED) {
+			JsonNode was = baseline.at(pointer);
+			JsonNode now = root.at(pointer);
+			if (was.isMissingNode() || now.isMissingNode()) {
+				continue;
+			}
+			double a = was.asDouble();
+			double b = now.asDouble();
+			String change = a == 0 ? "" : String.format("（%+.1f%%）", (b - a) / a * 100);
+			out.printf("  %-36s %12.3f -> %12.3f %s%n", pointer, a, b, change);
+		}
+	}
+}
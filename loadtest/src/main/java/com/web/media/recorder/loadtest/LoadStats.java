@@ -0,0 +1,57 @@
+package com.web.media.recorder.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测端的统计，由所有会话共享
+ * <p>
+ * 字节数与延迟只在稳态测量窗口内记录，建立会话期间的数据不计入；会话数与异常断开全程统计。
+ */
+final class LoadStats {
+	final AtomicInteger uploadsOpened = new AtomicInteger();
+	final AtomicInteger uploadsFailed = new AtomicInteger();
+	final AtomicInteger uploadsClosed = new AtomicInteger();
+	final AtomicInteger listenersOpened = new AtomicInteger();
+	final AtomicInteger listenersFailed = new AtomicInteger();
+	final AtomicInteger listenersClosed = new AtomicInteger();
+	// 因达到服务端会话上限而进入等待队列的会话
+	final AtomicInteger queued = new AtomicInteger();
+	// 非压测端主动关闭的连接，按关闭码统计
+	private final Map<Integer, AtomicInteger> closeCodes = new ConcurrentHashMap<>();
+
+	final LongAdder uploadedBytes = new LongAdder();
+	// 上一条消息尚未发完而推迟的上传次数，持续增长说明服务端读不过来
+	final LongAdder uploadStalls = new LongAdder();
+	final LongAdder uploadErrors = new LongAdder();
+	final LongAdder listenedBytes = new LongAdder();
+	final LongAdder listenedFrames = new LongAdder();
+
+	// 采集到监听端收到整帧，依赖帧头中的服务端采集时间，只在同一台机器上有意义
+	final LatencyHistogram listenLatency = new LatencyHistogram();
+	// 上传消息从发出到写入套接字
+	final LatencyHistogram uploadSendLatency = new LatencyHistogram();
+
+	private volatile boolean measuring;
+
+	boolean isMeasuring() {
+		return measuring;
+	}
+
+	void setMeasuring(boolean measuring) {
+		this.measuring = measuring;
+	}
+
+	void closedByServer(int code) {
+		closeCodes.computeIfAbsent(code, k -> new AtomicInteger()).incrementAndGet();
+	}
+
+	Map<Integer, Integer> getCloseCodes() {
+		Map<Integer, Integer> result = new TreeMap<>();
+		closeCodes.forEach((code, count) -> result.put(code, count.get()));
+		return result;
+	}
+}
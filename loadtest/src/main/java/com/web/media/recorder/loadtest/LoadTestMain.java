@@ -0,0 +1,205 @@
+package com.web.media.recorder.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * WebSocket 压测入口：启动使用合成采集源的被测应用（或连接已运行的服务），
+ * 逐步建立录音与监听会话，稳态窗口内统计吞吐、帧延迟、断开会话及服务端堆内存与 GC，输出可逐版本对比的报告
+ */
+public final class LoadTestMain {
+	private static final long SETTLE_MS = 2000;
+
+	private LoadTestMain() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestOptions options;
+		try {
+			options = LoadTestOptions.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+			return;
+		}
+		System.exit(run(options));
+	}
+
+	private static int run(LoadTestOptions options) throws Exception {
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+		Path audioDir = null;
+		AppProcess app = null;
+		try {
+			URI baseUri;
+			if (options.url == null) {
+				audioDir = Files.createTempDirectory("loadtest-audio");
+				app = AppProcess.start(options, audioDir, Paths.get("target", "loadtest-app.log"));
+				baseUri = app.getBaseUri();
+			} else {
+				baseUri = URI.create(options.url);
+			}
+			String host = baseUri.getHost();
+			boolean sameClock = "localhost".equals(host) || "127.0.0.1".equals(host);
+			String ws = ("https".equals(baseUri.getScheme()) ? "wss://" : "ws://") + baseUri.getAuthority() + "/websocket";
+			URI uploadUri = URI.create(ws);
+			URI listenUri = URI.create(ws + "?timing=1" + (options.listenQuery.isEmpty() ? "" : "&" + options.listenQuery));
+			if (!sameClock) {
+				System.out.println("服务端不在本机，不统计监听延迟");
+			}
+
+			LoadStats stats = new LoadStats();
+			List<UploadSession> uploads = new ArrayList<>();
+			List<ListenSession> listeners = new ArrayList<>();
+			ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "loadtest-upload");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				ramp(client, options, stats, uploadUri, listenUri, sameClock, uploads, listeners);
+				scheduler.scheduleAtFixedRate(() -> {
+					for (UploadSession upload : uploads) {
+						upload.tick();
+					}
+				}, 0, options.uploadIntervalMs, TimeUnit.MILLISECONDS);
+				Thread.sleep(SETTLE_MS);
+
+				ServerMetrics before = ServerMetrics.scrape(client, baseUri);
+				stats.setMeasuring(true);
+				long start = System.nanoTime();
+				double heapUsedMax = before.sum("jvm_memory_used_bytes", "area", "heap");
+				double cpuTotal = 0;
+				int cpuSamples = 0;
+				for (int second = 1; second <= options.durationSeconds; second++) {
+					Thread.sleep(Math.max(0, start + second * 1_000_000_000L - System.nanoTime()) / 1_000_000);
+					ServerMetrics sample = ServerMetrics.scrape(client, baseUri);
+					heapUsedMax = Math.max(heapUsedMax, sample.sum("jvm_memory_used_bytes", "area", "heap"));
+					cpuTotal += sample.sum("process_cpu_usage");
+					cpuSamples++;
+					if (second % 10 == 0 || second == options.durationSeconds) {
+						System.out.printf("%3d/%d 秒：监听 %d 帧，断开 %d%n", second, options.durationSeconds,
+								stats.listenedFrames.sum(), stats.uploadsClosed.get() + stats.listenersClosed.get());
+					}
+				}
+				stats.setMeasuring(false);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				ServerMetrics after = ServerMetrics.scrape(client, baseUri);
+
+				LoadReport report = new LoadReport(options, build(options), stats, before, after, seconds,
+						heapUsedMax, cpuSamples == 0 ? 0 : cpuTotal / cpuSamples);
+				report.write(options.report);
+				report.print(System.out);
+				System.out.println("报告: " + options.report.toAbsolutePath());
+				if (options.baseline != null) {
+					report.compare(options.baseline, System.out);
+				}
+			} finally {
+				scheduler.shutdownNow();
+				uploads.forEach(UploadSession::close);
+				listeners.forEach(ListenSession::close);
+			}
+			return 0;
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			return 1;
+		} finally {
+			if (app != null) {
+				app.close();
+			}
+			if (audioDir != null) {
+				if (options.keepRecordings) {
+					System.out.println("录音保留在 " + audioDir);
+				} else {
+					deleteRecursively(audioDir);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 在爬坡时长内均匀交替建立录音与监听会话，建立失败的会话计入统计后跳过
+	 */
+	private static void ramp(HttpClient client, LoadTestOptions options, LoadStats stats, URI uploadUri,
+			URI listenUri, boolean sameClock, List<UploadSession> uploads, List<ListenSession> listeners)
+			throws InterruptedException {
+		int total = options.uploads + options.listeners;
+		long intervalNanos = options.rampSeconds * 1_000_000_000L / total;
+		long start = System.nanoTime();
+		List<CompletableFuture<UploadSession>> pendingUploads = new ArrayList<>();
+		List<CompletableFuture<ListenSession>> pendingListeners = new ArrayList<>();
+		int openedUploads = 0;
+		int openedListeners = 0;
+		for (int i = 0; i < total; i++) {
+			// 按两类会话各自的比例交替，避免先建满一类
+			boolean upload = openedListeners >= options.listeners || (openedUploads < options.uploads
+					&& (long) openedUploads * options.listeners <= (long) openedListeners * options.uploads);
+			if (upload) {
+				pendingUploads.add(UploadSession.open(client, uploadUri, stats, options.uploadKbps));
+				openedUploads++;
+			} else {
+				pendingListeners.add(ListenSession.open(client, listenUri, stats, sameClock));
+				openedListeners++;
+			}
+			long wait = start + (i + 1) * intervalNanos - System.nanoTime();
+			if (wait > 0) {
+				Thread.sleep(wait / 1_000_000);
+			}
+		}
+		for (CompletableFuture<UploadSession> future : pendingUploads) {
+			UploadSession session = future.join();
+			if (session != null) {
+				uploads.add(session);
+			}
+		}
+		for (CompletableFuture<ListenSession> future : pendingListeners) {
+			ListenSession session = future.join();
+			if (session != null) {
+				listeners.add(session);
+			}
+		}
+		System.out.printf("已建立录音会话 %d/%d，监听会话 %d/%d%n", uploads.size(), options.uploads,
+				listeners.size(), options.listeners);
+	}
+
+	private static String build(LoadTestOptions options) {
+		if (options.build != null) {
+			return options.build;
+		}
+		try {
+			Process git = new ProcessBuilder("git", "describe", "--always", "--dirty")
+					.redirectErrorStream(true)
+					.start();
+			String output = new String(git.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+			if (git.waitFor() == 0 && !output.isEmpty()) {
+				return output;
+			}
+		} catch (IOException e) {
+			// 没有 git 时使用 unknown
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return "unknown";
+	}
+
+	private static void deleteRecursively(Path dir) {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		} catch (IOException e) {
+			System.err.println("删除录音目录失败: " + dir);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.web.media.recorder.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 命令行参数，均为 --name=value 形式；以 --media.、--server.、--spring.、--management. 开头的参数原样传给被测应用
+ */
+final class LoadTestOptions {
+	private static final String[] APP_PREFIXES = { "media.", "server.", "spring.", "management.", "logging." };
+
+	// 录音会话数与监听会话数
+	int uploads = 10;
+	int listeners = 10;
+	// 每个录音会话的上传码率，默认相当于 44.1kHz 16 位立体声 PCM
+	int uploadKbps = 1411;
+	// 上传消息间隔（毫秒），每条消息带类型字节
+	int uploadIntervalMs = 20;
+	// 建立全部会话的时长，以及之后的稳态测量时长（秒）
+	int rampSeconds = 10;
+	int durationSeconds = 60;
+	// 监听会话连接地址附加的查询参数，如 monitor=1
+	String listenQuery = "";
+	// 已运行服务的地址（如 http://host:8080），为空时自行启动 jar
+	String url;
+	Path jar = Paths.get("../target/webMediaRecorder-1.0-SNAPSHOT.jar");
+	int port = 18090;
+	final List<String> jvmArgs = new ArrayList<>();
+	final Map<String, String> appArgs = new LinkedHashMap<>();
+	Path report = Paths.get("target/loadtest-report.json");
+	Path baseline;
+	// 报告中的构建标识，默认取 git 提交
+	String build;
+	boolean keepRecordings;
+
+	static LoadTestOptions parse(String[] args) {
+		LoadTestOptions options = new LoadTestOptions();
+		for (String arg : args) {
+			if (arg.equals("-h") || arg.equals("--help")) {
+				throw new IllegalArgumentException(usage());
+			}
+			if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+				throw new IllegalArgumentException("无法识别的参数: " + arg + "\n" + usage());
+			}
+			String name = arg.substring(2, arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if (isAppArg(name)) {
+				options.appArgs.put(name, value);
+				continue;
+			}
+			switch (name) {
+			case "uploads":
+				options.uploads = Integer.parseInt(value);
+				break;
+			case "listeners":
+				options.listeners = Integer.parseInt(value);
+				break;
+			case "upload-kbps":
+				options.uploadKbps = Integer.parseInt(value);
+				break;
+			case "upload-interval-ms":
+				options.uploadIntervalMs = Math.max(1, Integer.parseInt(value));
+				break;
+			case "ramp":
+				options.rampSeconds = Integer.parseInt(value);
+				break;
+			case "duration":
+				options.durationSeconds = Integer.parseInt(value);
+				break;
+			case "listen-query":
+				options.listenQuery = value;
+				break;
+			case "url":
+				options.url = value;
+				break;
+			case "jar":
+				options.jar = Paths.get(value);
+				break;
+			case "port":
+				options.port = Integer.parseInt(value);
+				break;
+			case "jvm-arg":
+				options.jvmArgs.add(value);
+				break;
+			case "report":
+				options.report = Paths.get(value);
+				break;
+			case "baseline":
+				options.baseline = Paths.get(value);
+				break;
+			case "build":
+				options.build = value;
+				break;
+			case "keep-recordings":
+				options.keepRecordings = Boolean.parseBoolean(value);
+				break;
+			default:
+				throw new IllegalArgumentException("未知参数: " + name + "\n" + usage());
+			}
+		}
+		if (options.uploads < 0 || options.listeners < 0 || options.uploads + options.listeners == 0) {
+			throw new IllegalArgumentException("uploads 与 listeners 至少有一个大于 0");
+		}
+		return options;
+	}
+
+	private static boolean isAppArg(String name) {
+		for (String prefix : APP_PREFIXES) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static String usage() {
+		return String.join("\n",
+				"用法: java -jar target/loadtest.jar [--name=value ...]",
+				"  --uploads=10               录音会话数（上传 PCM）",
+				"  --listeners=10             监听会话数（接收实时推流）",
+				"  --upload-kbps=1411         每个录音会话的上传码率",
+				"  --upload-interval-ms=20    上传消息间隔",
+				"  --ramp=10                  建立全部会话的时长（秒）",
+				"  --duration=60              稳态测量时长（秒）",
+				"  --listen-query=            监听连接附加的查询参数，如 monitor=1",
+				"  --url=                     压测已运行的服务，不自行启动",
+				"  --jar=../target/webMediaRecorder-1.0-SNAPSHOT.jar",
+				"  --port=18090               自行启动时的服务端口",
+				"  --jvm-arg=-Xmx512m         被测应用的 JVM 参数，可重复",
+				"  --report=target/loadtest-report.json",
+				"  --baseline=                与之前的报告对比",
+				"  --build=                   报告中的构建标识，默认取 git 提交",
+				"  --keep-recordings=false    保留压测产生的录音",
+				"  --media.*/--server.*       原样传给被测应用，如 --media.simulation.speed=2");
+	}
+}
@@ -0,0 +1,151 @@
+package com.web.media.recorder.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 被测服务 /actuator/prometheus 的一次抓取结果
+ */
+final class ServerMetrics {
+	private final Map<String, List<Sample>> samples;
+
+	private ServerMetrics(Map<String, List<Sample>> samples) {
+		this.samples = samples;
+	}
+
+	static ServerMetrics scrape(HttpClient client, URI baseUri) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/actuator/prometheus"))
+				.timeout(Duration.ofSeconds(10))
+				.GET()
+				.build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IOException("抓取服务端指标失败, 状态码 " + response.statusCode());
+		}
+		return parse(response.body());
+	}
+
+	static ServerMetrics parse(String text) {
+		Map<String, List<Sample>> samples = new HashMap<>();
+		for (String line : text.split("\n")) {
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			int brace = line.indexOf('{');
+			int space = line.lastIndexOf(' ');
+			if (space <= 0) {
+				continue;
+			}
+			String name;
+			Map<String, String> labels = new HashMap<>();
+			if (brace > 0 && brace < space) {
+				name = line.substring(0, brace);
+				parseLabels(line.substring(brace + 1, line.lastIndexOf('}')), labels);
+			} else {
+				name = line.substring(0, space);
+			}
+			double value;
+			try {
+				value = Double.parseDouble(line.substring(space + 1));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			samples.computeIfAbsent(name, k -> new ArrayList<>()).add(new Sample(labels, value));
+		}
+		return new ServerMetrics(samples);
+	}
+
+	private static void parseLabels(String text, Map<String, String> labels) {
+		int i = 0;
+		while (i < text.length()) {
+			int eq = text.indexOf('=', i);
+			if (eq < 0 || eq + 1 >= text.length() || text.charAt(eq + 1) != '"') {
+				return;
+			}
+			int end = text.indexOf('"', eq + 2);
+			if (end < 0) {
+				return;
+			}
+			labels.put(text.substring(i, eq).trim(), text.substring(eq + 2, end));
+			i = end + 1;
+			while (i < text.length() && (text.charAt(i) == ',' || text.charAt(i) == ' ')) {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * @return 所有标签组合的值之和，指标不存在时为 0
+	 */
+	double sum(String name) {
+		return sum(name, null, null);
+	}
+
+	/**
+	 * @return 标签 label 等于 value 的序列之和
+	 */
+	double sum(String name, String label, String value) {
+		double total = 0;
+		for (Sample sample : samples.getOrDefault(name, List.of())) {
+			if (label == null || value.equals(sample.labels.get(label))) {
+				total += sample.value;
+			}
+		}
+		return total;
+	}
+
+	double max(String name) {
+		double result = 0;
+		for (Sample sample : samples.getOrDefault(name, List.of())) {
+			result = Math.max(result, sample.value);
+		}
+		return result;
+	}
+
+	/**
+	 * @return 按某个标签分组求和，如按 reason 统计断开次数
+	 */
+	Map<String, Double> sumBy(String name, String label) {
+		Map<String, Double> result = new TreeMap<>();
+		for (Sample sample : samples.getOrDefault(name, List.of())) {
+			String key = sample.labels.get(label);
+			if (key != null) {
+				result.merge(key, sample.value, Double::sum);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return 同时满足两个标签条件的序列值，如 stage=queue 且 quantile=0.99
+	 */
+	Map<String, Double> select(String name, String groupLabel, String label, String value) {
+		Map<String, Double> result = new TreeMap<>();
+		for (Sample sample : samples.getOrDefault(name, List.of())) {
+			String key = sample.labels.get(groupLabel);
+			if (key != null && value.equals(sample.labels.get(label))) {
+				result.put(key, sample.value);
+			}
+		}
+		return result;
+	}
+
+	private static final class Sample {
+		final Map<String, String> labels;
+		final double value;
+
+		Sample(Map<String, String> labels, double value) {
+			this.labels = labels;
+			this.value = value;
+		}
+	}
+}
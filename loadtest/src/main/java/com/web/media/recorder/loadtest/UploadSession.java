@@ -0,0 +1,128 @@
+package com.web.media.recorder.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 录音会话：按固定码率上传 PCM，每条二进制消息以音频类型字节 0 开头，与浏览器端的分帧相同
+ * <p>
+ * 按开始以来应发送的字节数补齐上传量，上一条消息未发完时推迟到下一次，记为一次停顿。
+ */
+final class UploadSession implements WebSocket.Listener {
+	private static final byte TYPE_AUDIO = 0;
+	private static final int MAX_MESSAGE_BYTES = 64 * 1024;
+	private static final int BLOCK_ALIGN = 4;
+	// 所有会话共用的只读消息：类型字节 + 440Hz 正弦波
+	private static final byte[] MESSAGE = createMessage();
+
+	private final LoadStats stats;
+	private final long bytesPerSecond;
+	private volatile WebSocket socket;
+	private volatile boolean closing;
+	private CompletableFuture<WebSocket> inFlight;
+	private long startNanos;
+	private long issuedBytes;
+
+	private UploadSession(LoadStats stats, int kbps) {
+		this.stats = stats;
+		this.bytesPerSecond = kbps * 1000L / 8;
+	}
+
+	private static byte[] createMessage() {
+		byte[] message = new byte[1 + MAX_MESSAGE_BYTES];
+		message[0] = TYPE_AUDIO;
+		for (int i = 0; i < MAX_MESSAGE_BYTES / 2; i++) {
+			short sample = (short) (Math.sin(2 * Math.PI * 440 * (i / 2) / 44100.0) * 8000);
+			message[1 + i * 2] = (byte) sample;
+			message[2 + i * 2] = (byte) (sample >> 8);
+		}
+		return message;
+	}
+
+	static CompletableFuture<UploadSession> open(HttpClient client, URI uri, LoadStats stats, int kbps) {
+		UploadSession session = new UploadSession(stats, kbps);
+		return client.newWebSocketBuilder()
+				.connectTimeout(Duration.ofSeconds(10))
+				.buildAsync(uri, session)
+				.handle((socket, error) -> {
+					if (error != null) {
+						stats.uploadsFailed.incrementAndGet();
+						return null;
+					}
+					stats.uploadsOpened.incrementAndGet();
+					return session;
+				});
+	}
+
+	@Override
+	public void onOpen(WebSocket webSocket) {
+		this.socket = webSocket;
+		this.startNanos = System.nanoTime();
+		webSocket.request(Long.MAX_VALUE);
+	}
+
+	/**
+	 * 由调度线程按上传间隔调用，同一会话不会并发调用
+	 */
+	void tick() {
+		WebSocket ws = socket;
+		if (ws == null || closing || ws.isOutputClosed()) {
+			return;
+		}
+		if (inFlight != null && !inFlight.isDone()) {
+			stats.uploadStalls.increment();
+			return;
+		}
+		long due = (System.nanoTime() - startNanos) * bytesPerSecond / 1_000_000_000L;
+		long owed = Math.min(due - issuedBytes, MAX_MESSAGE_BYTES);
+		int length = (int) (owed - owed % BLOCK_ALIGN);
+		if (length <= 0) {
+			return;
+		}
+		issuedBytes += length;
+		long issuedAt = System.nanoTime();
+		boolean measured = stats.isMeasuring();
+		inFlight = ws.sendBinary(ByteBuffer.wrap(MESSAGE, 0, 1 + length), true).whenComplete((w, error) -> {
+			if (error != null) {
+				stats.uploadErrors.increment();
+			} else if (measured) {
+				stats.uploadedBytes.add(length);
+				stats.uploadSendLatency.recordNanos(System.nanoTime() - issuedAt);
+			}
+		});
+	}
+
+	@Override
+	public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+		if (!closing) {
+			stats.uploadsClosed.incrementAndGet();
+			stats.closedByServer(statusCode);
+		}
+		closing = true;
+		return null;
+	}
+
+	@Override
+	public void onError(WebSocket webSocket, Throwable error) {
+		if (!closing) {
+			stats.uploadsClosed.incrementAndGet();
+			stats.closedByServer(-1);
+		}
+		closing = true;
+	}
+
+	void close() {
+		closing = true;
+		WebSocket ws = socket;
+		if (ws != null && !ws.isOutputClosed()) {
+			CompletableFuture<WebSocket> pending = inFlight;
+			CompletableFuture<?> ready = pending == null ? CompletableFuture.completedFuture(null) : pending;
+			ready.handle((w, e) -> ws.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+		}
+	}
+}
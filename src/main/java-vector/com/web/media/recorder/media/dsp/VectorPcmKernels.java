@@ -0,0 +1,89 @@
+package com.web.media.recorder.media.dsp;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 jdk.incubator.vector 的实现，按平台首选宽度（如 AVX2 为 256 位）一次处理多个样本
+ * <p>
+ * 立体声的一帧两个 int16 正好组成一个 int 通道（左声道在低 16 位），按 int 重新解释后移位即可拆分左右声道，
+ * 不需要 gather；其他声道布局与尾部不足一个向量的样本交给标量实现。
+ * 只在 JDK 17+ 的构建中编译，由 {@link PcmKernels#vector()} 反射加载。
+ */
+public class VectorPcmKernels implements PcmKernels {
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+	private static final float SCALE = ScalarPcmKernels.SCALE;
+
+	private final ScalarPcmKernels scalar = ScalarPcmKernels.INSTANCE;
+
+	@Override
+	public void downmix(short[] src, int frames, int channels, float[] dst, int dstOffset) {
+		if (channels != 2) {
+			scalar.downmix(src, frames, channels, dst, dstOffset);
+			return;
+		}
+		int step = FLOATS.length();
+		int i = 0;
+		for (; i + step <= frames; i += step) {
+			IntVector pairs = (IntVector) ShortVector.fromArray(SHORTS, src, i * 2).reinterpretAsInts();
+			IntVector left = pairs.lanewise(VectorOperators.LSHL, 16).lanewise(VectorOperators.ASHR, 16);
+			IntVector right = pairs.lanewise(VectorOperators.ASHR, 16);
+			FloatVector mixed = (FloatVector) left.add(right).convert(VectorOperators.I2F, 0);
+			mixed.mul(SCALE / 2).intoArray(dst, dstOffset + i);
+		}
+		scalar.downmix(src, i, frames - i, channels, dst, dstOffset + i);
+	}
+
+	@Override
+	public void extract(short[] src, int frames, int channels, int channel, float[] dst, int dstOffset) {
+		if (channels != 2) {
+			scalar.extract(src, frames, channels, channel, dst, dstOffset);
+			return;
+		}
+		int step = FLOATS.length();
+		int i = 0;
+		for (; i + step <= frames; i += step) {
+			IntVector pairs = (IntVector) ShortVector.fromArray(SHORTS, src, i * 2).reinterpretAsInts();
+			IntVector samples = channel == 0
+					? pairs.lanewise(VectorOperators.LSHL, 16).lanewise(VectorOperators.ASHR, 16)
+					: pairs.lanewise(VectorOperators.ASHR, 16);
+			FloatVector converted = (FloatVector) samples.convert(VectorOperators.I2F, 0);
+			converted.mul(SCALE).intoArray(dst, dstOffset + i);
+		}
+		scalar.extract(src, i, frames - i, channels, channel, dst, dstOffset + i);
+	}
+
+	@Override
+	public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+		FloatVector acc = FloatVector.zero(FLOATS);
+		int bound = FLOATS.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += FLOATS.length()) {
+			FloatVector x = FloatVector.fromArray(FLOATS, a, aOffset + i);
+			acc = x.fma(FloatVector.fromArray(FLOATS, b, bOffset + i), acc);
+		}
+		float sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	/**
+	 * JDK 17 的 C2 尚未把浮点到整数的向量转换编译为指令，向量写法会在每次迭代装箱，
+	 * 这里沿用标量循环，由 C2 自动向量化
+	 */
+	@Override
+	public void quantize(float[] src, int length, short[] dst) {
+		scalar.quantize(src, length, dst);
+	}
+
+	@Override
+	public String name() {
+		return "vector-" + FLOATS.vectorBitSize();
+	}
+}
@@ -0,0 +1,45 @@
+package com.web.media.recorder.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.web.media.recorder.media.MediaProcessorFactory;
+import com.web.media.recorder.media.encoder.AudioEncoderPool;
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.MediaProcessor;
+import com.web.media.recorder.media.processor.jni.NativeProcessor;
+import com.web.media.recorder.media.processor.simulated.SimulatedMediaProcessor;
+
+/**
+ * 按 media.processor.type 选择推流与录音使用的采集源
+ * <p>
+ * 默认的 jni 直接使用 {@link NativeProcessor}，开启 media.capture.warm-device 时在此预热设备；模拟采集源不需要声卡，用于在 CI 或无声卡的机器上压测后续链路。
+ * 注入时以 {@link #CAPTURE_PROCESSOR} 限定，按类型注入 NativeProcessor 的地方不受影响。
+ */
+@Configuration
+public class CaptureProcessorConfig {
+	public static final String CAPTURE_PROCESSOR = "captureProcessor";
+	private static final Logger logger = LoggerFactory.getLogger(CaptureProcessorConfig.class);
+
+	@Bean(CAPTURE_PROCESSOR)
+	public AbstractMediaProcessor captureProcessor(MediaConfig mediaConfig, NativeProcessor nativeProcessor,
+			AudioEncoderPool encoderPool) {
+		String type = mediaConfig.getProcessorType();
+		if (type == null || MediaProcessorFactory.JNI.equalsIgnoreCase(type.trim())) {
+			if (mediaConfig.isCaptureWarmDevice()) {
+				nativeProcessor.warmUp();
+			}
+			return nativeProcessor;
+		}
+		MediaProcessor processor = MediaProcessorFactory.create(type.trim(), mediaConfig);
+		if (!(processor instanceof SimulatedMediaProcessor)) {
+			throw new IllegalArgumentException("不支持作为采集源的处理器类型: " + type);
+		}
+		SimulatedMediaProcessor simulated = (SimulatedMediaProcessor) processor;
+		simulated.setRecording(mediaConfig, encoderPool);
+		logger.info("采集源: {}（模拟采集，{}）", type, simulated.getPacing());
+		return simulated;
+	}
+}
@@ -3,6 +3,15 @@ package com.web.media.recorder.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.file.AudioStorageMode;
+import com.web.media.recorder.media.processor.SpscByteRingBuffer.OverflowPolicy;
+import com.web.media.recorder.media.processor.jni.CaptureProfile;
+import com.web.media.recorder.media.processor.simulated.SimulationPacing;
+import com.web.media.recorder.media.processor.simulated.SyntheticMediaProcessor;
+import com.web.media.recorder.websocket.OutboundQueue;
+import com.web.media.recorder.websocket.StreamExecutionMode;
+
 @Configuration
 public class MediaConfig {
 
@@ -12,6 +21,198 @@ public class MediaConfig {
     @Value("${media.video.dir:/opt/home/sky/Videos}")
     private String videoDir;
 
+    // 采集实时数据缓冲区容量（字节）与溢出策略
+    @Value("${media.capture.buffer-size:1048576}")
+    private int captureBufferSize;
+
+    @Value("${media.capture.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy captureOverflowPolicy;
+
+    // 预热采集设备：启动时打开并配置好默认设备，录音开始与结束只恢复、暂停数据流，不再重新打开设备
+    @Value("${media.capture.warm-device:false}")
+    private boolean captureWarmDevice;
+
+    // ALSA 参数档位（DEFAULT/LOW_LATENCY/THROUGHPUT），周期与缓冲区帧数大于 0 时覆盖档位的值
+    @Value("${media.capture.profile:DEFAULT}")
+    private CaptureProfile captureProfile;
+
+    @Value("${media.capture.period-frames:0}")
+    private int capturePeriodFrames;
+
+    @Value("${media.capture.buffer-frames:0}")
+    private int captureBufferFrames;
+
+    // 采集线程的 SCHED_FIFO 优先级（1~99，0 不启用）与绑定的 CPU（-1 不绑定）
+    @Value("${media.capture.realtime-priority:0}")
+    private int captureRealtimePriority;
+
+    @Value("${media.capture.cpu:-1}")
+    private int captureCpu;
+
+    // jar 中打包的本地库解压到的目录，按校验和分子目录，内容不变时重启直接加载
+    @Value("${media.native.cache-dir:${java.io.tmpdir}/web-media-recorder/native}")
+    private String nativeCacheDir;
+
+    // 多路监听共享的广播缓冲区容量，以及单个监听者允许落后的最大字节数
+    @Value("${media.broadcast.buffer-size:1048576}")
+    private int broadcastBufferSize;
+
+    @Value("${media.broadcast.max-lag:524288}")
+    private long broadcastMaxLag;
+
+    // WebSocket 推流执行模型，事件循环模式下的线程数，以及发送出站帧的线程数（不超过会话上限）
+    @Value("${media.websocket.execution-mode:PLATFORM}")
+    private StreamExecutionMode websocketExecutionMode;
+
+    @Value("${media.websocket.event-loop-threads:2}")
+    private int websocketEventLoopThreads;
+
+    @Value("${media.websocket.send-threads:4}")
+    private int websocketSendThreads;
+
+    // 活动会话上限、等待队列长度与排队超时（毫秒，0 表示不超时）
+    @Value("${media.websocket.max-sessions:10}")
+    private int websocketMaxSessions;
+
+    @Value("${media.websocket.max-queued:100}")
+    private int websocketMaxQueued;
+
+    @Value("${media.websocket.queue-timeout-ms:60000}")
+    private long websocketQueueTimeoutMs;
+
+    // 出站帧合并的目标大小与最大等待时间，每个会话发送队列的字节预算与溢出策略，
+    // 以及单次发送的时限（毫秒，0 表示不限），超时的会话按消费过慢断开
+    @Value("${media.websocket.outbound.frame-size:4096}")
+    private int outboundFrameSize;
+
+    @Value("${media.websocket.outbound.max-latency-ms:50}")
+    private long outboundMaxLatencyMs;
+
+    @Value("${media.websocket.outbound.max-bytes:1048576}")
+    private long outboundMaxBytes;
+
+    @Value("${media.websocket.outbound.overflow-policy:DROP_OLDEST}")
+    private OutboundQueue.OverflowPolicy outboundOverflowPolicy;
+
+    @Value("${media.websocket.outbound.send-timeout-ms:5000}")
+    private long outboundSendTimeoutMs;
+
+    // 录音存储格式（WAV/FLAC/OPUS/MP3），可被推流请求的 codec 参数覆盖
+    @Value("${media.audio.codec:WAV}")
+    private AudioCodec audioCodec;
+
+    // WAV 录音的存储方式（SINGLE/RF64/SEGMENTED），以及分段模式下每段的时长（秒）与数据大小上限（字节，0 表示不限），
+    // 静音跳过至少多长（毫秒）时在跳过处开始新的段（0 表示只记录跳过区间、不滚动）
+    @Value("${media.audio.storage:SINGLE}")
+    private AudioStorageMode audioStorage;
+
+    @Value("${media.audio.segment.duration-seconds:600}")
+    private long audioSegmentDurationSeconds;
+
+    @Value("${media.audio.segment.max-bytes:0}")
+    private long audioSegmentMaxBytes;
+
+    @Value("${media.audio.segment.gap-roll-ms:60000}")
+    private long audioSegmentGapRollMs;
+
+    // 编码线程数与任务队列长度、有损格式码率（bit/s），以及单个文件允许积压的待编码字节数
+    @Value("${media.encoder.threads:2}")
+    private int encoderThreads;
+
+    @Value("${media.encoder.queue-size:64}")
+    private int encoderQueueSize;
+
+    @Value("${media.encoder.bit-rate:128000}")
+    private long encoderBitRate;
+
+    @Value("${media.encoder.max-pending-bytes:4194304}")
+    private long encoderMaxPendingBytes;
+
+    // 录音时生成波形峰值文件，以及启动时为缺少峰值文件的已有录音后台补算
+    @Value("${media.waveform.enabled:true}")
+    private boolean waveformEnabled;
+
+    @Value("${media.waveform.backfill:true}")
+    private boolean waveformBackfill;
+
+    // 静音门限：电平低于门限持续超过保持时长后不再写盘和推送，恢复时补发预录数据并记录跳过的区间
+    @Value("${media.silence.enabled:false}")
+    private boolean silenceEnabled;
+
+    @Value("${media.silence.threshold-db:-50}")
+    private double silenceThresholdDb;
+
+    @Value("${media.silence.hangover-ms:1000}")
+    private long silenceHangoverMs;
+
+    @Value("${media.silence.pre-roll-ms:300}")
+    private long silencePreRollMs;
+
+    // 实时监听流转换为较轻的格式（下混、降采样、降位深）后再推送，录音文件不受影响；连接参数 ?monitor=0|1 可按会话覆盖
+    @Value("${media.monitor.enabled:false}")
+    private boolean monitorEnabled;
+
+    @Value("${media.monitor.sample-rate:16000}")
+    private int monitorSampleRate;
+
+    // 1 为下混为单声道，其他值保持采集声道数
+    @Value("${media.monitor.channels:1}")
+    private int monitorChannels;
+
+    // 16 或 8（带抖动的无符号 8 位）
+    @Value("${media.monitor.bits-per-sample:16}")
+    private int monitorBitsPerSample;
+
+    // 运行时支持时使用 Vector API 计算核心
+    @Value("${media.monitor.vector:true}")
+    private boolean monitorVector;
+
+    // 推流与录音使用的采集源：jni（ALSA 声卡）、synthetic（合成信号）或 replay（回放 WAV），后两者不需要声卡
+    @Value("${media.processor.type:jni}")
+    private String processorType;
+
+    // 模拟采集的节奏：倍速（0 为不限速）、每块时长，以及注入的抖动与突发（每个周期末尾暂停送达的时长）
+    @Value("${media.simulation.speed:1.0}")
+    private double simulationSpeed;
+
+    @Value("${media.simulation.chunk-ms:20}")
+    private int simulationChunkMs;
+
+    @Value("${media.simulation.jitter-ms:0}")
+    private long simulationJitterMs;
+
+    @Value("${media.simulation.burst-interval-ms:0}")
+    private long simulationBurstIntervalMs;
+
+    @Value("${media.simulation.burst-ms:0}")
+    private long simulationBurstMs;
+
+    // 合成信号的格式与内容，位深度支持 8/16/24/32
+    @Value("${media.synthetic.sample-rate:44100}")
+    private int syntheticSampleRate;
+
+    @Value("${media.synthetic.channels:2}")
+    private int syntheticChannels;
+
+    @Value("${media.synthetic.bits-per-sample:16}")
+    private int syntheticBitsPerSample;
+
+    @Value("${media.synthetic.signal:SINE}")
+    private SyntheticMediaProcessor.Signal syntheticSignal;
+
+    @Value("${media.synthetic.frequency:440}")
+    private double syntheticFrequency;
+
+    @Value("${media.synthetic.level-db:-12}")
+    private double syntheticLevelDb;
+
+    // 回放的 WAV 文件或目录，以及是否循环
+    @Value("${media.replay.path:}")
+    private String replayPath;
+
+    @Value("${media.replay.loop:true}")
+    private boolean replayLoop;
+
     public String getAudioDir() {
         return audioDir;
     }
@@ -19,4 +220,213 @@ public class MediaConfig {
     public String getVideoDir() {
         return videoDir;
     }
-}
\ No newline at end of file
+
+    public int getCaptureBufferSize() {
+        return captureBufferSize;
+    }
+
+    public OverflowPolicy getCaptureOverflowPolicy() {
+        return captureOverflowPolicy;
+    }
+
+    public int getBroadcastBufferSize() {
+        return broadcastBufferSize;
+    }
+
+    public long getBroadcastMaxLag() {
+        return broadcastMaxLag;
+    }
+
+    public StreamExecutionMode getWebsocketExecutionMode() {
+        return websocketExecutionMode;
+    }
+
+    public int getWebsocketEventLoopThreads() {
+        return websocketEventLoopThreads;
+    }
+
+    public int getWebsocketSendThreads() {
+        return websocketSendThreads;
+    }
+
+    public int getWebsocketMaxSessions() {
+        return websocketMaxSessions;
+    }
+
+    public int getWebsocketMaxQueued() {
+        return websocketMaxQueued;
+    }
+
+    public long getWebsocketQueueTimeoutMs() {
+        return websocketQueueTimeoutMs;
+    }
+
+    public int getOutboundFrameSize() {
+        return outboundFrameSize;
+    }
+
+    public long getOutboundMaxLatencyMs() {
+        return outboundMaxLatencyMs;
+    }
+
+    public long getOutboundMaxBytes() {
+        return outboundMaxBytes;
+    }
+
+    public OutboundQueue.OverflowPolicy getOutboundOverflowPolicy() {
+        return outboundOverflowPolicy;
+    }
+
+    public long getOutboundSendTimeoutMs() {
+        return outboundSendTimeoutMs;
+    }
+
+    public AudioCodec getAudioCodec() {
+        return audioCodec;
+    }
+
+    public int getEncoderThreads() {
+        return encoderThreads;
+    }
+
+    public int getEncoderQueueSize() {
+        return encoderQueueSize;
+    }
+
+    public long getEncoderBitRate() {
+        return encoderBitRate;
+    }
+
+    public long getEncoderMaxPendingBytes() {
+        return encoderMaxPendingBytes;
+    }
+
+    public AudioStorageMode getAudioStorage() {
+        return audioStorage;
+    }
+
+    public long getAudioSegmentDurationSeconds() {
+        return audioSegmentDurationSeconds;
+    }
+
+    public long getAudioSegmentMaxBytes() {
+        return audioSegmentMaxBytes;
+    }
+
+    public long getAudioSegmentGapRollMs() {
+        return audioSegmentGapRollMs;
+    }
+
+    public boolean isWaveformEnabled() {
+        return waveformEnabled;
+    }
+
+    public boolean isWaveformBackfill() {
+        return waveformBackfill;
+    }
+
+    public boolean isSilenceEnabled() {
+        return silenceEnabled;
+    }
+
+    public double getSilenceThresholdDb() {
+        return silenceThresholdDb;
+    }
+
+    public long getSilenceHangoverMs() {
+        return silenceHangoverMs;
+    }
+
+    public long getSilencePreRollMs() {
+        return silencePreRollMs;
+    }
+
+    public boolean isMonitorEnabled() {
+        return monitorEnabled;
+    }
+
+    public int getMonitorSampleRate() {
+        return monitorSampleRate;
+    }
+
+    public int getMonitorChannels() {
+        return monitorChannels;
+    }
+
+    public int getMonitorBitsPerSample() {
+        return monitorBitsPerSample;
+    }
+
+    public boolean isMonitorVector() {
+        return monitorVector;
+    }
+
+    public String getProcessorType() {
+        return processorType;
+    }
+
+    public SimulationPacing getSimulationPacing() {
+        return new SimulationPacing(simulationSpeed, simulationChunkMs, simulationJitterMs, simulationBurstIntervalMs,
+                simulationBurstMs);
+    }
+
+    public int getSyntheticSampleRate() {
+        return syntheticSampleRate;
+    }
+
+    public int getSyntheticChannels() {
+        return syntheticChannels;
+    }
+
+    public int getSyntheticBitsPerSample() {
+        return syntheticBitsPerSample;
+    }
+
+    public SyntheticMediaProcessor.Signal getSyntheticSignal() {
+        return syntheticSignal;
+    }
+
+    public double getSyntheticFrequency() {
+        return syntheticFrequency;
+    }
+
+    public double getSyntheticLevelDb() {
+        return syntheticLevelDb;
+    }
+
+    public String getReplayPath() {
+        return replayPath;
+    }
+
+    public boolean isReplayLoop() {
+        return replayLoop;
+    }
+
+    public boolean isCaptureWarmDevice() {
+        return captureWarmDevice;
+    }
+
+    public CaptureProfile getCaptureProfile() {
+        return captureProfile;
+    }
+
+    public int getCapturePeriodFrames() {
+        return capturePeriodFrames;
+    }
+
+    public int getCaptureBufferFrames() {
+        return captureBufferFrames;
+    }
+
+    public int getCaptureRealtimePriority() {
+        return captureRealtimePriority;
+    }
+
+    public int getCaptureCpu() {
+        return captureCpu;
+    }
+
+    public String getNativeCacheDir() {
+        return nativeCacheDir;
+    }
+}
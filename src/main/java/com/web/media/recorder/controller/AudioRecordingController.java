@@ -1,10 +1,14 @@
 package com.web.media.recorder.controller;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -12,6 +16,12 @@ import java.util.List;
 
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -24,71 +34,259 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.web.media.recorder.config.MediaConfig;
 import com.web.media.recorder.media.AudioRecording;
+import com.web.media.recorder.media.catalog.RecordingCatalog;
+import com.web.media.recorder.media.catalog.RecordingEntry;
+import com.web.media.recorder.media.catalog.RecordingPage;
+import com.web.media.recorder.media.catalog.RecordingSort;
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.file.SegmentedRecording;
+import com.web.media.recorder.media.file.SilenceGaps;
+import com.web.media.recorder.media.waveform.WaveformPeaks;
+import com.web.media.recorder.media.waveform.WaveformService;
 
 import ch.qos.logback.classic.Logger;
 
 @RestController
 @RequestMapping("/api/audio-recordings")
-@CrossOrigin(origins = "*") 
+@CrossOrigin(origins = "*", exposedHeaders = { AudioRecordingController.HEADER_TOTAL_COUNT,
+		AudioRecordingController.HEADER_NEXT_CURSOR, AudioRecordingController.HEADER_WAVEFORM_LEVEL,
+		AudioRecordingController.HEADER_WAVEFORM_FRAMES_PER_PEAK, AudioRecordingController.HEADER_WAVEFORM_FIRST_PEAK,
+		AudioRecordingController.HEADER_WAVEFORM_SAMPLE_RATE, AudioRecordingController.HEADER_WAVEFORM_TOTAL_FRAMES })
 public class AudioRecordingController {
     private static final Logger logger = (Logger) LoggerFactory.getLogger(AudioRecordingController.class);
+	static final String HEADER_TOTAL_COUNT = "X-Total-Count";
+	static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+	static final String HEADER_WAVEFORM_LEVEL = "X-Waveform-Level";
+	static final String HEADER_WAVEFORM_FRAMES_PER_PEAK = "X-Waveform-Frames-Per-Peak";
+	static final String HEADER_WAVEFORM_FIRST_PEAK = "X-Waveform-First-Peak";
+	static final String HEADER_WAVEFORM_SAMPLE_RATE = "X-Waveform-Sample-Rate";
+	static final String HEADER_WAVEFORM_TOTAL_FRAMES = "X-Waveform-Total-Frames";
+	// 单次请求最多返回的峰值数
+	private static final int MAX_WAVEFORM_PEAKS = 65536;
+	// 单页最多返回的条目数
+	private static final int MAX_PAGE_SIZE = 1000;
 	@Autowired
 	private MediaConfig mediaConfig;
+	@Autowired
+	private RecordingCatalog recordingCatalog;
+	@Autowired
+	private WaveformService waveformService;
 
 	// 分页获取录音文件列表
+	// 优先使用 cursor 游标翻页（O(log n) 定位）；未提供游标时按 page 页码跳过，总数与下一页游标通过响应头返回
 	@GetMapping
 	public ResponseEntity<List<AudioRecording>> getRecordings(@RequestParam(defaultValue = "1") int page,
-			@RequestParam(defaultValue = "10") int limit) throws IOException {
-		List<AudioRecording> recordings = new ArrayList<>();
-		Path audioPath = Paths.get(mediaConfig.getAudioDir());
-		if (Files.exists(audioPath)) {
-			Files.list(audioPath).filter(
-					path -> path.getFileName().toString().startsWith("audio_") && path.toString().endsWith(".wav"))
-					.forEach(path -> {
-						try {
-							File file = path.toFile();
-							long fileSize = file.length();
-							LocalDateTime createdAt = LocalDateTime
-									.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
-							int duration = (int) (fileSize / (44100 * 2 * 2)); // 假设采样率为44100，双声道，16位
-							recordings.add(
-									new AudioRecording(file.getName(), file.getName(), fileSize, createdAt, duration));
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-					});
-		}
-		int start = (page - 1) * limit;
-		int end = Math.min(start + limit, recordings.size());
-		List<AudioRecording> pagedRecordings = recordings.subList(start, end);
-        logger.info("分页获取录音文件列表，当前页：{}，每页数量：{}，总数量：{}", page, limit, recordings.size());
-		return ResponseEntity.ok(pagedRecordings);
+			@RequestParam(defaultValue = "10") int limit, @RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "date") String sort, @RequestParam(defaultValue = "desc") String order) {
+		if (page < 1 || limit < 1 || limit > MAX_PAGE_SIZE) {
+			return ResponseEntity.badRequest().build();
+		}
+		RecordingPage result;
+		try {
+			long offset = cursor == null ? (long) (page - 1) * limit : 0;
+			result = recordingCatalog.page(RecordingSort.of(sort), !"asc".equalsIgnoreCase(order), cursor, offset,
+					limit);
+		} catch (IllegalArgumentException e) {
+			logger.warn("录音列表查询参数错误: {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+		List<AudioRecording> recordings = new ArrayList<>(result.getEntries().size());
+		for (RecordingEntry entry : result.getEntries()) {
+			LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getLastModified()),
+					ZoneId.systemDefault());
+			AudioRecording recording = new AudioRecording(entry.getFileName(), entry.getFileName(),
+					entry.getFileSize(), createdAt, (int) (entry.getDurationMs() / 1000));
+			recording.setDurationMs(entry.getDurationMs());
+			recording.setSampleRate(entry.getSampleRate());
+			recording.setChannels(entry.getChannels());
+			recording.setBitsPerSample(entry.getBitsPerSample());
+			recordings.add(recording);
+		}
+		logger.debug("分页获取录音文件列表，当前页：{}，每页数量：{}，总数量：{}", page, limit, result.getTotalCount());
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(HEADER_TOTAL_COUNT,
+				String.valueOf(result.getTotalCount()));
+		if (result.getNextCursor() != null) {
+			response.header(HEADER_NEXT_CURSOR, result.getNextCursor());
+		}
+		return response.body(recordings);
 	}
 
 	// 删除录音文件
 	@DeleteMapping
 	public ResponseEntity<Void> deleteRecordings(@RequestBody List<String> ids) throws IOException {
-		Path audioPath = Paths.get(mediaConfig.getAudioDir());
+		Path audioPath = Paths.get(mediaConfig.getAudioDir()).toAbsolutePath().normalize();
 		if (Files.exists(audioPath)) {
 			for (String id : ids) {
-				Path filePath = audioPath.resolve(id);
-				if (Files.exists(filePath)) {
+				Path filePath = audioPath.resolve(id).normalize();
+				// 只删除录音目录下的条目，波形与静音区间等附属文件也按同一路径定位，必须在任何删除之前校验
+				if (!filePath.startsWith(audioPath) || filePath.equals(audioPath)) {
+					logger.warn("忽略录音目录之外的删除请求: {}", id);
+					continue;
+				}
+				if (SegmentedRecording.isSegmented(id) && Files.isDirectory(filePath)) {
+					deleteSegmented(audioPath, filePath);
+				} else if (Files.exists(filePath)) {
 					Files.delete(filePath);
 				}
+				waveformService.delete(filePath);
+				SilenceGaps.delete(filePath);
+				recordingCatalog.remove(filePath.getFileName().toString());
 			}
 		}
 		return ResponseEntity.noContent().build();
 	}
 
+	// 分段录音目录下只有段文件与清单，逐个删除后删除目录
+	private void deleteSegmented(Path audioPath, Path directory) throws IOException {
+		if (!audioPath.equals(directory.getParent())) {
+			return;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				Files.deleteIfExists(path);
+			}
+		}
+		Files.deleteIfExists(directory);
+	}
+
 	// 播放录音文件
+	// 以 Resource 形式返回，由 Spring 按 Range 头流式输出指定区间（206），并根据 ETag/Last-Modified 处理条件请求（304/412），
+	// 文件内容不会整体读入堆内存
 	@GetMapping("/{id}/play")
-	public ResponseEntity<byte[]> playRecording(@PathVariable String id) throws IOException {
-		Path audioPath = Paths.get(mediaConfig.getAudioDir());
-		Path filePath = audioPath.resolve(id);
-		if (Files.exists(filePath)) {
-			byte[] audioData = Files.readAllBytes(filePath);
-			return ResponseEntity.ok(audioData);
-		}
-		return ResponseEntity.notFound().build();
+	public ResponseEntity<Resource> playRecording(@PathVariable String id) throws IOException {
+		Path audioPath = Paths.get(mediaConfig.getAudioDir()).toAbsolutePath().normalize();
+		Path filePath = audioPath.resolve(id).normalize();
+		if (!filePath.startsWith(audioPath)) {
+			return ResponseEntity.notFound().build();
+		}
+		Resource resource;
+		long length;
+		long lastModified;
+		if (SegmentedRecording.isSegmented(id) && Files.isDirectory(filePath)) {
+			// 分段录音按各段拼接为一个 WAV 输出，Range 请求直接定位到对应段
+			SegmentedRecording recording;
+			try {
+				recording = SegmentedRecording.read(filePath);
+			} catch (NoSuchFileException e) {
+				return ResponseEntity.notFound().build();
+			}
+			resource = new SegmentedRecordingResource(recording);
+			length = recording.getLength();
+			lastModified = recording.getLastModified();
+		} else if (Files.isRegularFile(filePath)) {
+			BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
+			resource = new FileSystemResource(filePath);
+			length = attrs.size();
+			lastModified = attrs.lastModifiedTime().toMillis();
+		} else {
+			return ResponseEntity.notFound().build();
+		}
+		String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+		AudioCodec codec = AudioCodec.fromFileName(id);
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(codec != null ? codec.getMimeType() : "audio/wav"))
+				.header(HttpHeaders.ACCEPT_RANGES, "bytes")
+				.cacheControl(CacheControl.noCache())
+				.eTag(etag)
+				.lastModified(lastModified)
+				.body(resource);
+	}
+
+	// 获取波形峰值
+	// start/end 为毫秒区间（end 缺省为录音末尾），按 width（最多返回的峰值数）选择分辨率，也可用 level 直接指定级别。
+	// 响应体为小端 int16 三元组 (min, max, rms)，所用级别、每个峰值的帧数与首个峰值序号等通过响应头返回；
+	// 峰值尚在生成时返回 202，稍后重试
+	@GetMapping("/{id}/waveform")
+	public ResponseEntity<byte[]> getWaveform(@PathVariable String id, @RequestParam(defaultValue = "0") long start,
+			@RequestParam(required = false) Long end, @RequestParam(defaultValue = "1000") int width,
+			@RequestParam(required = false) Integer level) throws IOException {
+		if (start < 0 || (end != null && end < start) || width < 1 || width > MAX_WAVEFORM_PEAKS) {
+			return ResponseEntity.badRequest().build();
+		}
+		Path audioPath = Paths.get(mediaConfig.getAudioDir()).toAbsolutePath().normalize();
+		Path filePath = audioPath.resolve(id).normalize();
+		if (!filePath.startsWith(audioPath) || !Files.exists(filePath)) {
+			return ResponseEntity.notFound().build();
+		}
+		WaveformPeaks peaks;
+		try {
+			peaks = waveformService.getPeaks(filePath);
+		} catch (NoSuchFileException e) {
+			return ResponseEntity.notFound().build();
+		}
+		if (peaks == null) {
+			return ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, "1").build();
+		}
+		if (level != null && (level < 0 || level >= peaks.getLevelCount())) {
+			return ResponseEntity.badRequest().build();
+		}
+		// 先把区间限制在录音时长内再换算为帧，过大的 start/end 不会在乘法中溢出
+		long totalMs = (peaks.getTotalFrames() * 1000 + peaks.getSampleRate() - 1) / peaks.getSampleRate();
+		long startFrame = Math.min(peaks.getTotalFrames(), Math.min(start, totalMs) * peaks.getSampleRate() / 1000);
+		long endFrame = end == null ? peaks.getTotalFrames()
+				: Math.min(peaks.getTotalFrames(), Math.min(end, totalMs) * peaks.getSampleRate() / 1000);
+		int selected = level != null ? level : peaks.chooseLevel(endFrame - startFrame, width);
+		long framesPerPeak = peaks.getFramesPerPeak(selected);
+		long firstPeak = startFrame / framesPerPeak;
+		long lastPeak = (endFrame + framesPerPeak - 1) / framesPerPeak;
+		int count = (int) Math.min(MAX_WAVEFORM_PEAKS, lastPeak - firstPeak);
+		byte[] data = peaks.read(selected, firstPeak, count);
+		String etag = "\"" + Long.toHexString(peaks.getTotalFrames()) + "-" + Long.toHexString(peaks.getLastModified())
+				+ "\"";
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_OCTET_STREAM)
+				.cacheControl(CacheControl.noCache())
+				.eTag(etag)
+				.header(HEADER_WAVEFORM_LEVEL, String.valueOf(selected))
+				.header(HEADER_WAVEFORM_FRAMES_PER_PEAK, String.valueOf(framesPerPeak))
+				.header(HEADER_WAVEFORM_FIRST_PEAK, String.valueOf(firstPeak))
+				.header(HEADER_WAVEFORM_SAMPLE_RATE, String.valueOf(peaks.getSampleRate()))
+				.header(HEADER_WAVEFORM_TOTAL_FRAMES, String.valueOf(peaks.getTotalFrames()))
+				.body(data);
+	}
+
+	// 获取静音门限跳过的区间
+	// 返回 [[位置, 长度], ...]，单位为采样帧，位置为跳过处在录音数据中的帧序号；没有跳过时为空数组
+	@GetMapping("/{id}/gaps")
+	public ResponseEntity<List<long[]>> getGaps(@PathVariable String id) throws IOException {
+		Path audioPath = Paths.get(mediaConfig.getAudioDir()).toAbsolutePath().normalize();
+		Path filePath = audioPath.resolve(id).normalize();
+		if (!filePath.startsWith(audioPath) || !Files.exists(filePath)) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(SilenceGaps.read(filePath));
+	}
+
+	private static final class SegmentedRecordingResource extends AbstractResource {
+		private final SegmentedRecording recording;
+
+		SegmentedRecordingResource(SegmentedRecording recording) {
+			this.recording = recording;
+		}
+
+		@Override
+		public String getDescription() {
+			return "segmented recording [" + recording.getDirectory() + "]";
+		}
+
+		@Override
+		public String getFilename() {
+			return recording.getDirectory().getFileName() + ".wav";
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return recording.openStream();
+		}
+
+		@Override
+		public long contentLength() {
+			return recording.getLength();
+		}
+
+		@Override
+		public long lastModified() {
+			return recording.getLastModified();
+		}
 	}
 }
\ No newline at end of file
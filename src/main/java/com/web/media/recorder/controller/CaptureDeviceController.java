@@ -0,0 +1,77 @@
+package com.web.media.recorder.controller;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.web.media.recorder.media.processor.jni.CaptureDevice;
+import com.web.media.recorder.media.processor.jni.NativeDeviceCapture;
+import com.web.media.recorder.media.processor.jni.NativeProcessor;
+
+@RestController
+@RequestMapping("/api/capture-devices")
+@CrossOrigin(origins = "*")
+public class CaptureDeviceController {
+	private static final Logger logger = LoggerFactory.getLogger(CaptureDeviceController.class);
+
+	@Autowired
+	private NativeProcessor nativeProcessor;
+
+	// 本机采集设备及各自的采集状态
+	@GetMapping
+	public List<CaptureDevice> getDevices() {
+		return nativeProcessor.getCaptureDevices();
+	}
+
+	// 设备名含冒号与逗号（如 hw:1,0），以查询参数传递
+	@PostMapping("/start")
+	public ResponseEntity<CaptureDevice> startDevice(@RequestParam String device,
+			@RequestParam(defaultValue = "0") int sampleRate, @RequestParam(defaultValue = "0") int channels) {
+		if (device.trim().isEmpty()) {
+			return ResponseEntity.badRequest().build();
+		}
+		NativeDeviceCapture capture;
+		try {
+			capture = nativeProcessor.startDevice(device, sampleRate, channels);
+		} catch (IllegalStateException e) {
+			logger.error("启动设备 {} 失败: {}", device, e.getMessage());
+			return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+		} catch (RuntimeException e) {
+			logger.error("启动设备 {} 失败: {}", device, e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+		return ResponseEntity.ok(nativeProcessor.getCaptureDevices().stream()
+				.filter(d -> d.getId().equals(capture.getDevice()))
+				.findFirst()
+				.orElse(new CaptureDevice(device, device)));
+	}
+
+	@PostMapping("/stop")
+	public ResponseEntity<Void> stopDevice(@RequestParam String device) {
+		return nativeProcessor.stopDevice(device) ? ResponseEntity.noContent().build()
+				: ResponseEntity.notFound().build();
+	}
+
+	// 暂停期间设备保持打开，恢复后一个 ALSA 周期内即有数据
+	@PostMapping("/pause")
+	public ResponseEntity<Void> pauseDevice(@RequestParam String device) {
+		return nativeProcessor.pauseDevice(device, true) ? ResponseEntity.noContent().build()
+				: ResponseEntity.notFound().build();
+	}
+
+	@PostMapping("/resume")
+	public ResponseEntity<Void> resumeDevice(@RequestParam String device) {
+		return nativeProcessor.pauseDevice(device, false) ? ResponseEntity.noContent().build()
+				: ResponseEntity.notFound().build();
+	}
+}
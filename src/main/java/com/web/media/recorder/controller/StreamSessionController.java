@@ -0,0 +1,26 @@
+package com.web.media.recorder.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.web.media.recorder.websocket.StreamSessionStats;
+import com.web.media.recorder.websocket.WebSocketHandler;
+
+@RestController
+@RequestMapping("/api/stream-sessions")
+@CrossOrigin(origins = "*")
+public class StreamSessionController {
+	@Autowired
+	private WebSocketHandler webSocketHandler;
+
+	// 各推流会话的发送队列深度与发送延迟
+	@GetMapping
+	public List<StreamSessionStats> getSessions() {
+		return webSocketHandler.getSessionStats();
+	}
+}
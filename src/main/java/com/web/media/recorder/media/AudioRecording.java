@@ -8,6 +8,10 @@ public class AudioRecording {
     private long fileSize;
     private LocalDateTime createdAt;
     private int duration; // 录音时长，单位：秒
+    private long durationMs; // 精确时长，单位：毫秒
+    private int sampleRate;
+    private int channels;
+    private int bitsPerSample;
 
     // 构造函数、getter和setter方法
     public AudioRecording(String id, String fileName, long fileSize, LocalDateTime createdAt, int duration) {
@@ -57,4 +61,36 @@ public class AudioRecording {
     public void setDuration(int duration) {
         this.duration = duration;
     }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public void setChannels(int channels) {
+        this.channels = channels;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public void setBitsPerSample(int bitsPerSample) {
+        this.bitsPerSample = bitsPerSample;
+    }
 }
\ No newline at end of file
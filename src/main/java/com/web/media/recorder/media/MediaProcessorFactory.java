@@ -1,25 +1,56 @@
 package com.web.media.recorder.media;
 
+import java.nio.file.Paths;
+
+import com.web.media.recorder.config.MediaConfig;
 import com.web.media.recorder.media.processor.MediaProcessor;
 import com.web.media.recorder.media.processor.javasound.JavaSoundMediaProcessor;
 import com.web.media.recorder.media.processor.jni.NativeProcessor;
+import com.web.media.recorder.media.processor.simulated.SyntheticMediaProcessor;
+import com.web.media.recorder.media.processor.simulated.WavReplayMediaProcessor;
 
 public class MediaProcessorFactory {
+	public static final String JNI = "jni";
+	public static final String JAVASOUND = "javasound";
+	// 不需要声卡的模拟采集，用于压测推流与存储链路
+	public static final String SYNTHETIC = "synthetic";
+	public static final String REPLAY = "replay";
+
 	public static void main(String[] args) throws InterruptedException {
-		MediaProcessor processor = MediaProcessorFactory.create("jni");
+		MediaProcessor processor = MediaProcessorFactory.create(args.length > 0 ? args[0] : JNI);
 		processor.start(true);
 		Thread.sleep(10000);
 		processor.stop();
 	}
 
 	public static MediaProcessor create(String type) {
+		return create(type, null);
+	}
+
+	/**
+	 * @param config 模拟采集的格式与节奏，为 null 时合成信号使用默认参数（44.1kHz 立体声 440Hz 正弦波，实时）
+	 */
+	public static MediaProcessor create(String type, MediaConfig config) {
 		switch (type.toLowerCase()) {
-		case "jni":
+		case JNI:
 			return new NativeProcessor();
-		case "javasound":
+		case JAVASOUND:
 			return new JavaSoundMediaProcessor();
+		case SYNTHETIC:
+			if (config == null) {
+				return new SyntheticMediaProcessor();
+			}
+			return new SyntheticMediaProcessor(config.getSyntheticSampleRate(), config.getSyntheticChannels(),
+					config.getSyntheticBitsPerSample(), config.getSyntheticSignal(), config.getSyntheticFrequency(),
+					config.getSyntheticLevelDb(), config.getSimulationPacing());
+		case REPLAY:
+			if (config == null || config.getReplayPath() == null || config.getReplayPath().trim().isEmpty()) {
+				throw new IllegalArgumentException("回放处理器需要配置 media.replay.path");
+			}
+			return new WavReplayMediaProcessor(Paths.get(config.getReplayPath()), config.isReplayLoop(),
+					config.getSimulationPacing());
 		default:
 			throw new IllegalArgumentException("未知的媒体处理器类型: " + type);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package com.web.media.recorder.media.callback;
+
+//直接缓冲区回调接口：本地层只通知写入区间，数据位于共享的直接内存中
+public interface DirectDataCallback {
+	/**
+	 * @param offset 本次数据在共享缓冲区中的起始位置
+	 * @param length 数据长度，区间不会跨越缓冲区末尾
+	 */
+	void onDataCaptured(int offset, int length);
+
+	/**
+	 * 带时间戳的回调，本地库支持时优先使用。时间均为 CLOCK_MONOTONIC 纳秒，与 System.nanoTime 同一时钟
+	 * @param deviceNanos 本段首帧的采集时间（由 ALSA 硬件时间戳推算），未知时为 0
+	 * @param readNanos 本地采集循环取出本段数据的时间
+	 */
+	default void onDataCaptured(int offset, int length, long deviceNanos, long readNanos) {
+		onDataCaptured(offset, length);
+	}
+}
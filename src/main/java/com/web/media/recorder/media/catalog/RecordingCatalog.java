@@ -0,0 +1,527 @@
+package com.web.media.recorder.media.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.config.MediaConfig;
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.file.MediaFile;
+import com.web.media.recorder.media.file.MediaFileListener;
+import com.web.media.recorder.media.file.MediaMetadata;
+import com.web.media.recorder.media.file.MediaMetadataProbe;
+import com.web.media.recorder.media.file.SegmentedRecording;
+import com.web.media.recorder.media.file.WavHeader;
+
+/**
+ * 录音文件索引
+ * <p>
+ * 每种排序维护一个跳表，分页按游标定位为 O(log n)；索引由 WatchService 与 {@link MediaFile} 的写入/关闭回调保持最新，
+ * 并定期保存为录音目录下的快照文件。启动时列出目录并逐个核对快照中的大小与修改时间，
+ * 只重新解析新增或变化的文件（如崩溃后继续增长、被恢复工具改写文件头的录音），不依赖目录的修改时间。
+ * 分段录音目录（{@link SegmentedRecording}）作为一条录音索引，大小为拼接后的逻辑长度。
+ */
+@Component
+public class RecordingCatalog implements MediaFileListener {
+	private static final Logger logger = LoggerFactory.getLogger(RecordingCatalog.class);
+	private static final String SNAPSHOT_FILE = ".recordings.idx";
+	private static final String RECORDING_GLOB = "audio_*.{wav,flac,opus,mp3," + SegmentedRecording.EXTENSION + "}";
+	private static final int SNAPSHOT_MAGIC = 0x52494458; // "RIDX"
+	private static final int SNAPSHOT_VERSION = 2;
+	// 索引变更后空闲多久写快照
+	private static final long SNAPSHOT_DELAY_SECONDS = 5;
+	// 停止时等待未完成的文件头解析
+	private static final long PROBE_SHUTDOWN_SECONDS = 5;
+
+	@Autowired
+	private MediaConfig mediaConfig;
+	@Autowired
+	private MediaMetadataProbe metadataProbe;
+
+	private final Map<String, RecordingEntry> entries = new ConcurrentHashMap<>();
+	private final Map<RecordingSort, NavigableSet<RecordingEntry>> indexes = new EnumMap<>(RecordingSort.class);
+	// 正在写入的文件由 MediaFile 回调维护，忽略其 MODIFY 事件
+	private final Set<String> openFiles = ConcurrentHashMap.newKeySet();
+	private final Object snapshotLock = new Object();
+	// 录音关闭后解析文件头
+	private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "recording-probe");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Path audioPath;
+	private WatchService watchService;
+	private Thread watcherThread;
+	private volatile boolean dirty;
+
+	public RecordingCatalog() {
+		for (RecordingSort sort : RecordingSort.values()) {
+			indexes.put(sort, new ConcurrentSkipListSet<>(sort.comparator()));
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		audioPath = Paths.get(mediaConfig.getAudioDir()).toAbsolutePath().normalize();
+		Map<String, RecordingEntry> snapshot = loadSnapshot();
+		if (snapshot == null) {
+			rescan();
+		} else {
+			reconcile(snapshot);
+		}
+		MediaFile.addListener(this);
+		startWatcher();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		MediaFile.removeListener(this);
+		probeExecutor.shutdown();
+		try {
+			probeExecutor.awaitTermination(PROBE_SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				logger.warn("关闭目录监听失败: {}", e.getMessage());
+			}
+		}
+		if (dirty) {
+			saveSnapshot();
+		}
+	}
+
+	/**
+	 * 分页查询
+	 *
+	 * @param cursor 上一页返回的游标，为 null 时从头开始
+	 * @param offset 在游标之后跳过的条目数（兼容按页码访问）
+	 */
+	public RecordingPage page(RecordingSort sort, boolean descending, String cursor, long offset, int limit) {
+		NavigableSet<RecordingEntry> set = indexes.get(sort);
+		if (descending) {
+			set = set.descendingSet();
+		}
+		if (cursor != null && !cursor.isEmpty()) {
+			set = set.tailSet(decodeCursor(sort, cursor), false);
+		}
+		Iterator<RecordingEntry> it = set.iterator();
+		for (long i = 0; i < offset && it.hasNext(); i++) {
+			it.next();
+		}
+		List<RecordingEntry> result = new ArrayList<>(Math.min(limit, 100));
+		while (result.size() < limit && it.hasNext()) {
+			result.add(it.next());
+		}
+		String nextCursor = it.hasNext() && !result.isEmpty() ? encodeCursor(sort, result.get(result.size() - 1))
+				: null;
+		return new RecordingPage(result, nextCursor, entries.size());
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public RecordingEntry get(String fileName) {
+		return entries.get(fileName);
+	}
+
+	public void remove(String fileName) {
+		synchronized (this) {
+			RecordingEntry old = entries.remove(fileName);
+			if (old != null) {
+				unindex(old);
+				dirty = true;
+			}
+		}
+		metadataProbe.evict(audioPath.resolve(fileName));
+	}
+
+	/**
+	 * 重新读取单个文件的属性并更新索引，文件不存在时从索引中移除
+	 */
+	public void refresh(Path path) {
+		String fileName = path.getFileName().toString();
+		if (!isRecording(fileName)) {
+			return;
+		}
+		try {
+			if (SegmentedRecording.isSegmented(fileName)) {
+				SegmentedRecording recording = SegmentedRecording.read(path);
+				put(createEntry(path, recording.getLength(), recording.getLastModified()));
+				return;
+			}
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			put(createEntry(path, attrs.size(), attrs.lastModifiedTime().toMillis()));
+		} catch (NoSuchFileException e) {
+			remove(fileName);
+		} catch (IOException e) {
+			logger.warn("读取录音文件属性失败: {}, {}", path, e.getMessage());
+		}
+	}
+
+	@Override
+	public void onFileCreated(Path path) {
+		if (isCatalogued(path)) {
+			String fileName = path.getFileName().toString();
+			openFiles.add(fileName);
+			// 文件头仍在写入缓冲中，首个检查点后再解析格式
+			put(new RecordingEntry(fileName, WavHeader.HEADER_SIZE, System.currentTimeMillis(), 0));
+		}
+	}
+
+	/**
+	 * 检查点只更新大小，PCM 录音按字节数推算时长；WAV 文件头只在格式尚未解析时读取一次，压缩格式等关闭后再解析。
+	 * 录音打开期间修改时间保持为创建时的值，按日期排序的位置不随检查点变化，分页游标不会失效
+	 */
+	@Override
+	public void onFileCheckpoint(Path path, long length) {
+		if (isCatalogued(path)) {
+			String fileName = path.getFileName().toString();
+			RecordingEntry previous = entries.get(fileName);
+			if (previous == null || (isPcm(fileName) && previous.getSampleRate() == 0)) {
+				long created = previous != null ? previous.getLastModified() : System.currentTimeMillis();
+				put(createEntry(path, length, created));
+			} else {
+				put(resize(previous, length, previous.getLastModified()));
+			}
+		}
+	}
+
+	/**
+	 * 关闭时先按字节数更新，再在后台解析一次文件头得到精确时长，不阻塞写入线程
+	 */
+	@Override
+	public void onFileClosed(Path path, long length) {
+		if (isCatalogued(path)) {
+			String fileName = path.getFileName().toString();
+			RecordingEntry previous = entries.get(fileName);
+			if (previous != null) {
+				put(resize(previous, length, System.currentTimeMillis()));
+			}
+			try {
+				probeExecutor.execute(() -> {
+					openFiles.remove(fileName);
+					// 记录文件实际的修改时间，重启时与快照核对不会误判为已变化
+					long lastModified;
+					try {
+						lastModified = SegmentedRecording.isSegmented(fileName)
+								? SegmentedRecording.read(path).getLastModified()
+								: Files.getLastModifiedTime(path).toMillis();
+					} catch (IOException e) {
+						lastModified = System.currentTimeMillis();
+					}
+					RecordingEntry entry = createEntry(path, length, lastModified);
+					// 解析期间文件已被删除时不再加回索引
+					synchronized (this) {
+						if (entries.containsKey(fileName)) {
+							put(entry);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				openFiles.remove(fileName);
+			}
+		}
+	}
+
+	private static RecordingEntry resize(RecordingEntry entry, long length, long lastModified) {
+		long durationMs = entry.getDurationMs();
+		long byteRate = (long) entry.getSampleRate() * entry.getChannels() * entry.getBitsPerSample() / 8;
+		if (isPcm(entry.getFileName()) && byteRate > 0) {
+			durationMs = Math.max(0, length - WavHeader.HEADER_SIZE) * 1000 / byteRate;
+		}
+		return new RecordingEntry(entry.getFileName(), length, lastModified, durationMs,
+				entry.getSampleRate(), entry.getChannels(), entry.getBitsPerSample());
+	}
+
+	private static boolean isPcm(String fileName) {
+		return AudioCodec.fromFileName(fileName) == AudioCodec.WAV || SegmentedRecording.isSegmented(fileName);
+	}
+
+	private RecordingEntry createEntry(Path path, long fileSize, long lastModified) {
+		Path file = audioPath.resolve(path.getFileName());
+		MediaMetadata metadata = metadataProbe.probe(file, fileSize, lastModified);
+		return new RecordingEntry(file.getFileName().toString(), fileSize, lastModified, metadata.getDurationMs(),
+				metadata.getSampleRate(), metadata.getChannels(), metadata.getBitsPerSample());
+	}
+
+	private void put(RecordingEntry entry) {
+		synchronized (this) {
+			RecordingEntry old = entries.put(entry.getFileName(), entry);
+			if (old != null) {
+				unindex(old);
+			}
+			for (NavigableSet<RecordingEntry> index : indexes.values()) {
+				index.add(entry);
+			}
+			dirty = true;
+		}
+	}
+
+	private void unindex(RecordingEntry entry) {
+		for (NavigableSet<RecordingEntry> index : indexes.values()) {
+			index.remove(entry);
+		}
+	}
+
+	private void rescan() {
+		synchronized (this) {
+			entries.clear();
+			for (NavigableSet<RecordingEntry> index : indexes.values()) {
+				index.clear();
+			}
+		}
+		if (!Files.isDirectory(audioPath)) {
+			return;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(audioPath, RECORDING_GLOB)) {
+			for (Path path : stream) {
+				refresh(path);
+			}
+		} catch (IOException e) {
+			logger.error("扫描录音目录失败: {}", e.getMessage());
+		}
+		dirty = true;
+		logger.info("录音目录扫描完成，共{}个文件", entries.size());
+	}
+
+	/**
+	 * 以快照为准建立索引：大小与修改时间都一致的文件直接沿用快照中的时长与格式，
+	 * 新增或已变化的文件重新解析，快照中有而目录中已不存在的文件丢弃
+	 */
+	private void reconcile(Map<String, RecordingEntry> snapshot) {
+		int reused = 0;
+		int refreshed = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(audioPath, RECORDING_GLOB)) {
+			for (Path path : stream) {
+				String fileName = path.getFileName().toString();
+				long size;
+				long lastModified;
+				try {
+					if (SegmentedRecording.isSegmented(fileName)) {
+						SegmentedRecording recording = SegmentedRecording.read(path);
+						size = recording.getLength();
+						lastModified = recording.getLastModified();
+					} else {
+						BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+						size = attrs.size();
+						lastModified = attrs.lastModifiedTime().toMillis();
+					}
+				} catch (IOException e) {
+					logger.warn("读取录音文件属性失败: {}, {}", path, e.getMessage());
+					continue;
+				}
+				RecordingEntry cached = snapshot.get(fileName);
+				if (cached != null && cached.getFileSize() == size && cached.getLastModified() == lastModified) {
+					put(cached);
+					reused++;
+				} else {
+					put(createEntry(path, size, lastModified));
+					refreshed++;
+				}
+			}
+		} catch (IOException e) {
+			logger.error("扫描录音目录失败: {}", e.getMessage());
+			rescan();
+			return;
+		}
+		dirty = refreshed > 0 || reused != snapshot.size();
+		logger.info("已从快照加载录音索引，共{}个文件，其中{}个新增或已变化", entries.size(), refreshed);
+	}
+
+	private void startWatcher() {
+		if (!Files.isDirectory(audioPath)) {
+			logger.warn("录音目录不存在，跳过目录监听: {}", audioPath);
+			return;
+		}
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			audioPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			logger.error("注册目录监听失败: {}", e.getMessage());
+			return;
+		}
+		watcherThread = new Thread(this::watchLoop, "recording-catalog-watcher");
+		watcherThread.setDaemon(true);
+		watcherThread.start();
+	}
+
+	private void watchLoop() {
+		try {
+			while (true) {
+				WatchKey key = watchService.poll(SNAPSHOT_DELAY_SECONDS, TimeUnit.SECONDS);
+				if (key == null) {
+					if (dirty) {
+						saveSnapshot();
+					}
+					continue;
+				}
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						rescan();
+						continue;
+					}
+					Path name = (Path) event.context();
+					if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY && openFiles.contains(name.toString())) {
+						continue;
+					}
+					refresh(audioPath.resolve(name));
+				}
+				if (!key.reset()) {
+					logger.warn("录音目录已不可访问，停止监听: {}", audioPath);
+					return;
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// 正常关闭
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 快照格式：魔数、版本、条目数，随后为每个条目的文件名、大小、修改时间、时长、采样率、声道数、位深度
+	 */
+	private void saveSnapshot() {
+		if (!Files.isDirectory(audioPath)) {
+			return;
+		}
+		synchronized (snapshotLock) {
+			writeSnapshot();
+		}
+	}
+
+	private void writeSnapshot() {
+		dirty = false;
+		Path snapshot = audioPath.resolve(SNAPSHOT_FILE);
+		Path tmp = audioPath.resolve(SNAPSHOT_FILE + ".tmp");
+		List<RecordingEntry> values = new ArrayList<>(entries.values());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			out.writeInt(values.size());
+			for (RecordingEntry entry : values) {
+				out.writeUTF(entry.getFileName());
+				out.writeLong(entry.getFileSize());
+				out.writeLong(entry.getLastModified());
+				out.writeLong(entry.getDurationMs());
+				out.writeInt(entry.getSampleRate());
+				out.writeShort(entry.getChannels());
+				out.writeShort(entry.getBitsPerSample());
+			}
+		} catch (IOException e) {
+			logger.warn("保存录音索引快照失败: {}", e.getMessage());
+			dirty = true;
+			return;
+		}
+		try {
+			Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn("保存录音索引快照失败: {}", e.getMessage());
+			dirty = true;
+		}
+	}
+
+	/**
+	 * @return 快照中的条目，按文件名索引；没有快照或格式不符时为 null
+	 */
+	private Map<String, RecordingEntry> loadSnapshot() {
+		Path snapshot = audioPath.resolve(SNAPSHOT_FILE);
+		if (!Files.isRegularFile(snapshot)) {
+			return null;
+		}
+		Map<String, RecordingEntry> result = new HashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+			if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+				return null;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				RecordingEntry entry = new RecordingEntry(in.readUTF(), in.readLong(), in.readLong(), in.readLong(),
+						in.readInt(), in.readShort(), in.readShort());
+				result.put(entry.getFileName(), entry);
+			}
+		} catch (IOException e) {
+			logger.warn("加载录音索引快照失败，重新扫描: {}", e.getMessage());
+			return null;
+		}
+		return result;
+	}
+
+	private boolean isCatalogued(Path path) {
+		Path parent = path.toAbsolutePath().normalize().getParent();
+		return audioPath.equals(parent) && isRecording(path.getFileName().toString());
+	}
+
+	private static boolean isRecording(String fileName) {
+		return fileName.startsWith("audio_")
+				&& (AudioCodec.fromFileName(fileName) != null || SegmentedRecording.isSegmented(fileName));
+	}
+
+	private static String encodeCursor(RecordingSort sort, RecordingEntry entry) {
+		String raw = sort.keyOf(entry) + ":" + entry.getFileName();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static RecordingEntry decodeCursor(RecordingSort sort, String cursor) {
+		String raw;
+		try {
+			raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("无效的分页游标: " + cursor);
+		}
+		int sep = raw.indexOf(':');
+		if (sep <= 0) {
+			throw new IllegalArgumentException("无效的分页游标: " + cursor);
+		}
+		try {
+			return sort.probe(Long.parseLong(raw.substring(0, sep)), raw.substring(sep + 1));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("无效的分页游标: " + cursor);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.web.media.recorder.media.catalog;
+
+/**
+ * 录音索引条目（不可变），更新时整体替换
+ */
+public final class RecordingEntry {
+	private final String fileName;
+	private final long fileSize;
+	private final long lastModified;
+	private final long durationMs;
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+
+	public RecordingEntry(String fileName, long fileSize, long lastModified, long durationMs) {
+		this(fileName, fileSize, lastModified, durationMs, 0, 0, 0);
+	}
+
+	public RecordingEntry(String fileName, long fileSize, long lastModified, long durationMs, int sampleRate,
+			int channels, int bitsPerSample) {
+		this.fileName = fileName;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.durationMs = durationMs;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public int getBitsPerSample() {
+		return bitsPerSample;
+	}
+}
@@ -0,0 +1,33 @@
+package com.web.media.recorder.media.catalog;
+
+import java.util.List;
+
+/**
+ * 一页录音查询结果
+ */
+public class RecordingPage {
+	private final List<RecordingEntry> entries;
+	private final String nextCursor;
+	private final int totalCount;
+
+	public RecordingPage(List<RecordingEntry> entries, String nextCursor, int totalCount) {
+		this.entries = entries;
+		this.nextCursor = nextCursor;
+		this.totalCount = totalCount;
+	}
+
+	public List<RecordingEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return 下一页游标，没有更多数据时为 null
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public int getTotalCount() {
+		return totalCount;
+	}
+}
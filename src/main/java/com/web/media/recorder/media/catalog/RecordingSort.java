@@ -0,0 +1,65 @@
+package com.web.media.recorder.media.catalog;
+
+import java.util.Comparator;
+
+/**
+ * 录音列表排序字段，相同键值时按文件名排序以保证顺序稳定
+ */
+public enum RecordingSort {
+	DATE {
+		@Override
+		long keyOf(RecordingEntry entry) {
+			return entry.getLastModified();
+		}
+
+		@Override
+		RecordingEntry probe(long key, String fileName) {
+			return new RecordingEntry(fileName, 0, key, 0);
+		}
+	},
+	SIZE {
+		@Override
+		long keyOf(RecordingEntry entry) {
+			return entry.getFileSize();
+		}
+
+		@Override
+		RecordingEntry probe(long key, String fileName) {
+			return new RecordingEntry(fileName, key, 0, 0);
+		}
+	},
+	DURATION {
+		@Override
+		long keyOf(RecordingEntry entry) {
+			return entry.getDurationMs();
+		}
+
+		@Override
+		RecordingEntry probe(long key, String fileName) {
+			return new RecordingEntry(fileName, 0, 0, key);
+		}
+	};
+
+	private final Comparator<RecordingEntry> comparator = Comparator.comparingLong(this::keyOf)
+			.thenComparing(RecordingEntry::getFileName);
+
+	abstract long keyOf(RecordingEntry entry);
+
+	/**
+	 * 构造只用于定位的条目，仅排序键与文件名有效
+	 */
+	abstract RecordingEntry probe(long key, String fileName);
+
+	public Comparator<RecordingEntry> comparator() {
+		return comparator;
+	}
+
+	public static RecordingSort of(String name) {
+		for (RecordingSort sort : values()) {
+			if (sort.name().equalsIgnoreCase(name)) {
+				return sort;
+			}
+		}
+		throw new IllegalArgumentException("未知的排序字段: " + name);
+	}
+}
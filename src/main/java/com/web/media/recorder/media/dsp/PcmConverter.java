@@ -0,0 +1,209 @@
+package com.web.media.recorder.media.dsp;
+
+/**
+ * 监听流的格式转换：声道下混、采样率转换与位深降低，每个推流会话一个实例
+ * <p>
+ * 输入为采集格式的小端 int16 交错 PCM，可在任意字节处分块，不足一帧的尾部留到下次；输出总是完整的采样帧。
+ * 降采样时先经窗函数法设计的低通 FIR 抗混叠，再在相邻两个滤波结果间线性插值得到分数位置的样本；
+ * 升采样只做线性插值。8 位输出在量化前叠加三角分布抖动。
+ * 缓冲区在构造时按单次最大输入分配，转换过程中不分配对象。非线程安全。
+ */
+public class PcmConverter {
+	private static final int FILTER_TAPS = 32;
+	// 低通截止频率相对输出奈奎斯特频率的比例，留出过渡带
+	private static final double CUTOFF = 0.9;
+	// 单次转换的最大输入帧数
+	private static final int MAX_INPUT_FRAMES = 4096;
+
+	private final int outputRate;
+	private final int inputChannels;
+	private final int inputBlockAlign;
+	private final int outputChannels;
+	private final int outputBits;
+	private final int outputBlockAlign;
+	private final PcmKernels kernels;
+	private final double step;
+	private final float[] taps;
+
+	private final byte[] input;
+	// input 开头上次剩下的不完整输入帧的字节数
+	private int carry;
+	private final short[] samples;
+	// 每个输出声道待滤波的样本，position 为下一个输出样本对应的滤波窗口起点
+	private final float[][] history;
+	private int historyLength;
+	private double position;
+	private final float[] output;
+	private final short[] quantized;
+	private int ditherState = 0x2545f491;
+
+	/**
+	 * @param outputChannels 1（下混为单声道）或与输入相同
+	 * @param outputBits     16 或 8
+	 */
+	public PcmConverter(int inputRate, int inputChannels, int outputRate, int outputChannels, int outputBits,
+			PcmKernels kernels) {
+		if (inputRate <= 0 || outputRate <= 0 || inputChannels <= 0) {
+			throw new IllegalArgumentException("无效的采样率或声道数");
+		}
+		if (outputChannels != 1 && outputChannels != inputChannels) {
+			throw new IllegalArgumentException("输出声道数只能为 1 或与输入相同: " + outputChannels);
+		}
+		if (outputBits != 8 && outputBits != 16) {
+			throw new IllegalArgumentException("输出位深只能为 8 或 16: " + outputBits);
+		}
+		this.outputRate = outputRate;
+		this.inputChannels = inputChannels;
+		this.inputBlockAlign = inputChannels * 2;
+		this.outputChannels = outputChannels;
+		this.outputBits = outputBits;
+		this.outputBlockAlign = outputChannels * outputBits / 8;
+		this.kernels = kernels;
+		this.step = (double) inputRate / outputRate;
+		this.taps = outputRate < inputRate ? lowPass(CUTOFF * 0.5 / step) : new float[] { 1f };
+
+		this.input = new byte[MAX_INPUT_FRAMES * inputBlockAlign];
+		this.samples = new short[MAX_INPUT_FRAMES * inputChannels];
+		this.history = new float[outputChannels][MAX_INPUT_FRAMES + taps.length + (int) Math.ceil(step) + 2];
+		int maxOutputFrames = (int) Math.ceil(MAX_INPUT_FRAMES / step) + 2;
+		this.output = new float[maxOutputFrames * outputChannels];
+		this.quantized = new short[maxOutputFrames * outputChannels];
+	}
+
+	// Blackman 窗的 sinc 低通，cutoff 为相对输入采样率的截止频率，系数归一化为直流增益 1
+	private static float[] lowPass(double cutoff) {
+		float[] h = new float[FILTER_TAPS];
+		double center = (FILTER_TAPS - 1) / 2.0;
+		double sum = 0;
+		double[] values = new double[FILTER_TAPS];
+		for (int n = 0; n < FILTER_TAPS; n++) {
+			double x = n - center;
+			double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+			double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * n / (FILTER_TAPS - 1))
+					+ 0.08 * Math.cos(4 * Math.PI * n / (FILTER_TAPS - 1));
+			values[n] = sinc * window;
+			sum += values[n];
+		}
+		for (int n = 0; n < FILTER_TAPS; n++) {
+			h[n] = (float) (values[n] / sum);
+		}
+		return h;
+	}
+
+	/**
+	 * 输入数据须写入该数组的 {@link #inputOffset()} 处
+	 */
+	public byte[] inputBuffer() {
+		return input;
+	}
+
+	public int inputOffset() {
+		return carry;
+	}
+
+	/**
+	 * @param outputSpace 输出缓冲区的剩余空间（字节）
+	 * @return 本次最多可写入的输入字节数，保证转换结果不超过 outputSpace；为 0 时应先腾出输出空间
+	 */
+	public int inputCapacity(int outputSpace) {
+		int outputFrames = outputSpace / outputBlockAlign;
+		long frames = Math.min(MAX_INPUT_FRAMES, (long) ((outputFrames - 1) * step));
+		return (int) Math.max(0, frames * inputBlockAlign - carry);
+	}
+
+	/**
+	 * 转换写入输入缓冲区的 length 个字节
+	 *
+	 * @return 写入 dst 的字节数，总是输出块对齐的整数倍
+	 */
+	public int convert(int length, byte[] dst, int dstOffset) {
+		int total = carry + length;
+		int frames = total / inputBlockAlign;
+		int sampleCount = frames * inputChannels;
+		for (int i = 0, b = 0; i < sampleCount; i++, b += 2) {
+			samples[i] = (short) ((input[b] & 0xff) | (input[b + 1] << 8));
+		}
+		carry = total - frames * inputBlockAlign;
+		System.arraycopy(input, frames * inputBlockAlign, input, 0, carry);
+
+		for (int c = 0; c < outputChannels; c++) {
+			if (outputChannels == 1 && inputChannels > 1) {
+				kernels.downmix(samples, frames, inputChannels, history[c], historyLength);
+			} else {
+				kernels.extract(samples, frames, inputChannels, c, history[c], historyLength);
+			}
+		}
+		historyLength += frames;
+
+		int produced = 0;
+		int windows = taps.length;
+		int index;
+		while ((index = (int) position) + 1 + windows <= historyLength) {
+			float fraction = (float) (position - index);
+			for (int c = 0; c < outputChannels; c++) {
+				float y0 = kernels.dot(history[c], index, taps, 0, windows);
+				float y1 = fraction == 0 ? y0 : kernels.dot(history[c], index + 1, taps, 0, windows);
+				output[produced++] = y0 + fraction * (y1 - y0);
+			}
+			position += step;
+		}
+		// 丢弃不再需要的历史样本
+		int consumed = Math.min((int) position, historyLength);
+		for (int c = 0; c < outputChannels; c++) {
+			System.arraycopy(history[c], consumed, history[c], 0, historyLength - consumed);
+		}
+		historyLength -= consumed;
+		position -= consumed;
+
+		kernels.quantize(output, produced, quantized);
+		return pack(produced, dst, dstOffset);
+	}
+
+	private int pack(int count, byte[] dst, int offset) {
+		int o = offset;
+		if (outputBits == 16) {
+			for (int i = 0; i < count; i++) {
+				short s = quantized[i];
+				dst[o++] = (byte) s;
+				dst[o++] = (byte) (s >> 8);
+			}
+		} else {
+			for (int i = 0; i < count; i++) {
+				// 两个均匀分布之和为三角分布，幅度为一个 8 位量化步长
+				int dither = (nextRandom() & 0xff) + (nextRandom() & 0xff) - 255;
+				int value = (quantized[i] + dither + 128) >> 8;
+				dst[o++] = (byte) (Math.max(-128, Math.min(127, value)) + 128);
+			}
+		}
+		return o - offset;
+	}
+
+	private int nextRandom() {
+		int x = ditherState;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		ditherState = x;
+		return x;
+	}
+
+	public int getOutputRate() {
+		return outputRate;
+	}
+
+	public int getOutputChannels() {
+		return outputChannels;
+	}
+
+	public int getOutputBits() {
+		return outputBits;
+	}
+
+	public int getOutputBlockAlign() {
+		return outputBlockAlign;
+	}
+
+	public String getKernelName() {
+		return kernels.name();
+	}
+}
@@ -0,0 +1,63 @@
+package com.web.media.recorder.media.dsp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 监听链路上逐样本的计算内核，实现不得在调用中分配对象
+ * <p>
+ * 标量实现总是可用；向量实现基于 jdk.incubator.vector，只在 JDK 17+ 构建且运行时以
+ * {@code --add-modules jdk.incubator.vector} 启动时可用，编译目标较低时通过反射加载。
+ */
+public interface PcmKernels {
+	String VECTOR_IMPLEMENTATION = "com.web.media.recorder.media.dsp.VectorPcmKernels";
+
+	/**
+	 * 将交错的 int16 样本按声道取平均，得到满幅为 1.0 的单声道浮点样本
+	 */
+	void downmix(short[] src, int frames, int channels, float[] dst, int dstOffset);
+
+	/**
+	 * 取出交错 int16 样本中的一个声道，转换为满幅为 1.0 的浮点样本
+	 */
+	void extract(short[] src, int frames, int channels, int channel, float[] dst, int dstOffset);
+
+	/**
+	 * @return a 与 b 从各自偏移开始 length 个元素的点积
+	 */
+	float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+	/**
+	 * 将满幅为 1.0 的浮点样本四舍五入为 int16，超出范围的截断
+	 */
+	void quantize(float[] src, int length, short[] dst);
+
+	String name();
+
+	static PcmKernels scalar() {
+		return ScalarPcmKernels.INSTANCE;
+	}
+
+	/**
+	 * @return 向量实现；未编译进来或运行时未加载 jdk.incubator.vector 模块时返回 null
+	 */
+	static PcmKernels vector() {
+		try {
+			return (PcmKernels) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param preferVector 可用时使用向量实现
+	 */
+	static PcmKernels select(boolean preferVector) {
+		PcmKernels kernels = preferVector ? vector() : null;
+		if (preferVector && kernels == null) {
+			Logger logger = LoggerFactory.getLogger(PcmKernels.class);
+			logger.info("向量计算不可用（需 JDK 17+ 并以 --add-modules jdk.incubator.vector 启动），使用标量实现");
+		}
+		return kernels != null ? kernels : scalar();
+	}
+}
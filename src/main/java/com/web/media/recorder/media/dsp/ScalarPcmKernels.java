@@ -0,0 +1,67 @@
+package com.web.media.recorder.media.dsp;
+
+/**
+ * 逐样本循环的标量实现，也作为向量实现处理尾部与不支持的声道布局时的回退
+ */
+public class ScalarPcmKernels implements PcmKernels {
+	static final ScalarPcmKernels INSTANCE = new ScalarPcmKernels();
+	static final float SCALE = 1f / 32768f;
+
+	@Override
+	public void downmix(short[] src, int frames, int channels, float[] dst, int dstOffset) {
+		downmix(src, 0, frames, channels, dst, dstOffset);
+	}
+
+	/**
+	 * 从第 firstFrame 帧开始处理，供向量实现处理尾部
+	 */
+	void downmix(short[] src, int firstFrame, int frames, int channels, float[] dst, int dstOffset) {
+		float scale = SCALE / channels;
+		int s = firstFrame * channels;
+		for (int i = 0; i < frames; i++) {
+			int sum = 0;
+			for (int c = 0; c < channels; c++) {
+				sum += src[s++];
+			}
+			dst[dstOffset + i] = sum * scale;
+		}
+	}
+
+	@Override
+	public void extract(short[] src, int frames, int channels, int channel, float[] dst, int dstOffset) {
+		extract(src, 0, frames, channels, channel, dst, dstOffset);
+	}
+
+	void extract(short[] src, int firstFrame, int frames, int channels, int channel, float[] dst, int dstOffset) {
+		for (int i = 0, s = firstFrame * channels + channel; i < frames; i++, s += channels) {
+			dst[dstOffset + i] = src[s] * SCALE;
+		}
+	}
+
+	@Override
+	public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+		float sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void quantize(float[] src, int length, short[] dst) {
+		for (int i = 0; i < length; i++) {
+			dst[i] = toShort(src[i]);
+		}
+	}
+
+	// 截断到 int16 范围后远离零方向舍入，与向量实现逐位一致
+	static short toShort(float sample) {
+		float value = Math.max(-32768f, Math.min(32767f, sample * 32768f));
+		return (short) (int) (value < 0 ? value - 0.5f : value + 0.5f);
+	}
+
+	@Override
+	public String name() {
+		return "scalar";
+	}
+}
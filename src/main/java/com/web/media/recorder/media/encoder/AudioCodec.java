@@ -0,0 +1,81 @@
+package com.web.media.recorder.media.encoder;
+
+/**
+ * 录音文件的存储格式
+ */
+public enum AudioCodec {
+	// 原始 PCM，不经过编码
+	WAV("wav", null, null, "audio/wav", false),
+	// 无损压缩
+	FLAC("flac", "flac", "flac", "audio/flac", false),
+	OPUS("opus", "libopus", "ogg", "audio/ogg", true),
+	MP3("mp3", "libmp3lame", "mp3", "audio/mpeg", true);
+
+	private final String extension;
+	private final String encoderName;
+	private final String formatName;
+	private final String mimeType;
+	private final boolean lossy;
+
+	AudioCodec(String extension, String encoderName, String formatName, String mimeType, boolean lossy) {
+		this.extension = extension;
+		this.encoderName = encoderName;
+		this.formatName = formatName;
+		this.mimeType = mimeType;
+		this.lossy = lossy;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * @return FFmpeg 编码器名称，WAV 为 null
+	 */
+	public String getEncoderName() {
+		return encoderName;
+	}
+
+	/**
+	 * @return FFmpeg 封装格式名称，WAV 为 null
+	 */
+	public String getFormatName() {
+		return formatName;
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	public boolean isLossy() {
+		return lossy;
+	}
+
+	public static AudioCodec of(String name) {
+		for (AudioCodec codec : values()) {
+			if (codec.name().equalsIgnoreCase(name)) {
+				return codec;
+			}
+		}
+		throw new IllegalArgumentException("未知的音频格式: " + name);
+	}
+
+	/**
+	 * 按扩展名识别录音文件格式
+	 *
+	 * @return 无法识别时返回 null
+	 */
+	public static AudioCodec fromFileName(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		if (dot < 0) {
+			return null;
+		}
+		String extension = fileName.substring(dot + 1);
+		for (AudioCodec codec : values()) {
+			if (codec.extension.equalsIgnoreCase(extension)) {
+				return codec;
+			}
+		}
+		return null;
+	}
+}
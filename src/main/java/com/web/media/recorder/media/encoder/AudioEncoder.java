@@ -0,0 +1,23 @@
+package com.web.media.recorder.media.encoder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 增量音频编码器：逐块接收交错 PCM，编码后的数据写入 {@link EncodedOutput}
+ * <p>
+ * 非线程安全，同一编码器同一时刻只能由一个线程调用。
+ */
+public interface AudioEncoder extends Closeable {
+	/**
+	 * 编码缓冲区中剩余的 PCM 数据，不足一个采样帧的尾部被忽略
+	 */
+	void encode(ByteBuffer pcm) throws IOException;
+
+	/**
+	 * 刷出编码器中缓存的数据并写入文件尾，之后不能再调用 {@link #encode(ByteBuffer)}
+	 */
+	@Override
+	void close() throws IOException;
+}
@@ -0,0 +1,163 @@
+package com.web.media.recorder.media.encoder;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.config.MediaConfig;
+import com.web.media.recorder.media.file.AudioFile;
+import com.web.media.recorder.media.file.AudioStorageMode;
+import com.web.media.recorder.media.file.EncodedAudioFile;
+import com.web.media.recorder.media.file.MediaFile;
+import com.web.media.recorder.media.file.SegmentedAudioFile;
+
+/**
+ * 音频编码工作线程池
+ * <p>
+ * 采集线程只把 PCM 交给录音文件的待编码队列，编码在本池的有界线程上进行；
+ * 每个文件同一时刻至多占用一个线程，保证数据按顺序编码。
+ */
+@Component
+public class AudioEncoderPool {
+	private static final Logger logger = LoggerFactory.getLogger(AudioEncoderPool.class);
+	private static final int SHUTDOWN_TIMEOUT = 5;
+
+	private final MediaConfig mediaConfig;
+	private final ThreadPoolExecutor executor;
+	// 正在编码的录音文件，用于统计积压
+	private final Set<EncodedAudioFile> activeFiles = ConcurrentHashMap.newKeySet();
+	private final AtomicLong droppedBytes = new AtomicLong();
+
+	@Autowired
+	public AudioEncoderPool(MediaConfig mediaConfig) {
+		this.mediaConfig = mediaConfig;
+		int threads = Math.max(1, mediaConfig.getEncoderThreads());
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, mediaConfig.getEncoderQueueSize())), r -> {
+					Thread thread = new Thread(r, "audio-encoder-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 按格式创建录音文件：WAV 按配置的存储方式直接写 PCM，其余格式经编码后写入
+	 */
+	public MediaFile createAudioFile(String outputDir, AudioCodec codec, int sampleRate, int channels,
+			int bitsPerSample) {
+		if (codec == null || codec == AudioCodec.WAV) {
+			AudioStorageMode storage = mediaConfig.getAudioStorage();
+			if (storage == AudioStorageMode.SEGMENTED) {
+				return new SegmentedAudioFile(outputDir, sampleRate, channels, bitsPerSample,
+						mediaConfig.getAudioSegmentDurationSeconds() * 1000, mediaConfig.getAudioSegmentMaxBytes(),
+						mediaConfig.getAudioSegmentGapRollMs());
+			}
+			return new AudioFile(outputDir, sampleRate, channels, bitsPerSample, storage == AudioStorageMode.RF64);
+		}
+		return new EncodedAudioFile(outputDir, codec, sampleRate, channels, bitsPerSample, this);
+	}
+
+	/**
+	 * 录音文件打开编码器后登记，计入积压统计
+	 */
+	public void register(EncodedAudioFile file) {
+		activeFiles.add(file);
+	}
+
+	/**
+	 * 录音文件结束编码后调用，不再计入积压统计
+	 */
+	public void release(EncodedAudioFile file) {
+		activeFiles.remove(file);
+	}
+
+	public void recordDropped(int bytes) {
+		droppedBytes.addAndGet(bytes);
+	}
+
+	public AudioEncoder createEncoder(AudioCodec codec, int sampleRate, int channels, int bitsPerSample,
+			EncodedOutput output) throws IOException {
+		return new FfmpegAudioEncoder(codec, sampleRate, channels, bitsPerSample, mediaConfig.getEncoderBitRate(),
+				output);
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return 单个文件允许积压的待编码字节数，超过后丢弃新数据
+	 */
+	public long getMaxPendingBytes() {
+		return mediaConfig.getEncoderMaxPendingBytes();
+	}
+
+	/**
+	 * @return 所有录音文件等待编码的 PCM 字节数
+	 */
+	public long getPendingBytes() {
+		long total = 0;
+		for (EncodedAudioFile file : activeFiles) {
+			total += file.getPendingBytes();
+		}
+		return total;
+	}
+
+	/**
+	 * @return 各录音文件中编码落后于采集的最大时长（毫秒）
+	 */
+	public long getMaxLagMillis() {
+		long max = 0;
+		for (EncodedAudioFile file : activeFiles) {
+			max = Math.max(max, file.getPendingMillis());
+		}
+		return max;
+	}
+
+	/**
+	 * @return 因积压超过上限而丢弃的 PCM 字节数（累计）
+	 */
+	public long getDroppedBytes() {
+		return droppedBytes.get();
+	}
+
+	public int getActiveFileCount() {
+		return activeFiles.size();
+	}
+
+	/**
+	 * @return 线程池中等待执行的编码任务数
+	 */
+	public int getQueuedTasks() {
+		return executor.getQueue().size();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				logger.warn("编码任务未在{}秒内结束", SHUTDOWN_TIMEOUT);
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.web.media.recorder.media.encoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 编码器的输出目标。封装格式写文件尾时可能回到文件头修正信息，因此写入带位置
+ */
+public interface EncodedOutput {
+	/**
+	 * 在指定位置写入缓冲区中剩余的数据，位置等于当前长度时为追加
+	 */
+	void write(long position, ByteBuffer data) throws IOException;
+
+	/**
+	 * @return 当前输出长度
+	 */
+	long size();
+}
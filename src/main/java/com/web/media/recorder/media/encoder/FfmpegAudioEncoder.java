@@ -0,0 +1,508 @@
+package com.web.media.recorder.media.encoder;
+
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_CAP_SMALL_LAST_FRAME;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_CAP_VARIABLE_FRAME_SIZE;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_CONFIG_SAMPLE_FORMAT;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_CONFIG_SAMPLE_RATE;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_FLAG_GLOBAL_HEADER;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_alloc;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_free;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_rescale_ts;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_alloc_context3;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_find_encoder_by_name;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_free_context;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_get_supported_config;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_open2;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_parameters_from_context;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_receive_packet;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_send_frame;
+import static org.bytedeco.ffmpeg.global.avformat.AVFMT_GLOBALHEADER;
+import static org.bytedeco.ffmpeg.global.avformat.AVSEEK_SIZE;
+import static org.bytedeco.ffmpeg.global.avformat.av_interleaved_write_frame;
+import static org.bytedeco.ffmpeg.global.avformat.av_write_trailer;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_alloc_output_context2;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_free_context;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_new_stream;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_write_header;
+import static org.bytedeco.ffmpeg.global.avformat.avio_alloc_context;
+import static org.bytedeco.ffmpeg.global.avformat.avio_context_free;
+import static org.bytedeco.ffmpeg.global.avutil.AVERROR_EAGAIN;
+import static org.bytedeco.ffmpeg.global.avutil.AVERROR_EOF;
+import static org.bytedeco.ffmpeg.global.avutil.AV_SAMPLE_FMT_S16;
+import static org.bytedeco.ffmpeg.global.avutil.AV_SAMPLE_FMT_S32;
+import static org.bytedeco.ffmpeg.global.avutil.AV_SAMPLE_FMT_U8;
+import static org.bytedeco.ffmpeg.global.avutil.av_audio_fifo_alloc;
+import static org.bytedeco.ffmpeg.global.avutil.av_audio_fifo_free;
+import static org.bytedeco.ffmpeg.global.avutil.av_audio_fifo_read;
+import static org.bytedeco.ffmpeg.global.avutil.av_audio_fifo_size;
+import static org.bytedeco.ffmpeg.global.avutil.av_audio_fifo_write;
+import static org.bytedeco.ffmpeg.global.avutil.av_channel_layout_copy;
+import static org.bytedeco.ffmpeg.global.avutil.av_channel_layout_default;
+import static org.bytedeco.ffmpeg.global.avutil.av_frame_alloc;
+import static org.bytedeco.ffmpeg.global.avutil.av_frame_free;
+import static org.bytedeco.ffmpeg.global.avutil.av_frame_get_buffer;
+import static org.bytedeco.ffmpeg.global.avutil.av_frame_make_writable;
+import static org.bytedeco.ffmpeg.global.avutil.av_free;
+import static org.bytedeco.ffmpeg.global.avutil.av_freep;
+import static org.bytedeco.ffmpeg.global.avutil.av_make_q;
+import static org.bytedeco.ffmpeg.global.avutil.av_malloc;
+import static org.bytedeco.ffmpeg.global.avutil.av_samples_alloc;
+import static org.bytedeco.ffmpeg.global.avutil.av_samples_set_silence;
+import static org.bytedeco.ffmpeg.global.avutil.av_strerror;
+import static org.bytedeco.ffmpeg.global.swresample.swr_alloc_set_opts2;
+import static org.bytedeco.ffmpeg.global.swresample.swr_convert;
+import static org.bytedeco.ffmpeg.global.swresample.swr_free;
+import static org.bytedeco.ffmpeg.global.swresample.swr_get_out_samples;
+import static org.bytedeco.ffmpeg.global.swresample.swr_init;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVIOContext;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.ffmpeg.avformat.Seek_Pointer_long_int;
+import org.bytedeco.ffmpeg.avformat.Write_packet_Pointer_BytePointer_int;
+import org.bytedeco.ffmpeg.avutil.AVAudioFifo;
+import org.bytedeco.ffmpeg.avutil.AVChannelLayout;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.swresample.SwrContext;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacpp.PointerPointer;
+
+/**
+ * 基于 FFmpeg 的增量音频编码器
+ * <p>
+ * 编码器、重采样与封装上下文在构造时创建一次，整个录音过程复用。输入 PCM 先经 swresample
+ * 转为编码器要求的采样格式与采样率，进入 FIFO 后按编码器帧长切分编码；封装器的输出通过自定义
+ * AVIO 回调写入 {@link EncodedOutput}，因此文件仍由 {@code MediaFileWriter} 落盘。
+ */
+public class FfmpegAudioEncoder implements AudioEncoder {
+	private static final int IO_BUFFER_SIZE = 32 * 1024;
+	// 编码器不限定帧长时每帧的采样数
+	private static final int DEFAULT_FRAME_SIZE = 1024;
+	private static final int SEEK_SET = 0;
+	private static final int SEEK_CUR = 1;
+	private static final int SEEK_END = 2;
+	// whence 中 AVSEEK_FORCE 等标志位以外的部分
+	private static final int SEEK_WHENCE_MASK = 0xFFFF;
+
+	private static final Map<Integer, FfmpegAudioEncoder> instances = new ConcurrentHashMap<>();
+	private static final AtomicInteger nextId = new AtomicInteger();
+	// 回调对象供 native 侧长期引用，全局只创建一次，按 opaque 中的编号找到对应编码器
+	private static final WriteCallback WRITE_CALLBACK = new WriteCallback().retainReference();
+	private static final SeekCallback SEEK_CALLBACK = new SeekCallback().retainReference();
+
+	private final int id = nextId.incrementAndGet();
+	private final EncodedOutput output;
+	private final int channels;
+	private final int bytesPerFrame;
+	private long ioPosition;
+
+	private AVFormatContext formatContext;
+	private AVCodecContext codecContext;
+	private AVStream stream;
+	private AVIOContext ioContext;
+	private IntPointer opaque;
+	private SwrContext resampler;
+	private AVAudioFifo fifo;
+	private AVFrame frame;
+	private AVPacket packet;
+	private int outputFormat;
+	private int frameSize;
+	private boolean smallLastFrame;
+	private long nextPts;
+
+	// 输入 PCM 的 native 暂存区及其 ByteBuffer 视图，容量不足时扩大
+	private BytePointer input;
+	private ByteBuffer inputView;
+	private final PointerPointer<BytePointer> inputPlanes = new PointerPointer<>(1);
+	// 重采样输出区，平面格式时每个声道一个平面
+	private final PointerPointer<BytePointer> converted = new PointerPointer<>(8);
+	private int convertedCapacity;
+	private boolean closed;
+
+	public FfmpegAudioEncoder(AudioCodec codec, int sampleRate, int channels, int bitsPerSample, long bitRate,
+			EncodedOutput output) throws IOException {
+		if (codec.getEncoderName() == null) {
+			throw new IllegalArgumentException("格式无需编码: " + codec);
+		}
+		this.output = output;
+		this.channels = channels;
+		this.bytesPerFrame = channels * bitsPerSample / 8;
+		this.ioPosition = output.size();
+		try {
+			open(codec, sampleRate, bitsPerSample, bitRate);
+		} catch (IOException | RuntimeException e) {
+			release();
+			throw e;
+		}
+	}
+
+	private void open(AudioCodec codec, int sampleRate, int bitsPerSample, long bitRate) throws IOException {
+		int inputFormat = sampleFormatOf(bitsPerSample);
+		AVCodec encoder = avcodec_find_encoder_by_name(codec.getEncoderName());
+		if (encoder == null || encoder.isNull()) {
+			throw new IOException("未找到编码器: " + codec.getEncoderName());
+		}
+
+		formatContext = new AVFormatContext(null);
+		check(avformat_alloc_output_context2(formatContext, null, codec.getFormatName(), null), "创建封装上下文失败");
+		stream = avformat_new_stream(formatContext, null);
+		if (stream == null || stream.isNull()) {
+			throw new IOException("创建音频流失败");
+		}
+
+		codecContext = avcodec_alloc_context3(encoder);
+		outputFormat = chooseSampleFormat(codecContext, encoder, inputFormat);
+		int outputRate = chooseSampleRate(codecContext, encoder, sampleRate);
+		codecContext.sample_fmt(outputFormat);
+		codecContext.sample_rate(outputRate);
+		av_channel_layout_default(codecContext.ch_layout(), channels);
+		codecContext.time_base(av_make_q(1, outputRate));
+		if (codec.isLossy() && bitRate > 0) {
+			codecContext.bit_rate(bitRate);
+		}
+		if ((formatContext.oformat().flags() & AVFMT_GLOBALHEADER) != 0) {
+			codecContext.flags(codecContext.flags() | AV_CODEC_FLAG_GLOBAL_HEADER);
+		}
+		check(avcodec_open2(codecContext, encoder, (AVDictionary) null), "打开编码器失败");
+		check(avcodec_parameters_from_context(stream.codecpar(), codecContext), "设置流参数失败");
+		stream.time_base(av_make_q(1, outputRate));
+
+		opaque = new IntPointer(1).put(id);
+		instances.put(id, this);
+		BytePointer ioBuffer = new BytePointer(av_malloc(IO_BUFFER_SIZE)).capacity(IO_BUFFER_SIZE);
+		ioContext = avio_alloc_context(ioBuffer, IO_BUFFER_SIZE, 1, opaque, null, WRITE_CALLBACK, SEEK_CALLBACK);
+		// 输出上下文不会关闭 pb，AVIO 上下文由 release 释放
+		formatContext.pb(ioContext);
+		check(avformat_write_header(formatContext, (AVDictionary) null), "写入文件头失败");
+
+		AVChannelLayout inputLayout = new AVChannelLayout();
+		try {
+			av_channel_layout_default(inputLayout, channels);
+			resampler = new SwrContext(null);
+			check(swr_alloc_set_opts2(resampler, codecContext.ch_layout(), outputFormat, outputRate, inputLayout,
+					inputFormat, sampleRate, 0, null), "创建重采样上下文失败");
+		} finally {
+			inputLayout.close();
+		}
+		check(swr_init(resampler), "初始化重采样失败");
+
+		int capabilities = encoder.capabilities();
+		frameSize = codecContext.frame_size() > 0 && (capabilities & AV_CODEC_CAP_VARIABLE_FRAME_SIZE) == 0
+				? codecContext.frame_size()
+				: DEFAULT_FRAME_SIZE;
+		smallLastFrame = (capabilities & (AV_CODEC_CAP_SMALL_LAST_FRAME | AV_CODEC_CAP_VARIABLE_FRAME_SIZE)) != 0;
+		fifo = av_audio_fifo_alloc(outputFormat, channels, frameSize);
+		frame = av_frame_alloc();
+		frame.nb_samples(frameSize);
+		frame.format(outputFormat);
+		frame.sample_rate(outputRate);
+		check(av_channel_layout_copy(frame.ch_layout(), codecContext.ch_layout()), "设置声道布局失败");
+		check(av_frame_get_buffer(frame, 0), "分配音频帧失败");
+		packet = av_packet_alloc();
+	}
+
+	@Override
+	public void encode(ByteBuffer pcm) throws IOException {
+		if (closed) {
+			throw new IOException("编码器已关闭");
+		}
+		int samples = pcm.remaining() / bytesPerFrame;
+		if (samples == 0) {
+			return;
+		}
+		int length = samples * bytesPerFrame;
+		ensureInputCapacity(length);
+		ByteBuffer src = pcm.duplicate();
+		src.limit(src.position() + length);
+		inputView.clear();
+		inputView.put(src);
+		pcm.position(pcm.position() + length);
+
+		inputPlanes.put(0, input);
+		int capacity = swr_get_out_samples(resampler, samples);
+		ensureConvertedCapacity(capacity);
+		int count = check(swr_convert(resampler, converted, capacity, inputPlanes, samples), "重采样失败");
+		if (count > 0) {
+			check(av_audio_fifo_write(fifo, converted, count), "写入采样缓冲失败");
+		}
+		drainFifo(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			// 取出重采样器中剩余的采样
+			int capacity = Math.max(frameSize, swr_get_out_samples(resampler, 0));
+			ensureConvertedCapacity(capacity);
+			int count = check(swr_convert(resampler, converted, capacity, null, 0), "重采样失败");
+			if (count > 0) {
+				check(av_audio_fifo_write(fifo, converted, count), "写入采样缓冲失败");
+			}
+			drainFifo(true);
+			sendFrame(null);
+			check(av_write_trailer(formatContext), "写入文件尾失败");
+		} finally {
+			release();
+		}
+	}
+
+	private void drainFifo(boolean flush) throws IOException {
+		while (true) {
+			int available = av_audio_fifo_size(fifo);
+			if (available < frameSize && !(flush && available > 0)) {
+				return;
+			}
+			int count = Math.min(available, frameSize);
+			check(av_frame_make_writable(frame), "音频帧不可写");
+			check(av_audio_fifo_read(fifo, frame.data(), count), "读取采样缓冲失败");
+			if (count < frameSize && !smallLastFrame) {
+				// 编码器要求固定帧长，最后一帧以静音补齐
+				av_samples_set_silence(frame.data(), count, frameSize - count, channels, outputFormat);
+				count = frameSize;
+			}
+			frame.nb_samples(count);
+			frame.pts(nextPts);
+			nextPts += count;
+			sendFrame(frame);
+		}
+	}
+
+	private void sendFrame(AVFrame frame) throws IOException {
+		check(avcodec_send_frame(codecContext, frame), "编码失败");
+		while (true) {
+			int ret = avcodec_receive_packet(codecContext, packet);
+			if (ret == AVERROR_EAGAIN() || ret == AVERROR_EOF) {
+				return;
+			}
+			check(ret, "编码失败");
+			av_packet_rescale_ts(packet, codecContext.time_base(), stream.time_base());
+			packet.stream_index(stream.index());
+			check(av_interleaved_write_frame(formatContext, packet), "写入数据包失败");
+		}
+	}
+
+	private void ensureInputCapacity(int length) {
+		if (input != null && input.capacity() >= length) {
+			return;
+		}
+		if (input != null) {
+			input.close();
+		}
+		input = new BytePointer(length);
+		inputView = input.asByteBuffer();
+	}
+
+	private void ensureConvertedCapacity(int samples) throws IOException {
+		if (samples <= convertedCapacity) {
+			return;
+		}
+		if (convertedCapacity > 0) {
+			// 各平面在同一块内存中，释放第一个平面即可
+			av_freep(converted);
+		}
+		convertedCapacity = 0;
+		check(av_samples_alloc(converted, (IntPointer) null, channels, samples, outputFormat, 0), "分配重采样缓冲失败");
+		convertedCapacity = samples;
+	}
+
+	private void release() {
+		instances.remove(id);
+		if (packet != null) {
+			av_packet_free(packet);
+			packet = null;
+		}
+		if (frame != null) {
+			av_frame_free(frame);
+			frame = null;
+		}
+		if (fifo != null) {
+			av_audio_fifo_free(fifo);
+			fifo = null;
+		}
+		if (resampler != null) {
+			swr_free(resampler);
+			resampler = null;
+		}
+		if (codecContext != null) {
+			avcodec_free_context(codecContext);
+			codecContext = null;
+		}
+		if (ioContext != null) {
+			av_free(ioContext.buffer());
+			avio_context_free(ioContext);
+			ioContext = null;
+		}
+		if (formatContext != null) {
+			avformat_free_context(formatContext);
+			formatContext = null;
+		}
+		if (convertedCapacity > 0) {
+			av_freep(converted);
+			convertedCapacity = 0;
+		}
+		if (input != null) {
+			input.close();
+			input = null;
+		}
+		if (opaque != null) {
+			opaque.close();
+			opaque = null;
+		}
+	}
+
+	private int onWrite(BytePointer buf, int size) {
+		try {
+			ByteBuffer data = buf.capacity(size).asByteBuffer();
+			output.write(ioPosition, data);
+			ioPosition += size;
+			return size;
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private long onSeek(long offset, int whence) {
+		if ((whence & AVSEEK_SIZE) != 0) {
+			return output.size();
+		}
+		switch (whence & SEEK_WHENCE_MASK) {
+		case SEEK_SET:
+			ioPosition = offset;
+			break;
+		case SEEK_CUR:
+			ioPosition += offset;
+			break;
+		case SEEK_END:
+			ioPosition = output.size() + offset;
+			break;
+		default:
+			return -1;
+		}
+		return ioPosition;
+	}
+
+	private static int sampleFormatOf(int bitsPerSample) throws IOException {
+		switch (bitsPerSample) {
+		case 8:
+			return AV_SAMPLE_FMT_U8;
+		case 16:
+			return AV_SAMPLE_FMT_S16;
+		case 32:
+			return AV_SAMPLE_FMT_S32;
+		default:
+			throw new IOException("不支持的采样位数: " + bitsPerSample);
+		}
+	}
+
+	/**
+	 * 编码器支持输入格式时直接使用，否则取其首选格式
+	 */
+	private static int chooseSampleFormat(AVCodecContext context, AVCodec encoder, int preferred)
+			throws IOException {
+		int[] formats = supportedConfig(context, encoder, AV_CODEC_CONFIG_SAMPLE_FORMAT);
+		if (formats == null || formats.length == 0) {
+			return preferred;
+		}
+		for (int format : formats) {
+			if (format == preferred) {
+				return preferred;
+			}
+		}
+		return formats[0];
+	}
+
+	/**
+	 * 编码器支持输入采样率时直接使用，否则取高于它的最小值（如 Opus 的 48000），都低于它时取最大值
+	 */
+	private static int chooseSampleRate(AVCodecContext context, AVCodec encoder, int preferred)
+			throws IOException {
+		int[] rates = supportedConfig(context, encoder, AV_CODEC_CONFIG_SAMPLE_RATE);
+		if (rates == null || rates.length == 0) {
+			return preferred;
+		}
+		int above = 0;
+		int below = 0;
+		for (int rate : rates) {
+			if (rate == preferred) {
+				return rate;
+			}
+			if (rate > preferred) {
+				if (above == 0 || rate < above) {
+					above = rate;
+				}
+			} else if (rate > below) {
+				below = rate;
+			}
+		}
+		return above > 0 ? above : below > 0 ? below : preferred;
+	}
+
+	/**
+	 * 查询编码器支持的采样格式或采样率，两者在 FFmpeg 中都是 int 数组
+	 *
+	 * @return 支持的取值；编码器不限制时为 null
+	 */
+	private static int[] supportedConfig(AVCodecContext context, AVCodec encoder, int config) throws IOException {
+		try (PointerPointer<Pointer> values = new PointerPointer<>(1); IntPointer count = new IntPointer(1)) {
+			check(avcodec_get_supported_config(context, encoder, config, 0, values, count), "查询编码器支持的参数失败");
+			Pointer array = values.get(0);
+			if (array == null || array.isNull()) {
+				return null;
+			}
+			// 数组属于编码器的静态描述，无需释放
+			int[] result = new int[count.get()];
+			new IntPointer(array).get(result);
+			return result;
+		}
+	}
+
+	private static int check(int ret, String message) throws IOException {
+		if (ret < 0) {
+			byte[] buf = new byte[128];
+			av_strerror(ret, buf, buf.length);
+			int end = 0;
+			while (end < buf.length && buf[end] != 0) {
+				end++;
+			}
+			throw new IOException(message + ": " + new String(buf, 0, end, StandardCharsets.UTF_8));
+		}
+		return ret;
+	}
+
+	private static FfmpegAudioEncoder lookup(Pointer opaque) {
+		return instances.get(new IntPointer(opaque).get());
+	}
+
+	private static final class WriteCallback extends Write_packet_Pointer_BytePointer_int {
+		@Override
+		public int call(Pointer opaque, BytePointer buf, int size) {
+			FfmpegAudioEncoder encoder = lookup(opaque);
+			return encoder == null ? -1 : encoder.onWrite(buf, size);
+		}
+	}
+
+	private static final class SeekCallback extends Seek_Pointer_long_int {
+		@Override
+		public long call(Pointer opaque, long offset, int whence) {
+			FfmpegAudioEncoder encoder = lookup(opaque);
+			return encoder == null ? -1 : encoder.onSeek(offset, whence);
+		}
+	}
+}
@@ -1,17 +1,42 @@
 package com.web.media.recorder.media.file;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class AudioFile extends MediaFile {
 	private int sampleRate;
 	private int channels;
 	private int bitsPerSample;
+	// 为 true 时使用预留 ds64 的 80 字节头部，数据超过 4GB 后转为 RF64
+	private final boolean rf64;
 
 	public AudioFile(String outputDir, int sampleRate, int channels, int bitsPerSample) {
+		this(outputDir, sampleRate, channels, bitsPerSample, false);
+	}
+
+	public AudioFile(String outputDir, int sampleRate, int channels, int bitsPerSample, boolean rf64) {
 		super(outputDir, "audio");
 		this.sampleRate = sampleRate;
 		this.channels = channels;
 		this.bitsPerSample = bitsPerSample;
+		this.rf64 = rf64;
+		initializeFile();
+		if (writer != null) {
+			startWaveform(Paths.get(filePath), sampleRate, channels, bitsPerSample);
+		}
+	}
+
+	/**
+	 * 写入指定路径的标准 WAV 文件
+	 */
+	public AudioFile(Path path, int sampleRate, int channels, int bitsPerSample) {
+		super(path);
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+		this.rf64 = false;
 		initializeFile();
 	}
 
@@ -19,7 +44,7 @@ public class AudioFile extends MediaFile {
 	protected void writeHeader() {
 		try {
 			byte[] header = createWavHeaderBytes(0, sampleRate, channels, bitsPerSample);
-			file.write(header);
+			writer.write(header, 0, header.length);
 		} catch (IOException e) {
 			handleError("写入头部失败", e);
 		}
@@ -28,11 +53,9 @@ public class AudioFile extends MediaFile {
 	@Override
 	protected void updateHeader() {
 		try {
-			if (file.length() > 0) {
-				byte[] header = createWavHeaderBytes((int) file.length() - WavHeader.HEADER_SIZE, sampleRate, channels,
-						bitsPerSample);
-				file.seek(0);
-				file.write(header);
+			if (writer.position() > 0) {
+				byte[] header = createWavHeaderBytes(getDataSize(), sampleRate, channels, bitsPerSample);
+				writer.patch(0, ByteBuffer.wrap(header));
 			}
 		} catch (IOException e) {
 			handleError("更新头部失败", e);
@@ -41,13 +64,22 @@ public class AudioFile extends MediaFile {
 
 	@Override
 	public byte[] getHeaderBytes() {
-		try {
-			int dataSize = (int) (file.length() - WavHeader.HEADER_SIZE);
-			return WavHeader.createHeader(dataSize, sampleRate, channels, bitsPerSample);
-		} catch (IOException e) {
-			handleError("获取头部字节失败", e);
+		if (writer == null) {
 			return new byte[0]; // 返回空数组作为容错
 		}
+		// 推流客户端只认标准头部，超过 4GB 时大小按上限写入
+		return WavHeader.createHeader(getDataSize(), sampleRate, channels, bitsPerSample);
+	}
+
+	/**
+	 * @return 已写入的音频数据字节数（不含头部）
+	 */
+	public long getDataSize() {
+		return writer == null ? 0 : Math.max(0, writer.position() - getHeaderSize());
+	}
+
+	private int getHeaderSize() {
+		return rf64 ? WavHeader.RF64_HEADER_SIZE : WavHeader.HEADER_SIZE;
 	}
 
 	/**
@@ -57,14 +89,22 @@ public class AudioFile extends MediaFile {
 	 * @param sampleRate     采样率（如 44100）
 	 * @param channels       声道数（1=单声道，2=立体声）
 	 * @param bitsPerSample  位深度（如 16）
-	 * @return WAV 文件头字节数组（通常为44字节）
+	 * @return WAV 文件头字节数组（标准 44 字节，RF64 模式为 80 字节）
 	 */
-	public byte[] createWavHeaderBytes(int dataSize, int sampleRate, int channels, int bitsPerSample) {
+	public byte[] createWavHeaderBytes(long dataSize, int sampleRate, int channels, int bitsPerSample) {
+		if (rf64) {
+			return WavHeader.createRf64Header(dataSize, sampleRate, channels, bitsPerSample);
+		}
 	    return WavHeader.createHeader(dataSize, sampleRate, channels, bitsPerSample);
 	}
 
+	@Override
+	public int getBlockAlign() {
+		return Math.max(1, channels * bitsPerSample / 8);
+	}
+
 	@Override
 	protected String getFileExtension() {
 		return "wav";
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package com.web.media.recorder.media.file;
+
+/**
+ * WAV 录音的存储方式
+ */
+public enum AudioStorageMode {
+	/**
+	 * 单个标准 WAV 文件，数据上限约 4GB
+	 */
+	SINGLE,
+	/**
+	 * 单个文件，预留 ds64 块，超过 4GB 后转为 RF64
+	 */
+	RF64,
+	/**
+	 * 按时长或大小滚动写入多个段文件，列表、播放、删除时作为一条录音
+	 */
+	SEGMENTED
+}
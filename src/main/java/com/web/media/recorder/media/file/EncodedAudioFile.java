@@ -0,0 +1,294 @@
+package com.web.media.recorder.media.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.encoder.AudioEncoder;
+import com.web.media.recorder.media.encoder.AudioEncoderPool;
+import com.web.media.recorder.media.encoder.EncodedOutput;
+
+/**
+ * 压缩格式的录音文件（FLAC/Opus/MP3）
+ * <p>
+ * {@link #writeData} 只复制 PCM 并放入待编码队列后立即返回，不阻塞采集线程；
+ * 编码在 {@link AudioEncoderPool} 的线程上按顺序进行，编码结果经 {@link MediaFileWriter} 落盘。
+ * 积压超过上限时丢弃新数据并计数。编码完的缓冲区回收复用，稳定采集时不再分配。
+ * 关闭后不再接受写入，关闭前入队的数据都会编码后再写文件尾。
+ */
+public class EncodedAudioFile extends MediaFile {
+	// 关闭时等待进行中的编码任务结束的最长时间
+	private static final long CLOSE_TIMEOUT_MS = 5000;
+	// 回收的缓冲区个数上限，突发积压过后多余的交给 GC
+	private static final int MAX_FREE_BUFFERS = 16;
+
+	private final AudioCodec codec;
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+	private final AudioEncoderPool encoderPool;
+	private volatile AudioEncoder encoder;
+
+	private final Queue<ByteBuffer> pending = new ConcurrentLinkedQueue<>();
+	private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger freeCount = new AtomicInteger();
+	// 入队与关闭互斥，关闭标记设置后不会再有数据入队
+	private final Object enqueueLock = new Object();
+	private final AtomicLong pendingBytes = new AtomicLong();
+	private final AtomicLong droppedBytes = new AtomicLong();
+	private final AtomicBoolean draining = new AtomicBoolean();
+	private volatile boolean finishing;
+
+	public EncodedAudioFile(String outputDir, AudioCodec codec, int sampleRate, int channels, int bitsPerSample,
+			AudioEncoderPool encoderPool) {
+		super(outputDir, "audio");
+		this.codec = codec;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+		this.encoderPool = encoderPool;
+		// 扩展名取决于格式，需在字段赋值后重新生成路径
+		this.filePath = generateFilePath("audio");
+		initializeFile();
+		if (!finishing) {
+			startWaveform(Paths.get(filePath), sampleRate, channels, bitsPerSample);
+			encoderPool.register(this);
+		}
+	}
+
+	@Override
+	protected void writeHeader() throws IOException {
+		// 打开编码器时封装器即写出文件头
+		encoder = encoderPool.createEncoder(codec, sampleRate, channels, bitsPerSample, new WriterOutput());
+	}
+
+	@Override
+	protected void updateHeader() {
+		// 时长等信息由封装器在关闭时写入文件尾
+	}
+
+	@Override
+	public void writeData(byte[] data) {
+		if (data != null) {
+			writeData(ByteBuffer.wrap(data));
+		}
+	}
+
+	@Override
+	public void writeData(ByteBuffer data) {
+		if (data == null || !data.hasRemaining()) {
+			return;
+		}
+		int length = data.remaining();
+		synchronized (enqueueLock) {
+			if (finishing || encoder == null) {
+				return;
+			}
+			if (pendingBytes.get() + length > encoderPool.getMaxPendingBytes()) {
+				droppedBytes.addAndGet(length);
+				encoderPool.recordDropped(length);
+				return;
+			}
+			ByteBuffer copy = acquireBuffer(length);
+			copy.put(data.duplicate()).flip();
+			pending.offer(copy);
+			pendingBytes.addAndGet(length);
+		}
+		scheduleDrain();
+	}
+
+	private ByteBuffer acquireBuffer(int length) {
+		ByteBuffer buffer = freeBuffers.poll();
+		if (buffer != null) {
+			freeCount.decrementAndGet();
+			if (buffer.capacity() >= length) {
+				buffer.clear().limit(length);
+				return buffer;
+			}
+		}
+		return ByteBuffer.allocate(length);
+	}
+
+	private void releaseBuffer(ByteBuffer buffer) {
+		if (freeCount.incrementAndGet() <= MAX_FREE_BUFFERS) {
+			freeBuffers.offer(buffer);
+		} else {
+			freeCount.decrementAndGet();
+		}
+	}
+
+	private void scheduleDrain() {
+		if (!draining.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			encoderPool.getExecutor().execute(this::drain);
+		} catch (RejectedExecutionException e) {
+			// 线程池已满，数据留在队列中，下次写入时再提交
+			draining.set(false);
+		}
+	}
+
+	private void drain() {
+		while (true) {
+			encodePending();
+			draining.set(false);
+			// 释放标记后若有新数据入队且未被其他线程接手，则继续编码
+			if (pending.isEmpty() || !draining.compareAndSet(false, true)) {
+				return;
+			}
+		}
+	}
+
+	private synchronized void encodePending() {
+		ByteBuffer chunk;
+		while ((chunk = pending.poll()) != null) {
+			pendingBytes.addAndGet(-chunk.remaining());
+			if (encoder == null) {
+				continue;
+			}
+			try {
+				int length = chunk.remaining();
+				long start = System.nanoTime();
+				updateWaveform(chunk);
+				encoder.encode(chunk);
+				releaseBuffer(chunk);
+				if (writer.isCheckpointDue()) {
+					checkpoint();
+				}
+				metrics().recordEncode(length, System.nanoTime() - start);
+			} catch (IOException e) {
+				handleError("编码失败", e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (enqueueLock) {
+			finishing = true;
+		}
+		// 取得编码权，确保线程池中的编码任务已结束，剩余数据由当前线程按顺序编码
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MS);
+		boolean acquired;
+		while (!(acquired = draining.compareAndSet(false, true)) && System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		synchronized (this) {
+			if (acquired) {
+				encodePending();
+			}
+			finishEncoder();
+			super.close();
+		}
+	}
+
+	private void finishEncoder() {
+		encoderPool.release(this);
+		AudioEncoder current = encoder;
+		encoder = null;
+		if (current == null) {
+			return;
+		}
+		try {
+			current.close();
+		} catch (IOException e) {
+			System.err.println("编码器关闭失败: " + e.getMessage());
+		}
+	}
+
+	@Override
+	protected void handleError(String message, Exception e) {
+		System.err.println(message + ": " + e.getMessage());
+		synchronized (enqueueLock) {
+			finishing = true;
+		}
+		pending.clear();
+		synchronized (this) {
+			finishEncoder();
+			super.close();
+		}
+	}
+
+	@Override
+	public byte[] getHeaderBytes() {
+		return null;
+	}
+
+	@Override
+	protected String getFileExtension() {
+		return codec == null ? "tmp" : codec.getExtension();
+	}
+
+	@Override
+	public int getBlockAlign() {
+		return Math.max(1, channels * bitsPerSample / 8);
+	}
+
+	public AudioCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * @return 等待编码的 PCM 字节数
+	 */
+	public long getPendingBytes() {
+		return pendingBytes.get();
+	}
+
+	/**
+	 * @return 等待编码的数据对应的时长（毫秒），即编码落后于采集的程度
+	 */
+	public long getPendingMillis() {
+		long byteRate = (long) sampleRate * getBlockAlign();
+		return byteRate <= 0 ? 0 : pendingBytes.get() * 1000 / byteRate;
+	}
+
+	/**
+	 * @return 因积压超过上限而丢弃的 PCM 字节数
+	 */
+	public long getDroppedBytes() {
+		return droppedBytes.get();
+	}
+
+	/**
+	 * 封装器的输出写入当前文件：追加走缓冲写入，回写文件头等已写区域走定点覆盖
+	 */
+	private final class WriterOutput implements EncodedOutput {
+		@Override
+		public void write(long position, ByteBuffer data) throws IOException {
+			long end = writer.position();
+			if (position > end) {
+				throw new IOException("不支持跳过未写区域: " + position + " > " + end);
+			}
+			if (position < end) {
+				int overlap = (int) Math.min(data.remaining(), end - position);
+				ByteBuffer head = data.duplicate();
+				head.limit(head.position() + overlap);
+				writer.patch(position, head);
+				data.position(data.position() + overlap);
+			}
+			if (data.hasRemaining()) {
+				writer.write(data);
+			}
+		}
+
+		@Override
+		public long size() {
+			return writer.position();
+		}
+	}
+}
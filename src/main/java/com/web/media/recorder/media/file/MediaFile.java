@@ -1,54 +1,236 @@
 package com.web.media.recorder.media.file;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.web.media.recorder.media.waveform.WaveformBuilder;
 
 public abstract class MediaFile {
+	private static final List<MediaFileListener> listeners = new CopyOnWriteArrayList<>();
+	private static volatile MediaFileMetrics metrics = MediaFileMetrics.NONE;
+	private static volatile boolean waveformEnabled;
+
 	protected String outputDir;
 	protected String filePath;
-	protected RandomAccessFile file;
+	protected MediaFileWriter writer;
+	private Path path;
+	private boolean closed;
+	// PCM 录音随写入生成的波形峰值，未启用或格式不支持时为 null
+	private WaveformBuilder waveform;
 
 	public MediaFile(String outputDir, String filePrefix) {
 		this.outputDir = outputDir;
 		this.filePath = generateFilePath(filePrefix);
 	}
 
+	/**
+	 * 写入指定路径（如分段录音中的某一段）
+	 */
+	protected MediaFile(Path path) {
+		this.outputDir = path.getParent() == null ? "." : path.getParent().toString();
+		this.filePath = path.toString();
+	}
+
 	protected String generateFilePath(String prefix) {
 	    return String.format("%s/%s_%d.%s", outputDir, prefix, System.currentTimeMillis(), getFileExtension());
 	}
 
 	protected void initializeFile() {
 		try {
-			file = new RandomAccessFile(filePath, "rw");
-			writeHeader(); 
+			path = Paths.get(filePath);
+			writer = new MediaFileWriter(path);
+			writeHeader();
+			notifyCreated(path);
 		} catch (IOException e) {
 			handleError("文件初始化失败", e);
 		}
 	}
 
 	public synchronized void writeData(byte[] data) {
-		if (data == null || data.length == 0)
+		if (data == null || data.length == 0 || writer == null || closed)
+			return;
+		try {
+			long start = System.nanoTime();
+			updateWaveform(ByteBuffer.wrap(data));
+			writer.write(data, 0, data.length);
+			if (writer.isCheckpointDue()) {
+				checkpoint();
+			}
+			metrics.recordWrite(data.length, System.nanoTime() - start);
+		} catch (IOException e) {
+			handleError("写入数据失败", e);
+		}
+	}
+
+	public synchronized void writeData(ByteBuffer data) {
+		if (data == null || !data.hasRemaining() || writer == null || closed)
 			return;
 		try {
-			file.seek(file.length());
-			file.write(data);
-			updateHeader(); 
+			int length = data.remaining();
+			long start = System.nanoTime();
+			updateWaveform(data);
+			writer.write(data);
+			if (writer.isCheckpointDue()) {
+				checkpoint();
+			}
+			metrics.recordWrite(length, System.nanoTime() - start);
 		} catch (IOException e) {
 			handleError("写入数据失败", e);
 		}
 	}
 
-	public void close() {
+	/**
+	 * 检查点：将缓冲数据落盘并修正文件头，崩溃后最多丢失一个检查点间隔的头部信息
+	 */
+	public synchronized void checkpoint() {
+		if (writer == null || closed)
+			return;
+		try {
+			writer.flush();
+			updateHeader();
+			writer.markCheckpoint();
+			notifyCheckpoint(path, writer.position());
+		} catch (IOException e) {
+			handleError("检查点写入失败", e);
+		}
+	}
+
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
 		try {
-			if (file != null) {
+			if (writer != null) {
 				updateHeader();
-				file.close();
+				writer.close();
+				finishWaveform();
+				notifyClosed(path, writer.position());
 			}
 		} catch (IOException e) {
-			handleError("关闭文件失败", e);
+			System.err.println("关闭文件失败: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * 记录静音门限跳过的区间，见 {@link SilenceGaps}；记录失败不影响录音
+	 *
+	 * @param position 跳过处在已写入音频中的帧位置
+	 * @param frames   跳过的帧数
+	 */
+	public synchronized void markGap(long position, long frames) {
+		if (closed || frames <= 0) {
+			return;
+		}
+		try {
+			SilenceGaps.append(Paths.get(filePath), position, frames);
+		} catch (IOException e) {
+			System.err.println("记录静音区间失败: " + e.getMessage());
 		}
 	}
 
+	/**
+	 * 开始为 PCM 录音生成波形峰值，需在 {@link #initializeFile()} 之后调用；未启用或格式不支持时忽略
+	 *
+	 * @param recording 录音文件或分段录音目录
+	 */
+	protected void startWaveform(Path recording, int sampleRate, int channels, int bitsPerSample) {
+		if (!waveformEnabled || !WaveformBuilder.supports(channels, bitsPerSample)) {
+			return;
+		}
+		try {
+			waveform = new WaveformBuilder(recording, sampleRate, channels, bitsPerSample);
+		} catch (IOException e) {
+			System.err.println("创建波形文件失败: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * 将缓冲区中剩余的 PCM 数据计入波形，不改变其位置；生成失败只放弃波形，不影响录音
+	 */
+	protected void updateWaveform(ByteBuffer data) {
+		if (waveform == null) {
+			return;
+		}
+		try {
+			waveform.update(data);
+		} catch (IOException e) {
+			System.err.println("写入波形失败: " + e.getMessage());
+			waveform.abort();
+			waveform = null;
+		}
+	}
+
+	protected void finishWaveform() {
+		if (waveform == null) {
+			return;
+		}
+		try {
+			waveform.finish();
+		} catch (IOException e) {
+			System.err.println("保存波形失败: " + e.getMessage());
+		}
+		waveform = null;
+	}
+
+	protected static void notifyCreated(Path path) {
+		for (MediaFileListener listener : listeners) {
+			listener.onFileCreated(path);
+		}
+	}
+
+	protected static void notifyCheckpoint(Path path, long length) {
+		for (MediaFileListener listener : listeners) {
+			listener.onFileCheckpoint(path, length);
+		}
+	}
+
+	protected static void notifyClosed(Path path, long length) {
+		for (MediaFileListener listener : listeners) {
+			listener.onFileClosed(path, length);
+		}
+	}
+
+	public static void addListener(MediaFileListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(MediaFileListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 设置写盘耗时统计，传入 null 时停止统计
+	 */
+	public static void setMetrics(MediaFileMetrics metrics) {
+		MediaFile.metrics = metrics == null ? MediaFileMetrics.NONE : metrics;
+	}
+
+	protected static MediaFileMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * 是否为此后创建的 PCM 录音生成波形峰值文件
+	 */
+	public static void setWaveformEnabled(boolean enabled) {
+		waveformEnabled = enabled;
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * 数据的最小对齐单位（字节），推流分帧时不拆开一个对齐单位
+	 */
+	public int getBlockAlign() {
+		return 1;
+	}
+
 	/**
 	 * 获取当前媒体文件的头部字节（如 WAV 头部为 44 字节）
 	 * @return 包含文件格式信息的字节数组
@@ -65,4 +247,4 @@ public abstract class MediaFile {
 		System.err.println(message + ": " + e.getMessage());
 		close();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.web.media.recorder.media.file;
+
+import java.nio.file.Path;
+
+/**
+ * 媒体文件生命周期回调，由写入线程同步调用，实现需保持轻量
+ */
+public interface MediaFileListener {
+	default void onFileCreated(Path path) {
+	}
+
+	/**
+	 * 检查点完成，文件头与数据已落盘
+	 */
+	default void onFileCheckpoint(Path path, long length) {
+	}
+
+	default void onFileClosed(Path path, long length) {
+	}
+}
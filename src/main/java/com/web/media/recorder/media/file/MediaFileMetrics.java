@@ -0,0 +1,21 @@
+package com.web.media.recorder.media.file;
+
+/**
+ * 写盘与编码耗时的统计入口，由写入线程同步调用，实现需无锁且不分配对象
+ */
+public interface MediaFileMetrics {
+	MediaFileMetrics NONE = new MediaFileMetrics() {
+	};
+
+	/**
+	 * 一次 writeData 的耗时，包含其间触发的检查点
+	 */
+	default void recordWrite(int bytes, long nanos) {
+	}
+
+	/**
+	 * 编码一块 PCM（含编码结果落盘）的耗时
+	 */
+	default void recordEncode(int bytes, long nanos) {
+	}
+}
@@ -0,0 +1,127 @@
+package com.web.media.recorder.media.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 仅追加的媒体文件写入器
+ * <p>
+ * 写入位置保存在内存中，数据先累积到可复用的直接缓冲区，缓冲区写满时才落盘；
+ * 头部等固定位置的内容通过 {@link #patch(long, ByteBuffer)} 定点覆盖，不移动写入位置。
+ * 非线程安全，由 {@link MediaFile} 负责同步。
+ */
+public class MediaFileWriter implements Closeable {
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final long DEFAULT_CHECKPOINT_INTERVAL_MS = 1000;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final long checkpointIntervalNanos;
+	// 已落盘的字节数
+	private long flushedPosition;
+	// 逻辑文件长度（已落盘 + 缓冲中）
+	private volatile long position;
+	private long lastCheckpointNanos;
+
+	public MediaFileWriter(Path path) throws IOException {
+		this(path, DEFAULT_BUFFER_SIZE, DEFAULT_CHECKPOINT_INTERVAL_MS);
+	}
+
+	public MediaFileWriter(Path path, int bufferSize, long checkpointIntervalMs) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMs);
+		this.flushedPosition = channel.size();
+		this.position = flushedPosition;
+		this.lastCheckpointNanos = System.nanoTime();
+	}
+
+	public void write(byte[] data, int offset, int length) throws IOException {
+		if (length > buffer.capacity()) {
+			flush();
+			writeFully(ByteBuffer.wrap(data, offset, length));
+			return;
+		}
+		if (length > buffer.remaining()) {
+			flush();
+		}
+		buffer.put(data, offset, length);
+		position += length;
+	}
+
+	public void write(ByteBuffer src) throws IOException {
+		int length = src.remaining();
+		if (length > buffer.capacity()) {
+			flush();
+			writeFully(src);
+			return;
+		}
+		if (length > buffer.remaining()) {
+			flush();
+		}
+		buffer.put(src);
+		position += length;
+	}
+
+	/**
+	 * 在指定位置覆盖写入（如文件头），不改变追加位置
+	 */
+	public void patch(long offset, ByteBuffer src) throws IOException {
+		// 先落盘，避免缓冲中的旧内容随后覆盖本次修改
+		flush();
+		while (src.hasRemaining()) {
+			offset += channel.write(src, offset);
+		}
+	}
+
+	public void flush() throws IOException {
+		if (buffer.position() == 0) {
+			return;
+		}
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			flushedPosition += channel.write(buffer, flushedPosition);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * 距上次检查点是否已超过时间阈值
+	 */
+	public boolean isCheckpointDue() {
+		return System.nanoTime() - lastCheckpointNanos >= checkpointIntervalNanos;
+	}
+
+	public void markCheckpoint() {
+		lastCheckpointNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return 逻辑文件长度，包含尚未落盘的缓冲数据
+	 */
+	public long position() {
+		return position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void writeFully(ByteBuffer src) throws IOException {
+		int length = src.remaining();
+		while (src.hasRemaining()) {
+			flushedPosition += channel.write(src, flushedPosition);
+		}
+		position += length;
+	}
+}
@@ -0,0 +1,36 @@
+package com.web.media.recorder.media.file;
+
+/**
+ * 从文件头解析出的媒体格式与时长
+ */
+public final class MediaMetadata {
+	public static final MediaMetadata UNKNOWN = new MediaMetadata(0, 0, 0, 0);
+
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+	private final long durationMs;
+
+	public MediaMetadata(int sampleRate, int channels, int bitsPerSample, long durationMs) {
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+		this.durationMs = durationMs;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public int getBitsPerSample() {
+		return bitsPerSample;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+}
@@ -0,0 +1,157 @@
+package com.web.media.recorder.media.file;
+
+import static org.bytedeco.ffmpeg.global.avformat.av_find_best_stream;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_close_input;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_find_stream_info;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_open_input;
+import static org.bytedeco.ffmpeg.global.avutil.AVMEDIA_TYPE_AUDIO;
+import static org.bytedeco.ffmpeg.global.avutil.AV_NOPTS_VALUE;
+import static org.bytedeco.ffmpeg.global.avutil.AV_TIME_BASE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecParameters;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVInputFormat;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.javacpp.PointerPointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.media.encoder.AudioCodec;
+
+/**
+ * 读取媒体文件头获取格式与精确时长
+ * <p>
+ * WAV 直接解析文件头，压缩格式（FLAC/Opus/MP3）交给 FFmpeg 解析。
+ * <p>
+ * 结果按路径缓存，文件大小与修改时间不变时不再打开文件；缓存按最近使用淘汰，条目数有上限。
+ */
+@Component
+public class MediaMetadataProbe {
+	private static final Logger logger = LoggerFactory.getLogger(MediaMetadataProbe.class);
+
+	private static final int CACHE_SIZE = 1024;
+
+	private final Map<Path, CachedMetadata> cache = Collections
+			.synchronizedMap(new LinkedHashMap<Path, CachedMetadata>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Path, CachedMetadata> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
+	public MediaMetadata probe(Path path, long size, long lastModified) {
+		CachedMetadata cached = cache.get(path);
+		if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+			return cached.metadata;
+		}
+		MediaMetadata metadata;
+		try {
+			metadata = read(path, size);
+		} catch (IOException e) {
+			logger.warn("读取媒体文件头失败: {}, {}", path, e.getMessage());
+			return MediaMetadata.UNKNOWN;
+		}
+		cache.put(path, new CachedMetadata(size, lastModified, metadata));
+		return metadata;
+	}
+
+	public void evict(Path path) {
+		cache.remove(path);
+	}
+
+	private MediaMetadata read(Path path, long size) throws IOException {
+		String name = path.getFileName().toString();
+		if (name.endsWith(".wav")) {
+			return readWav(path, size);
+		}
+		if (SegmentedRecording.isSegmented(name)) {
+			SegmentedRecording recording = SegmentedRecording.read(path);
+			return new MediaMetadata(recording.getSampleRate(), recording.getChannels(),
+					recording.getBitsPerSample(), recording.getDurationMs());
+		}
+		if (AudioCodec.fromFileName(name) != null) {
+			return readEncoded(path);
+		}
+		return MediaMetadata.UNKNOWN;
+	}
+
+	private MediaMetadata readEncoded(Path path) throws IOException {
+		AVFormatContext context = new AVFormatContext(null);
+		int ret = avformat_open_input(context, path.toString(), (AVInputFormat) null, (AVDictionary) null);
+		if (ret < 0) {
+			throw new IOException("无法打开文件, 错误码 " + ret);
+		}
+		try {
+			if (avformat_find_stream_info(context, (PointerPointer<?>) null) < 0) {
+				return MediaMetadata.UNKNOWN;
+			}
+			int index = av_find_best_stream(context, AVMEDIA_TYPE_AUDIO, -1, -1, (AVCodec) null, 0);
+			if (index < 0) {
+				return MediaMetadata.UNKNOWN;
+			}
+			AVStream stream = context.streams(index);
+			AVCodecParameters parameters = stream.codecpar();
+			long durationMs = 0;
+			if (context.duration() != AV_NOPTS_VALUE && context.duration() > 0) {
+				durationMs = context.duration() * 1000 / AV_TIME_BASE;
+			} else if (stream.duration() != AV_NOPTS_VALUE && stream.time_base().den() > 0) {
+				durationMs = stream.duration() * 1000 * stream.time_base().num() / stream.time_base().den();
+			}
+			// 有损格式没有固定采样位数，记为 0
+			return new MediaMetadata(parameters.sample_rate(), parameters.ch_layout().nb_channels(),
+					parameters.bits_per_raw_sample(), durationMs);
+		} finally {
+			avformat_close_input(context);
+		}
+	}
+
+	private MediaMetadata readWav(Path path, long size) throws IOException {
+		if (size < WavHeader.HEADER_SIZE) {
+			return MediaMetadata.UNKNOWN;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, WavHeader.RF64_HEADER_SIZE));
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, buffer.position()) < 0) {
+					return MediaMetadata.UNKNOWN;
+				}
+			}
+		}
+		buffer.flip();
+		WavHeader header = WavHeader.parse(buffer);
+		if (header == null || header.byteRate <= 0) {
+			return MediaMetadata.UNKNOWN;
+		}
+		// 头部大小在检查点之间可能落后于实际长度，以二者中可信的值为准
+		long available = size - header.dataOffset;
+		long dataSize = header.dataSize > 0 && header.dataSize <= available ? header.dataSize : available;
+		long durationMs = dataSize * 1000 / header.byteRate;
+		return new MediaMetadata(header.sampleRate, header.channels, header.bitsPerSample, durationMs);
+	}
+
+	private static final class CachedMetadata {
+		final long size;
+		final long lastModified;
+		final MediaMetadata metadata;
+
+		CachedMetadata(long size, long lastModified, MediaMetadata metadata) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.metadata = metadata;
+		}
+	}
+}
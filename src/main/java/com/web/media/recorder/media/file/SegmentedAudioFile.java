@@ -0,0 +1,186 @@
+package com.web.media.recorder.media.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分段存储的 WAV 录音
+ * <p>
+ * 录音目录下的段文件达到时长或大小上限后滚动到下一段，切分点对齐采样帧，段间无缝衔接。
+ * 写入始终是对当前小段文件的顺序追加，每段都是独立可播放的标准 WAV。
+ * 目录结构见 {@link SegmentedRecording}。
+ */
+public class SegmentedAudioFile extends MediaFile {
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+	// 每段音频数据的字节上限，按采样帧对齐
+	private final long maxSegmentBytes;
+	// 跳过至少这么多帧时才开始新的段，0 表示不因跳过滚动
+	private final long gapRollFrames;
+	private final Path directory;
+	private final List<String> segmentNames = new ArrayList<>();
+	private AudioFile segment;
+	// 已关闭段的数据总量
+	private long closedBytes;
+	private long lastNotified = System.currentTimeMillis();
+	private boolean closed;
+
+	/**
+	 * @param segmentDurationMs 每段时长上限，0 表示不限
+	 * @param segmentMaxBytes   每段数据大小上限，0 表示不限（仍受 WAV 32 位大小限制）
+	 * @param gapRollMs         静音跳过至少多长时在跳过处开始新的段，0 表示只记录跳过区间
+	 */
+	public SegmentedAudioFile(String outputDir, int sampleRate, int channels, int bitsPerSample,
+			long segmentDurationMs, long segmentMaxBytes, long gapRollMs) {
+		super(outputDir, "audio");
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+		this.directory = Paths.get(filePath);
+		int blockAlign = getBlockAlign();
+		long limit = WavHeader.MAX_DATA_SIZE;
+		if (segmentDurationMs > 0) {
+			limit = Math.min(limit, segmentDurationMs * sampleRate / 1000 * blockAlign);
+		}
+		if (segmentMaxBytes > 0) {
+			limit = Math.min(limit, segmentMaxBytes);
+		}
+		this.maxSegmentBytes = Math.max(blockAlign, limit - limit % blockAlign);
+		this.gapRollFrames = gapRollMs > 0 ? Math.max(1, gapRollMs * sampleRate / 1000) : 0;
+		try {
+			Files.createDirectories(directory);
+			openSegment();
+			startWaveform(directory, sampleRate, channels, bitsPerSample);
+			notifyCreated(directory);
+		} catch (IOException e) {
+			handleError("创建分段录音失败", e);
+		}
+	}
+
+	private void openSegment() throws IOException {
+		String name = String.format("part_%05d.wav", segmentNames.size());
+		segment = new AudioFile(directory.resolve(name), sampleRate, channels, bitsPerSample);
+		segmentNames.add(name);
+		SegmentedRecording.writeManifest(directory, sampleRate, channels, bitsPerSample, segmentNames);
+	}
+
+	private void rollSegment() throws IOException {
+		closedBytes += segment.getDataSize();
+		segment.close();
+		openSegment();
+	}
+
+	@Override
+	public synchronized void writeData(byte[] data) {
+		if (data != null) {
+			writeData(ByteBuffer.wrap(data));
+		}
+	}
+
+	@Override
+	public synchronized void writeData(ByteBuffer data) {
+		if (data == null || !data.hasRemaining() || segment == null || closed)
+			return;
+		updateWaveform(data);
+		try {
+			while (data.hasRemaining()) {
+				long room = maxSegmentBytes - segment.getDataSize();
+				if (room <= 0) {
+					rollSegment();
+					continue;
+				}
+				if (data.remaining() <= room) {
+					segment.writeData(data);
+					break;
+				}
+				ByteBuffer head = data.duplicate();
+				head.limit(head.position() + (int) room);
+				segment.writeData(head);
+				data.position(data.position() + (int) room);
+			}
+		} catch (IOException e) {
+			handleError("滚动分段失败", e);
+			return;
+		}
+		// 段文件按自身的检查点落盘，这里按同样的间隔通知整条录音的进度
+		long now = System.currentTimeMillis();
+		if (now - lastNotified >= MediaFileWriter.DEFAULT_CHECKPOINT_INTERVAL_MS) {
+			lastNotified = now;
+			notifyCheckpoint(directory, getLength());
+		}
+	}
+
+	/**
+	 * 除记录跳过区间外，跳过足够长时在跳过处开始新的段，使长时间停顿后的语音从新段开头起；
+	 * 短暂停顿只记录区间，避免频繁停顿时产生大量小段
+	 */
+	@Override
+	public synchronized void markGap(long position, long frames) {
+		if (segment == null || closed || frames <= 0) {
+			return;
+		}
+		super.markGap(position, frames);
+		if (gapRollFrames > 0 && frames >= gapRollFrames && segment.getDataSize() > 0) {
+			try {
+				rollSegment();
+			} catch (IOException e) {
+				handleError("滚动分段失败", e);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void checkpoint() {
+		if (segment == null || closed)
+			return;
+		segment.checkpoint();
+		notifyCheckpoint(directory, getLength());
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (segment != null) {
+			segment.close();
+			finishWaveform();
+			notifyClosed(directory, getLength());
+		}
+	}
+
+	// 拼接后逻辑 WAV 的长度
+	private long getLength() {
+		return WavHeader.HEADER_SIZE + closedBytes + (segment == null ? 0 : segment.getDataSize());
+	}
+
+	@Override
+	public byte[] getHeaderBytes() {
+		return WavHeader.createHeader(getLength() - WavHeader.HEADER_SIZE, sampleRate, channels, bitsPerSample);
+	}
+
+	@Override
+	public int getBlockAlign() {
+		return Math.max(1, channels * bitsPerSample / 8);
+	}
+
+	@Override
+	protected String getFileExtension() {
+		return SegmentedRecording.EXTENSION;
+	}
+
+	@Override
+	protected void writeHeader() {
+		// 每个段文件各自写头部
+	}
+
+	@Override
+	protected void updateHeader() {
+	}
+}
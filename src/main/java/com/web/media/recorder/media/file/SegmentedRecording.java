@@ -0,0 +1,303 @@
+package com.web.media.recorder.media.file;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分段录音：一个目录下按顺序存放的若干标准 WAV 段文件，加上记录格式与段顺序的清单
+ * <p>
+ * 段与段之间按采样帧无缝衔接，读取时把各段的音频数据拼接为一个逻辑 WAV。
+ * 段的数据长度按实际文件长度计算，不依赖可能落后的段文件头。
+ */
+public final class SegmentedRecording {
+	public static final String EXTENSION = "seg";
+	public static final String MANIFEST_FILE = "manifest";
+	private static final int MANIFEST_VERSION = 1;
+
+	private final Path directory;
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+	private final List<Segment> segments;
+	// 各段数据在拼接后数据中的起点，升序，用于二分定位
+	private final long[] segmentStarts;
+	private final long dataSize;
+	private final long lastModified;
+
+	private SegmentedRecording(Path directory, int sampleRate, int channels, int bitsPerSample,
+			List<Segment> segments, long lastModified) {
+		this.directory = directory;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+		this.segments = segments;
+		this.lastModified = lastModified;
+		this.segmentStarts = new long[segments.size()];
+		long total = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			segmentStarts[i] = total;
+			total += segments.get(i).dataSize;
+		}
+		this.dataSize = total;
+	}
+
+	public static boolean isSegmented(String fileName) {
+		return fileName.endsWith("." + EXTENSION);
+	}
+
+	/**
+	 * 读取分段录音目录
+	 *
+	 * @throws NoSuchFileException 目录或清单不存在
+	 */
+	public static SegmentedRecording read(Path directory) throws IOException {
+		Path manifest = directory.resolve(MANIFEST_FILE);
+		int sampleRate = 0, channels = 0, bitsPerSample = 0;
+		List<String> names = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int sep = line.indexOf('=');
+				if (sep <= 0) {
+					continue;
+				}
+				String key = line.substring(0, sep).trim();
+				String value = line.substring(sep + 1).trim();
+				try {
+					switch (key) {
+					case "sampleRate":
+						sampleRate = Integer.parseInt(value);
+						break;
+					case "channels":
+						channels = Integer.parseInt(value);
+						break;
+					case "bitsPerSample":
+						bitsPerSample = Integer.parseInt(value);
+						break;
+					case "segment":
+						names.add(value);
+						break;
+					default:
+						break;
+					}
+				} catch (NumberFormatException e) {
+					throw new IOException("分段录音清单格式错误: " + line);
+				}
+			}
+		}
+		int blockAlign = Math.max(1, channels * bitsPerSample / 8);
+		long lastModified = Files.getLastModifiedTime(manifest).toMillis();
+		List<Segment> segments = new ArrayList<>(names.size());
+		for (String name : names) {
+			Path path = directory.resolve(name).normalize();
+			if (!directory.equals(path.getParent()) || !Files.isRegularFile(path)) {
+				continue;
+			}
+			long size = Files.size(path);
+			long data = Math.max(0, size - WavHeader.HEADER_SIZE);
+			data -= data % blockAlign;
+			segments.add(new Segment(path, WavHeader.HEADER_SIZE, data));
+			lastModified = Math.max(lastModified, Files.getLastModifiedTime(path).toMillis());
+		}
+		return new SegmentedRecording(directory, sampleRate, channels, bitsPerSample,
+				Collections.unmodifiableList(segments), lastModified);
+	}
+
+	/**
+	 * 原子地重写清单
+	 */
+	public static void writeManifest(Path directory, int sampleRate, int channels, int bitsPerSample,
+			List<String> segmentNames) throws IOException {
+		Path manifest = directory.resolve(MANIFEST_FILE);
+		Path tmp = directory.resolve(MANIFEST_FILE + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			writer.write("version=" + MANIFEST_VERSION + "\n");
+			writer.write("format=wav\n");
+			writer.write("sampleRate=" + sampleRate + "\n");
+			writer.write("channels=" + channels + "\n");
+			writer.write("bitsPerSample=" + bitsPerSample + "\n");
+			for (String name : segmentNames) {
+				writer.write("segment=" + name + "\n");
+			}
+		}
+		Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return 拼接后逻辑 WAV 文件的长度（标准头部 + 各段数据）
+	 */
+	public long getLength() {
+		return WavHeader.HEADER_SIZE + dataSize;
+	}
+
+	public long getDataSize() {
+		return dataSize;
+	}
+
+	public long getDurationMs() {
+		long byteRate = (long) sampleRate * Math.max(1, channels * bitsPerSample / 8);
+		return byteRate <= 0 ? 0 : dataSize * 1000 / byteRate;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public int getBitsPerSample() {
+		return bitsPerSample;
+	}
+
+	public List<Segment> getSegments() {
+		return segments;
+	}
+
+	/**
+	 * 以一个 WAV 流的形式读取整段录音，skip 直接定位不读取数据
+	 */
+	public InputStream openStream() {
+		return new ConcatenatedStream();
+	}
+
+	/**
+	 * 一个段文件中音频数据所在的区间
+	 */
+	public static final class Segment {
+		private final Path path;
+		private final long dataOffset;
+		private final long dataSize;
+
+		Segment(Path path, long dataOffset, long dataSize) {
+			this.path = path;
+			this.dataOffset = dataOffset;
+			this.dataSize = dataSize;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public long getDataOffset() {
+			return dataOffset;
+		}
+
+		public long getDataSize() {
+			return dataSize;
+		}
+	}
+
+	private final class ConcatenatedStream extends InputStream {
+		private final byte[] header = WavHeader.createHeader(dataSize, sampleRate, channels, bitsPerSample);
+		private final long length = getLength();
+		private long position;
+		private int segmentIndex = -1;
+		private long segmentStart;
+		private FileChannel channel;
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			int n = read(one, 0, 1);
+			return n < 0 ? -1 : one[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (position >= length) {
+				return -1;
+			}
+			if (position < header.length) {
+				int n = (int) Math.min(len, header.length - position);
+				System.arraycopy(header, (int) position, b, off, n);
+				position += n;
+				return n;
+			}
+			Segment segment = locate(position - header.length);
+			long inSegment = position - header.length - segmentStart;
+			int n = (int) Math.min(len, segment.dataSize - inSegment);
+			int read = channel.read(ByteBuffer.wrap(b, off, n), segment.dataOffset + inSegment);
+			if (read < 0) {
+				// 段文件被截断，视为流结束
+				position = length;
+				return -1;
+			}
+			position += read;
+			return read;
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = Math.max(0, Math.min(n, length - position));
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(Integer.MAX_VALUE, length - position);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+		}
+
+		// 按各段起点二分找到数据偏移所在的段并打开
+		private Segment locate(long dataPosition) throws IOException {
+			if (segmentIndex >= 0 && dataPosition >= segmentStart
+					&& dataPosition < segmentStart + segments.get(segmentIndex).dataSize) {
+				return segments.get(segmentIndex);
+			}
+			if (dataPosition < 0 || dataPosition >= dataSize) {
+				throw new IOException("读取位置超出分段录音长度: " + dataPosition);
+			}
+			// 起点不超过该位置的最后一段；空段与下一段起点相同，取最后一个即跳过了空段
+			int low = 0;
+			int high = segmentStarts.length - 1;
+			while (low < high) {
+				int mid = (low + high + 1) >>> 1;
+				if (segmentStarts[mid] <= dataPosition) {
+					low = mid;
+				} else {
+					high = mid - 1;
+				}
+			}
+			Segment segment = segments.get(low);
+			close();
+			channel = FileChannel.open(segment.path, StandardOpenOption.READ);
+			segmentIndex = low;
+			segmentStart = segmentStarts[low];
+			return segment;
+		}
+	}
+}
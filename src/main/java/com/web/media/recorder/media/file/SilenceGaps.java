@@ -0,0 +1,65 @@
+package com.web.media.recorder.media.file;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 静音门限跳过的区间，保存在录音旁的隐藏文件 {@code .<录音文件名>.gaps} 中
+ * <p>
+ * 每个区间一行 {@code <位置> <长度>}，单位为采样帧；位置为跳过处在录音已写入数据中的帧序号，
+ * 按行依次插入对应长度的静音即可还原采集时间线。录音期间逐行追加，跳过发生次数少，每次单独打开文件。
+ */
+public final class SilenceGaps {
+	public static final String SUFFIX = ".gaps";
+
+	private SilenceGaps() {
+	}
+
+	public static Path sidecarOf(Path recording) {
+		return recording.resolveSibling("." + recording.getFileName() + SUFFIX);
+	}
+
+	public static void append(Path recording, long position, long frames) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(sidecarOf(recording), StandardCharsets.US_ASCII,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+			writer.write(position + " " + frames + "\n");
+		}
+	}
+
+	/**
+	 * @return 按位置排列的 {位置, 长度} 列表，没有跳过时为空
+	 */
+	public static List<long[]> read(Path recording) throws IOException {
+		List<long[]> gaps = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(sidecarOf(recording), StandardCharsets.US_ASCII)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int space = line.indexOf(' ');
+				if (space <= 0) {
+					continue;
+				}
+				try {
+					gaps.add(new long[] { Long.parseLong(line.substring(0, space)),
+							Long.parseLong(line.substring(space + 1).trim()) });
+				} catch (NumberFormatException e) {
+					// 崩溃时可能留下不完整的最后一行
+				}
+			}
+		} catch (NoSuchFileException e) {
+			// 录音期间没有跳过
+		}
+		return gaps;
+	}
+
+	public static void delete(Path recording) throws IOException {
+		Files.deleteIfExists(sidecarOf(recording));
+	}
+}
@@ -1,35 +1,190 @@
 package com.web.media.recorder.media.file;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import com.web.media.recorder.media.file.mp4.FragmentedMp4Muxer;
+import com.web.media.recorder.media.file.mp4.FragmentedMp4Muxer.Sample;
+import com.web.media.recorder.media.file.mp4.H264Sps;
+import com.web.media.recorder.media.file.mp4.H264StreamParser;
+import com.web.media.recorder.media.file.mp4.H264StreamParser.AccessUnit;
+
+/**
+ * 上传的 H.264 Annex B 视频流，以分片 MP4 写入
+ * <p>
+ * 收到第一个带参数集的关键帧时写入 ftyp+moov，之后每遇到关键帧（或累积超过最大分片时长）
+ * 追加一个 moof+mdat 分片。文件只追加不回写，会话中断时已写出的分片仍可播放。
+ * <p>
+ * 帧以所在消息的到达时间为时间戳，同一消息中的多帧时间戳相同：
+ * 下一条消息到达后，把两条消息的到达时间差平均分给前一条消息中的各帧。
+ * WebM、MP4 等容器格式（浏览器 MediaRecorder 的输出）在 writeData 时以 IllegalArgumentException 拒绝。
+ */
 public class VideoFile extends MediaFile {
-    public VideoFile(String outputDir) {
-        super(outputDir, "video");
-        initializeFile();
-    }
-
-    @Override
-    protected String getFileExtension() {
-        return "mp4";
-    }
-
-    @Override
-    protected void writeHeader() throws IOException {
-        // MP4需要写入ftyp、moov等原子，此处简化示例
-        // 实际应使用专业库（如MP4Parser）处理
-        file.writeBytes("ftypmp42"); // 示例ftyp原子
-    }
-
-    @Override
-    protected void updateHeader() throws IOException {
-        // MP4需更新moov原子中的时长等信息
-        // 此处示意，实际需复杂处理
-        file.seek(0);
-        file.writeBytes("updated_header");
-    }
+	// 没有关键帧时也按该时长切分片，限制中断时丢失的内容
+	private static final long MAX_FRAGMENT_TICKS = FragmentedMp4Muxer.TIMESCALE;
+	// 无法由到达时间推算时长时（第一组即最后一组帧）使用的默认帧时长，30fps
+	private static final int DEFAULT_SAMPLE_DURATION = FragmentedMp4Muxer.TIMESCALE / 30;
+
+	private final H264StreamParser parser = new H264StreamParser();
+	private final FragmentedMp4Muxer muxer = new FragmentedMp4Muxer();
+	private final List<Sample> fragmentSamples = new ArrayList<>();
+	private long fragmentTicks;
+	// 时间戳相同（同一条消息）、时长待下一条消息到达后确定的帧
+	private final List<Sample> pendingSamples = new ArrayList<>();
+	private long pendingTimestamp;
+	// 最近确定的单帧时长，用于结束时的最后一组帧
+	private int lastDuration = DEFAULT_SAMPLE_DURATION;
+	private boolean initialized;
+	private boolean finished;
+	private long skippedFrames;
+
+	public VideoFile(String outputDir) {
+		super(outputDir, "video");
+		initializeFile();
+	}
+
+	@Override
+	protected String getFileExtension() {
+		return "mp4";
+	}
+
+	@Override
+	protected void writeHeader() {
+		// 初始化段依赖 SPS/PPS，在第一个关键帧到达时写入
+	}
+
+	@Override
+	protected void updateHeader() {
+		// 分片 MP4 不需要回写文件头
+	}
+
+	@Override
+	public synchronized void writeData(byte[] data) {
+		if (data != null) {
+			writeData(ByteBuffer.wrap(data));
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException 上传的不是 H.264 Annex B 裸流
+	 */
+	@Override
+	public synchronized void writeData(ByteBuffer data) {
+		if (data == null || !data.hasRemaining() || writer == null || finished)
+			return;
+		try {
+			int length = data.remaining();
+			long start = System.nanoTime();
+			for (AccessUnit unit : parser.feed(data, start)) {
+				addAccessUnit(unit);
+			}
+			if (writer.isCheckpointDue()) {
+				checkpoint();
+			}
+			metrics().recordWrite(length, System.nanoTime() - start);
+		} catch (IOException e) {
+			handleError("写入数据失败", e);
+		}
+	}
+
+	private void addAccessUnit(AccessUnit unit) throws IOException {
+		if (!initialized && !writeInitSegment(unit)) {
+			skippedFrames++;
+			return;
+		}
+		if (!pendingSamples.isEmpty() && unit.getTimestamp() != pendingTimestamp) {
+			long ticks = TimeUnit.NANOSECONDS.toMicros(unit.getTimestamp() - pendingTimestamp)
+					* FragmentedMp4Muxer.TIMESCALE / 1_000_000;
+			flushPending(ticks);
+		}
+		pendingSamples.add(new Sample(unit.getNals(), unit.isKeyFrame()));
+		pendingTimestamp = unit.getTimestamp();
+	}
+
+	// 把总时长平均分给待定的各帧，余数分给前面的帧
+	private void flushPending(long totalTicks) throws IOException {
+		int count = pendingSamples.size();
+		long total = Math.max(count, Math.min(totalTicks, (long) Integer.MAX_VALUE * count));
+		long each = total / count;
+		long remainder = total % count;
+		for (int i = 0; i < count; i++) {
+			Sample sample = pendingSamples.get(i);
+			if (sample.isKeyFrame() || fragmentTicks >= MAX_FRAGMENT_TICKS) {
+				writeFragment();
+			}
+			int duration = (int) (each + (i < remainder ? 1 : 0));
+			appendSample(sample, duration);
+			lastDuration = duration;
+		}
+		pendingSamples.clear();
+	}
+
+	// 播放器需要从关键帧开始解码，之前的帧丢弃
+	private boolean writeInitSegment(AccessUnit unit) throws IOException {
+		if (!unit.isKeyFrame() || unit.getSps() == null || unit.getPps() == null) {
+			return false;
+		}
+		H264Sps sps = H264Sps.parse(unit.getSps());
+		if (sps == null) {
+			return false;
+		}
+		writer.write(muxer.initSegment(sps, unit.getSps(), unit.getPps()));
+		initialized = true;
+		return true;
+	}
+
+	private void appendSample(Sample sample, int duration) {
+		sample.setDuration(duration);
+		fragmentSamples.add(sample);
+		fragmentTicks += duration;
+	}
+
+	private void writeFragment() throws IOException {
+		if (fragmentSamples.isEmpty()) {
+			return;
+		}
+		writer.write(muxer.fragment(fragmentSamples));
+		fragmentSamples.clear();
+		fragmentTicks = 0;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!finished && writer != null) {
+			finished = true;
+			try {
+				for (AccessUnit unit : parser.finish(System.nanoTime())) {
+					addAccessUnit(unit);
+				}
+				if (!pendingSamples.isEmpty()) {
+					flushPending((long) lastDuration * pendingSamples.size());
+				}
+				writeFragment();
+			} catch (IOException e) {
+				System.err.println("写入最后一个分片失败: " + e.getMessage());
+			}
+			if (!initialized) {
+				System.err.println("视频流中没有可用的 H.264 关键帧，删除空文件: " + getFilePath()
+						+ "（丢弃 " + parser.getDiscardedBytes() + " 字节, " + skippedFrames + " 帧）");
+			}
+		}
+		super.close();
+		if (!initialized && filePath != null) {
+			try {
+				Files.deleteIfExists(Paths.get(filePath));
+			} catch (IOException e) {
+				System.err.println("删除空视频文件失败: " + e.getMessage());
+			}
+		}
+	}
 
 	@Override
 	public byte[] getHeaderBytes() {
 		return null;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+package com.web.media.recorder.media.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.config.MediaConfig;
+
+/**
+ * 启动时修复异常中断的 WAV 文件
+ * <p>
+ * 文件头只在检查点和关闭时更新，进程崩溃后头部记录的大小会小于实际数据长度，
+ * 这里按实际文件长度重新写入 RIFF 与 data 块大小（RF64 文件同时修正 ds64 块），
+ * 分段录音目录中的各段文件同样处理。
+ */
+@Component
+public class WavFileRecovery {
+	private static final Logger logger = LoggerFactory.getLogger(WavFileRecovery.class);
+
+	@Autowired
+	private MediaConfig mediaConfig;
+
+	@PostConstruct
+	public void recover() {
+		Path audioPath = Paths.get(mediaConfig.getAudioDir());
+		if (!Files.isDirectory(audioPath)) {
+			return;
+		}
+		int repaired = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(audioPath, "audio_*.wav")) {
+			for (Path path : stream) {
+				if (repair(path)) {
+					repaired++;
+				}
+			}
+		} catch (IOException e) {
+			logger.error("扫描录音目录失败: {}", e.getMessage());
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(audioPath,
+				"audio_*." + SegmentedRecording.EXTENSION)) {
+			for (Path directory : stream) {
+				if (Files.isDirectory(directory)) {
+					repaired += repairSegments(directory);
+				}
+			}
+		} catch (IOException e) {
+			logger.error("扫描分段录音失败: {}", e.getMessage());
+		}
+		if (repaired > 0) {
+			logger.info("已修复{}个录音文件头", repaired);
+		}
+	}
+
+	private static int repairSegments(Path directory) {
+		int repaired = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.wav")) {
+			for (Path path : stream) {
+				if (repair(path)) {
+					repaired++;
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("扫描分段录音失败: {}, {}", directory, e.getMessage());
+		}
+		return repaired;
+	}
+
+	/**
+	 * 按实际长度修正文件头中的大小字段
+	 *
+	 * @return 是否进行了修复
+	 */
+	public static boolean repair(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long length = channel.size();
+			if (length < WavHeader.HEADER_SIZE) {
+				return false;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, WavHeader.RF64_HEADER_SIZE));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, buffer.position()) < 0) {
+					break;
+				}
+			}
+			buffer.flip();
+			WavHeader header = WavHeader.parse(buffer);
+			if (header == null) {
+				return false;
+			}
+			boolean extended = header.dataOffset == WavHeader.RF64_HEADER_SIZE;
+			long dataSize = length - header.dataOffset;
+			if (!extended) {
+				dataSize = Math.min(dataSize, WavHeader.MAX_DATA_SIZE);
+			}
+			// 截断到完整的采样帧
+			if (header.blockAlign > 0) {
+				dataSize -= dataSize % header.blockAlign;
+			}
+			if (header.dataSize == dataSize) {
+				return false;
+			}
+			byte[] repairedHeader = extended
+					? WavHeader.createRf64Header(dataSize, header.sampleRate, header.channels, header.bitsPerSample)
+					: WavHeader.createHeader(dataSize, header.sampleRate, header.channels, header.bitsPerSample);
+			ByteBuffer out = ByteBuffer.wrap(repairedHeader);
+			while (out.hasRemaining()) {
+				channel.write(out, out.position());
+			}
+			logger.info("修复录音文件头: {}, 数据大小 {} -> {}", path.getFileName(), header.dataSize, dataSize);
+			return true;
+		} catch (IOException e) {
+			logger.warn("修复录音文件失败: {}, {}", path, e.getMessage());
+			return false;
+		}
+	}
+}
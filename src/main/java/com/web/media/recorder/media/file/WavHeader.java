@@ -1,17 +1,29 @@
 package com.web.media.recorder.media.file;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public class WavHeader {
 
     public static final int HEADER_SIZE = 44;
+    // 预留 ds64 位置的头部：RIFF + JUNK(28) + fmt + data，超过 4GB 时原地改写为 RF64
+    public static final int RF64_HEADER_SIZE = 80;
+    // 头部中的大小字段为无符号 32 位，RIFF 块大小 = 数据大小 + 36
+    public static final long MAX_DATA_SIZE = 0xFFFFFFFFL - 36;
+    // RIFF 块大小与 data 块大小在头部中的偏移
+    public static final int RIFF_SIZE_OFFSET = 4;
+    public static final int DATA_SIZE_OFFSET = 40;
+
+    private static final int DS64_CHUNK_SIZE = 28;
+    private static final byte[] JUNK = {'J', 'U', 'N', 'K'};
+    private static final byte[] DS64 = {'d', 's', '6', '4'};
+    private static final byte[] RF64 = {'R', 'F', '6', '4'};
+    // 无法用 32 位表示时写入的占位值
+    private static final int SIZE_IN_DS64 = 0xFFFFFFFF;
 
     // RIFF 块
     public final byte[] riff = {'R', 'I', 'F', 'F'};
-    public int fileSize; // 文件总大小 - 8
+    public long fileSize; // 文件总大小 - 8
     public final byte[] wave = {'W', 'A', 'V', 'E'};
 
     // fmt 子块
@@ -26,7 +38,11 @@ public class WavHeader {
 
     // data 子块
     public final byte[] data = {'d', 'a', 't', 'a'};
-    public int dataSize; // 音频数据大小（不包含头部）
+    public long dataSize; // 音频数据大小（不包含头部）
+
+    // 解析结果：音频数据起始偏移（44 或 80），以及是否为 RF64
+    public int dataOffset = HEADER_SIZE;
+    public boolean rf64;
 
     /**
      * 将 WAV 头信息转换为字节数组
@@ -38,31 +54,66 @@ public class WavHeader {
             throw new IllegalArgumentException("文件大小不能为负数");
         }
 
-        if (fileSize > Integer.MAX_VALUE - 36) {
+        if (dataSize > MAX_DATA_SIZE) {
             throw new IllegalArgumentException("文件太大，无法表示为标准 WAV");
         }
 
-        ByteBuffer buffer = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
 
         buffer.put(riff)
-              .putInt(fileSize)
+              .putInt((int) fileSize)
+              .put(wave);
+        putFormat(buffer);
+        buffer.put(data)
+              .putInt((int) dataSize);
+
+        return buffer.array();
+    }
+
+    /**
+     * 转换为预留 ds64 的 80 字节头部：数据不超过 4GB 时是带 JUNK 块的普通 WAV，超过后为 RF64
+     */
+    public byte[] toRf64Bytes() {
+        if (dataSize < 0) {
+            throw new IllegalArgumentException("文件大小不能为负数");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RF64_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long riffSize = dataSize + RF64_HEADER_SIZE - 8;
+        boolean large = riffSize > 0xFFFFFFFFL;
+        buffer.put(large ? RF64 : riff)
+              .putInt(large ? SIZE_IN_DS64 : (int) riffSize)
               .put(wave)
-              .put(fmt)
+              .put(large ? DS64 : JUNK)
+              .putInt(DS64_CHUNK_SIZE);
+        if (large) {
+            buffer.putLong(riffSize)
+                  .putLong(dataSize)
+                  .putLong(blockAlign > 0 ? dataSize / blockAlign : 0)
+                  .putInt(0); // table length
+        } else {
+            buffer.position(buffer.position() + DS64_CHUNK_SIZE);
+        }
+        putFormat(buffer);
+        buffer.put(data)
+              .putInt(large ? SIZE_IN_DS64 : (int) dataSize);
+        return buffer.array();
+    }
+
+    private void putFormat(ByteBuffer buffer) {
+        buffer.put(fmt)
               .putInt(fmtSize)
               .putShort(audioFormat)
               .putShort(channels)
               .putInt(sampleRate)
               .putInt(byteRate)
               .putShort(blockAlign)
-              .putShort(bitsPerSample)
-              .put(data)
-              .putInt(dataSize);
-
-        return buffer.array();
+              .putShort(bitsPerSample);
     }
 
     /**
      * 工厂方法：创建指定参数的 WAV 文件头
+     * <p>
+     * 数据超过 32 位可表示的大小时按上限写入（与流式输出的约定一致），需要精确大小时使用 {@link #createRf64Header}。
      *
      * @param dataSize       音频数据大小（不含头部）
      * @param sampleRate     采样率（Hz）
@@ -70,7 +121,18 @@ public class WavHeader {
      * @param bitsPerSample  位深度（8或16）
      * @return WAV 文件头字节数组（44字节）
      */
-    public static byte[] createHeader(int dataSize, int sampleRate, int channels, int bitsPerSample) {
+    public static byte[] createHeader(long dataSize, int sampleRate, int channels, int bitsPerSample) {
+        return create(Math.min(dataSize, MAX_DATA_SIZE), sampleRate, channels, bitsPerSample).toBytes();
+    }
+
+    /**
+     * 工厂方法：创建 80 字节的 RF64 兼容头部
+     */
+    public static byte[] createRf64Header(long dataSize, int sampleRate, int channels, int bitsPerSample) {
+        return create(dataSize, sampleRate, channels, bitsPerSample).toRf64Bytes();
+    }
+
+    private static WavHeader create(long dataSize, int sampleRate, int channels, int bitsPerSample) {
         WavHeader header = new WavHeader();
         header.setDataSize(dataSize);
         header.sampleRate = sampleRate;
@@ -78,7 +140,7 @@ public class WavHeader {
         header.bitsPerSample = (short) bitsPerSample;
         header.blockAlign = (short) (channels * bitsPerSample / 8);
         header.byteRate = sampleRate * header.blockAlign;
-        return header.toBytes();
+        return header;
     }
 
     /**
@@ -86,8 +148,63 @@ public class WavHeader {
      *
      * @param dataSize 音频数据大小（不包含头部）
      */
-    public void setDataSize(int dataSize) {
+    public void setDataSize(long dataSize) {
         this.dataSize = dataSize;
         this.fileSize = dataSize + 36;
     }
-}
\ No newline at end of file
+
+    /**
+     * 解析标准 44 字节头部，或预留 ds64 的 80 字节头部（含 RF64）
+     *
+     * @param buffer 从当前位置读取，不改变位置；80 字节头部需要缓冲区中至少有 80 字节
+     * @return 解析结果；不是支持的 PCM WAV 头部时返回 null
+     */
+    public static WavHeader parse(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int base = in.position();
+        WavHeader header = new WavHeader();
+        boolean rf64 = matches(in, base, RF64);
+        if (!(rf64 || matches(in, base, header.riff)) || !matches(in, base + 8, header.wave)) {
+            return null;
+        }
+        int format = base + 12;
+        if (matches(in, base + 12, JUNK) || matches(in, base + 12, DS64)) {
+            if (buffer.remaining() < RF64_HEADER_SIZE || in.getInt(base + 16) != DS64_CHUNK_SIZE) {
+                return null;
+            }
+            format = base + 12 + 8 + DS64_CHUNK_SIZE;
+            header.dataOffset = RF64_HEADER_SIZE;
+        } else if (rf64) {
+            return null;
+        }
+        if (!matches(in, format, header.fmt) || !matches(in, format + 24, header.data)) {
+            return null;
+        }
+        header.rf64 = rf64;
+        if (rf64) {
+            header.fileSize = in.getLong(base + 20);
+            header.dataSize = in.getLong(base + 28);
+        } else {
+            header.fileSize = Integer.toUnsignedLong(in.getInt(base + RIFF_SIZE_OFFSET));
+            header.dataSize = Integer.toUnsignedLong(in.getInt(format + 28));
+        }
+        header.channels = in.getShort(format + 10);
+        header.sampleRate = in.getInt(format + 12);
+        header.byteRate = in.getInt(format + 16);
+        header.blockAlign = in.getShort(format + 20);
+        header.bitsPerSample = in.getShort(format + 22);
+        return header;
+    }
+
+    private static boolean matches(ByteBuffer in, int offset, byte[] tag) {
+        for (int i = 0; i < tag.length; i++) {
+            if (in.get(offset + i) != tag[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
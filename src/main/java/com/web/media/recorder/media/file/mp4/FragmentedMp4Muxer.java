@@ -0,0 +1,267 @@
+package com.web.media.recorder.media.file.mp4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单路 H.264 视频的分片 MP4（fMP4/CMAF）封装
+ * <p>
+ * 文件开头写一次 ftyp+moov（样本表为空，mvex 声明后续为分片），之后每个分片是自包含的 moof+mdat，
+ * 只追加、不回写。会话中断时最后一个完整分片之前的内容都可播放。
+ */
+public class FragmentedMp4Muxer {
+	// 90kHz 是视频常用时间刻度
+	public static final int TIMESCALE = 90000;
+	private static final int TRACK_ID = 1;
+	private static final int MOVIE_TIMESCALE = 1000;
+
+	// trun 中的 sample_flags：关键帧不依赖其他帧；非关键帧依赖其他帧且不是同步样本
+	private static final int SAMPLE_FLAGS_SYNC = 0x02000000;
+	private static final int SAMPLE_FLAGS_NON_SYNC = 0x01010000;
+
+	private int sequenceNumber;
+	private long baseMediaDecodeTime;
+
+	/**
+	 * 生成初始化段 ftyp+moov
+	 *
+	 * @param sps 不含起始码的 SPS
+	 * @param pps 不含起始码的 PPS
+	 */
+	public ByteBuffer initSegment(H264Sps info, byte[] sps, byte[] pps) {
+		BoxBuffer out = new BoxBuffer(1024 + sps.length + pps.length);
+		out.start("ftyp").fourcc("isom").u32(0x200).fourcc("isom").fourcc("iso6").fourcc("avc1").fourcc("mp41")
+				.end();
+		out.start("moov");
+		writeMvhd(out);
+		out.start("trak");
+		writeTkhd(out, info);
+		out.start("mdia");
+		out.fullBox("mdhd", 0, 0).u32(0).u32(0).u32(TIMESCALE).u32(0).u16(0x55c4 /* und */).u16(0).end();
+		out.fullBox("hdlr", 0, 0).u32(0).fourcc("vide").u32(0).u32(0).u32(0).cstring("VideoHandler").end();
+		out.start("minf");
+		out.fullBox("vmhd", 0, 1).u16(0).u16(0).u16(0).u16(0).end();
+		out.start("dinf").fullBox("dref", 0, 0).u32(1).fullBox("url ", 0, 1).end().end().end();
+		out.start("stbl");
+		writeStsd(out, info, sps, pps);
+		out.fullBox("stts", 0, 0).u32(0).end();
+		out.fullBox("stsc", 0, 0).u32(0).end();
+		out.fullBox("stsz", 0, 0).u32(0).u32(0).end();
+		out.fullBox("stco", 0, 0).u32(0).end();
+		out.end(); // stbl
+		out.end(); // minf
+		out.end(); // mdia
+		out.end(); // trak
+		out.start("mvex").fullBox("trex", 0, 0).u32(TRACK_ID).u32(1).u32(0).u32(0).u32(0).end().end();
+		out.end(); // moov
+		return out.toBuffer();
+	}
+
+	/**
+	 * 生成一个 moof+mdat 分片，解码时间从上一个分片结束处接续
+	 */
+	public ByteBuffer fragment(List<Sample> samples) {
+		int payloadSize = 0;
+		for (Sample sample : samples) {
+			payloadSize += sample.size;
+		}
+		int count = samples.size();
+		BoxBuffer out = new BoxBuffer(128 + count * 12 + 8 + payloadSize);
+		int moofStart = out.position();
+		out.start("moof");
+		out.fullBox("mfhd", 0, 0).u32(++sequenceNumber).end();
+		out.start("traf");
+		// default-base-is-moof：数据偏移相对 moof 起点，分片自包含
+		out.fullBox("tfhd", 0, 0x020000).u32(TRACK_ID).end();
+		out.fullBox("tfdt", 1, 0).u64(baseMediaDecodeTime).end();
+		// data-offset、sample-duration、sample-size、sample-flags
+		out.fullBox("trun", 0, 0x000701).u32(count);
+		int dataOffsetPosition = out.position();
+		out.u32(0);
+		for (Sample sample : samples) {
+			out.u32(sample.duration).u32(sample.size).u32(sample.keyFrame ? SAMPLE_FLAGS_SYNC : SAMPLE_FLAGS_NON_SYNC);
+			baseMediaDecodeTime += sample.duration;
+		}
+		out.end(); // trun
+		out.end(); // traf
+		out.end(); // moof
+		out.putU32(dataOffsetPosition, out.position() - moofStart + 8);
+		out.start("mdat");
+		for (Sample sample : samples) {
+			for (byte[] nal : sample.nals) {
+				out.u32(nal.length).bytes(nal);
+			}
+		}
+		out.end();
+		return out.toBuffer();
+	}
+
+	/**
+	 * @return 已写入分片的总时长（{@link #TIMESCALE} 刻度）
+	 */
+	public long getDuration() {
+		return baseMediaDecodeTime;
+	}
+
+	private static void writeMvhd(BoxBuffer out) {
+		out.fullBox("mvhd", 0, 0).u32(0).u32(0).u32(MOVIE_TIMESCALE).u32(0);
+		out.u32(0x00010000).u16(0x0100).u16(0).u32(0).u32(0);
+		writeMatrix(out);
+		for (int i = 0; i < 6; i++) {
+			out.u32(0);
+		}
+		out.u32(TRACK_ID + 1).end();
+	}
+
+	private static void writeTkhd(BoxBuffer out, H264Sps info) {
+		// 已启用、用于播放
+		out.fullBox("tkhd", 0, 0x000003).u32(0).u32(0).u32(TRACK_ID).u32(0).u32(0);
+		out.u32(0).u32(0).u16(0).u16(0).u16(0).u16(0);
+		writeMatrix(out);
+		out.u32(info.getWidth() << 16).u32(info.getHeight() << 16).end();
+	}
+
+	private static void writeMatrix(BoxBuffer out) {
+		out.u32(0x00010000).u32(0).u32(0).u32(0).u32(0x00010000).u32(0).u32(0).u32(0).u32(0x40000000);
+	}
+
+	private static void writeStsd(BoxBuffer out, H264Sps info, byte[] sps, byte[] pps) {
+		out.fullBox("stsd", 0, 0).u32(1);
+		out.start("avc1");
+		out.u32(0).u16(0).u16(1); // reserved、data_reference_index
+		out.u16(0).u16(0).u32(0).u32(0).u32(0);
+		out.u16(info.getWidth()).u16(info.getHeight());
+		out.u32(0x00480000).u32(0x00480000).u32(0).u16(1);
+		out.bytes(new byte[32]); // compressorname
+		out.u16(0x0018).u16(0xffff);
+		out.start("avcC");
+		out.u8(1).u8(sps[1] & 0xff).u8(sps[2] & 0xff).u8(sps[3] & 0xff);
+		out.u8(0xff); // 长度字段 4 字节
+		out.u8(0xe1).u16(sps.length).bytes(sps);
+		out.u8(1).u16(pps.length).bytes(pps);
+		if (H264Sps.hasChromaInfo(info.getProfileIdc())) {
+			out.u8(0xfc | info.getChromaFormatIdc()).u8(0xf8 | (info.getBitDepthLuma() - 8))
+					.u8(0xf8 | (info.getBitDepthChroma() - 8)).u8(0);
+		}
+		out.end(); // avcC
+		out.end(); // avc1
+		out.end(); // stsd
+	}
+
+	/**
+	 * 一帧样本：NAL 单元在 mdat 中以 4 字节长度前缀存放
+	 */
+	public static final class Sample {
+		private final List<byte[]> nals;
+		private final boolean keyFrame;
+		private final int size;
+		private int duration;
+
+		public Sample(List<byte[]> nals, boolean keyFrame) {
+			this.nals = nals;
+			this.keyFrame = keyFrame;
+			int size = 0;
+			for (byte[] nal : nals) {
+				size += 4 + nal.length;
+			}
+			this.size = size;
+		}
+
+		public boolean isKeyFrame() {
+			return keyFrame;
+		}
+
+		public int getDuration() {
+			return duration;
+		}
+
+		public void setDuration(int duration) {
+			this.duration = duration;
+		}
+	}
+
+	/**
+	 * 按大端序构造嵌套 box，结束时回填长度
+	 */
+	private static final class BoxBuffer {
+		private byte[] data;
+		private int position;
+		private final int[] starts = new int[16];
+		private int depth;
+
+		BoxBuffer(int capacity) {
+			data = new byte[capacity];
+		}
+
+		BoxBuffer start(String type) {
+			starts[depth++] = position;
+			return u32(0).fourcc(type);
+		}
+
+		BoxBuffer fullBox(String type, int version, int flags) {
+			return start(type).u32((version << 24) | flags);
+		}
+
+		BoxBuffer end() {
+			int start = starts[--depth];
+			putU32(start, position - start);
+			return this;
+		}
+
+		BoxBuffer u8(int value) {
+			ensure(1);
+			data[position++] = (byte) value;
+			return this;
+		}
+
+		BoxBuffer u16(int value) {
+			return u8(value >>> 8).u8(value);
+		}
+
+		BoxBuffer u32(int value) {
+			return u16(value >>> 16).u16(value);
+		}
+
+		BoxBuffer u64(long value) {
+			return u32((int) (value >>> 32)).u32((int) value);
+		}
+
+		BoxBuffer fourcc(String type) {
+			return bytes(type.getBytes(StandardCharsets.US_ASCII));
+		}
+
+		BoxBuffer cstring(String value) {
+			return bytes(value.getBytes(StandardCharsets.UTF_8)).u8(0);
+		}
+
+		BoxBuffer bytes(byte[] value) {
+			ensure(value.length);
+			System.arraycopy(value, 0, data, position, value.length);
+			position += value.length;
+			return this;
+		}
+
+		void putU32(int offset, int value) {
+			data[offset] = (byte) (value >>> 24);
+			data[offset + 1] = (byte) (value >>> 16);
+			data[offset + 2] = (byte) (value >>> 8);
+			data[offset + 3] = (byte) value;
+		}
+
+		int position() {
+			return position;
+		}
+
+		ByteBuffer toBuffer() {
+			return ByteBuffer.wrap(data, 0, position);
+		}
+
+		private void ensure(int n) {
+			if (position + n > data.length) {
+				data = Arrays.copyOf(data, Math.max(position + n, data.length * 2));
+			}
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.web.media.recorder.media.file.mp4;
+
+import java.util.Arrays;
+
+/**
+ * 从 H.264 SPS 中解析生成 avc1/avcC 所需的字段
+ */
+public final class H264Sps {
+	private final int profileIdc;
+	private final int chromaFormatIdc;
+	private final int bitDepthLuma;
+	private final int bitDepthChroma;
+	private final int width;
+	private final int height;
+
+	private H264Sps(int profileIdc, int chromaFormatIdc, int bitDepthLuma, int bitDepthChroma, int width,
+			int height) {
+		this.profileIdc = profileIdc;
+		this.chromaFormatIdc = chromaFormatIdc;
+		this.bitDepthLuma = bitDepthLuma;
+		this.bitDepthChroma = bitDepthChroma;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @param nal 不含起始码的 SPS NAL 单元
+	 * @return 解析失败时返回 null
+	 */
+	public static H264Sps parse(byte[] nal) {
+		try {
+			return parse(new BitReader(unescape(nal)));
+		} catch (ArrayIndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	private static H264Sps parse(BitReader in) {
+		in.skip(8); // NAL 头
+		int profileIdc = in.bits(8);
+		in.skip(16); // constraint_set 标志与 level_idc
+		in.ue(); // seq_parameter_set_id
+		int chromaFormatIdc = 1;
+		int bitDepthLuma = 8;
+		int bitDepthChroma = 8;
+		boolean separateColourPlane = false;
+		if (hasChromaInfo(profileIdc)) {
+			chromaFormatIdc = in.ue();
+			if (chromaFormatIdc == 3) {
+				separateColourPlane = in.bit();
+			}
+			bitDepthLuma = in.ue() + 8;
+			bitDepthChroma = in.ue() + 8;
+			in.skip(1); // qpprime_y_zero_transform_bypass_flag
+			if (in.bit()) {
+				int lists = chromaFormatIdc == 3 ? 12 : 8;
+				for (int i = 0; i < lists; i++) {
+					if (in.bit()) {
+						skipScalingList(in, i < 6 ? 16 : 64);
+					}
+				}
+			}
+		}
+		in.ue(); // log2_max_frame_num_minus4
+		int pocType = in.ue();
+		if (pocType == 0) {
+			in.ue();
+		} else if (pocType == 1) {
+			in.skip(1);
+			in.se();
+			in.se();
+			int cycle = in.ue();
+			for (int i = 0; i < cycle; i++) {
+				in.se();
+			}
+		}
+		in.ue(); // max_num_ref_frames
+		in.skip(1); // gaps_in_frame_num_value_allowed_flag
+		int widthInMbs = in.ue() + 1;
+		int heightInMapUnits = in.ue() + 1;
+		boolean frameMbsOnly = in.bit();
+		if (!frameMbsOnly) {
+			in.skip(1);
+		}
+		in.skip(1); // direct_8x8_inference_flag
+		int cropLeft = 0, cropRight = 0, cropTop = 0, cropBottom = 0;
+		if (in.bit()) {
+			cropLeft = in.ue();
+			cropRight = in.ue();
+			cropTop = in.ue();
+			cropBottom = in.ue();
+		}
+		int frameHeightFactor = frameMbsOnly ? 1 : 2;
+		int chromaArrayType = separateColourPlane ? 0 : chromaFormatIdc;
+		int cropUnitX = chromaArrayType == 0 ? 1 : (chromaFormatIdc == 3 ? 1 : 2);
+		int cropUnitY = (chromaArrayType == 0 ? 1 : (chromaFormatIdc == 1 ? 2 : 1)) * frameHeightFactor;
+		int width = widthInMbs * 16 - cropUnitX * (cropLeft + cropRight);
+		int height = frameHeightFactor * heightInMapUnits * 16 - cropUnitY * (cropTop + cropBottom);
+		return new H264Sps(profileIdc, chromaFormatIdc, bitDepthLuma, bitDepthChroma, width, height);
+	}
+
+	static boolean hasChromaInfo(int profileIdc) {
+		switch (profileIdc) {
+		case 100: case 110: case 122: case 244: case 44: case 83: case 86: case 118: case 128: case 138:
+		case 139: case 134: case 135:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static void skipScalingList(BitReader in, int size) {
+		int last = 8;
+		int next = 8;
+		for (int j = 0; j < size; j++) {
+			if (next != 0) {
+				next = (last + in.se() + 256) % 256;
+			}
+			last = next == 0 ? last : next;
+		}
+	}
+
+	// 去除防竞争字节 00 00 03
+	private static byte[] unescape(byte[] nal) {
+		byte[] out = new byte[nal.length];
+		int n = 0;
+		int zeros = 0;
+		for (byte b : nal) {
+			if (zeros >= 2 && b == 3) {
+				zeros = 0;
+				continue;
+			}
+			zeros = b == 0 ? zeros + 1 : 0;
+			out[n++] = b;
+		}
+		return n == out.length ? out : Arrays.copyOf(out, n);
+	}
+
+	public int getProfileIdc() {
+		return profileIdc;
+	}
+
+	public int getChromaFormatIdc() {
+		return chromaFormatIdc;
+	}
+
+	public int getBitDepthLuma() {
+		return bitDepthLuma;
+	}
+
+	public int getBitDepthChroma() {
+		return bitDepthChroma;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	private static final class BitReader {
+		private final byte[] data;
+		private int position;
+
+		BitReader(byte[] data) {
+			this.data = data;
+		}
+
+		boolean bit() {
+			int value = (data[position >> 3] >> (7 - (position & 7))) & 1;
+			position++;
+			return value != 0;
+		}
+
+		int bits(int n) {
+			int value = 0;
+			for (int i = 0; i < n; i++) {
+				value = (value << 1) | (bit() ? 1 : 0);
+			}
+			return value;
+		}
+
+		void skip(int n) {
+			position += n;
+		}
+
+		int ue() {
+			int leadingZeros = 0;
+			while (!bit()) {
+				leadingZeros++;
+			}
+			return leadingZeros == 0 ? 0 : (1 << leadingZeros) - 1 + bits(leadingZeros);
+		}
+
+		int se() {
+			int value = ue();
+			return (value & 1) != 0 ? (value + 1) / 2 : -(value / 2);
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package com.web.media.recorder.media.file.mp4;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 把任意分块到达的 H.264 Annex B 字节流切分为访问单元（一帧）
+ * <p>
+ * 按起始码拆出 NAL 单元，再按标准的访问单元边界规则（AUD/SPS/PPS/SEI 或 first_mb_in_slice 为 0 的新条带）
+ * 组帧，因此不依赖上传消息的边界。参数集和 AUD 不放入帧数据，参数集单独记录供生成 avcC。
+ */
+public class H264StreamParser {
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+	// 这么多字节内仍没有起始码，判定上传的不是 Annex B 流
+	private static final int MAX_PREAMBLE_BYTES = 64 * 1024;
+
+	static final int NAL_SLICE = 1;
+	static final int NAL_IDR_SLICE = 5;
+	static final int NAL_SEI = 6;
+	static final int NAL_SPS = 7;
+	static final int NAL_PPS = 8;
+	static final int NAL_AUD = 9;
+
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+	private int length;
+	// 下一次查找起始码的位置
+	private int scanPos;
+	// 当前 NAL 的起始位置（起始码之后），尚未遇到起始码时为 -1
+	private int nalStart = -1;
+	private long discardedBytes;
+
+	private final List<byte[]> currentNals = new ArrayList<>();
+	private boolean currentHasSlice;
+	private boolean currentKeyFrame;
+	private long currentTimestamp;
+	private byte[] sps;
+	private byte[] pps;
+
+	/**
+	 * 追加一段字节流
+	 *
+	 * @param timestamp 数据到达时间（纳秒），作为其中新开始的帧的时间戳
+	 * @return 本次完整组出的帧，通常为空或一帧
+	 * @throws IllegalArgumentException 数据是 WebM/MP4 等容器，或开头较长一段内没有起始码
+	 */
+	public List<AccessUnit> feed(ByteBuffer data, long timestamp) {
+		if (nalStart < 0 && discardedBytes == 0 && length == 0) {
+			String container = detectContainer(data);
+			if (container != null) {
+				throw new IllegalArgumentException("视频须为 H.264 Annex B 裸流，收到的是 " + container
+						+ " 容器（MediaRecorder 的输出），请改用 WebCodecs 以 annexb 格式编码后上传");
+			}
+		}
+		int n = data.remaining();
+		ensureCapacity(length + n);
+		data.get(buffer, length, n);
+		length += n;
+
+		List<AccessUnit> units = null;
+		int i = scanPos;
+		while (i + 3 <= length) {
+			if ((buffer[i + 2] & 0xff) > 1) {
+				i += 3;
+			} else if (buffer[i] == 0 && buffer[i + 1] == 0 && buffer[i + 2] == 1) {
+				if (nalStart >= 0) {
+					units = onNal(nalStart, i, timestamp, units);
+				} else {
+					discardedBytes += countNonZero(0, i);
+				}
+				nalStart = i + 3;
+				i += 3;
+			} else {
+				i++;
+			}
+		}
+		scanPos = i;
+		compact();
+		if (nalStart < 0 && discardedBytes > MAX_PREAMBLE_BYTES) {
+			throw new IllegalArgumentException("前 " + discardedBytes + " 字节中没有 H.264 起始码，视频须为 Annex B 裸流");
+		}
+		return units == null ? Collections.emptyList() : units;
+	}
+
+	/**
+	 * 按开头的魔数识别常见容器，不移动 data 的位置
+	 *
+	 * @return 容器名称，不是已知容器时为 null
+	 */
+	static String detectContainer(ByteBuffer data) {
+		int p = data.position();
+		if (data.remaining() >= 4 && data.getInt(p) == 0x1A45DFA3) {
+			return "WebM/Matroska";
+		}
+		if (data.remaining() >= 8) {
+			int box = data.getInt(p + 4);
+			// ftyp 或分片 MP4 直接以 moof/styp 开头
+			if (box == 0x66747970 || box == 0x6D6F6F66 || box == 0x73747970) {
+				return "MP4";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 流结束：缓冲中剩余的数据作为最后一个 NAL，返回最后一帧
+	 */
+	public List<AccessUnit> finish(long timestamp) {
+		List<AccessUnit> units = null;
+		if (nalStart >= 0 && length > nalStart) {
+			units = onNal(nalStart, length, timestamp, null);
+		}
+		length = 0;
+		scanPos = 0;
+		nalStart = -1;
+		if (currentHasSlice) {
+			if (units == null) {
+				units = new ArrayList<>(1);
+			}
+			units.add(completeAccessUnit());
+		}
+		return units == null ? Collections.emptyList() : units;
+	}
+
+	private List<AccessUnit> onNal(int start, int end, long timestamp, List<AccessUnit> units) {
+		// 去掉尾随的零字节（四字节起始码的前导零或 trailing_zero_8bits）
+		while (end > start && buffer[end - 1] == 0) {
+			end--;
+		}
+		if (end <= start) {
+			return units;
+		}
+		int type = buffer[start] & 0x1f;
+		boolean slice = type == NAL_SLICE || type == NAL_IDR_SLICE;
+		boolean startsNewUnit = slice
+				? end - start > 1 && (buffer[start + 1] & 0x80) != 0 // first_mb_in_slice == 0
+				: type == NAL_AUD || type == NAL_SPS || type == NAL_PPS || type == NAL_SEI
+						|| (type >= 14 && type <= 18);
+		if (startsNewUnit && currentHasSlice) {
+			if (units == null) {
+				units = new ArrayList<>(1);
+			}
+			units.add(completeAccessUnit());
+		}
+		if (currentNals.isEmpty() && !currentHasSlice) {
+			currentTimestamp = timestamp;
+		}
+		byte[] nal = Arrays.copyOfRange(buffer, start, end);
+		switch (type) {
+		case NAL_SPS:
+			sps = nal;
+			break;
+		case NAL_PPS:
+			pps = nal;
+			break;
+		case NAL_AUD:
+			break;
+		default:
+			currentNals.add(nal);
+			if (slice) {
+				currentHasSlice = true;
+				currentKeyFrame |= type == NAL_IDR_SLICE;
+			}
+		}
+		return units;
+	}
+
+	private AccessUnit completeAccessUnit() {
+		AccessUnit unit = new AccessUnit(new ArrayList<>(currentNals), currentKeyFrame, currentTimestamp, sps, pps);
+		currentNals.clear();
+		currentHasSlice = false;
+		currentKeyFrame = false;
+		return unit;
+	}
+
+	private void compact() {
+		// 尚未遇到起始码时只需保留末尾可能构成起始码前缀的两个字节
+		int keep = nalStart >= 0 ? nalStart : Math.max(0, length - 2);
+		if (nalStart < 0) {
+			discardedBytes += countNonZero(0, keep);
+		}
+		if (keep == 0) {
+			return;
+		}
+		System.arraycopy(buffer, keep, buffer, 0, length - keep);
+		length -= keep;
+		scanPos -= keep;
+		if (nalStart >= 0) {
+			nalStart -= keep;
+		}
+	}
+
+	// 第一个起始码之前允许有零字节（四字节起始码的前导零或 leading_zero_8bits），不计为丢弃
+	private int countNonZero(int from, int to) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (buffer[i] != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+		}
+	}
+
+	/**
+	 * @return 第一个起始码之前被丢弃的字节数，非零通常表示上传的不是 Annex B 流
+	 */
+	public long getDiscardedBytes() {
+		return discardedBytes;
+	}
+
+	/**
+	 * 一个完整的访问单元
+	 */
+	public static final class AccessUnit {
+		private final List<byte[]> nals;
+		private final boolean keyFrame;
+		private final long timestamp;
+		private final byte[] sps;
+		private final byte[] pps;
+
+		AccessUnit(List<byte[]> nals, boolean keyFrame, long timestamp, byte[] sps, byte[] pps) {
+			this.nals = nals;
+			this.keyFrame = keyFrame;
+			this.timestamp = timestamp;
+			this.sps = sps;
+			this.pps = pps;
+		}
+
+		/**
+		 * @return 不含起始码的 NAL 单元（不含参数集与 AUD）
+		 */
+		public List<byte[]> getNals() {
+			return nals;
+		}
+
+		public boolean isKeyFrame() {
+			return keyFrame;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * @return 截至本帧最近一次出现的 SPS，未出现过时为 null
+		 */
+		public byte[] getSps() {
+			return sps;
+		}
+
+		public byte[] getPps() {
+			return pps;
+		}
+	}
+}
@@ -1,34 +1,204 @@
 package com.web.media.recorder.media.processor;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.web.media.recorder.config.MediaConfig;
+import com.web.media.recorder.media.encoder.AudioCodec;
 import com.web.media.recorder.media.file.MediaFile;
+import com.web.media.recorder.media.processor.SpscByteRingBuffer.OverflowPolicy;
+import com.web.media.recorder.media.processor.broadcast.BroadcastRing;
 
 public abstract class AbstractMediaProcessor implements MediaProcessor {
+	public static final int DEFAULT_BUFFER_CAPACITY = 1024 * 1024;
+	private static final int REALTIME_CHUNK_SIZE = 4096;
+
 	public final AtomicBoolean isRunning = new AtomicBoolean(false);
-	protected final BlockingQueue<byte[]> dataQueue = new LinkedBlockingQueue<>(1000);
+	// 没有实时读取方的处理器（只录音）不写入实时缓冲区，只保留一个最小的空缓冲区
+	private final boolean realtime;
+	protected volatile SpscByteRingBuffer dataBuffer;
+	// 设置后实时数据改为发布到广播缓冲区，供多个订阅者各自读取
+	protected volatile BroadcastRing broadcastRing;
 	protected boolean isAudio;
 	protected MediaFile mediaFile;
+	// 录音存储格式，为 null 时使用配置的默认格式
+	protected volatile AudioCodec audioCodec;
+	// 静音门限，为 null 时所有数据都写盘和推送
+	protected volatile SilenceGate silenceGate;
+	// 暂停期间到达的数据直接丢弃，设备与录音文件保持打开
+	protected volatile boolean paused;
+	private volatile int sampleRate;
+	// 已结束采集中门限跳过的字节数
+	private volatile long finishedSkippedBytes;
+
+	protected AbstractMediaProcessor() {
+		this(true);
+	}
+
+	/**
+	 * @param realtime 是否有读取方消费实时数据；为 false 时数据只写盘和发布到广播缓冲区
+	 */
+	protected AbstractMediaProcessor(boolean realtime) {
+		this.realtime = realtime;
+		this.dataBuffer = new SpscByteRingBuffer(realtime ? DEFAULT_BUFFER_CAPACITY : 1, OverflowPolicy.DROP_OLDEST);
+	}
+
+	/**
+	 * 按配置重建实时数据缓冲区，需在采集开始前调用；没有实时读取方的处理器忽略
+	 */
+	protected void configureDataBuffer(int capacity, OverflowPolicy policy) {
+		if (realtime) {
+			dataBuffer = new SpscByteRingBuffer(capacity, policy);
+		}
+	}
+
+	public SpscByteRingBuffer getDataBuffer() {
+		return dataBuffer;
+	}
+
+	public void setBroadcastRing(BroadcastRing broadcastRing) {
+		this.broadcastRing = broadcastRing;
+	}
+
+	/**
+	 * 指定下一次采集的录音存储格式，需在 {@link #start(boolean)} 前调用
+	 */
+	public void setAudioCodec(AudioCodec audioCodec) {
+		this.audioCodec = audioCodec;
+	}
+
+	/**
+	 * 为下一次采集启用静音门限，需在采集开始前调用；传入 null 时关闭
+	 */
+	protected void configureSilenceGate(SilenceGate gate, int sampleRate) {
+		SilenceGate previous = silenceGate;
+		if (previous != null) {
+			finishedSkippedBytes += previous.getSkippedBytes();
+		}
+		this.sampleRate = sampleRate;
+		this.silenceGate = gate;
+	}
+
+	/**
+	 * 按配置为下一次采集启用或关闭静音门限，只对 16 位采集生效，需在采集开始前调用
+	 *
+	 * @param format 采集格式 {采样率, 声道数, 位深}
+	 */
+	protected void configureSilenceGate(MediaConfig config, int[] format) {
+		boolean gated = config.isSilenceEnabled() && format[2] == 16;
+		configureSilenceGate(gated ? new SilenceGate(format[0], format[1], config.getSilenceThresholdDb(),
+				config.getSilenceHangoverMs(), config.getSilencePreRollMs()) : null, format[0]);
+	}
+
+	/**
+	 * @return 当前是否处于静音门限关闭期间（数据既不写盘也不推送）
+	 */
+	public boolean isSilenceGated() {
+		SilenceGate gate = silenceGate;
+		return gate != null && gate.isGated();
+	}
+
+	/**
+	 * @return 累计因静音门限未写盘、未推送的字节数
+	 */
+	public long getSilenceSkippedBytes() {
+		SilenceGate gate = silenceGate;
+		return finishedSkippedBytes + (gate == null ? 0 : gate.getSkippedBytes());
+	}
+
+	@Override
+	public void pause() {
+		paused = true;
+	}
+
+	@Override
+	public void resume() {
+		paused = false;
+	}
+
+	@Override
+	public boolean isPaused() {
+		return paused;
+	}
 
 	@Override
 	public byte[] getRealtimeData() {
-		try {
-			return dataQueue.poll(500, TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-			return null;
-		}
+		byte[] chunk = new byte[REALTIME_CHUNK_SIZE];
+		int n = readRealtimeData(chunk, 0, chunk.length, 500);
+		return n == 0 ? null : Arrays.copyOf(chunk, n);
+	}
+
+	@Override
+	public int readRealtimeData(byte[] dst, int offset, int length, long timeoutMs) {
+		return dataBuffer.read(dst, offset, length, timeoutMs, TimeUnit.MILLISECONDS);
 	}
 
 	public void processData(byte[] data) {
-		if (data == null || data.length == 0)
+		if (data == null || data.length == 0 || paused)
 			return;
-		dataQueue.add(data);
+		if (isAudio && silenceGate != null) {
+			processData(ByteBuffer.wrap(data));
+			return;
+		}
+		BroadcastRing ring = broadcastRing;
+		if (ring != null) {
+			ring.publish(data, 0, data.length);
+		} else if (realtime) {
+			dataBuffer.offer(data, 0, data.length);
+		}
 		if (isAudio && mediaFile != null) {
 			mediaFile.writeData(data);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 处理直接内存中的采集数据，写文件与入队都不经过中间数组
+	 */
+	public void processData(ByteBuffer data) {
+		processData(data, System.nanoTime());
+	}
+
+	/**
+	 * @param captureNanos 数据首字节的采集时间（System.nanoTime 时钟），随数据进入广播缓冲区
+	 */
+	public void processData(ByteBuffer data, long captureNanos) {
+		if (data == null || !data.hasRemaining() || paused)
+			return;
+		SilenceGate gate = isAudio ? silenceGate : null;
+		if (gate != null) {
+			int state = gate.admit(data);
+			if (state == SilenceGate.HOLD) {
+				return;
+			}
+			if (state == SilenceGate.OPEN) {
+				// 先记录跳过区间，再补发预录数据，其采集时间按帧数从本块向前推算
+				if (mediaFile != null) {
+					mediaFile.markGap(gate.getGapPosition(), gate.getGapFrames());
+				}
+				ByteBuffer preRoll = gate.preRoll();
+				if (preRoll.hasRemaining()) {
+					int rate = sampleRate;
+					long preRollNanos = rate > 0 ? gate.getPreRollFrames() * 1_000_000_000L / rate : 0;
+					deliver(preRoll, captureNanos - preRollNanos);
+				}
+			}
+		}
+		deliver(data, captureNanos);
+	}
+
+	private void deliver(ByteBuffer data, long captureNanos) {
+		if (isAudio && mediaFile != null) {
+			int position = data.position();
+			mediaFile.writeData(data);
+			data.position(position);
+		}
+		BroadcastRing ring = broadcastRing;
+		if (ring != null) {
+			ring.publish(data, captureNanos);
+		} else if (realtime) {
+			dataBuffer.offer(data);
+		}
+	}
+}
@@ -1,13 +1,36 @@
 package com.web.media.recorder.media.processor;
 
+import java.nio.ByteBuffer;
+
 public interface MediaProcessor {
 	void start(boolean isAudio);
 
 	void stop();
 
+	/**
+	 * 暂停数据流：采集设备保持打开，暂停期间的数据既不写盘也不推送
+	 */
+	void pause();
+
+	/**
+	 * 恢复暂停的数据流，不重新打开设备
+	 */
+	void resume();
+
+	boolean isPaused();
+
 	byte[] getRealtimeData();
 
+	/**
+	 * 将实时数据读入调用方提供的数组，无数据时最多等待 timeoutMs 毫秒
+	 *
+	 * @return 实际读取的字节数，超时返回 0
+	 */
+	int readRealtimeData(byte[] dst, int offset, int length, long timeoutMs);
+
 	int[] getAudioParams();
 
 	 void processData(byte[] data);
+
+	 void processData(ByteBuffer data);
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.web.media.recorder.media.processor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 基于能量的静音门限，判断采集数据是否需要写盘和推送
+ * <p>
+ * 每块采集数据按全部声道的 RMS 电平判断：高于门限即为有声；连续静音超过保持时长（hangover）后关门，
+ * 此后的数据不再放行，只保留最近的预录（pre-roll）数据。再次出现有声数据时开门，先交出预录数据，
+ * 使语音起始处不被截掉，并给出本次跳过区间在已放行数据中的位置与长度（采样帧）。
+ * 只支持 16 位小端 PCM；只在采集线程上调用，{@link #isGated()} 可在其他线程读取。
+ */
+public class SilenceGate {
+	/** 放行 */
+	public static final int PASS = 0;
+	/** 静音期间，数据已转入预录缓冲区 */
+	public static final int HOLD = 1;
+	/** 本块数据使门重新打开，需先处理 {@link #preRoll()} 与跳过区间 */
+	public static final int OPEN = 2;
+
+	private final int blockAlign;
+	// 门限电平对应的每样本平均平方值（int16 刻度）
+	private final double threshold;
+	private final long hangoverFrames;
+	private final byte[] preRoll;
+	private final ByteBuffer preRollView;
+	private int preRollLength;
+
+	// 距最近一块有声数据的帧数
+	private long silentFrames;
+	private volatile boolean gated;
+	// 已放行的帧数，即录音中的帧位置
+	private long passedFrames;
+	// 当前跳过区间的起点与已跳过的帧数（含仍在预录缓冲区中的部分）
+	private long gapPosition;
+	private long gapFrames;
+	private volatile long skippedBytes;
+
+	/**
+	 * @param thresholdDb 有声门限，单位 dBFS（如 -50）
+	 * @param hangoverMs  静音持续多久后关门
+	 * @param preRollMs   开门时补发的关门期间最近数据的时长
+	 */
+	public SilenceGate(int sampleRate, int channels, double thresholdDb, long hangoverMs, long preRollMs) {
+		this.blockAlign = channels * 2;
+		double amplitude = 32768 * Math.pow(10, thresholdDb / 20);
+		this.threshold = amplitude * amplitude;
+		this.hangoverFrames = Math.max(0, hangoverMs) * sampleRate / 1000;
+		long preRollFrames = Math.max(0, preRollMs) * sampleRate / 1000;
+		this.preRoll = new byte[(int) Math.min(Integer.MAX_VALUE - blockAlign, preRollFrames * blockAlign)];
+		this.preRollView = ByteBuffer.wrap(preRoll);
+	}
+
+	/**
+	 * 判断一块采集数据，不改变其位置
+	 *
+	 * @return {@link #PASS}、{@link #HOLD} 或 {@link #OPEN}
+	 */
+	public int admit(ByteBuffer data) {
+		int length = data.remaining();
+		long frames = length / blockAlign;
+		if (isVoiced(data)) {
+			silentFrames = 0;
+			if (gated) {
+				gated = false;
+				long preRollFrames = preRollLength / blockAlign;
+				gapFrames -= preRollFrames;
+				skippedBytes -= preRollLength;
+				passedFrames += preRollFrames + frames;
+				return OPEN;
+			}
+			passedFrames += frames;
+			return PASS;
+		}
+		silentFrames += frames;
+		if (!gated && silentFrames <= hangoverFrames) {
+			passedFrames += frames;
+			return PASS;
+		}
+		if (!gated) {
+			gated = true;
+			gapPosition = passedFrames;
+			gapFrames = 0;
+			preRollLength = 0;
+		}
+		hold(data);
+		gapFrames += frames;
+		skippedBytes += length;
+		return HOLD;
+	}
+
+	private boolean isVoiced(ByteBuffer data) {
+		int start = data.position();
+		int end = data.limit() - 1;
+		int samples = 0;
+		double sum = 0;
+		for (int i = start; i < end; i += 2) {
+			int sample = (data.get(i) & 0xff) | (data.get(i + 1) << 8);
+			sum += (double) sample * sample;
+			samples++;
+		}
+		return samples > 0 && sum >= threshold * samples;
+	}
+
+	// 只保留最近 preRoll.length 字节，按帧对齐
+	private void hold(ByteBuffer data) {
+		int capacity = preRoll.length;
+		if (capacity == 0) {
+			return;
+		}
+		int length = data.remaining() - data.remaining() % blockAlign;
+		int position = data.position();
+		if (length >= capacity) {
+			copy(data, position + length - capacity, 0, capacity);
+			preRollLength = capacity;
+			return;
+		}
+		int overflow = preRollLength + length - capacity;
+		if (overflow > 0) {
+			System.arraycopy(preRoll, overflow, preRoll, 0, preRollLength - overflow);
+			preRollLength -= overflow;
+		}
+		copy(data, position, preRollLength, length);
+		preRollLength += length;
+	}
+
+	// 临时调整位置做批量复制，完成后恢复，避免每块数据创建视图
+	private void copy(ByteBuffer data, int from, int to, int length) {
+		int position = data.position();
+		int limit = data.limit();
+		data.limit(from + length).position(from);
+		data.get(preRoll, to, length);
+		data.limit(limit).position(position);
+	}
+
+	/**
+	 * 开门时补发的预录数据，在下一次 {@link #admit(ByteBuffer)} 前有效
+	 */
+	public ByteBuffer preRoll() {
+		preRollView.limit(preRollLength).position(0);
+		return preRollView;
+	}
+
+	/**
+	 * @return 预录数据的帧数，用于推算其采集时间
+	 */
+	public long getPreRollFrames() {
+		return preRollLength / blockAlign;
+	}
+
+	/**
+	 * @return 最近一次跳过区间在录音中的起始帧
+	 */
+	public long getGapPosition() {
+		return gapPosition;
+	}
+
+	/**
+	 * @return 最近一次跳过区间的帧数，不含补发的预录数据
+	 */
+	public long getGapFrames() {
+		return gapFrames;
+	}
+
+	public boolean isGated() {
+		return gated;
+	}
+
+	/**
+	 * @return 累计未写盘、未推送的字节数，开门时补发的预录数据不计入
+	 */
+	public long getSkippedBytes() {
+		return skippedBytes;
+	}
+}
@@ -0,0 +1,268 @@
+package com.web.media.recorder.media.processor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 单生产者字节环形缓冲区，采集线程写入、推流线程读取，不加锁也不为每块数据创建对象
+ * <p>
+ * 读写位置为单调递增的 long，下标取低位。读取方读完后以 CAS 提交读位置，
+ * 若期间生产者按 {@link OverflowPolicy#DROP_OLDEST} 丢弃了旧数据则提交失败并重读，因此多个读取方同时读取也是安全的。
+ * 等待时先自旋再 park，由另一方在发布位置后唤醒。
+ */
+public class SpscByteRingBuffer {
+	/**
+	 * 缓冲区满时的处理策略
+	 */
+	public enum OverflowPolicy {
+		// 丢弃最旧的数据，保证实时性
+		DROP_OLDEST,
+		// 丢弃本次写入的数据
+		DROP_NEWEST,
+		// 阻塞生产者直到有空间，超过 BLOCK_TIMEOUT_MS 后丢弃本次写入，避免采集线程被无人读取的缓冲区永久挂起
+		BLOCK
+	}
+
+	public static final long BLOCK_TIMEOUT_MS = 100;
+	private static final int SPIN_TRIES = 200;
+
+	private final byte[] buffer;
+	private final int capacity;
+	private final int mask;
+	private final OverflowPolicy policy;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong overrunCount = new AtomicLong();
+	private final AtomicLong droppedBytes = new AtomicLong();
+	private volatile Thread waitingConsumer;
+	private volatile Thread waitingProducer;
+
+	/**
+	 * @param capacity 容量（字节），向上取整为 2 的幂
+	 */
+	public SpscByteRingBuffer(int capacity, OverflowPolicy policy) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("缓冲区容量无效: " + capacity);
+		}
+		this.capacity = roundUpToPowerOfTwo(capacity);
+		this.mask = this.capacity - 1;
+		this.buffer = new byte[this.capacity];
+		this.policy = policy;
+	}
+
+	/**
+	 * 写入数据，仅限生产者线程调用
+	 *
+	 * @return 是否写入；被策略丢弃时返回 false
+	 */
+	public boolean offer(byte[] src, int offset, int length) {
+		if (length <= 0) {
+			return true;
+		}
+		if (!reserve(length)) {
+			return false;
+		}
+		long t = tail.get();
+		int index = (int) (t & mask);
+		int first = Math.min(length, capacity - index);
+		System.arraycopy(src, offset, buffer, index, first);
+		System.arraycopy(src, offset + first, buffer, 0, length - first);
+		publish(t + length);
+		return true;
+	}
+
+	/**
+	 * 写入缓冲区中剩余的数据，写入成功时消耗其全部剩余字节
+	 */
+	public boolean offer(ByteBuffer src) {
+		int length = src.remaining();
+		if (length <= 0) {
+			return true;
+		}
+		if (!reserve(length)) {
+			return false;
+		}
+		long t = tail.get();
+		int index = (int) (t & mask);
+		int first = Math.min(length, capacity - index);
+		src.get(buffer, index, first);
+		src.get(buffer, 0, length - first);
+		publish(t + length);
+		return true;
+	}
+
+	/**
+	 * 读取数据，无数据时最多等待指定时间
+	 *
+	 * @return 实际读取的字节数，超时返回 0
+	 */
+	public int read(byte[] dst, int offset, int length, long timeout, TimeUnit unit) {
+		long timeoutNanos = unit.toNanos(timeout);
+		long deadline = 0;
+		int spins = 0;
+		while (true) {
+			long r = head.get();
+			long w = tail.get();
+			int available = (int) Math.min(w - r, capacity);
+			if (available > 0) {
+				int n = Math.min(available, length);
+				int index = (int) (r & mask);
+				int first = Math.min(n, capacity - index);
+				System.arraycopy(buffer, index, dst, offset, first);
+				System.arraycopy(buffer, 0, dst, offset + first, n - first);
+				if (head.compareAndSet(r, r + n)) {
+					Thread producer = waitingProducer;
+					if (producer != null) {
+						LockSupport.unpark(producer);
+					}
+					return n;
+				}
+				// 读取期间旧数据被覆盖，重新读取
+				continue;
+			}
+			if (timeoutNanos <= 0) {
+				return 0;
+			}
+			if (spins < SPIN_TRIES) {
+				spins++;
+				Thread.onSpinWait();
+				continue;
+			}
+			if (deadline == 0) {
+				deadline = System.nanoTime() + timeoutNanos;
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return 0;
+			}
+			waitingConsumer = Thread.currentThread();
+			if (tail.get() == w) {
+				LockSupport.parkNanos(this, remaining);
+			}
+			waitingConsumer = null;
+			if (Thread.currentThread().isInterrupted()) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * 丢弃所有未读数据
+	 */
+	public void clear() {
+		long r;
+		do {
+			r = head.get();
+		} while (!head.compareAndSet(r, Math.max(r, tail.get())));
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return 当前未读字节数
+	 */
+	public int size() {
+		return (int) Math.min(tail.get() - head.get(), capacity);
+	}
+
+	/**
+	 * @return 因缓冲区满而丢弃数据的次数
+	 */
+	public long getOverrunCount() {
+		return overrunCount.get();
+	}
+
+	/**
+	 * @return 因缓冲区满而丢弃的字节数
+	 */
+	public long getDroppedBytes() {
+		return droppedBytes.get();
+	}
+
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	private boolean reserve(int length) {
+		if (length > capacity) {
+			overrunCount.incrementAndGet();
+			droppedBytes.addAndGet(length);
+			return false;
+		}
+		long t = tail.get();
+		switch (policy) {
+		case DROP_OLDEST:
+			while (true) {
+				long r = head.get();
+				long need = length - (capacity - (t - r));
+				if (need <= 0) {
+					return true;
+				}
+				if (head.compareAndSet(r, r + need)) {
+					overrunCount.incrementAndGet();
+					droppedBytes.addAndGet(need);
+					return true;
+				}
+			}
+		case BLOCK:
+			if (awaitSpace(t, length)) {
+				return true;
+			}
+			overrunCount.incrementAndGet();
+			droppedBytes.addAndGet(length);
+			return false;
+		case DROP_NEWEST:
+		default:
+			if (capacity - (t - head.get()) >= length) {
+				return true;
+			}
+			overrunCount.incrementAndGet();
+			droppedBytes.addAndGet(length);
+			return false;
+		}
+	}
+
+	private boolean awaitSpace(long t, int length) {
+		long deadline = 0;
+		int spins = 0;
+		while (true) {
+			long r = head.get();
+			if (capacity - (t - r) >= length) {
+				return true;
+			}
+			if (spins < SPIN_TRIES) {
+				spins++;
+				Thread.onSpinWait();
+				continue;
+			}
+			if (deadline == 0) {
+				deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BLOCK_TIMEOUT_MS);
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			waitingProducer = Thread.currentThread();
+			if (head.get() == r) {
+				LockSupport.parkNanos(this, remaining);
+			}
+			waitingProducer = null;
+		}
+	}
+
+	private void publish(long newTail) {
+		tail.set(newTail);
+		Thread consumer = waitingConsumer;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	private static int roundUpToPowerOfTwo(int value) {
+		return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+	}
+}
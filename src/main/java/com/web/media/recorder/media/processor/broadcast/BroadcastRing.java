@@ -0,0 +1,365 @@
+package com.web.media.recorder.media.processor.broadcast;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 一写多读的字节环形缓冲区
+ * <p>
+ * 生产者只管顺序写入、从不等待读取方；每个订阅者持有独立的读位置。
+ * 生产者写入前先发布 claim（将写到的位置），并以 store-store 屏障保证 claim 先于数据可见；
+ * 读取方复制数据后检查 claim，若所读区间已被覆盖或落后超过 maxLag，则判定为慢消费者并将其剔除。
+ * <p>
+ * 每次写入同时在时间戳环中记下该段的起点、采集时间与到达时间，
+ * 订阅者读取后可查询所读首字节的时间戳，用于统计各阶段延迟。
+ */
+public class BroadcastRing {
+	private static final int SPIN_TRIES = 200;
+	// 时间戳环的槽位数，订阅者落后超过这么多次写入后查不到时间戳
+	private static final int MARK_SLOTS = 1024;
+	private static final int MARK_MASK = MARK_SLOTS - 1;
+
+	private final byte[] buffer;
+	private final int capacity;
+	private final int mask;
+	private final long maxLag;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final AtomicLong evictedCount = new AtomicLong();
+	// 生产者正在写入的区间终点
+	private volatile long claim;
+	// 已发布的写位置
+	private volatile long tail;
+	// 每次写入的起点、采集时间与写入时间（System.nanoTime），按写入序号取模存放
+	private final long[] markStart = new long[MARK_SLOTS];
+	private final long[] markCapture = new long[MARK_SLOTS];
+	private final long[] markArrival = new long[MARK_SLOTS];
+	// 槽位当前保存的时间戳序号，改写期间为 -1，读取前后各检查一次以发现被改写的槽位
+	private final long[] markSlotSeq = new long[MARK_SLOTS];
+	// 已记录的时间戳数，先于 tail 发布
+	private volatile long markSeq;
+
+	/**
+	 * @param capacity 容量（字节），向上取整为 2 的幂
+	 * @param maxLag   允许订阅者落后的最大字节数，超过即剔除
+	 */
+	public BroadcastRing(int capacity, long maxLag) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("缓冲区容量无效: " + capacity);
+		}
+		Arrays.fill(markSlotSeq, -1);
+		this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = this.capacity - 1;
+		this.buffer = new byte[this.capacity];
+		this.maxLag = Math.min(maxLag, this.capacity);
+	}
+
+	/**
+	 * 写入数据，仅限单个生产者线程调用；超过容量时只保留末尾部分
+	 */
+	public void publish(byte[] src, int offset, int length) {
+		publish(src, offset, length, System.nanoTime());
+	}
+
+	/**
+	 * @param captureNanos 数据首字节的采集时间（System.nanoTime 时钟）
+	 */
+	public void publish(byte[] src, int offset, int length, long captureNanos) {
+		if (length <= 0) {
+			return;
+		}
+		if (length > capacity) {
+			offset += length - capacity;
+			length = capacity;
+		}
+		long t = tail;
+		claim = t + length;
+		// volatile 写不阻止之后的普通写提前可见，读取方看到新数据时必须也能看到新的 claim
+		VarHandle.storeStoreFence();
+		int index = (int) (t & mask);
+		int first = Math.min(length, capacity - index);
+		System.arraycopy(src, offset, buffer, index, first);
+		System.arraycopy(src, offset + first, buffer, 0, length - first);
+		mark(t, captureNanos);
+		tail = t + length;
+		wakeSubscribers();
+	}
+
+	/**
+	 * 写入缓冲区中剩余的数据并消耗之
+	 */
+	public void publish(ByteBuffer src) {
+		publish(src, System.nanoTime());
+	}
+
+	/**
+	 * @param captureNanos 数据首字节的采集时间（System.nanoTime 时钟）
+	 */
+	public void publish(ByteBuffer src, long captureNanos) {
+		int length = src.remaining();
+		if (length <= 0) {
+			return;
+		}
+		if (length > capacity) {
+			src.position(src.position() + length - capacity);
+			length = capacity;
+		}
+		long t = tail;
+		claim = t + length;
+		// volatile 写不阻止之后的普通写提前可见，读取方看到新数据时必须也能看到新的 claim
+		VarHandle.storeStoreFence();
+		int index = (int) (t & mask);
+		int first = Math.min(length, capacity - index);
+		src.get(buffer, index, first);
+		src.get(buffer, 0, length - first);
+		mark(t, captureNanos);
+		tail = t + length;
+		wakeSubscribers();
+	}
+
+	// 时间戳须在 tail 之前发布，读到数据的订阅者一定能看到对应的时间戳
+	private void mark(long start, long captureNanos) {
+		long seq = markSeq;
+		int slot = (int) (seq & MARK_MASK);
+		markSlotSeq[slot] = -1;
+		VarHandle.storeStoreFence();
+		markStart[slot] = start;
+		markCapture[slot] = captureNanos;
+		markArrival[slot] = System.nanoTime();
+		VarHandle.storeStoreFence();
+		markSlotSeq[slot] = seq;
+		markSeq = seq + 1;
+	}
+
+	/**
+	 * 新订阅者从当前写位置开始读取
+	 */
+	public Subscription subscribe() {
+		Subscription subscription = new Subscription(tail, Math.max(0, markSeq - 1));
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return 已写入的总字节数
+	 */
+	public long getPublishedBytes() {
+		return tail;
+	}
+
+	/**
+	 * @return 各订阅者中落后最多的字节数
+	 */
+	public long getMaxLag() {
+		long max = 0;
+		for (Subscription subscription : subscriptions) {
+			max = Math.max(max, subscription.getLag());
+		}
+		return max;
+	}
+
+	/**
+	 * @return 因落后过多被剔除的订阅者数（累计）
+	 */
+	public long getEvictedCount() {
+		return evictedCount.get();
+	}
+
+	private void wakeSubscribers() {
+		for (Subscription subscription : subscriptions) {
+			Thread waiter = subscription.waiter;
+			if (waiter != null) {
+				LockSupport.unpark(waiter);
+			}
+			subscription.fireDataListener();
+		}
+	}
+
+	/**
+	 * 订阅者的读位置，只能由一个线程读取
+	 */
+	public final class Subscription {
+		private volatile long cursor;
+		private volatile boolean closed;
+		private volatile boolean evicted;
+		private volatile Thread waiter;
+		// 不阻塞读取的订阅者登记的一次性回调，有新数据或关闭时调用
+		private final AtomicReference<Runnable> dataListener = new AtomicReference<>();
+		// 最近一次查到的时间戳序号，只随读取向前推进
+		private long markCursor;
+		private long lastCaptureNanos;
+		private long lastArrivalNanos;
+
+		private Subscription(long cursor, long markCursor) {
+			this.cursor = cursor;
+			this.markCursor = markCursor;
+		}
+
+		/**
+		 * 读取数据，无数据时最多等待指定时间
+		 *
+		 * @return 读取的字节数；超时返回 0；已关闭或因落后过多被剔除返回 -1
+		 */
+		public int read(byte[] dst, int offset, int length, long timeout, TimeUnit unit) {
+			long timeoutNanos = unit.toNanos(timeout);
+			long deadline = 0;
+			int spins = 0;
+			while (!closed) {
+				long c = cursor;
+				long t = tail;
+				if (t - c > maxLag) {
+					evict();
+					return -1;
+				}
+				if (t > c) {
+					int n = (int) Math.min(t - c, length);
+					int index = (int) (c & mask);
+					int first = Math.min(n, capacity - index);
+					System.arraycopy(buffer, index, dst, offset, first);
+					System.arraycopy(buffer, 0, dst, offset + first, n - first);
+					// 复制期间生产者可能已覆盖这段数据，屏障保证先完成复制再检查 claim
+					VarHandle.acquireFence();
+					if (claim - c > capacity) {
+						evict();
+						return -1;
+					}
+					cursor = c + n;
+					locateMark(c);
+					return n;
+				}
+				if (timeoutNanos <= 0) {
+					return 0;
+				}
+				if (spins < SPIN_TRIES) {
+					spins++;
+					Thread.onSpinWait();
+					continue;
+				}
+				if (deadline == 0) {
+					deadline = System.nanoTime() + timeoutNanos;
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return 0;
+				}
+				waiter = Thread.currentThread();
+				if (tail == t && !closed) {
+					LockSupport.parkNanos(this, remaining);
+				}
+				waiter = null;
+				if (Thread.currentThread().isInterrupted()) {
+					return 0;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @return 最近一次读取的首字节的采集时间（System.nanoTime 时钟），未知时为 0
+		 */
+		public long getLastCaptureNanos() {
+			return lastCaptureNanos;
+		}
+
+		/**
+		 * @return 最近一次读取的首字节写入缓冲区的时间，未知时为 0
+		 */
+		public long getLastArrivalNanos() {
+			return lastArrivalNanos;
+		}
+
+		// 找到起点不超过 position 的最后一次写入；时间戳已被覆盖时记为未知
+		private void locateMark(long position) {
+			long seq = markSeq;
+			long m = Math.max(markCursor, seq - MARK_SLOTS + 1);
+			while (m + 1 < seq && markStart[(int) ((m + 1) & MARK_MASK)] <= position) {
+				m++;
+			}
+			int slot = (int) (m & MARK_MASK);
+			long before = markSlotSeq[slot];
+			VarHandle.acquireFence();
+			long start = markStart[slot];
+			long capture = markCapture[slot];
+			long arrival = markArrival[slot];
+			VarHandle.acquireFence();
+			// 序号为 m + MARK_SLOTS 的写入改写槽位期间 markSeq 仍等于它，相等时同样视为已被覆盖
+			if (m >= seq || before != m || markSlotSeq[slot] != m || start > position
+					|| markSeq - m >= MARK_SLOTS) {
+				lastCaptureNanos = 0;
+				lastArrivalNanos = 0;
+				return;
+			}
+			markCursor = m;
+			lastCaptureNanos = capture;
+			lastArrivalNanos = arrival;
+		}
+
+		/**
+		 * 登记一次性回调，有可读数据或订阅关闭时调用一次，供不阻塞等待的订阅者由生产者驱动。
+		 * 回调在生产者线程上执行，只应提交任务，不能做耗时操作；登记时已有数据则立即在当前线程调用
+		 */
+		public void onData(Runnable listener) {
+			dataListener.set(listener);
+			if (tail != cursor || closed) {
+				fireDataListener();
+			}
+		}
+
+		private void fireDataListener() {
+			if (dataListener.get() == null) {
+				return;
+			}
+			Runnable listener = dataListener.getAndSet(null);
+			if (listener != null) {
+				listener.run();
+			}
+		}
+
+		/**
+		 * @return 落后于写位置的字节数
+		 */
+		public long getLag() {
+			return Math.max(0, tail - cursor);
+		}
+
+		public boolean isEvicted() {
+			return evicted;
+		}
+
+		public boolean isClosed() {
+			return closed;
+		}
+
+		public void close() {
+			closed = true;
+			subscriptions.remove(this);
+			Thread w = waiter;
+			if (w != null) {
+				LockSupport.unpark(w);
+			}
+			fireDataListener();
+		}
+
+		private void evict() {
+			if (!evicted) {
+				evictedCount.incrementAndGet();
+			}
+			evicted = true;
+			close();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.web.media.recorder.media.processor.broadcast;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.config.CaptureProcessorConfig;
+import com.web.media.recorder.config.MediaConfig;
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.broadcast.BroadcastRing.Subscription;
+
+/**
+ * 一路采集、多路监听：第一个订阅者到来时启动采集，最后一个离开时停止
+ */
+@Component
+public class CaptureBroadcaster {
+	private static final Logger logger = LoggerFactory.getLogger(CaptureBroadcaster.class);
+
+	private final AbstractMediaProcessor captureProcessor;
+	private final BroadcastRing ring;
+	private final Set<Subscription> subscriptions = new HashSet<>();
+
+	@Autowired
+	public CaptureBroadcaster(@Qualifier(CaptureProcessorConfig.CAPTURE_PROCESSOR) AbstractMediaProcessor captureProcessor,
+			MediaConfig mediaConfig) {
+		this.captureProcessor = captureProcessor;
+		this.ring = new BroadcastRing(mediaConfig.getBroadcastBufferSize(), mediaConfig.getBroadcastMaxLag());
+	}
+
+	public Subscription subscribe(boolean isAudio) {
+		return subscribe(isAudio, null);
+	}
+
+	/**
+	 * @param codec 录音存储格式，仅由启动采集的首个订阅者决定，为 null 时使用配置的默认格式
+	 */
+	public synchronized Subscription subscribe(boolean isAudio, AudioCodec codec) {
+		Subscription subscription = ring.subscribe();
+		if (subscriptions.isEmpty()) {
+			captureProcessor.setBroadcastRing(ring);
+			captureProcessor.setAudioCodec(codec);
+			try {
+				captureProcessor.start(isAudio);
+			} catch (RuntimeException e) {
+				subscription.close();
+				captureProcessor.setBroadcastRing(null);
+				throw e;
+			}
+			logger.info("首个订阅者加入，启动采集");
+		}
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	public synchronized void unsubscribe(Subscription subscription) {
+		if (subscription == null || !subscriptions.remove(subscription)) {
+			return;
+		}
+		subscription.close();
+		if (subscriptions.isEmpty()) {
+			logger.info("最后一个订阅者离开，停止采集");
+			captureProcessor.stop();
+			captureProcessor.setBroadcastRing(null);
+		}
+	}
+
+	public synchronized int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	public BroadcastRing getRing() {
+		return ring;
+	}
+}
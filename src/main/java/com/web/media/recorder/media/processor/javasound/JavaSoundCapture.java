@@ -0,0 +1,109 @@
+package com.web.media.recorder.media.processor.javasound;
+
+import java.nio.ByteBuffer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+
+/**
+ * 基于 Java Sound 的 PCM 采集：从系统默认采集设备读取 16 位小端数据，交给处理器的 processData 写盘与推送
+ * <p>
+ * 不依赖本地库，本地库不可用时作为 JNI 采集的回退，也是 {@link JavaSoundMediaProcessor} 的采集实现。
+ */
+public final class JavaSoundCapture implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(JavaSoundCapture.class);
+	private static final int CHUNK_MILLIS = 20;
+	private static final int BUFFER_MILLIS = 200;
+	private static final long JOIN_TIMEOUT_MS = 1000;
+
+	private final TargetDataLine line;
+	private final AbstractMediaProcessor target;
+	private final int sampleRate;
+	private final int frameBytes;
+	private final int chunkBytes;
+	private volatile boolean running;
+	private Thread thread;
+
+	private JavaSoundCapture(TargetDataLine line, AudioFormat format, AbstractMediaProcessor target) {
+		this.line = line;
+		this.target = target;
+		this.sampleRate = (int) format.getSampleRate();
+		this.frameBytes = format.getFrameSize();
+		this.chunkBytes = Math.max(1, sampleRate * CHUNK_MILLIS / 1000) * frameBytes;
+	}
+
+	/**
+	 * 以指定格式打开系统默认采集设备
+	 *
+	 * @throws IllegalStateException 没有采集设备或设备不支持该格式
+	 */
+	public static JavaSoundCapture open(int sampleRate, int channels, AbstractMediaProcessor target) {
+		AudioFormat format = new AudioFormat(sampleRate, 16, channels, true, false);
+		try {
+			TargetDataLine line = AudioSystem.getTargetDataLine(format);
+			line.open(format, Math.max(1, sampleRate * BUFFER_MILLIS / 1000) * format.getFrameSize());
+			return new JavaSoundCapture(line, format, target);
+		} catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+			throw new IllegalStateException("没有可用的 Java Sound 采集设备: " + e.getMessage(), e);
+		}
+	}
+
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		line.start();
+		thread = new Thread(this::captureLoop, "javasound-capture");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void captureLoop() {
+		byte[] chunk = new byte[chunkBytes];
+		ByteBuffer buffer = ByteBuffer.wrap(chunk);
+		while (running) {
+			int n = line.read(chunk, 0, chunk.length);
+			if (n <= 0) {
+				if (!line.isOpen()) {
+					break;
+				}
+				continue;
+			}
+			// read 在整块读满时返回，往前推整块时长得到首帧的采集时间
+			long captureNanos = System.nanoTime() - (long) (n / frameBytes) * 1_000_000_000L / sampleRate;
+			buffer.clear();
+			buffer.limit(n);
+			target.processData(buffer, captureNanos);
+		}
+	}
+
+	/**
+	 * 停止采集并关闭设备，返回后不再调用 processData
+	 */
+	@Override
+	public synchronized void close() {
+		running = false;
+		line.stop();
+		line.close();
+		Thread t = thread;
+		thread = null;
+		if (t != null) {
+			try {
+				t.join(JOIN_TIMEOUT_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (t.isAlive()) {
+				logger.warn("Java Sound 采集线程未能及时退出");
+			}
+		}
+	}
+}
@@ -4,6 +4,8 @@ import com.web.media.recorder.media.file.AudioFile;
 import com.web.media.recorder.media.processor.AbstractMediaProcessor;
 
 public class JavaSoundMediaProcessor extends AbstractMediaProcessor {
+    private volatile JavaSoundCapture capture;
+
     @Override
     public void start(boolean isAudio) {
         if (!isAudio) throw new UnsupportedOperationException("仅支持音频处理");
@@ -13,12 +15,14 @@ public class JavaSoundMediaProcessor extends AbstractMediaProcessor {
         int[] params = getAudioParams();
         mediaFile = new AudioFile("/opt/home/sky/Music", params[0], params[1], params[2]);
         // 开始捕获音频流
-        new Thread(this::captureAudio).start();
-    }
-
-    private void captureAudio() {
-        // 使用 Java Sound API 捕获音频流并写入队列
-        // 示例代码略...
+        try {
+            capture = JavaSoundCapture.open(params[0], params[1], this);
+        } catch (IllegalStateException e) {
+            isRunning.set(false);
+            mediaFile.close();
+            throw e;
+        }
+        capture.start();
     }
 
     @Override
@@ -31,7 +35,12 @@ public class JavaSoundMediaProcessor extends AbstractMediaProcessor {
     public void stop() {
         isRunning.set(false);
         // 停止音频捕获
-        dataQueue.clear();
+        JavaSoundCapture c = capture;
+        if (c != null) {
+            capture = null;
+            c.close();
+        }
+        dataBuffer.clear();
         if (mediaFile != null) {
             mediaFile.close();
         }
@@ -39,8 +48,8 @@ public class JavaSoundMediaProcessor extends AbstractMediaProcessor {
 
     @Override
     public void processData(byte[] data) {
-        if (data == null || data.length == 0) return;
-        dataQueue.add(data);
+        if (data == null || data.length == 0 || paused) return;
+        dataBuffer.offer(data, 0, data.length);
         if (isAudio && mediaFile != null) {
             mediaFile.writeData(data);
         }
@@ -0,0 +1,88 @@
+package com.web.media.recorder.media.processor.jni;
+
+/**
+ * 本地库枚举到的 ALSA 采集设备及其采集状态
+ */
+public class CaptureDevice {
+	private final String id;
+	private final String name;
+	private final boolean running;
+	private final boolean paused;
+	private final int sampleRate;
+	private final int channels;
+	private final String recording;
+	private final long periodFrames;
+	private final long bufferFrames;
+
+	public CaptureDevice(String id, String name) {
+		this(id, name, null);
+	}
+
+	CaptureDevice(String id, String name, NativeDeviceCapture capture) {
+		this.id = id;
+		this.name = name;
+		this.running = capture != null;
+		this.paused = capture != null && capture.isPaused();
+		int[] params = capture == null ? null : capture.getAudioParams();
+		this.sampleRate = params == null ? 0 : params[0];
+		this.channels = params == null ? 0 : params[1];
+		this.recording = capture == null ? null : capture.getRecordingPath();
+		long[] stats = capture == null ? null : capture.getCaptureStats();
+		this.periodFrames = stats != null && stats.length >= 6 ? stats[3] : 0;
+		this.bufferFrames = stats != null && stats.length >= 6 ? stats[4] : 0;
+	}
+
+	/**
+	 * @return 设备名，如 hw:1,0，用于启动与停止采集
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return 声卡与 PCM 设备的描述
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * @return 采集中且数据流已暂停（设备保持打开）
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * @return 采集中时为与设备协商到的采样率，否则为 0
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	/**
+	 * @return 采集中时为当前录音文件路径，否则为 null
+	 */
+	public String getRecording() {
+		return recording;
+	}
+
+	/**
+	 * @return 采集中时为与设备协商到的 ALSA 周期帧数，否则为 0
+	 */
+	public long getPeriodFrames() {
+		return periodFrames;
+	}
+
+	public long getBufferFrames() {
+		return bufferFrames;
+	}
+}
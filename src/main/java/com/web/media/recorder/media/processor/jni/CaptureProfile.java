@@ -0,0 +1,90 @@
+package com.web.media.recorder.media.processor.jni;
+
+/**
+ * ALSA 采集参数档位：周期与缓冲区大小、每次回调的数据量，以及采集循环的等待超时与重试间隔
+ * <p>
+ * 周期决定采集线程的唤醒间隔和首批数据的延迟，缓冲区决定能容忍多长的调度停顿而不 xrun。
+ * 实际大小以设备协商结果为准，见 {@link NativeProcessor#getCaptureGeometry()}。
+ */
+public enum CaptureProfile {
+	// 与此前硬编码的参数一致：周期由驱动决定，缓冲区 8192 帧，每次最多回调 2048 帧
+	DEFAULT(0, 8192, 2048, 1024, 1000, 2000),
+	// 小周期小缓冲区，设备延迟与开始录音到首批数据最短，对调度抖动敏感，宜配合实时优先级
+	LOW_LATENCY(256, 768, 256, 1024, 50, 500),
+	// 大周期大缓冲区，唤醒与回调次数最少，能容忍较长的 GC 或调度停顿
+	THROUGHPUT(4096, 16384, 8192, 32768, 1000, 5000);
+
+	private final int periodFrames;
+	private final int bufferFrames;
+	private final int chunkFrames;
+	private final int callbackBytes;
+	private final int waitMs;
+	private final int retryMicros;
+
+	CaptureProfile(int periodFrames, int bufferFrames, int chunkFrames, int callbackBytes, int waitMs,
+			int retryMicros) {
+		this.periodFrames = periodFrames;
+		this.bufferFrames = bufferFrames;
+		this.chunkFrames = chunkFrames;
+		this.callbackBytes = callbackBytes;
+		this.waitMs = waitMs;
+		this.retryMicros = retryMicros;
+	}
+
+	/**
+	 * @return 周期帧数，0 表示由驱动决定
+	 */
+	public int getPeriodFrames() {
+		return periodFrames;
+	}
+
+	public int getBufferFrames() {
+		return bufferFrames;
+	}
+
+	/**
+	 * @return 每次从设备读取并回调的最大帧数
+	 */
+	public int getChunkFrames() {
+		return chunkFrames;
+	}
+
+	/**
+	 * @return 字节数组回调模式下每次推送的字节数
+	 */
+	public int getCallbackBytes() {
+		return callbackBytes;
+	}
+
+	public int getWaitMs() {
+		return waitMs;
+	}
+
+	public int getRetryMicros() {
+		return retryMicros;
+	}
+
+	/**
+	 * @return 指标标签与日志中使用的名称，如 low-latency
+	 */
+	public String getLabel() {
+		return name().toLowerCase().replace('_', '-');
+	}
+
+	/**
+	 * 转为本地库的参数数组，周期与缓冲区帧数大于 0 时覆盖档位的值
+	 *
+	 * @param realtimePriority 采集线程的 SCHED_FIFO 优先级，0 表示不启用
+	 * @param cpu              采集线程绑定的 CPU，负数表示不绑定
+	 */
+	int[] toNative(int periodFrames, int bufferFrames, int realtimePriority, int cpu) {
+		int period = periodFrames > 0 ? periodFrames : this.periodFrames;
+		int buffer = bufferFrames > 0 ? bufferFrames : this.bufferFrames;
+		// 缓冲区至少容纳两个周期，否则每个周期都可能 xrun
+		if (period > 0 && buffer < period * 2) {
+			buffer = period * 2;
+		}
+		return new int[] { period, buffer, chunkFrames, callbackBytes, waitMs, retryMicros,
+				Math.max(0, realtimePriority), cpu };
+	}
+}
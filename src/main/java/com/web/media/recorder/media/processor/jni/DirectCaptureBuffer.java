@@ -0,0 +1,42 @@
+package com.web.media.recorder.media.processor.jni;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 与本地层共享的采集环形缓冲区（直接内存）
+ * <p>
+ * 本地采集线程按顺序循环写入，每写完一段通过 {@link com.web.media.recorder.media.callback.DirectDataCallback}
+ * 通知偏移与长度。区间内容只在回调期间有效，回调返回后可能被覆盖。
+ */
+public class DirectCaptureBuffer {
+	public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+	private final ByteBuffer buffer;
+	// 采集线程专用的读取视图，复用以避免每次回调分配对象
+	private final ByteBuffer view;
+
+	public DirectCaptureBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public DirectCaptureBuffer(int capacity) {
+		this.buffer = ByteBuffer.allocateDirect(capacity);
+		this.view = buffer.duplicate();
+	}
+
+	/**
+	 * @return 交给本地层的整块缓冲区
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * 返回指定区间的视图，仅限采集线程在回调内使用
+	 */
+	public ByteBuffer region(int offset, int length) {
+		view.limit(offset + length);
+		view.position(offset);
+		return view;
+	}
+}
@@ -0,0 +1,172 @@
+package com.web.media.recorder.media.processor.jni;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.web.media.recorder.config.MediaConfig;
+import com.web.media.recorder.media.callback.DirectDataCallback;
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.encoder.AudioEncoderPool;
+import com.web.media.recorder.media.file.MediaFile;
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.metrics.MediaMetrics;
+
+/**
+ * 单个 ALSA 设备的采集与录音
+ * <p>
+ * 每路采集在本地层持有独立的上下文（句柄）、设备与采集线程，各自写入自己的共享缓冲区与录音文件，
+ * 多个设备可在同一进程中并行采集。由 {@link NativeProcessor#startDevice} 创建和管理。
+ */
+public class NativeDeviceCapture extends AbstractMediaProcessor {
+	private static final Logger logger = LoggerFactory.getLogger(NativeDeviceCapture.class);
+	public static final int DEFAULT_SAMPLE_RATE = 44100;
+	public static final int DEFAULT_CHANNELS = 2;
+
+	private final NativeProcessor nativeProcessor;
+	private final MediaConfig mediaConfig;
+	private final AudioEncoderPool encoderPool;
+	private final MediaMetrics metrics;
+	private final String device;
+	private final int requestedRate;
+	private final int requestedChannels;
+	private final DirectCaptureBuffer captureBuffer = new DirectCaptureBuffer();
+	// 本地上下文指针，0 表示未在采集
+	private volatile long handle;
+	// 与设备实际协商到的 {采样率, 声道数, 位深}
+	private volatile int[] format;
+
+	NativeDeviceCapture(NativeProcessor nativeProcessor, MediaConfig mediaConfig, AudioEncoderPool encoderPool,
+			MediaMetrics metrics, String device, int sampleRate, int channels) {
+		// 各设备只录音，没有实时读取方；不设实时缓冲区，BLOCK 策略下也不会阻塞采集线程
+		super(false);
+		this.nativeProcessor = nativeProcessor;
+		this.mediaConfig = mediaConfig;
+		this.encoderPool = encoderPool;
+		this.metrics = metrics;
+		this.device = device;
+		this.requestedRate = sampleRate > 0 ? sampleRate : DEFAULT_SAMPLE_RATE;
+		this.requestedChannels = channels > 0 ? channels : DEFAULT_CHANNELS;
+	}
+
+	/**
+	 * 打开设备并开始录音；设备不存在或被占用时抛出 RuntimeException
+	 */
+	@Override
+	public synchronized void start(boolean isAudio) {
+		if (!isAudio) {
+			throw new UnsupportedOperationException("多设备采集只支持音频");
+		}
+		if (handle != 0) {
+			return;
+		}
+		this.isAudio = true;
+		// 录音文件要按协商后的格式创建，在此之前回调到达的数据直接丢弃
+		long h = nativeProcessor.openCapture(device, requestedRate, requestedChannels, captureBuffer.buffer(),
+				new CaptureCallback());
+		if (h == 0) {
+			throw new RuntimeException("打开采集设备失败: " + device);
+		}
+		int[] params;
+		try {
+			params = nativeProcessor.getCaptureFormat(h);
+			AudioCodec codec = audioCodec != null ? audioCodec : mediaConfig.getAudioCodec();
+			mediaFile = encoderPool.createAudioFile(mediaConfig.getAudioDir(), codec, params[0], params[1], params[2]);
+		} catch (RuntimeException e) {
+			nativeProcessor.closeCapture(h);
+			throw e;
+		}
+		handle = h;
+		format = params;
+		configureSilenceGate(mediaConfig, params);
+		isRunning.set(true);
+		logger.info("设备 {} 开始采集: {} Hz, {} 声道", device, params[0], params[1]);
+	}
+
+	@Override
+	public synchronized void stop() {
+		long h = handle;
+		if (h == 0) {
+			return;
+		}
+		isRunning.set(false);
+		// 关闭句柄会等待本地采集线程退出，之后不再有回调
+		nativeProcessor.closeCapture(h);
+		handle = 0;
+		dataBuffer.clear();
+		if (mediaFile != null) {
+			mediaFile.close();
+		}
+		logger.info("设备 {} 停止采集", device);
+	}
+
+	/**
+	 * 暂停本路数据流，设备保持打开，返回后不再有回调
+	 */
+	@Override
+	public synchronized void pause() {
+		super.pause();
+		if (handle != 0) {
+			nativeProcessor.setHandlePaused(handle, true);
+		}
+	}
+
+	@Override
+	public synchronized void resume() {
+		super.resume();
+		if (handle != 0) {
+			nativeProcessor.setHandlePaused(handle, false);
+		}
+	}
+
+	public String getDevice() {
+		return device;
+	}
+
+	@Override
+	public int[] getAudioParams() {
+		int[] params = format;
+		return params != null ? params.clone() : new int[] { requestedRate, requestedChannels, 16 };
+	}
+
+	/**
+	 * @return 当前录音文件路径，未在采集时为 null
+	 */
+	public String getRecordingPath() {
+		MediaFile file = mediaFile;
+		return handle != 0 && file != null ? file.getFilePath() : null;
+	}
+
+	/**
+	 * @return 本路采集的累计统计 {xrun, recover, restart}；与 stop 互斥，避免读取已释放的句柄
+	 */
+	public synchronized long[] getCaptureStats() {
+		long h = handle;
+		long[] counters = h == 0 ? null : nativeProcessor.getHandleCounters(h);
+		return counters != null && counters.length >= 3 ? counters : new long[3];
+	}
+
+	private final class CaptureCallback implements DirectDataCallback {
+		@Override
+		public void onDataCaptured(int offset, int length) {
+			if (isRunning.get()) {
+				processData(captureBuffer.region(offset, length));
+			}
+		}
+
+		@Override
+		public void onDataCaptured(int offset, int length, long deviceNanos, long readNanos) {
+			if (!isRunning.get()) {
+				return;
+			}
+			long now = System.nanoTime();
+			MediaMetrics m = metrics;
+			if (m != null) {
+				if (deviceNanos != 0) {
+					m.recordDeviceLatency(readNanos - deviceNanos);
+				}
+				m.recordNativeLatency(now - readNanos);
+			}
+			processData(captureBuffer.region(offset, length), deviceNanos != 0 ? deviceNanos : readNanos);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.web.media.recorder.media.processor.jni;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.web.media.recorder.utils.CmdExecutor;
+
+/**
+ * 本地库加载，由 {@link NativeProcessor} 在首次采集时调用一次，不在类初始化或应用启动时加载
+ * <p>
+ * 查找顺序：
+ * <ol>
+ * <li>系统属性 native.dir 指定的目录，供本地库开发调试；环境变量 DEBUG_REBUILD_NATIVE=true 时先执行其中的 build.sh</li>
+ * <li>jar 中按平台打包的 native/linux-&lt;arch&gt;/libmediaProcessor.so</li>
+ * </ol>
+ * jar 中的库解压到缓存目录下以 SHA-256 命名的子目录，内容不变时之后的启动直接加载；
+ * 先写临时文件再原子改名，多个进程同时解压互不影响。
+ * 加载后核对库导出的 ABI 版本，旧版或不匹配的库视为不可用。加载失败后不再重试，由调用方改用 Java 采集。
+ */
+final class NativeLibraryLoader {
+	static final String LIBRARY_NAME = "libmediaProcessor.so";
+	// 与 libmediaProcessor.c 中的 MEDIA_PROCESSOR_ABI 一致，本地方法增删或签名变化时递增
+	static final int ABI_VERSION = 2;
+	private static final Logger logger = LoggerFactory.getLogger(NativeLibraryLoader.class);
+	// null 表示尚未尝试加载
+	private static volatile Boolean loaded;
+
+	private NativeLibraryLoader() {
+	}
+
+	private static native int abiVersion();
+
+	static boolean isLoaded() {
+		return Boolean.TRUE.equals(loaded);
+	}
+
+	/**
+	 * @param cacheDir jar 中的库解压到的目录
+	 * @return 本地库是否可用；只在首次调用时尝试加载
+	 */
+	static synchronized boolean load(Path cacheDir) {
+		if (loaded != null) {
+			return loaded;
+		}
+		boolean result = false;
+		try {
+			Path library = locate(cacheDir);
+			if (library == null) {
+				logger.warn("未找到 {} 平台的本地库，使用 Java 采集；可执行 mvn -Pnative package 编译", platform());
+			} else {
+				System.load(library.toAbsolutePath().toString());
+				result = checkAbi(library);
+			}
+		} catch (IOException | SecurityException | UnsatisfiedLinkError e) {
+			logger.warn("加载本地库失败，使用 Java 采集: {}", e.getMessage());
+		}
+		loaded = result;
+		return result;
+	}
+
+	// 库已载入进程无法卸载，版本不符时只是不再调用其中的本地方法
+	private static boolean checkAbi(Path library) {
+		int version;
+		try {
+			version = abiVersion();
+		} catch (UnsatisfiedLinkError e) {
+			logger.warn("本地库 {} 为旧版本，未导出 ABI 版本，使用 Java 采集；请重新编译", library);
+			return false;
+		}
+		if (version != ABI_VERSION) {
+			logger.warn("本地库 {} 的 ABI 版本为 {}，需要 {}，使用 Java 采集；请重新编译", library, version, ABI_VERSION);
+			return false;
+		}
+		logger.info("已加载本地库: {}", library);
+		return true;
+	}
+
+	private static Path locate(Path cacheDir) throws IOException {
+		String nativeDir = System.getProperty("native.dir");
+		if (nativeDir != null) {
+			Path dir = Paths.get(nativeDir);
+			if ("true".equals(System.getenv("DEBUG_REBUILD_NATIVE"))) {
+				rebuild(dir);
+			}
+			Path file = dir.resolve(LIBRARY_NAME);
+			return Files.isRegularFile(file) ? file : null;
+		}
+		try (InputStream in = NativeLibraryLoader.class
+				.getResourceAsStream("/native/" + platform() + "/" + LIBRARY_NAME)) {
+			return in == null ? null : extract(in.readAllBytes(), cacheDir);
+		}
+	}
+
+	private static void rebuild(Path dir) {
+		List<String> output = CmdExecutor.execWithOutput("bash", "-c",
+				dir.toAbsolutePath().resolve("build.sh").toString()).getOutput();
+		if (output.stream().anyMatch(line -> line.contains("失败"))) {
+			logger.error("本地库编译失败");
+		}
+	}
+
+	/**
+	 * 解压到缓存目录，已存在且校验和一致时直接使用
+	 */
+	private static Path extract(byte[] library, Path cacheDir) throws IOException {
+		String checksum = sha256(library);
+		Path dir = cacheDir.resolve(checksum.substring(0, 16));
+		Path target = dir.resolve(LIBRARY_NAME);
+		if (Files.isRegularFile(target) && checksum.equals(sha256(Files.readAllBytes(target)))) {
+			return target;
+		}
+		Files.createDirectories(dir);
+		Path temp = Files.createTempFile(dir, LIBRARY_NAME, ".tmp");
+		try {
+			Files.write(temp, library);
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		logger.info("本地库已解压到 {}", target);
+		return target;
+	}
+
+	private static String sha256(byte[] data) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return 打包目录使用的平台名，如 linux-x86_64、linux-aarch64
+	 */
+	static String platform() {
+		String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+		String arch = System.getProperty("os.arch", "").toLowerCase(Locale.ROOT);
+		if (arch.equals("amd64") || arch.equals("x86-64")) {
+			arch = "x86_64";
+		} else if (arch.equals("arm64")) {
+			arch = "aarch64";
+		}
+		return (os.startsWith("linux") ? "linux" : os.replace(' ', '_')) + "-" + arch;
+	}
+}
@@ -1,68 +1,271 @@
 package com.web.media.recorder.media.processor.jni;
 
-import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import com.web.media.recorder.config.MediaConfig;
 import com.web.media.recorder.media.callback.DataCallback;
-import com.web.media.recorder.media.file.AudioFile;
+import com.web.media.recorder.media.callback.DirectDataCallback;
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.encoder.AudioEncoderPool;
 import com.web.media.recorder.media.file.VideoFile;
 import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.javasound.JavaSoundCapture;
+import com.web.media.recorder.metrics.MediaMetrics;
 import com.web.media.recorder.utils.CmdExecutor;
+// 默认采集源同时以 captureProcessor 注册，见 CaptureProcessorConfig；按类型注入时取本类
+@Primary
 @Component
 public class NativeProcessor extends AbstractMediaProcessor {
     private static final Logger logger = LoggerFactory.getLogger(NativeProcessor.class);
     @Autowired
 	private  MediaConfig mediaConfig;
-    
-    static {
-        loadLibrary();
-    }
+    @Autowired
+    private AudioEncoderPool encoderPool;
+    @Autowired
+    private MediaMetrics metrics;
+    private final DirectCaptureBuffer captureBuffer = new DirectCaptureBuffer();
+    // 本地库在首次采集时加载，见 ensureLibrary；加载前不能调用下面的本地方法
+    private final Object libraryLock = new Object();
+    private volatile boolean libraryReady;
+    // 已载入的库调用失败后不再使用，加载器的结果已缓存，不能据此再次判定为可用
+    private volatile boolean libraryBroken;
+    // 本地库不可用时默认采集改用 Java Sound
+    private volatile JavaSoundCapture javaCapture;
     // 本地方法
     public native void startCapture(DataCallback callback, boolean isAudio);
+    // 本地层写入共享直接缓冲区，只回调偏移与长度，不再逐块创建 Java 数组
+    public native void startCaptureDirect(ByteBuffer buffer, DirectDataCallback callback, boolean isAudio);
     public native void releaseResources();
     public native boolean isKeyPressed(int keyCode);
-    public native int[] getAudioParams();
+    // 打开并配置默认采集设备（已打开时沿用），返回设备实际协商的 {采样率, 声道数, 位深}，失败时抛出异常
+    private native int[] openDefaultCapture();
     public native void stopCapture();
-  
-
-    private static void loadLibrary() {
-        String nativeDir = System.getProperty("native.dir", "src/main/resources/native");
-        String libName = "libmediaProcessor.so";
-        File dir = new File(nativeDir);
-        File file = new File(dir, libName);
-        if (!file.exists() || "true".equals(System.getenv("DEBUG_REBUILD_NATIVE"))) {
-            List<String> output = CmdExecutor.execWithOutput(
-                "bash", 
-                "-c", 
-                new File(dir.getAbsoluteFile(), "build.sh").getAbsolutePath()
-            ).getOutput();
-            if (output.stream().anyMatch(line -> line.contains("失败"))) {
-                logger.error("本地库编译失败");
-                return;
+    // {xrun 次数, recover 成功次数, 重新打开设备次数, 周期帧数, 缓冲区帧数, 是否实时优先级}，旧版本地库只有前 3 项
+    private native long[] getCaptureCounters();
+    // 之后打开的设备使用的参数，见 CaptureProfile#toNative
+    private native void applyCaptureProfile(int[] profile);
+    // 旧版本地库没有统计接口，首次调用失败后不再尝试
+    private volatile boolean countersUnsupported;
+
+    // 多设备采集：每路一个本地句柄与独立的采集线程，与上面的默认采集互不影响
+    // {设备名, 描述, 设备名, 描述, ...}
+    private native String[] listCaptureDevices();
+    // 返回本地上下文句柄，失败时抛出异常
+    native long openCapture(String device, int sampleRate, int channels, ByteBuffer buffer, DirectDataCallback callback);
+    native void closeCapture(long handle);
+    // {采样率, 声道数, 位深}
+    native int[] getCaptureFormat(long handle);
+    native long[] getHandleCounters(long handle);
+    // 暂停时等采集线程停下才返回，设备保持 prepared 状态
+    native void setCapturePaused(long handle, boolean paused);
+    // 设备名 -> 正在采集的设备
+    private final Map<String, NativeDeviceCapture> deviceCaptures = new ConcurrentHashMap<>();
+    // 预热的默认采集设备句柄，0 表示未预热，录音开始时按原方式打开设备
+    private volatile long warmHandle;
+    private volatile int[] audioParams;
+    // 本次采集的开始时间，首批数据到达时记录耗时后清零
+    private volatile long startNanos;
+    private volatile boolean pauseUnsupported;
+    private volatile CaptureProfile captureProfile = CaptureProfile.DEFAULT;
+    // 待下发给本地库的参数，本地库加载后应用
+    private volatile int[] profileParams;
+
+
+    /**
+     * 加载本地库并应用采集参数，只在首次调用时加载一次
+     *
+     * @return 本地库是否可用
+     */
+    private boolean ensureLibrary() {
+        if (libraryReady) {
+            return true;
+        }
+        synchronized (libraryLock) {
+            if (!libraryReady && !libraryBroken && NativeLibraryLoader.load(Paths.get(mediaConfig.getNativeCacheDir()))) {
+                int[] params = profileParams;
+                if (params != null) {
+                    applyProfile(params);
+                }
+                libraryReady = true;
+            }
+            return libraryReady;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        configureDataBuffer(mediaConfig.getCaptureBufferSize(), mediaConfig.getCaptureOverflowPolicy());
+        setCaptureProfile(mediaConfig.getCaptureProfile(), mediaConfig.getCapturePeriodFrames(),
+                mediaConfig.getCaptureBufferFrames(), mediaConfig.getCaptureRealtimePriority(), mediaConfig.getCaptureCpu());
+    }
+
+    /**
+     * 设置之后打开的采集（默认采集、预热设备与各设备采集）使用的 ALSA 参数，已打开的设备不受影响
+     *
+     * @param periodFrames     覆盖档位的周期帧数，0 表示使用档位的值
+     * @param bufferFrames     覆盖档位的缓冲区帧数，0 表示使用档位的值
+     * @param realtimePriority 采集线程的 SCHED_FIFO 优先级（1~99），0 表示不启用；需要 CAP_SYS_NICE 或 rtprio 限制
+     * @param cpu              采集线程绑定的 CPU，负数表示不绑定
+     */
+    public void setCaptureProfile(CaptureProfile profile, int periodFrames, int bufferFrames, int realtimePriority,
+            int cpu) {
+        CaptureProfile selected = profile != null ? profile : CaptureProfile.DEFAULT;
+        int[] params = selected.toNative(periodFrames, bufferFrames, realtimePriority, cpu);
+        synchronized (libraryLock) {
+            captureProfile = selected;
+            profileParams = selected == CaptureProfile.DEFAULT && periodFrames <= 0 && bufferFrames <= 0
+                    && realtimePriority <= 0 && cpu < 0 ? null : params;
+            if (libraryReady) {
+                applyProfile(params);
+            }
+        }
+        logger.info("采集参数档位 {}: 周期 {} 帧，缓冲区 {} 帧，实时优先级 {}，CPU {}", selected.getLabel(),
+                params[0] == 0 ? "自动" : params[0], params[1], params[6], params[7] < 0 ? "不绑定" : params[7]);
+    }
+
+    private void applyProfile(int[] params) {
+        try {
+            applyCaptureProfile(params);
+        } catch (UnsatisfiedLinkError e) {
+            if (profileParams != null) {
+                logger.warn("本地库不支持采集参数档位，使用默认参数");
+            }
+        }
+    }
+
+    public CaptureProfile getCaptureProfile() {
+        return captureProfile;
+    }
+
+    /**
+     * @return 默认采集（预热时为预热设备）与设备实际协商的 {周期帧数, 缓冲区帧数, 采集线程是否以实时优先级运行}，
+     *         设备未打开过或本地库不支持时为全 0
+     */
+    public long[] getCaptureGeometry() {
+        long[] counters = warmCounters();
+        if (counters == null && libraryReady && !countersUnsupported) {
+            try {
+                counters = getCaptureCounters();
+            } catch (UnsatisfiedLinkError e) {
+                countersUnsupported = true;
             }
         }
+        long[] geometry = new long[3];
+        if (counters != null && counters.length >= 6) {
+            System.arraycopy(counters, 3, geometry, 0, 3);
+        }
+        return geometry;
+    }
+
+    /**
+     * 预热默认采集设备：打开并配置好设备后立即暂停，之后的 start/stop 只恢复、暂停数据流，
+     * 不再探测声卡、打开设备和启动线程，开始录音到首批数据约为一个 ALSA 周期。
+     * 设备不可用或本地库不支持时保持按需打开设备；预热会在启动时加载本地库。
+     */
+    public synchronized void warmUp() {
+        if (warmHandle != 0) {
+            return;
+        }
+        if (!ensureLibrary()) {
+            logger.warn("本地库不可用，不预热采集设备");
+            return;
+        }
+        long h;
+        try {
+            h = openCapture(null, NativeDeviceCapture.DEFAULT_SAMPLE_RATE, NativeDeviceCapture.DEFAULT_CHANNELS,
+                    captureBuffer.buffer(), new CaptureCallback());
+        } catch (UnsatisfiedLinkError | RuntimeException e) {
+            logger.warn("预热采集设备失败，录音开始时再打开设备: {}", e.getMessage());
+            return;
+        }
+        if (h == 0) {
+            return;
+        }
         try {
-            System.load(file.getAbsolutePath());
+            setCapturePaused(h, true);
+            audioParams = getCaptureFormat(h);
         } catch (UnsatisfiedLinkError e) {
-            logger.error("Failed to load native library: {}", e.getMessage());
-            e.printStackTrace();
+            closeCapture(h);
+            logger.warn("本地库不支持暂停采集，录音开始时再打开设备");
+            return;
         }
+        warmHandle = h;
+        logger.info("采集设备已预热: {} Hz, {} 声道", audioParams[0], audioParams[1]);
+    }
+
+    /**
+     * @return 采集格式 {采样率, 声道数, 位深}；预热或默认采集打开过设备后为设备实际协商的格式，否则为默认值。
+     *         不会为此加载本地库或打开设备，只上传不采集的会话取到的是默认值
+     */
+    @Override
+    public int[] getAudioParams() {
+        int[] params = audioParams;
+        return params != null ? params.clone() : defaultAudioParams();
+    }
+
+    private static int[] defaultAudioParams() {
+        return new int[] { NativeDeviceCapture.DEFAULT_SAMPLE_RATE, NativeDeviceCapture.DEFAULT_CHANNELS, 16 };
     }
 
     @Override
     public void start(boolean isAudio) {
         if (!isRunning.compareAndSet(false, true)) return;
         this.isAudio = isAudio;
+        startNanos = System.nanoTime();
+        // 首次采集时加载本地库；先打开设备再按协商出的格式创建录音文件，设备可能改用其他采样率或单声道
+        boolean nativeReady = ensureLibrary();
+        if (isAudio && nativeReady && warmHandle == 0) {
+            nativeReady = openDefaultDevice();
+        }
         int[] params = getAudioParams();
-        mediaFile = isAudio ? new AudioFile(mediaConfig.getAudioDir(), params[0], params[1], params[2]) : new VideoFile("");
+        AudioCodec codec = audioCodec != null ? audioCodec : mediaConfig.getAudioCodec();
+        mediaFile = isAudio ? encoderPool.createAudioFile(mediaConfig.getAudioDir(), codec, params[0], params[1], params[2]) : new VideoFile("");
+        if (isAudio) {
+            configureSilenceGate(mediaConfig, params);
+        } else {
+            configureSilenceGate(null, params[0]);
+        }
+        if (isAudio && warmHandle != 0) {
+            resume();
+            return;
+        }
+        paused = false;
+        if (!nativeReady) {
+            startJavaCapture(params);
+            return;
+        }
         new Thread(() -> {
-            startCapture(data -> processData(data), isAudio);
+            try {
+                startCaptureDirect(captureBuffer.buffer(), new CaptureCallback(), isAudio);
+            } catch (UnsatisfiedLinkError e) {
+                // ABI 版本一致时不应出现，仍按本地库不可用处理，不让录音停在没有数据的状态
+                logger.error("本地采集不可用，改用 Java Sound: {}", e.getMessage());
+                libraryBroken = true;
+                libraryReady = false;
+                try {
+                    startJavaCapture(params);
+                } catch (RuntimeException ex) {
+                    logger.error("Java Sound 采集启动失败: {}", ex.getMessage());
+                }
+                return;
+            }
             try {
                 String[] cmd = {"/bin/sh", "-c", "stty raw -echo </dev/tty"};
                 CmdExecutor.execForStatus(cmd);
@@ -76,17 +279,308 @@ public class NativeProcessor extends AbstractMediaProcessor {
         }).start();
     }
 
+    /**
+     * 打开默认采集设备并缓存协商出的格式，设备已打开时直接取其格式
+     *
+     * @return 设备是否可用，不可用时改用 Java Sound
+     */
+    private boolean openDefaultDevice() {
+        int[] params;
+        try {
+            params = openDefaultCapture();
+        } catch (UnsatisfiedLinkError e) {
+            // ABI 版本一致时不应出现，与采集线程中的处理相同
+            logger.error("本地采集不可用，改用 Java Sound: {}", e.getMessage());
+            libraryBroken = true;
+            libraryReady = false;
+            return false;
+        } catch (RuntimeException e) {
+            logger.error("打开默认采集设备失败，改用 Java Sound: {}", e.getMessage());
+            return false;
+        }
+        if (params == null || params.length < 3) {
+            return false;
+        }
+        if (audioParams == null || !Arrays.equals(audioParams, params)) {
+            logger.info("默认采集设备: {} Hz, {} 声道", params[0], params[1]);
+        }
+        audioParams = params;
+        return true;
+    }
+
+    private void startJavaCapture(int[] params) {
+        if (!isAudio) {
+            isRunning.set(false);
+            throw new UnsupportedOperationException("本地库不可用，Java 采集仅支持音频");
+        }
+        JavaSoundCapture capture;
+        try {
+            capture = JavaSoundCapture.open(params[0], params[1], this);
+        } catch (IllegalStateException e) {
+            isRunning.set(false);
+            mediaFile.close();
+            throw e;
+        }
+        javaCapture = capture;
+        logger.info("使用 Java Sound 采集: {} Hz, {} 声道", params[0], params[1]);
+        capture.start();
+    }
+
     @Override
     public void stop() {
         isRunning.set(false);
-        stopCapture();
-        dataQueue.clear();
+        JavaSoundCapture capture = javaCapture;
+        if (capture != null) {
+            javaCapture = null;
+            capture.close();
+        } else if (isAudio && warmHandle != 0) {
+            // 设备保持打开，暂停返回后不再有回调，可以安全关闭录音文件
+            pause();
+        } else if (libraryReady) {
+            try {
+                stopCapture();
+            } catch (UnsatisfiedLinkError e) {
+                logger.error("停止本地采集失败: {}", e.getMessage());
+            }
+        }
+        dataBuffer.clear();
         if (mediaFile != null) {
             mediaFile.close();
         }
     }
 
 
+    @Override
+    public void pause() {
+        super.pause();
+        setWarmPaused(true);
+    }
+
+    @Override
+    public void resume() {
+        super.resume();
+        setWarmPaused(false);
+    }
+
+    // 未预热时只在 Java 层丢弃数据
+    private synchronized void setWarmPaused(boolean paused) {
+        long h = warmHandle;
+        if (h != 0) {
+            setCapturePaused(h, paused);
+        }
+    }
+
+    /**
+     * 暂停或恢复某个句柄的数据流，本地库不支持时只在 Java 层丢弃数据
+     */
+    void setHandlePaused(long handle, boolean paused) {
+        if (pauseUnsupported) {
+            return;
+        }
+        try {
+            setCapturePaused(handle, paused);
+        } catch (UnsatisfiedLinkError e) {
+            pauseUnsupported = true;
+            logger.warn("本地库不支持暂停采集，暂停期间设备继续采集");
+        }
+    }
+
+    /**
+     * 列出本机的 ALSA 采集设备，并标出正在采集的设备；本地库不可用或不支持枚举时返回空列表
+     */
+    public List<CaptureDevice> getCaptureDevices() {
+        if (!ensureLibrary()) {
+            return Collections.emptyList();
+        }
+        String[] entries;
+        try {
+            entries = listCaptureDevices();
+        } catch (UnsatisfiedLinkError e) {
+            logger.warn("本地库不支持设备枚举: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+        List<CaptureDevice> devices = new ArrayList<>();
+        for (int i = 0; entries != null && i + 1 < entries.length; i += 2) {
+            devices.add(new CaptureDevice(entries[i], entries[i + 1], deviceCaptures.get(entries[i])));
+        }
+        // 以 default、plughw 等名称启动的采集不在枚举结果中，也一并列出
+        for (NativeDeviceCapture capture : deviceCaptures.values()) {
+            if (devices.stream().noneMatch(d -> d.getId().equals(capture.getDevice()))) {
+                devices.add(new CaptureDevice(capture.getDevice(), capture.getDevice(), capture));
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * 以默认格式开始采集并录制指定设备，见 {@link #startDevice(String, int, int)}
+     */
+    public NativeDeviceCapture startDevice(String device) {
+        return startDevice(device, NativeDeviceCapture.DEFAULT_SAMPLE_RATE, NativeDeviceCapture.DEFAULT_CHANNELS);
+    }
+
+    /**
+     * 开始采集并录制指定设备，每个设备使用独立的本地采集线程与录音文件；设备已在采集时直接返回
+     *
+     * @param device     ALSA 设备名，如 hw:1,0
+     * @param sampleRate 期望采样率，实际以设备协商结果为准
+     * @param channels   期望声道数，请求双声道而设备不支持时回退到单声道
+     * @throws IllegalStateException 本地库不可用或不支持多设备采集
+     * @throws RuntimeException      设备打开失败
+     */
+    public NativeDeviceCapture startDevice(String device, int sampleRate, int channels) {
+        if (!ensureLibrary()) {
+            throw new IllegalStateException("本地库不可用，不能按设备采集");
+        }
+        synchronized (deviceCaptures) {
+            NativeDeviceCapture capture = deviceCaptures.get(device);
+            if (capture != null) {
+                return capture;
+            }
+            capture = new NativeDeviceCapture(this, mediaConfig, encoderPool, metrics, device, sampleRate, channels);
+            try {
+                capture.start(true);
+            } catch (UnsatisfiedLinkError e) {
+                throw new IllegalStateException("本地库不支持多设备采集，请重新编译 libmediaProcessor.so", e);
+            }
+            deviceCaptures.put(device, capture);
+            return capture;
+        }
+    }
+
+    /**
+     * 停止指定设备的采集并关闭其录音文件
+     *
+     * @return 设备是否正在采集
+     */
+    public boolean stopDevice(String device) {
+        synchronized (deviceCaptures) {
+            NativeDeviceCapture capture = deviceCaptures.remove(device);
+            if (capture == null) {
+                return false;
+            }
+            capture.stop();
+            return true;
+        }
+    }
+
+    /**
+     * 暂停或恢复指定设备的数据流，设备保持打开，录音文件不关闭
+     *
+     * @return 设备是否正在采集
+     */
+    public boolean pauseDevice(String device, boolean paused) {
+        NativeDeviceCapture capture = deviceCaptures.get(device);
+        if (capture == null) {
+            return false;
+        }
+        if (paused) {
+            capture.pause();
+        } else {
+            capture.resume();
+        }
+        return true;
+    }
+
+    public Collection<NativeDeviceCapture> getDeviceCaptures() {
+        return Collections.unmodifiableCollection(deviceCaptures.values());
+    }
+
+    public void stopDevices() {
+        for (String device : new ArrayList<>(deviceCaptures.keySet())) {
+            stopDevice(device);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopDevices();
+        releaseWarmDevice();
+    }
+
+    private synchronized void releaseWarmDevice() {
+        long h = warmHandle;
+        if (h != 0) {
+            warmHandle = 0;
+            closeCapture(h);
+        }
+    }
+
+    private synchronized long[] warmCounters() {
+        long h = warmHandle;
+        return h == 0 ? null : getHandleCounters(h);
+    }
+
+    /**
+     * @return 本地采集循环的累计统计 {xrun, recover, restart}，含默认采集（含预热设备）与各设备采集，本地库不支持时返回全 0
+     */
+    public long[] getCaptureStats() {
+        long[] stats = new long[3];
+        if (libraryReady && !countersUnsupported) {
+            try {
+                long[] counters = getCaptureCounters();
+                if (counters != null && counters.length >= 3) {
+                    System.arraycopy(counters, 0, stats, 0, 3);
+                }
+            } catch (UnsatisfiedLinkError e) {
+                countersUnsupported = true;
+                logger.warn("本地库不支持采集统计，ALSA 指标不可用");
+            }
+        }
+        long[] warm = warmCounters();
+        for (int i = 0; warm != null && i < Math.min(warm.length, stats.length); i++) {
+            stats[i] += warm[i];
+        }
+        for (NativeDeviceCapture capture : deviceCaptures.values()) {
+            long[] counters = capture.getCaptureStats();
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] += counters[i];
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 采集回调。本地库带时间戳时记录设备缓冲与本地到 Java 两段延迟，
+     * 并以首帧的硬件采集时间作为数据的采集时间；旧版本地库只回调偏移与长度，以到达时间代替
+     */
+    private final class CaptureCallback implements DirectDataCallback {
+        @Override
+        public void onDataCaptured(int offset, int length) {
+            if (!isRunning.get()) {
+                return;
+            }
+            recordStart(System.nanoTime());
+            processData(captureBuffer.region(offset, length));
+        }
+
+        @Override
+        public void onDataCaptured(int offset, int length, long deviceNanos, long readNanos) {
+            if (!isRunning.get()) {
+                return;
+            }
+            long now = System.nanoTime();
+            recordStart(now);
+            MediaMetrics m = metrics;
+            if (m != null) {
+                if (deviceNanos != 0) {
+                    m.recordDeviceLatency(readNanos - deviceNanos);
+                }
+                m.recordNativeLatency(now - readNanos);
+            }
+            processData(captureBuffer.region(offset, length), deviceNanos != 0 ? deviceNanos : readNanos);
+        }
+    }
+
+    private void recordStart(long now) {
+        long started = startNanos;
+        if (started != 0) {
+            startNanos = 0;
+            if (metrics != null) {
+                metrics.recordCaptureStart(now - started);
+            }
+        }
+    }
 
     private void startKeyListener() {
         new Thread(() -> {
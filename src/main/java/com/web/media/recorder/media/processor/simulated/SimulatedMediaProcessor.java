@@ -0,0 +1,182 @@
+package com.web.media.recorder.media.processor.simulated;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.web.media.recorder.config.MediaConfig;
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.encoder.AudioEncoderPool;
+import com.web.media.recorder.media.file.AudioFile;
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+
+/**
+ * 不依赖声卡的模拟采集：后台线程按 {@link SimulationPacing} 的节奏逐块产生 PCM 数据，
+ * 与真实采集一样经过静音门限、写盘与推流，用于在任意机器上压测后续链路。
+ * <p>
+ * 数据块的采集时间取其理想产生时间，抖动与突发造成的延迟因此会体现在各阶段延迟指标中。
+ */
+public abstract class SimulatedMediaProcessor extends AbstractMediaProcessor {
+	private static final Logger logger = LoggerFactory.getLogger(SimulatedMediaProcessor.class);
+	private static final long JOIN_TIMEOUT_MS = 2000;
+
+	private final SimulationPacing pacing;
+	// 为 null 时不写盘、不启用静音门限
+	private MediaConfig mediaConfig;
+	private AudioEncoderPool encoderPool;
+	private Thread thread;
+
+	protected SimulatedMediaProcessor(SimulationPacing pacing) {
+		this.pacing = pacing == null ? SimulationPacing.REALTIME : pacing;
+	}
+
+	/**
+	 * 按配置写盘（录音格式、存储方式与静音门限），并按配置重建实时数据缓冲区；不调用时只推流不写盘
+	 *
+	 * @param encoderPool 为 null 时直接写 WAV
+	 */
+	public void setRecording(MediaConfig mediaConfig, AudioEncoderPool encoderPool) {
+		this.mediaConfig = mediaConfig;
+		this.encoderPool = encoderPool;
+		if (mediaConfig != null) {
+			configureDataBuffer(mediaConfig.getCaptureBufferSize(), mediaConfig.getCaptureOverflowPolicy());
+		}
+	}
+
+	public SimulationPacing getPacing() {
+		return pacing;
+	}
+
+	@Override
+	public synchronized void start(boolean isAudio) {
+		if (!isAudio) {
+			throw new UnsupportedOperationException("仅支持音频处理");
+		}
+		if (!isRunning.compareAndSet(false, true)) {
+			return;
+		}
+		this.isAudio = true;
+		int[] params = getAudioParams();
+		try {
+			open();
+		} catch (IOException e) {
+			isRunning.set(false);
+			throw new IllegalStateException("模拟采集启动失败: " + e.getMessage(), e);
+		}
+		MediaConfig config = mediaConfig;
+		if (config != null) {
+			AudioCodec codec = audioCodec != null ? audioCodec : config.getAudioCodec();
+			mediaFile = encoderPool != null
+					? encoderPool.createAudioFile(config.getAudioDir(), codec, params[0], params[1], params[2])
+					: new AudioFile(config.getAudioDir(), params[0], params[1], params[2]);
+			configureSilenceGate(config, params);
+		} else {
+			mediaFile = null;
+		}
+		thread = new Thread(this::run, "simulated-capture");
+		thread.setDaemon(true);
+		thread.start();
+		logger.info("模拟采集开始: {}, {} Hz, {} 声道, {} 位, {}", describe(), params[0], params[1], params[2], pacing);
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (!isRunning.getAndSet(false)) {
+			return;
+		}
+		Thread t = thread;
+		thread = null;
+		if (t != null) {
+			t.interrupt();
+			try {
+				t.join(JOIN_TIMEOUT_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		close();
+		dataBuffer.clear();
+		if (mediaFile != null) {
+			mediaFile.close();
+		}
+	}
+
+	private void run() {
+		int[] params = getAudioParams();
+		int sampleRate = params[0];
+		int blockAlign = Math.max(1, params[1] * params[2] / 8);
+		int chunkFrames = pacing.chunkFrames(sampleRate);
+		ByteBuffer chunk = ByteBuffer.allocateDirect(chunkFrames * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+		Random random = new Random();
+		long start = System.nanoTime();
+		long frames = 0;
+		while (isRunning.get()) {
+			chunk.clear();
+			int produced;
+			try {
+				produced = fill(chunk, chunkFrames);
+			} catch (IOException e) {
+				logger.error("模拟采集读取数据失败: {}", e.getMessage());
+				break;
+			}
+			if (produced <= 0) {
+				logger.info("模拟采集数据已结束: {}", describe());
+				break;
+			}
+			chunk.flip();
+			long captureNanos;
+			if (pacing.isThrottled()) {
+				captureNanos = start + pacing.framesToNanos(frames, sampleRate);
+				long due = pacing.framesToNanos(frames + produced, sampleRate);
+				if (!parkUntil(start + due + pacing.delayNanos(due, random))) {
+					break;
+				}
+			} else {
+				captureNanos = System.nanoTime();
+			}
+			frames += produced;
+			processData(chunk, captureNanos);
+		}
+	}
+
+	private boolean parkUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			if (!isRunning.get()) {
+				return false;
+			}
+			LockSupport.parkNanos(remaining);
+		}
+		return isRunning.get();
+	}
+
+	/**
+	 * 采集开始前准备数据源
+	 */
+	protected void open() throws IOException {
+	}
+
+	/**
+	 * 采集停止后释放数据源，采集线程已退出
+	 */
+	protected void close() {
+	}
+
+	/**
+	 * 在采集线程中写入下一块数据
+	 *
+	 * @param dst    从位置 0 开始写入，容量为 maxFrames 帧
+	 * @return 写入的帧数，数据源结束时返回 0
+	 */
+	protected abstract int fill(ByteBuffer dst, int maxFrames) throws IOException;
+
+	/**
+	 * @return 数据源的简短描述，用于日志
+	 */
+	protected abstract String describe();
+}
@@ -0,0 +1,84 @@
+package com.web.media.recorder.media.processor.simulated;
+
+import java.util.Random;
+
+/**
+ * 模拟采集的节奏：按实时或 N 倍速产生数据，并可注入抖动与突发
+ * <p>
+ * 数据块的理想送达时间由已产生的帧数决定，抖动与突发只推迟单块的送达，不会累积成时钟漂移：
+ * 抖动为每块随机增加 0 到 jitterMs 的延迟；突发为每个周期末尾暂停 burstMs，暂停期间的数据在结束时一次送出。
+ */
+public class SimulationPacing {
+	public static final SimulationPacing REALTIME = new SimulationPacing(1.0, 20, 0, 0, 0);
+
+	private final double speed;
+	private final int chunkMs;
+	private final long jitterNanos;
+	private final long burstIntervalNanos;
+	private final long burstNanos;
+
+	/**
+	 * @param speed           1 为实时，N 为 N 倍速，0 或负数为不限速
+	 * @param chunkMs         每块数据的时长（毫秒），相当于声卡的周期
+	 * @param jitterMs        每块随机增加的最大延迟（毫秒），0 表示不加抖动
+	 * @param burstIntervalMs 突发周期（毫秒），0 表示不注入突发
+	 * @param burstMs         每个周期末尾暂停送达的时长（毫秒）
+	 */
+	public SimulationPacing(double speed, int chunkMs, long jitterMs, long burstIntervalMs, long burstMs) {
+		this.speed = speed;
+		this.chunkMs = Math.max(1, chunkMs);
+		this.jitterNanos = Math.max(0, jitterMs) * 1_000_000L;
+		this.burstIntervalNanos = Math.max(0, burstIntervalMs) * 1_000_000L;
+		this.burstNanos = Math.min(Math.max(0, burstMs) * 1_000_000L, burstIntervalNanos);
+	}
+
+	public boolean isThrottled() {
+		return speed > 0;
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	public int getChunkMs() {
+		return chunkMs;
+	}
+
+	/**
+	 * @return 每块的帧数
+	 */
+	public int chunkFrames(int sampleRate) {
+		return Math.max(1, (int) ((long) sampleRate * chunkMs / 1000));
+	}
+
+	/**
+	 * @return 按当前倍速产生指定帧数所需的时间（纳秒）
+	 */
+	public long framesToNanos(long frames, int sampleRate) {
+		return (long) (frames * 1_000_000_000d / (sampleRate * speed));
+	}
+
+	/**
+	 * @param elapsedNanos 数据块理想送达时间距开始的纳秒数
+	 * @return 在理想送达时间之上追加的延迟
+	 */
+	public long delayNanos(long elapsedNanos, Random random) {
+		long delay = 0;
+		if (burstNanos > 0) {
+			long phase = elapsedNanos % burstIntervalNanos;
+			if (phase >= burstIntervalNanos - burstNanos) {
+				delay = burstIntervalNanos - phase;
+			}
+		}
+		if (jitterNanos > 0) {
+			delay += (long) (random.nextDouble() * jitterNanos);
+		}
+		return delay;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("speed=%s, chunk=%dms, jitter=%dms, burst=%dms/%dms", isThrottled() ? speed + "x" : "unlimited",
+				chunkMs, jitterNanos / 1_000_000, burstNanos / 1_000_000, burstIntervalNanos / 1_000_000);
+	}
+}
@@ -0,0 +1,125 @@
+package com.web.media.recorder.media.processor.simulated;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 合成信号采集：正弦波、白噪声或静音，支持 8 位无符号与 16/24/32 位有符号 PCM
+ */
+public class SyntheticMediaProcessor extends SimulatedMediaProcessor {
+	public enum Signal {
+		SINE, NOISE, SILENCE
+	}
+
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+	private final Signal signal;
+	private final double frequency;
+	// 线性幅度，1.0 为满幅
+	private final double amplitude;
+	// 正弦波以旋转相量递推，避免逐样本计算 sin
+	private final double stepCos;
+	private final double stepSin;
+	private double phaseCos = 1;
+	private double phaseSin;
+	private int noiseState = 0x2545F491;
+
+	public SyntheticMediaProcessor() {
+		this(44100, 2, 16, Signal.SINE, 440, -12, SimulationPacing.REALTIME);
+	}
+
+	/**
+	 * @param levelDb 信号电平（dBFS），正弦波为峰值，噪声为最大值
+	 */
+	public SyntheticMediaProcessor(int sampleRate, int channels, int bitsPerSample, Signal signal, double frequency,
+			double levelDb, SimulationPacing pacing) {
+		super(pacing);
+		if (sampleRate <= 0 || channels <= 0) {
+			throw new IllegalArgumentException("无效的采样率或声道数: " + sampleRate + " Hz, " + channels + " 声道");
+		}
+		if (bitsPerSample != 8 && bitsPerSample != 16 && bitsPerSample != 24 && bitsPerSample != 32) {
+			throw new IllegalArgumentException("不支持的位深度: " + bitsPerSample);
+		}
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitsPerSample = bitsPerSample;
+		this.signal = signal == null ? Signal.SINE : signal;
+		this.frequency = frequency;
+		this.amplitude = Math.min(1.0, Math.pow(10, levelDb / 20));
+		double step = 2 * Math.PI * frequency / sampleRate;
+		this.stepCos = Math.cos(step);
+		this.stepSin = Math.sin(step);
+	}
+
+	@Override
+	public int[] getAudioParams() {
+		return new int[] { sampleRate, channels, bitsPerSample };
+	}
+
+	@Override
+	protected void open() {
+		phaseCos = 1;
+		phaseSin = 0;
+	}
+
+	@Override
+	protected int fill(ByteBuffer dst, int maxFrames) {
+		double full = (1L << (bitsPerSample - 1)) - 1;
+		for (int i = 0; i < maxFrames; i++) {
+			double value = next();
+			long sample = Math.round(value * amplitude * full);
+			for (int c = 0; c < channels; c++) {
+				put(dst, sample);
+			}
+		}
+		// 每块重新归一化，消除递推的幅度累积误差
+		double norm = 1 / Math.sqrt(phaseCos * phaseCos + phaseSin * phaseSin);
+		phaseCos *= norm;
+		phaseSin *= norm;
+		return maxFrames;
+	}
+
+	private double next() {
+		switch (signal) {
+		case SINE:
+			double value = phaseSin;
+			double c = phaseCos * stepCos - phaseSin * stepSin;
+			phaseSin = phaseSin * stepCos + phaseCos * stepSin;
+			phaseCos = c;
+			return value;
+		case NOISE:
+			int x = noiseState;
+			x ^= x << 13;
+			x ^= x >>> 17;
+			x ^= x << 5;
+			noiseState = x;
+			return x / 2147483648.0;
+		default:
+			return 0;
+		}
+	}
+
+	private void put(ByteBuffer dst, long sample) {
+		switch (bitsPerSample) {
+		case 8:
+			dst.put((byte) (sample + 128));
+			break;
+		case 16:
+			dst.putShort((short) sample);
+			break;
+		case 24:
+			dst.put((byte) sample);
+			dst.put((byte) (sample >> 8));
+			dst.put((byte) (sample >> 16));
+			break;
+		default:
+			dst.putInt((int) sample);
+			break;
+		}
+	}
+
+	@Override
+	protected String describe() {
+		return signal == Signal.SINE ? String.format("正弦波 %.1f Hz", frequency) : signal == Signal.NOISE ? "白噪声" : "静音";
+	}
+}
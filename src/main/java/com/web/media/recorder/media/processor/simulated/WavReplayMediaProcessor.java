@@ -0,0 +1,207 @@
+package com.web.media.recorder.media.processor.simulated;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.web.media.recorder.media.file.WavHeader;
+
+/**
+ * 回放已有的 WAV 录音作为采集数据
+ * <p>
+ * 路径为目录时按文件名顺序回放其中的全部 WAV，格式以第一个文件为准，格式不同的文件跳过。
+ * 不循环时回放完毕后不再产生数据，直到停止采集。
+ */
+public class WavReplayMediaProcessor extends SimulatedMediaProcessor {
+	private static final Logger logger = LoggerFactory.getLogger(WavReplayMediaProcessor.class);
+
+	private final Path path;
+	private final boolean loop;
+	private final List<Source> sources = new ArrayList<>();
+	private final int[] params;
+	private int current;
+	private FileChannel channel;
+	// 当前文件剩余的音频数据字节数
+	private long remaining;
+
+	/**
+	 * @throws IllegalArgumentException 路径不存在或没有可回放的 PCM WAV 文件
+	 */
+	public WavReplayMediaProcessor(Path path, boolean loop, SimulationPacing pacing) {
+		super(pacing);
+		this.path = path;
+		this.loop = loop;
+		List<Path> files;
+		try {
+			files = listWavFiles(path);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("无法读取回放路径: " + path + ", " + e.getMessage(), e);
+		}
+		WavHeader first = null;
+		for (Path file : files) {
+			WavHeader header;
+			try {
+				header = readHeader(file);
+			} catch (IOException e) {
+				logger.warn("跳过无法读取的文件: {}, {}", file, e.getMessage());
+				continue;
+			}
+			if (header == null || header.blockAlign <= 0) {
+				logger.warn("跳过不支持的文件: {}", file);
+				continue;
+			}
+			if (first == null) {
+				first = header;
+			} else if (header.sampleRate != first.sampleRate || header.channels != first.channels
+					|| header.bitsPerSample != first.bitsPerSample) {
+				logger.warn("跳过格式不同的文件: {}", file);
+				continue;
+			}
+			long available;
+			try {
+				available = Files.size(file) - header.dataOffset;
+			} catch (IOException e) {
+				continue;
+			}
+			// 头部大小可能落后于实际长度（如未正常关闭的录音），以二者中可信的值为准
+			long dataSize = header.dataSize > 0 && header.dataSize <= available ? header.dataSize : available;
+			dataSize -= dataSize % header.blockAlign;
+			if (dataSize > 0) {
+				sources.add(new Source(file, header.dataOffset, dataSize));
+			}
+		}
+		if (sources.isEmpty()) {
+			throw new IllegalArgumentException("回放路径中没有可用的 PCM WAV 文件: " + path);
+		}
+		this.params = new int[] { first.sampleRate, first.channels, first.bitsPerSample };
+	}
+
+	private static List<Path> listWavFiles(Path path) throws IOException {
+		if (!Files.isDirectory(path)) {
+			List<Path> single = new ArrayList<>();
+			single.add(path);
+			return single;
+		}
+		try (Stream<Path> stream = Files.list(path)) {
+			return stream.filter(p -> p.getFileName().toString().toLowerCase().endsWith(".wav"))
+					.filter(Files::isRegularFile)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static WavHeader readHeader(Path file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(WavHeader.RF64_HEADER_SIZE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					break;
+				}
+			}
+		}
+		buffer.flip();
+		return WavHeader.parse(buffer);
+	}
+
+	@Override
+	public int[] getAudioParams() {
+		return params.clone();
+	}
+
+	@Override
+	protected void open() throws IOException {
+		current = 0;
+		openSource(sources.get(0));
+	}
+
+	@Override
+	protected void close() {
+		closeChannel();
+	}
+
+	@Override
+	protected int fill(ByteBuffer dst, int maxFrames) throws IOException {
+		int blockAlign = params[1] * params[2] / 8;
+		dst.limit(maxFrames * blockAlign);
+		while (dst.hasRemaining()) {
+			if (remaining <= 0 && !advance()) {
+				break;
+			}
+			int limit = dst.limit();
+			if (dst.remaining() > remaining) {
+				dst.limit(dst.position() + (int) remaining);
+			}
+			int n = channel.read(dst);
+			dst.limit(limit);
+			if (n < 0) {
+				// 文件在回放期间被截短
+				remaining = 0;
+				continue;
+			}
+			remaining -= n;
+		}
+		// 只交付整帧，截短文件末尾的残帧丢弃
+		int frames = dst.position() / blockAlign;
+		dst.position(frames * blockAlign);
+		return frames;
+	}
+
+	private boolean advance() throws IOException {
+		closeChannel();
+		current++;
+		if (current >= sources.size()) {
+			if (!loop) {
+				return false;
+			}
+			current = 0;
+		}
+		openSource(sources.get(current));
+		return true;
+	}
+
+	private void openSource(Source source) throws IOException {
+		closeChannel();
+		channel = FileChannel.open(source.file, StandardOpenOption.READ);
+		channel.position(source.dataOffset);
+		remaining = source.dataSize;
+	}
+
+	private void closeChannel() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.warn("关闭回放文件失败: {}", e.getMessage());
+			}
+			channel = null;
+		}
+		remaining = 0;
+	}
+
+	@Override
+	protected String describe() {
+		return String.format("回放 %s（%d 个文件%s）", path, sources.size(), loop ? "，循环" : "");
+	}
+
+	private static final class Source {
+		final Path file;
+		final long dataOffset;
+		final long dataSize;
+
+		Source(Path file, long dataOffset, long dataSize) {
+			this.file = file;
+			this.dataOffset = dataOffset;
+			this.dataSize = dataSize;
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package com.web.media.recorder.media.waveform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 随 PCM 数据增量计算波形峰值金字塔，格式见 {@link WaveformPeaks}
+ * <p>
+ * 第 0 级峰值边算边追加到临时文件，更高的级别只有第 0 级的三分之一大小，保存在内存中；
+ * {@link #finish()} 时把高级别追加到文件末尾、写入头部并原子地重命名为正式的峰值文件。
+ * 中途崩溃只会留下临时文件，由补算任务重新生成。非线程安全，由写入录音的线程调用。
+ */
+public final class WaveformBuilder {
+	private static final int OUTPUT_BUFFER_SIZE = 8192;
+	// 每次批量取出解码的采样帧数
+	private static final int SCRATCH_FRAMES = 4096;
+
+	private final Path target;
+	private final Path tmp;
+	private final FileChannel channel;
+	private final int sampleRate;
+	private final int channels;
+	private final int bytesPerSample;
+	private final int frameSize;
+	// 批量取出的 PCM，开头可能是上次写入剩下的不完整采样帧
+	private final byte[] scratch;
+	private int partialLength;
+	private final ByteBuffer output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private long outputPosition = WaveformPeaks.HEADER_SIZE;
+	private long totalFrames;
+
+	// 第 0 级正在累积的峰值
+	private int frames;
+	private int min = Integer.MAX_VALUE;
+	private int max = Integer.MIN_VALUE;
+	private long sumSquares;
+	// 更高级别正在累积的峰值（按下级峰值的 RMS 平方合并）与已完成的峰值
+	private final int[] levelMin = new int[WaveformPeaks.LEVEL_COUNT];
+	private final int[] levelMax = new int[WaveformPeaks.LEVEL_COUNT];
+	private final double[] levelSquares = new double[WaveformPeaks.LEVEL_COUNT];
+	private final int[] levelCount = new int[WaveformPeaks.LEVEL_COUNT];
+	private final ByteBuffer[] levels = new ByteBuffer[WaveformPeaks.LEVEL_COUNT];
+	private final long[] peakCounts = new long[WaveformPeaks.LEVEL_COUNT];
+	private boolean finished;
+
+	/**
+	 * @param recording 录音文件（或分段录音目录），峰值文件写在其旁边
+	 */
+	public WaveformBuilder(Path recording, int sampleRate, int channels, int bitsPerSample) throws IOException {
+		if (!supports(channels, bitsPerSample)) {
+			throw new IllegalArgumentException("不支持的 PCM 格式: " + channels + " 声道, " + bitsPerSample + " 位");
+		}
+		this.target = WaveformPeaks.sidecarOf(recording);
+		this.tmp = WaveformPeaks.tmpOf(recording);
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bytesPerSample = bitsPerSample / 8;
+		this.frameSize = channels * bytesPerSample;
+		this.scratch = new byte[frameSize * SCRATCH_FRAMES];
+		for (int i = 1; i < WaveformPeaks.LEVEL_COUNT; i++) {
+			levels[i] = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			resetLevel(i);
+		}
+		this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+	}
+
+	public static boolean supports(int channels, int bitsPerSample) {
+		return channels > 0 && (bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 24
+				|| bitsPerSample == 32);
+	}
+
+	/**
+	 * 累积缓冲区中剩余的 PCM 数据，不改变其位置
+	 */
+	public void update(ByteBuffer pcm) throws IOException {
+		if (finished) {
+			return;
+		}
+		// 批量复制到数组再解码，比逐个读取直接内存或映射内存快得多
+		ByteBuffer in = pcm.duplicate();
+		while (in.hasRemaining()) {
+			int n = Math.min(in.remaining(), scratch.length - partialLength);
+			in.get(scratch, partialLength, n);
+			int available = partialLength + n;
+			int count = available / frameSize;
+			accumulate(count);
+			partialLength = available - count * frameSize;
+			System.arraycopy(scratch, count * frameSize, scratch, 0, partialLength);
+		}
+	}
+
+	private void accumulate(int count) throws IOException {
+		int offset = 0;
+		for (int f = 0; f < count; f++) {
+			for (int c = 0; c < channels; c++) {
+				int sample = sample(offset);
+				offset += bytesPerSample;
+				if (sample < min) {
+					min = sample;
+				}
+				if (sample > max) {
+					max = sample;
+				}
+				sumSquares += sample * sample;
+			}
+			totalFrames++;
+			if (++frames == WaveformPeaks.BASE_FRAMES_PER_PEAK) {
+				emitBase();
+			}
+		}
+	}
+
+	// 小端样本按 16 位满幅归一化：8 位无符号居中放大，24/32 位取高 16 位
+	private int sample(int index) {
+		if (bytesPerSample == 1) {
+			return ((scratch[index] & 0xff) - 128) << 8;
+		}
+		int high = index + bytesPerSample - 1;
+		return (scratch[high] << 8) | (scratch[high - 1] & 0xff);
+	}
+
+	private void emitBase() throws IOException {
+		int rms = (int) Math.min(Short.MAX_VALUE, Math.round(Math.sqrt((double) sumSquares / (frames * channels))));
+		if (output.remaining() < WaveformPeaks.PEAK_SIZE) {
+			flushOutput();
+		}
+		output.putShort((short) min).putShort((short) max).putShort((short) rms);
+		peakCounts[0]++;
+		push(1, min, max, rms);
+		frames = 0;
+		min = Integer.MAX_VALUE;
+		max = Integer.MIN_VALUE;
+		sumSquares = 0;
+	}
+
+	// 将下一级的一个峰值并入 level 级
+	private void push(int level, int peakMin, int peakMax, int rms) {
+		if (level >= WaveformPeaks.LEVEL_COUNT) {
+			return;
+		}
+		levelMin[level] = Math.min(levelMin[level], peakMin);
+		levelMax[level] = Math.max(levelMax[level], peakMax);
+		levelSquares[level] += (double) rms * rms;
+		if (++levelCount[level] == WaveformPeaks.LEVEL_FACTOR) {
+			emitLevel(level);
+		}
+	}
+
+	private void emitLevel(int level) {
+		int rms = (int) Math.min(Short.MAX_VALUE, Math.round(Math.sqrt(levelSquares[level] / levelCount[level])));
+		int peakMin = levelMin[level];
+		int peakMax = levelMax[level];
+		ByteBuffer buffer = levels[level];
+		if (buffer.remaining() < WaveformPeaks.PEAK_SIZE) {
+			ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.flip();
+			grown.put(buffer);
+			levels[level] = buffer = grown;
+		}
+		buffer.putShort((short) peakMin).putShort((short) peakMax).putShort((short) rms);
+		peakCounts[level]++;
+		resetLevel(level);
+		push(level + 1, peakMin, peakMax, rms);
+	}
+
+	private void resetLevel(int level) {
+		levelMin[level] = Integer.MAX_VALUE;
+		levelMax[level] = Integer.MIN_VALUE;
+		levelSquares[level] = 0;
+		levelCount[level] = 0;
+	}
+
+	private void flushOutput() throws IOException {
+		output.flip();
+		while (output.hasRemaining()) {
+			outputPosition += channel.write(output, outputPosition);
+		}
+		output.clear();
+	}
+
+	/**
+	 * 补齐末尾不足一个峰值的部分，写出高级别与头部后替换正式的峰值文件
+	 */
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		try {
+			if (frames > 0) {
+				emitBase();
+			}
+			for (int level = 1; level < WaveformPeaks.LEVEL_COUNT; level++) {
+				if (levelCount[level] > 0) {
+					emitLevel(level);
+				}
+			}
+			flushOutput();
+			ByteBuffer header = ByteBuffer.allocate(WaveformPeaks.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(WaveformPeaks.MAGIC).putInt(WaveformPeaks.VERSION).putInt(sampleRate).putInt(channels)
+					.putLong(totalFrames).putInt(WaveformPeaks.LEVEL_COUNT).putInt(WaveformPeaks.BASE_FRAMES_PER_PEAK)
+					.putInt(WaveformPeaks.LEVEL_FACTOR).putInt(0);
+			header.putLong(WaveformPeaks.HEADER_SIZE).putLong(peakCounts[0]);
+			long position = outputPosition;
+			for (int level = 1; level < WaveformPeaks.LEVEL_COUNT; level++) {
+				header.putLong(position).putLong(peakCounts[level]);
+				ByteBuffer buffer = levels[level];
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					position += channel.write(buffer, position);
+				}
+				levels[level] = null;
+			}
+			header.clear();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(false);
+			channel.close();
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * 放弃生成并删除临时文件
+	 */
+	public void abort() {
+		finished = true;
+		try {
+			channel.close();
+			Files.deleteIfExists(tmp);
+		} catch (IOException e) {
+			System.err.println("删除临时波形文件失败: " + e.getMessage());
+		}
+	}
+
+	public long getTotalFrames() {
+		return totalFrames;
+	}
+}
@@ -0,0 +1,171 @@
+package com.web.media.recorder.media.waveform;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 录音的波形峰值文件
+ * <p>
+ * 与录音同目录的隐藏旁路文件 {@code .<录音文件名>.peaks}，保存多级分辨率的峰值金字塔：
+ * 第 0 级每 {@link #BASE_FRAMES_PER_PEAK} 帧一个峰值，之后每级合并 {@link #LEVEL_FACTOR} 个上一级峰值。
+ * 每个峰值为三个小端 int16：最小值、最大值与 RMS，按 16 位满幅归一化，各声道合并计算。
+ * <p>
+ * 文件布局（小端）：魔数、版本、采样率、声道数、总帧数、级数、第 0 级每峰值帧数、级间倍数，
+ * 随后是每级数据的偏移与峰值数，头部之后依次为各级峰值。
+ */
+public final class WaveformPeaks {
+	public static final String SUFFIX = ".peaks";
+	static final String TMP_SUFFIX = ".peaks.tmp";
+	public static final int PEAK_SIZE = 6;
+	public static final int BASE_FRAMES_PER_PEAK = 1024;
+	public static final int LEVEL_FACTOR = 4;
+	public static final int LEVEL_COUNT = 5;
+	static final int MAGIC = 0x4b415057; // "WPAK"
+	static final int VERSION = 1;
+	static final int MAX_LEVELS = 8;
+	static final int HEADER_SIZE = 40 + 16 * MAX_LEVELS;
+
+	private final Path path;
+	private final int sampleRate;
+	private final int channels;
+	private final long totalFrames;
+	private final int baseFramesPerPeak;
+	private final int levelFactor;
+	private final long[] offsets;
+	private final long[] counts;
+	private final long lastModified;
+
+	private WaveformPeaks(Path path, ByteBuffer header, long lastModified) throws IOException {
+		this.path = path;
+		this.lastModified = lastModified;
+		if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+			throw new IOException("不是有效的波形峰值文件: " + path);
+		}
+		this.sampleRate = header.getInt(8);
+		this.channels = header.getInt(12);
+		this.totalFrames = header.getLong(16);
+		int levels = header.getInt(24);
+		this.baseFramesPerPeak = header.getInt(28);
+		this.levelFactor = header.getInt(32);
+		if (levels <= 0 || levels > MAX_LEVELS || baseFramesPerPeak <= 0 || levelFactor <= 1 || sampleRate <= 0) {
+			throw new IOException("波形峰值文件头部无效: " + path);
+		}
+		this.offsets = new long[levels];
+		this.counts = new long[levels];
+		for (int i = 0; i < levels; i++) {
+			offsets[i] = header.getLong(40 + i * 16);
+			counts[i] = header.getLong(48 + i * 16);
+		}
+	}
+
+	/**
+	 * @return 录音对应的峰值文件路径
+	 */
+	public static Path sidecarOf(Path recording) {
+		return recording.resolveSibling("." + recording.getFileName() + SUFFIX);
+	}
+
+	static Path tmpOf(Path recording) {
+		return recording.resolveSibling("." + recording.getFileName() + TMP_SUFFIX);
+	}
+
+	/**
+	 * @return 峰值文件对应的录音文件名，不是峰值文件时返回 null
+	 */
+	public static String recordingNameOf(String sidecarName) {
+		String suffix = sidecarName.endsWith(SUFFIX) ? SUFFIX : sidecarName.endsWith(TMP_SUFFIX) ? TMP_SUFFIX : null;
+		if (suffix == null || !sidecarName.startsWith(".") || sidecarName.length() <= suffix.length() + 1) {
+			return null;
+		}
+		return sidecarName.substring(1, sidecarName.length() - suffix.length());
+	}
+
+	/**
+	 * 读取峰值文件头部
+	 */
+	public static WaveformPeaks open(Path sidecar) throws IOException {
+		try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			return new WaveformPeaks(sidecar, header, Files.getLastModifiedTime(sidecar).toMillis());
+		}
+	}
+
+	/**
+	 * 读取一级中连续的峰值
+	 *
+	 * @return 小端 int16 三元组 (min, max, rms) 组成的字节数组，区间超出范围的部分被截掉
+	 */
+	public byte[] read(int level, long firstPeak, int count) throws IOException {
+		long available = Math.max(0, counts[level] - firstPeak);
+		int n = (int) Math.min(count, available);
+		byte[] data = new byte[n * PEAK_SIZE];
+		if (n == 0) {
+			return data;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			readFully(channel, ByteBuffer.wrap(data), offsets[level] + firstPeak * PEAK_SIZE);
+		}
+		return data;
+	}
+
+	/**
+	 * 选择使指定帧数范围内的峰值数不超过 maxPeaks 的最精细级别，都超过时返回最粗的级别
+	 */
+	public int chooseLevel(long frames, int maxPeaks) {
+		for (int level = 0; level < counts.length; level++) {
+			if ((frames + getFramesPerPeak(level) - 1) / getFramesPerPeak(level) <= maxPeaks) {
+				return level;
+			}
+		}
+		return counts.length - 1;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int n = channel.read(buffer, position);
+			if (n < 0) {
+				throw new EOFException("波形峰值文件被截断");
+			}
+			position += n;
+		}
+	}
+
+	public int getLevelCount() {
+		return counts.length;
+	}
+
+	public long getFramesPerPeak(int level) {
+		long frames = baseFramesPerPeak;
+		for (int i = 0; i < level; i++) {
+			frames *= levelFactor;
+		}
+		return frames;
+	}
+
+	public long getPeakCount(int level) {
+		return counts[level];
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	public long getTotalFrames() {
+		return totalFrames;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+}
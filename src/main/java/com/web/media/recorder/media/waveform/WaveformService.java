@@ -0,0 +1,264 @@
+package com.web.media.recorder.media.waveform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.config.MediaConfig;
+import com.web.media.recorder.media.encoder.AudioCodec;
+import com.web.media.recorder.media.file.MediaFile;
+import com.web.media.recorder.media.file.MediaFileListener;
+import com.web.media.recorder.media.file.SegmentedRecording;
+import com.web.media.recorder.media.file.WavHeader;
+
+/**
+ * 波形峰值文件的管理
+ * <p>
+ * 新录音的峰值由 {@link MediaFile} 在写入时增量生成；启动时后台线程为缺少或过期峰值文件的已有 WAV 与分段录音补算，
+ * 以内存映射方式按窗口顺序读取 PCM，不经过堆内存。压缩格式的录音无法补算，只有录制时生成的峰值。
+ */
+@Component
+public class WaveformService implements MediaFileListener {
+	private static final Logger logger = LoggerFactory.getLogger(WaveformService.class);
+	// 补算时每次映射的窗口大小
+	private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+	@Autowired
+	private MediaConfig mediaConfig;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "waveform-backfill");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+	// 正在写入的录音，峰值由写入线程生成
+	private final Set<Path> writing = ConcurrentHashMap.newKeySet();
+	// 已排队等待补算的录音
+	private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+	private Path audioPath;
+
+	@PostConstruct
+	public void init() {
+		audioPath = Paths.get(mediaConfig.getAudioDir()).toAbsolutePath().normalize();
+		MediaFile.addListener(this);
+		MediaFile.setWaveformEnabled(mediaConfig.isWaveformEnabled());
+		if (mediaConfig.isWaveformEnabled() && mediaConfig.isWaveformBackfill()) {
+			executor.execute(this::backfill);
+		}
+	}
+
+	@PreDestroy
+	public void destroy() {
+		MediaFile.setWaveformEnabled(false);
+		MediaFile.removeListener(this);
+		executor.shutdownNow();
+	}
+
+	@Override
+	public void onFileCreated(Path path) {
+		writing.add(path.toAbsolutePath().normalize());
+	}
+
+	@Override
+	public void onFileClosed(Path path, long length) {
+		writing.remove(path.toAbsolutePath().normalize());
+	}
+
+	/**
+	 * 获取录音的波形峰值；峰值文件缺失或过期且可以补算时提交补算任务并返回 null
+	 *
+	 * @param recording 录音目录下存在的录音文件或分段录音目录
+	 * @throws NoSuchFileException 压缩格式的录音没有峰值文件，无法补算
+	 */
+	public WaveformPeaks getPeaks(Path recording) throws IOException {
+		Path normalized = recording.toAbsolutePath().normalize();
+		Path sidecar = WaveformPeaks.sidecarOf(normalized);
+		if (Files.isRegularFile(sidecar) && (writing.contains(normalized) || !isStale(normalized, sidecar))) {
+			return WaveformPeaks.open(sidecar);
+		}
+		if (!canGenerate(normalized)) {
+			throw new NoSuchFileException(sidecar.toString(), null, "录音没有波形峰值");
+		}
+		if (!writing.contains(normalized)) {
+			submit(normalized);
+		}
+		return null;
+	}
+
+	/**
+	 * 删除录音的峰值文件，录音目录之外的路径忽略
+	 */
+	public void delete(Path recording) throws IOException {
+		Path normalized = recording.toAbsolutePath().normalize();
+		if (!audioPath.equals(normalized.getParent())) {
+			return;
+		}
+		Files.deleteIfExists(WaveformPeaks.sidecarOf(normalized));
+		Files.deleteIfExists(WaveformPeaks.tmpOf(normalized));
+	}
+
+	private void submit(Path recording) {
+		if (!pending.add(recording)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					if (!writing.contains(recording)) {
+						generate(recording);
+					}
+				} catch (IOException e) {
+					logger.warn("生成波形峰值失败: {}, {}", recording, e.getMessage());
+				} finally {
+					pending.remove(recording);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pending.remove(recording);
+		}
+	}
+
+	/**
+	 * 扫描录音目录：补算缺失或过期的峰值文件，清理录音已不存在的峰值文件
+	 */
+	private void backfill() {
+		if (!Files.isDirectory(audioPath)) {
+			return;
+		}
+		int generated = 0;
+		long start = System.currentTimeMillis();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(audioPath)) {
+			for (Path path : stream) {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				String name = path.getFileName().toString();
+				String recordingName = WaveformPeaks.recordingNameOf(name);
+				if (recordingName != null) {
+					Path recording = audioPath.resolve(recordingName);
+					if (!Files.exists(recording) && !writing.contains(recording)) {
+						Files.deleteIfExists(path);
+					}
+					continue;
+				}
+				if (!canGenerate(path) || writing.contains(path)) {
+					continue;
+				}
+				Path sidecar = WaveformPeaks.sidecarOf(path);
+				if (Files.isRegularFile(sidecar) && !isStale(path, sidecar)) {
+					continue;
+				}
+				try {
+					generate(path);
+					generated++;
+				} catch (IOException e) {
+					logger.warn("补算波形峰值失败: {}, {}", path, e.getMessage());
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("扫描录音目录失败: {}", e.getMessage());
+		}
+		if (generated > 0) {
+			logger.info("补算 {} 个录音的波形峰值，耗时 {}ms", generated, System.currentTimeMillis() - start);
+		}
+	}
+
+	private static boolean canGenerate(Path path) {
+		String name = path.getFileName().toString();
+		if (!name.startsWith("audio_")) {
+			return false;
+		}
+		return SegmentedRecording.isSegmented(name) ? Files.isDirectory(path)
+				: AudioCodec.fromFileName(name) == AudioCodec.WAV && Files.isRegularFile(path);
+	}
+
+	// 录音在峰值文件生成之后又被修改（如修复或覆盖）
+	private static boolean isStale(Path recording, Path sidecar) throws IOException {
+		long modified = SegmentedRecording.isSegmented(recording.getFileName().toString())
+				? SegmentedRecording.read(recording).getLastModified()
+				: Files.getLastModifiedTime(recording).toMillis();
+		return Files.getLastModifiedTime(sidecar).toMillis() < modified;
+	}
+
+	private void generate(Path recording) throws IOException {
+		if (SegmentedRecording.isSegmented(recording.getFileName().toString())) {
+			SegmentedRecording segmented = SegmentedRecording.read(recording);
+			WaveformBuilder builder = newBuilder(recording, segmented.getSampleRate(), segmented.getChannels(),
+					segmented.getBitsPerSample());
+			try {
+				for (SegmentedRecording.Segment segment : segmented.getSegments()) {
+					try (FileChannel channel = FileChannel.open(segment.getPath(), StandardOpenOption.READ)) {
+						feed(builder, channel, segment.getDataOffset(), segment.getDataSize());
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				builder.abort();
+				throw e;
+			}
+			builder.finish();
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(recording, StandardOpenOption.READ)) {
+			ByteBuffer head = ByteBuffer.allocate(WavHeader.RF64_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (head.hasRemaining() && channel.read(head) >= 0) {
+			}
+			head.flip();
+			WavHeader header = WavHeader.parse(head);
+			if (header == null) {
+				throw new IOException("不是支持的 PCM WAV 文件");
+			}
+			// 按实际文件长度计算数据量，崩溃后头部中的大小可能落后
+			int blockAlign = Math.max(1, header.channels * header.bitsPerSample / 8);
+			long dataSize = Math.max(0, channel.size() - header.dataOffset);
+			dataSize -= dataSize % blockAlign;
+			WaveformBuilder builder = newBuilder(recording, header.sampleRate, header.channels, header.bitsPerSample);
+			try {
+				feed(builder, channel, header.dataOffset, dataSize);
+			} catch (IOException | RuntimeException e) {
+				builder.abort();
+				throw e;
+			}
+			builder.finish();
+		}
+	}
+
+	private static WaveformBuilder newBuilder(Path recording, int sampleRate, int channels, int bitsPerSample)
+			throws IOException {
+		if (!WaveformBuilder.supports(channels, bitsPerSample)) {
+			throw new IOException("不支持的 PCM 格式: " + channels + " 声道, " + bitsPerSample + " 位");
+		}
+		return new WaveformBuilder(recording, sampleRate, channels, bitsPerSample);
+	}
+
+	private static void feed(WaveformBuilder builder, FileChannel channel, long offset, long length)
+			throws IOException {
+		long end = offset + length;
+		for (long position = offset; position < end; position += MAP_WINDOW) {
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.min(MAP_WINDOW, end - position));
+			builder.update(window);
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package com.web.media.recorder.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.media.file.MediaFile;
+import com.web.media.recorder.media.file.MediaFileMetrics;
+import com.web.media.recorder.websocket.OutboundQueue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 热路径上的指标记录：写盘与编码耗时、推流收发字节数与各阶段延迟
+ * <p>
+ * 延迟按阶段统一记在 recorder.latency 下（stage 标签），从采集到送达浏览器依次为：
+ * device（声卡采集到本地循环取出）、native（本地循环到 Java 回调）、queue（进入广播缓冲区到整帧入队）、
+ * send（入队到发送完成）、end-to-end（采集到发送完成），以及浏览器回报的 playout（采集到开始播放）。
+ * <p>
+ * 计量器在启动或会话激活时注册一次，记录时只做原子累加与直方图计数，不分配对象。
+ * 会话级计量器带 session 标签，会话结束时从注册表移除。
+ * 采集缓冲区、ALSA、编码积压等状态类指标见 {@link MediaMetricsBinder}。
+ */
+@Component
+public class MediaMetrics implements MediaFileMetrics {
+	private final MeterRegistry registry;
+	private final Timer writeTimer;
+	private final Counter writtenBytes;
+	private final Timer encodeTimer;
+	private final Counter encodedBytes;
+	private final Timer deviceLatency;
+	private final Timer nativeLatency;
+	private final Timer queueLatency;
+	private final Timer sendLatency;
+	private final Timer endToEndLatency;
+	private final Timer playoutLatency;
+	private final Timer captureStart;
+	private final Counter receivedBytes;
+	private final Counter sentBytes;
+	private final Counter rejectedSessions;
+	private final Counter sendFailures;
+	private final Counter overflowDisconnects;
+	private final Counter slowConsumerDisconnects;
+	private final Counter sendTimeoutDisconnects;
+
+	@Autowired
+	public MediaMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		this.writeTimer = Timer.builder("recorder.file.write")
+				.description("MediaFile.writeData 耗时，含期间触发的检查点")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(1000))
+				.maximumExpectedValue(Duration.ofSeconds(1))
+				.register(registry);
+		this.writtenBytes = Counter.builder("recorder.file.written")
+				.baseUnit("bytes")
+				.description("写入录音文件的字节数")
+				.register(registry);
+		this.encodeTimer = Timer.builder("recorder.encoder.encode")
+				.description("编码一块 PCM 并写出结果的耗时")
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(10_000))
+				.maximumExpectedValue(Duration.ofSeconds(1))
+				.register(registry);
+		this.encodedBytes = Counter.builder("recorder.encoder.encoded")
+				.baseUnit("bytes")
+				.description("已编码的 PCM 字节数")
+				.register(registry);
+		this.deviceLatency = latencyTimer("device");
+		this.nativeLatency = latencyTimer("native");
+		this.queueLatency = latencyTimer("queue");
+		this.sendLatency = latencyTimer("send");
+		this.endToEndLatency = latencyTimer("end-to-end");
+		this.playoutLatency = latencyTimer("playout");
+		this.captureStart = Timer.builder("recorder.capture.start")
+				.description("开始采集到首批数据到达 Java 的耗时，预热设备时约为一个 ALSA 周期")
+				.register(registry);
+		this.receivedBytes = Counter.builder("recorder.websocket.received")
+				.baseUnit("bytes")
+				.description("客户端上传的字节数")
+				.register(registry);
+		this.sentBytes = Counter.builder("recorder.websocket.sent")
+				.baseUnit("bytes")
+				.description("推送给客户端的字节数")
+				.register(registry);
+		this.rejectedSessions = Counter.builder("recorder.websocket.rejected")
+				.description("因连接数与等待队列均已满而拒绝的会话数")
+				.register(registry);
+		this.sendFailures = disconnectCounter("error");
+		this.overflowDisconnects = disconnectCounter("overflow");
+		this.slowConsumerDisconnects = disconnectCounter("slow-consumer");
+		this.sendTimeoutDisconnects = disconnectCounter("send-timeout");
+	}
+
+	private Timer latencyTimer(String stage) {
+		return Timer.builder("recorder.latency")
+				.description("采集到推送链路上各阶段的延迟")
+				.tag("stage", stage)
+				.publishPercentiles(0.5, 0.99)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(1000))
+				.maximumExpectedValue(Duration.ofSeconds(10))
+				.register(registry);
+	}
+
+	private Counter disconnectCounter(String reason) {
+		return Counter.builder("recorder.websocket.disconnects")
+				.description("服务端主动断开的推流会话数")
+				.tag("reason", reason)
+				.register(registry);
+	}
+
+	@PostConstruct
+	public void init() {
+		MediaFile.setMetrics(this);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		MediaFile.setMetrics(null);
+	}
+
+	@Override
+	public void recordWrite(int bytes, long nanos) {
+		writeTimer.record(nanos, TimeUnit.NANOSECONDS);
+		writtenBytes.increment(bytes);
+	}
+
+	@Override
+	public void recordEncode(int bytes, long nanos) {
+		encodeTimer.record(nanos, TimeUnit.NANOSECONDS);
+		encodedBytes.increment(bytes);
+	}
+
+	public void recordDeviceLatency(long nanos) {
+		deviceLatency.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordNativeLatency(long nanos) {
+		nativeLatency.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordQueueLatency(long nanos) {
+		queueLatency.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordPlayoutLatency(long nanos) {
+		playoutLatency.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordCaptureStart(long nanos) {
+		captureStart.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void sessionRejected() {
+		rejectedSessions.increment();
+	}
+
+	/**
+	 * 发送失败导致断开
+	 */
+	public void sendFailed() {
+		sendFailures.increment();
+	}
+
+	/**
+	 * 发送队列积压超过上限导致断开
+	 */
+	public void overflowDisconnected() {
+		overflowDisconnects.increment();
+	}
+
+	/**
+	 * 落后超过广播缓冲区限制导致断开
+	 */
+	public void slowConsumerDisconnected() {
+		slowConsumerDisconnects.increment();
+	}
+
+	/**
+	 * 单次发送超过时限导致断开
+	 */
+	public void sendTimeoutDisconnected() {
+		sendTimeoutDisconnects.increment();
+	}
+
+	/**
+	 * 注册会话级计量器，会话结束时须调用 {@link SessionMeters#close()}
+	 */
+	public SessionMeters registerSession(String sessionId) {
+		return new SessionMeters(sessionId);
+	}
+
+	/**
+	 * 单个会话的收发计量器
+	 */
+	public final class SessionMeters implements OutboundQueue.SendObserver {
+		private final String sessionId;
+		private final Counter received;
+		private final Counter sent;
+		private final List<Meter> meters = new ArrayList<>();
+
+		private SessionMeters(String sessionId) {
+			this.sessionId = sessionId;
+			this.received = add(Counter.builder("recorder.websocket.session.received")
+					.baseUnit("bytes")
+					.tag("session", sessionId)
+					.register(registry));
+			this.sent = add(Counter.builder("recorder.websocket.session.sent")
+					.baseUnit("bytes")
+					.tag("session", sessionId)
+					.register(registry));
+		}
+
+		private <T extends Meter> T add(T meter) {
+			synchronized (meters) {
+				meters.add(meter);
+			}
+			return meter;
+		}
+
+		public void received(int bytes) {
+			received.increment(bytes);
+			receivedBytes.increment(bytes);
+		}
+
+		@Override
+		public void onSent(int bytes, long latencyNanos, long captureNanos) {
+			sent.increment(bytes);
+			sentBytes.increment(bytes);
+			sendLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+			if (captureNanos != 0) {
+				endToEndLatency.record(System.nanoTime() - captureNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		/**
+		 * 导出会话发送队列的积压与丢弃量
+		 */
+		public void bindQueue(OutboundQueue queue) {
+			add(Gauge.builder("recorder.websocket.session.queued", queue, OutboundQueue::getQueuedBytes)
+					.baseUnit("bytes")
+					.description("发送队列中积压的字节数")
+					.tag("session", sessionId)
+					.register(registry));
+			add(FunctionCounter.builder("recorder.websocket.session.dropped", queue, OutboundQueue::getDroppedBytes)
+					.baseUnit("bytes")
+					.description("发送队列溢出丢弃的字节数")
+					.tag("session", sessionId)
+					.register(registry));
+		}
+
+		public void close() {
+			synchronized (meters) {
+				for (Meter meter : meters) {
+					registry.remove(meter);
+				}
+				meters.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.web.media.recorder.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.web.media.recorder.config.CaptureProcessorConfig;
+import com.web.media.recorder.media.encoder.AudioEncoderPool;
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.broadcast.CaptureBroadcaster;
+import com.web.media.recorder.media.processor.jni.NativeProcessor;
+import com.web.media.recorder.websocket.WebSocketHandler;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * 状态类指标：会话数、采集缓冲区、广播订阅、ALSA 异常与编码积压
+ * <p>
+ * 均为抓取时读取的函数型计量器，不在采集与推流路径上产生任何开销。
+ * 不实现 MeterBinder：自动绑定发生在注册表创建期间，而这里依赖的组件本身需要注册表，会形成循环依赖。
+ */
+@Component
+public class MediaMetricsBinder {
+	private static final int XRUN = 0;
+	private static final int RECOVER = 1;
+	private static final int RESTART = 2;
+	private static final int PERIOD_FRAMES = 0;
+	private static final int BUFFER_FRAMES = 1;
+	private static final int REALTIME = 2;
+
+	private final MeterRegistry registry;
+	private final WebSocketHandler webSocketHandler;
+	private final AbstractMediaProcessor captureProcessor;
+	private final NativeProcessor nativeProcessor;
+	private final CaptureBroadcaster captureBroadcaster;
+	private final AudioEncoderPool encoderPool;
+
+	@Autowired
+	public MediaMetricsBinder(MeterRegistry registry, WebSocketHandler webSocketHandler,
+			@Qualifier(CaptureProcessorConfig.CAPTURE_PROCESSOR) AbstractMediaProcessor captureProcessor,
+			NativeProcessor nativeProcessor, CaptureBroadcaster captureBroadcaster, AudioEncoderPool encoderPool) {
+		this.registry = registry;
+		this.webSocketHandler = webSocketHandler;
+		this.captureProcessor = captureProcessor;
+		this.nativeProcessor = nativeProcessor;
+		this.captureBroadcaster = captureBroadcaster;
+		this.encoderPool = encoderPool;
+	}
+
+	@PostConstruct
+	public void bind() {
+		Gauge.builder("recorder.websocket.sessions", webSocketHandler, WebSocketHandler::getActiveSessionCount)
+				.description("推流会话数")
+				.tag("state", "active")
+				.register(registry);
+		Gauge.builder("recorder.websocket.sessions", webSocketHandler, WebSocketHandler::getQueuedSessionCount)
+				.description("推流会话数")
+				.tag("state", "queued")
+				.register(registry);
+
+		// 单订阅模式下的实时数据缓冲区（采集线程与读取线程之间的交接队列）
+		Gauge.builder("recorder.capture.buffer.used", captureProcessor, p -> p.getDataBuffer().size())
+				.baseUnit("bytes")
+				.description("实时数据缓冲区中未读的字节数")
+				.register(registry);
+		Gauge.builder("recorder.capture.buffer.capacity", captureProcessor, p -> p.getDataBuffer().capacity())
+				.baseUnit("bytes")
+				.register(registry);
+		FunctionCounter.builder("recorder.capture.buffer.overruns", captureProcessor,
+				p -> p.getDataBuffer().getOverrunCount())
+				.description("实时数据缓冲区满而丢弃数据的次数")
+				.register(registry);
+		FunctionCounter.builder("recorder.capture.buffer.dropped", captureProcessor,
+				p -> p.getDataBuffer().getDroppedBytes())
+				.baseUnit("bytes")
+				.register(registry);
+
+		// 静音门限
+		Gauge.builder("recorder.capture.gated", captureProcessor, p -> p.isSilenceGated() ? 1 : 0)
+				.description("静音门限是否处于关闭状态")
+				.register(registry);
+		FunctionCounter.builder("recorder.capture.gated.skipped", captureProcessor,
+				AbstractMediaProcessor::getSilenceSkippedBytes)
+				.baseUnit("bytes")
+				.description("静音期间未写盘、未推送的字节数")
+				.register(registry);
+
+		// 多路监听共享的广播缓冲区
+		Gauge.builder("recorder.broadcast.subscribers", captureBroadcaster, CaptureBroadcaster::getSubscriberCount)
+				.register(registry);
+		Gauge.builder("recorder.broadcast.lag.max", captureBroadcaster, b -> b.getRing().getMaxLag())
+				.baseUnit("bytes")
+				.description("落后最多的订阅者与写位置之间的字节数")
+				.register(registry);
+		FunctionCounter.builder("recorder.broadcast.published", captureBroadcaster,
+				b -> b.getRing().getPublishedBytes())
+				.baseUnit("bytes")
+				.register(registry);
+		FunctionCounter.builder("recorder.broadcast.evictions", captureBroadcaster,
+				b -> b.getRing().getEvictedCount())
+				.description("因落后过多被剔除的订阅者数")
+				.register(registry);
+
+		// 本地采集循环
+		Gauge.builder("recorder.capture.devices", nativeProcessor, p -> p.getDeviceCaptures().size())
+				.description("并行采集中的设备数（不含默认采集）")
+				.register(registry);
+		FunctionCounter.builder("recorder.alsa.xruns", nativeProcessor, p -> p.getCaptureStats()[XRUN])
+				.description("ALSA 缓冲区溢出或设备挂起次数")
+				.register(registry);
+		FunctionCounter.builder("recorder.alsa.recoveries", nativeProcessor, p -> p.getCaptureStats()[RECOVER])
+				.description("snd_pcm_recover 成功次数")
+				.register(registry);
+		FunctionCounter.builder("recorder.alsa.restarts", nativeProcessor, p -> p.getCaptureStats()[RESTART])
+				.description("恢复失败后重新打开设备的次数")
+				.register(registry);
+		// 默认采集实际协商的周期与缓冲区，按档位标注，与 xrun 速率、device 阶段延迟对照选择档位
+		String profile = nativeProcessor.getCaptureProfile().getLabel();
+		TimeGauge.builder("recorder.alsa.period", nativeProcessor, TimeUnit.MICROSECONDS,
+				p -> framesToMicros(p, p.getCaptureGeometry()[PERIOD_FRAMES]))
+				.description("ALSA 周期时长，即采集线程的唤醒间隔")
+				.tag("profile", profile)
+				.register(registry);
+		TimeGauge.builder("recorder.alsa.buffer", nativeProcessor, TimeUnit.MICROSECONDS,
+				p -> framesToMicros(p, p.getCaptureGeometry()[BUFFER_FRAMES]))
+				.description("ALSA 缓冲区时长，即不发生 xrun 所能容忍的最长停顿")
+				.tag("profile", profile)
+				.register(registry);
+		Gauge.builder("recorder.alsa.realtime", nativeProcessor, p -> p.getCaptureGeometry()[REALTIME])
+				.description("采集线程是否以 SCHED_FIFO 实时优先级运行")
+				.tag("profile", profile)
+				.register(registry);
+
+		// 编码线程池
+		Gauge.builder("recorder.encoder.pending", encoderPool, AudioEncoderPool::getPendingBytes)
+				.baseUnit("bytes")
+				.description("等待编码的 PCM 字节数")
+				.register(registry);
+		TimeGauge.builder("recorder.encoder.lag", encoderPool, TimeUnit.MILLISECONDS,
+				AudioEncoderPool::getMaxLagMillis)
+				.description("编码落后于采集的最大时长")
+				.register(registry);
+		FunctionCounter.builder("recorder.encoder.dropped", encoderPool, AudioEncoderPool::getDroppedBytes)
+				.baseUnit("bytes")
+				.description("编码积压超过上限而丢弃的 PCM 字节数")
+				.register(registry);
+		Gauge.builder("recorder.encoder.files", encoderPool, AudioEncoderPool::getActiveFileCount)
+				.register(registry);
+		Gauge.builder("recorder.encoder.queued.tasks", encoderPool, AudioEncoderPool::getQueuedTasks)
+				.register(registry);
+	}
+
+	private static double framesToMicros(NativeProcessor processor, long frames) {
+		// 设备未打开过时不取格式，避免抓取指标时加载本地库
+		if (frames <= 0) {
+			return 0;
+		}
+		int sampleRate = processor.getAudioParams()[0];
+		return sampleRate > 0 ? frames * 1_000_000.0 / sampleRate : 0;
+	}
+}
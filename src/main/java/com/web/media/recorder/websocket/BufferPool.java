@@ -0,0 +1,58 @@
+package com.web.media.recorder.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定大小的堆缓冲区池，推流帧发送完成后归还复用，避免每帧分配
+ */
+public class BufferPool {
+	private final int bufferSize;
+	private final int maxPooled;
+	private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	public BufferPool(int bufferSize, int maxPooled) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("缓冲区大小无效: " + bufferSize);
+		}
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * @return 已清空的缓冲区，池为空时新建
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = pool.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocate(bufferSize);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * 归还缓冲区；容量不符或池已满时丢弃
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.capacity() != bufferSize || buffer.isReadOnly()) {
+			return;
+		}
+		if (pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			return;
+		}
+		pool.offer(buffer);
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public int getPooledCount() {
+		return pooled.get();
+	}
+}
@@ -0,0 +1,407 @@
+package com.web.media.recorder.websocket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * 单个会话的出站发送队列
+ * <p>
+ * 推流任务只负责入队，发送在独立的执行器上进行，同一时刻每个会话至多一个发送任务，
+ * 因此浏览器消费慢时不会阻塞读取广播缓冲区。队列按字节计预算，超出时按 {@link OverflowPolicy} 处理；
+ * 入队的池化缓冲区在发送完成或被丢弃后归还 {@link BufferPool}。
+ * 单次发送可设时限，超时由 {@link #checkSendDeadline(long)} 判定并关闭队列，慢速客户端不会一直占住发送线程。
+ */
+public class OutboundQueue {
+	/**
+	 * 队列超出字节预算时的处理策略
+	 */
+	public enum OverflowPolicy {
+		// 丢弃最早入队的帧，保证实时性
+		DROP_OLDEST,
+		// 丢弃本次入队的帧
+		DROP_NEWEST,
+		// 关闭会话
+		CLOSE
+	}
+
+	/**
+	 * 每帧发送完成后在发送线程上回调，实现需保持轻量
+	 */
+	public interface SendObserver {
+		/**
+		 * @param latencyNanos 从入队到发送完成的耗时
+		 * @param captureNanos 帧首字节的采集时间（System.nanoTime 时钟），未知时为 0
+		 */
+		void onSent(int bytes, long latencyNanos, long captureNanos);
+	}
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private static final class Frame {
+		final ByteBuffer data;
+		final boolean pooled;
+		final long enqueuedAt;
+		final long captureNanos;
+		// 文本控制消息，为 null 时是二进制数据帧
+		final String text;
+
+		Frame(ByteBuffer data, boolean pooled, long enqueuedAt, long captureNanos) {
+			this(data, pooled, enqueuedAt, captureNanos, null);
+		}
+
+		Frame(ByteBuffer data, boolean pooled, long enqueuedAt, long captureNanos, String text) {
+			this.data = data;
+			this.pooled = pooled;
+			this.enqueuedAt = enqueuedAt;
+			this.captureNanos = captureNanos;
+			this.text = text;
+		}
+	}
+
+	private final WebSocketSession session;
+	private final BufferPool pool;
+	private final Executor executor;
+	private final long maxBytes;
+	private final OverflowPolicy policy;
+	private final Consumer<Exception> onError;
+	private final SendObserver observer;
+	// 单次发送的时限，0 表示不限
+	private final long sendTimeoutNanos;
+	// 当前发送的开始时间，0 表示没有进行中的发送
+	private volatile long sendStartedNanos;
+	// 首帧之前发送的格式头，可为 null
+	private byte[] preamble;
+
+	private final ConcurrentLinkedDeque<Frame> frames = new ConcurrentLinkedDeque<>();
+	private final AtomicLong queuedBytes = new AtomicLong();
+	private final AtomicInteger queuedFrames = new AtomicInteger();
+	private final AtomicBoolean draining = new AtomicBoolean();
+	private volatile boolean closed;
+	private volatile boolean overflowed;
+	private volatile boolean timedOut;
+
+	private final AtomicLong sentFrames = new AtomicLong();
+	private final AtomicLong sentBytes = new AtomicLong();
+	private final AtomicLong droppedFrames = new AtomicLong();
+	private final AtomicLong droppedBytes = new AtomicLong();
+	private final LongAdder totalLatencyNanos = new LongAdder();
+	private final AtomicLong maxLatencyNanos = new AtomicLong();
+	private volatile long lastLatencyNanos;
+
+	/**
+	 * @param maxBytes 队列中允许积压的最大字节数
+	 * @param onError  发送失败或按 {@link OverflowPolicy#CLOSE} 溢出时回调，此后队列不再发送
+	 */
+	public OutboundQueue(WebSocketSession session, byte[] preamble, BufferPool pool, Executor executor,
+			long maxBytes, OverflowPolicy policy, Consumer<Exception> onError) {
+		this(session, preamble, pool, executor, maxBytes, policy, onError, null);
+	}
+
+	/**
+	 * @param observer 发送完成回调，可为 null
+	 */
+	public OutboundQueue(WebSocketSession session, byte[] preamble, BufferPool pool, Executor executor,
+			long maxBytes, OverflowPolicy policy, Consumer<Exception> onError, SendObserver observer) {
+		this(session, preamble, pool, executor, maxBytes, policy, onError, observer, 0);
+	}
+
+	/**
+	 * @param sendTimeoutMillis 单次发送的时限（毫秒），0 表示不限
+	 */
+	public OutboundQueue(WebSocketSession session, byte[] preamble, BufferPool pool, Executor executor,
+			long maxBytes, OverflowPolicy policy, Consumer<Exception> onError, SendObserver observer,
+			long sendTimeoutMillis) {
+		this.session = session;
+		this.preamble = preamble;
+		this.pool = pool;
+		this.executor = executor;
+		this.maxBytes = maxBytes;
+		this.policy = policy;
+		this.onError = onError;
+		this.observer = observer;
+		this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, sendTimeoutMillis));
+	}
+
+	/**
+	 * 将帧的剩余字节入队，入队后调用方不得再修改该缓冲区
+	 *
+	 * @param pooled 缓冲区是否来自 {@link BufferPool}，是则发送完成后归还
+	 * @return 是否入队；被策略丢弃或队列已关闭时返回 false
+	 */
+	public boolean offer(ByteBuffer frame, boolean pooled) {
+		return offer(frame, pooled, 0);
+	}
+
+	/**
+	 * @param captureNanos 帧首字节的采集时间（System.nanoTime 时钟），未知时为 0，随帧交给 {@link SendObserver}
+	 */
+	public boolean offer(ByteBuffer frame, boolean pooled, long captureNanos) {
+		int size = frame.remaining();
+		if (closed || size == 0) {
+			recycle(frame, pooled);
+			return false;
+		}
+		if (queuedBytes.get() + size > maxBytes) {
+			switch (policy) {
+			case DROP_OLDEST:
+				// 控制消息表示状态变化，只保留最近一条，放回队首
+				Frame control = null;
+				while (queuedBytes.get() + size > maxBytes) {
+					Frame oldest = frames.pollFirst();
+					if (oldest == null) {
+						break;
+					}
+					if (oldest.text != null) {
+						if (control != null) {
+							dequeued(control);
+						}
+						control = oldest;
+						continue;
+					}
+					dequeued(oldest);
+					drop(oldest.data.remaining());
+					recycle(oldest.data, oldest.pooled);
+				}
+				if (control != null) {
+					frames.offerFirst(control);
+				}
+				break;
+			case CLOSE:
+				drop(size);
+				recycle(frame, pooled);
+				overflowed = true;
+				fail(new IOException("发送队列积压超过上限: " + maxBytes + " 字节"));
+				return false;
+			case DROP_NEWEST:
+			default:
+				drop(size);
+				recycle(frame, pooled);
+				return false;
+			}
+		}
+		frames.offerLast(new Frame(frame, pooled, System.nanoTime(), captureNanos));
+		queuedBytes.addAndGet(size);
+		queuedFrames.incrementAndGet();
+		scheduleDrain();
+		return true;
+	}
+
+	/**
+	 * 在数据帧之间插入文本控制消息，保持与前后数据帧的先后顺序；不计入字节预算，
+	 * 按 {@link OverflowPolicy#DROP_OLDEST} 丢弃时只保留最近一条
+	 *
+	 * @return 是否入队；队列已关闭时返回 false
+	 */
+	public boolean offerText(String text) {
+		if (closed) {
+			return false;
+		}
+		frames.offerLast(new Frame(EMPTY, false, System.nanoTime(), 0, text));
+		queuedFrames.incrementAndGet();
+		scheduleDrain();
+		return true;
+	}
+
+	/**
+	 * 关闭队列并丢弃未发送的帧
+	 */
+	public void close() {
+		closed = true;
+		discardQueued();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return 是否因超出预算而关闭
+	 */
+	public boolean isOverflowed() {
+		return overflowed;
+	}
+
+	/**
+	 * @return 是否因单次发送超过时限而关闭
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * 进行中的发送超过时限时关闭队列并回调 onError，由调用方定期检查；
+	 * 阻塞在发送中的线程要等会话关闭后才返回
+	 *
+	 * @param nowNanos 当前时间（System.nanoTime 时钟）
+	 * @return 是否超时
+	 */
+	public boolean checkSendDeadline(long nowNanos) {
+		if (!sendExpired(nowNanos) || closed) {
+			return false;
+		}
+		timedOut = true;
+		fail(new IOException("单次发送超过时限: " + TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) + " 毫秒"));
+		return true;
+	}
+
+	private boolean sendExpired(long nowNanos) {
+		long started = sendStartedNanos;
+		return sendTimeoutNanos > 0 && started != 0 && nowNanos - started >= sendTimeoutNanos;
+	}
+
+	private void scheduleDrain() {
+		if (!draining.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::drain);
+		} catch (RejectedExecutionException e) {
+			draining.set(false);
+			fail(new IOException("发送任务提交失败", e));
+		}
+	}
+
+	private void drain() {
+		try {
+			while (true) {
+				Frame frame = frames.pollFirst();
+				if (frame == null) {
+					draining.set(false);
+					// 释放标记后若有新帧入队且未被其他线程接手，则继续发送
+					if (frames.isEmpty() || !draining.compareAndSet(false, true)) {
+						return;
+					}
+					continue;
+				}
+				dequeued(frame);
+				if (closed) {
+					recycle(frame.data, frame.pooled);
+					continue;
+				}
+				sendStartedNanos = System.nanoTime();
+				send(frame);
+				sendStartedNanos = 0;
+			}
+		} catch (Exception e) {
+			// 容器按自身的发送时限中断阻塞写入时同样视为超时
+			if (sendExpired(System.nanoTime())) {
+				timedOut = true;
+			}
+			sendStartedNanos = 0;
+			draining.set(false);
+			fail(e);
+		}
+	}
+
+	private void send(Frame frame) throws IOException {
+		if (preamble != null) {
+			session.sendMessage(new BinaryMessage(preamble));
+			preamble = null;
+		}
+		if (frame.text != null) {
+			session.sendMessage(new TextMessage(frame.text));
+			return;
+		}
+		int size = frame.data.remaining();
+		try {
+			session.sendMessage(new BinaryMessage(frame.data));
+		} finally {
+			recycle(frame.data, frame.pooled);
+		}
+		long latency = System.nanoTime() - frame.enqueuedAt;
+		lastLatencyNanos = latency;
+		totalLatencyNanos.add(latency);
+		maxLatencyNanos.accumulateAndGet(latency, Math::max);
+		sentFrames.incrementAndGet();
+		sentBytes.addAndGet(size);
+		if (observer != null) {
+			observer.onSent(size, latency, frame.captureNanos);
+		}
+	}
+
+	private void fail(Exception e) {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		discardQueued();
+		onError.accept(e);
+	}
+
+	private void discardQueued() {
+		Frame frame;
+		while ((frame = frames.pollFirst()) != null) {
+			dequeued(frame);
+			recycle(frame.data, frame.pooled);
+		}
+	}
+
+	private void dequeued(Frame frame) {
+		queuedBytes.addAndGet(-frame.data.remaining());
+		queuedFrames.decrementAndGet();
+	}
+
+	private void drop(int size) {
+		droppedFrames.incrementAndGet();
+		droppedBytes.addAndGet(size);
+	}
+
+	private void recycle(ByteBuffer buffer, boolean pooled) {
+		if (pooled) {
+			pool.release(buffer);
+		}
+	}
+
+	public long getQueuedBytes() {
+		return queuedBytes.get();
+	}
+
+	public int getQueuedFrames() {
+		return queuedFrames.get();
+	}
+
+	public long getSentFrames() {
+		return sentFrames.get();
+	}
+
+	public long getSentBytes() {
+		return sentBytes.get();
+	}
+
+	public long getDroppedFrames() {
+		return droppedFrames.get();
+	}
+
+	public long getDroppedBytes() {
+		return droppedBytes.get();
+	}
+
+	/**
+	 * @return 最近一帧从入队到发送完成的耗时（毫秒）
+	 */
+	public double getLastSendLatencyMillis() {
+		return lastLatencyNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	public double getMaxSendLatencyMillis() {
+		return maxLatencyNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	public double getAverageSendLatencyMillis() {
+		long sent = sentFrames.get();
+		return sent == 0 ? 0 : totalLatencyNanos.sum() / (double) sent / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
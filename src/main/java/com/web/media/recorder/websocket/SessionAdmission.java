@@ -0,0 +1,119 @@
+package com.web.media.recorder.websocket;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * WebSocket 会话准入控制：活动会话数达到上限后新会话进入等待队列，
+ * 有活动会话关闭时按到达顺序放行，队列也满时才拒绝
+ */
+public class SessionAdmission {
+	public enum Result {
+		ADMITTED, QUEUED, REJECTED
+	}
+
+	private final int maxActive;
+	private final int maxQueued;
+	private final long queueTimeoutMs;
+	private final Set<String> active = new HashSet<>();
+	// 会话 ID -> 入队时间，保持到达顺序
+	private final LinkedHashMap<String, Long> queued = new LinkedHashMap<>();
+
+	public SessionAdmission(int maxActive, int maxQueued, long queueTimeoutMs) {
+		if (maxActive <= 0) {
+			throw new IllegalArgumentException("最大会话数无效: " + maxActive);
+		}
+		this.maxActive = maxActive;
+		this.maxQueued = Math.max(0, maxQueued);
+		this.queueTimeoutMs = queueTimeoutMs;
+	}
+
+	public synchronized Result tryAdmit(String sessionId) {
+		if (active.size() < maxActive && queued.isEmpty()) {
+			active.add(sessionId);
+			return Result.ADMITTED;
+		}
+		if (queued.size() < maxQueued) {
+			queued.put(sessionId, System.currentTimeMillis());
+			return Result.QUEUED;
+		}
+		return Result.REJECTED;
+	}
+
+	/**
+	 * 释放会话占用的名额或队列位置
+	 *
+	 * @return 因此获得名额的排队会话 ID，没有则返回 null
+	 */
+	public synchronized String release(String sessionId) {
+		if (queued.remove(sessionId) != null || !active.remove(sessionId)) {
+			return null;
+		}
+		return promote();
+	}
+
+	/**
+	 * 移除等待超时的会话
+	 *
+	 * @return 被移除的会话 ID
+	 */
+	public synchronized List<String> expire(long now) {
+		List<String> expired = new ArrayList<>();
+		if (queueTimeoutMs <= 0) {
+			return expired;
+		}
+		Iterator<Map.Entry<String, Long>> it = queued.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Long> entry = it.next();
+			if (now - entry.getValue() < queueTimeoutMs) {
+				// 按入队时间有序，后面的都未超时
+				break;
+			}
+			expired.add(entry.getKey());
+			it.remove();
+		}
+		return expired;
+	}
+
+	public synchronized boolean isActive(String sessionId) {
+		return active.contains(sessionId);
+	}
+
+	/**
+	 * @return 会话在等待队列中的位置（从 1 开始），不在队列中返回 0
+	 */
+	public synchronized int queuePosition(String sessionId) {
+		int position = 0;
+		for (String id : queued.keySet()) {
+			position++;
+			if (id.equals(sessionId)) {
+				return position;
+			}
+		}
+		return 0;
+	}
+
+	public synchronized int getActiveCount() {
+		return active.size();
+	}
+
+	public synchronized int getQueuedCount() {
+		return queued.size();
+	}
+
+	private String promote() {
+		Iterator<String> it = queued.keySet().iterator();
+		if (!it.hasNext()) {
+			return null;
+		}
+		String next = it.next();
+		it.remove();
+		active.add(next);
+		return next;
+	}
+}
@@ -0,0 +1,13 @@
+package com.web.media.recorder.websocket;
+
+/**
+ * 实时推流任务的执行模型
+ */
+public enum StreamExecutionMode {
+	// 每个会话占用一个平台线程，阻塞读取广播缓冲区
+	PLATFORM,
+	// 每个会话一个虚拟线程（JDK 21+），运行时不支持时回退为 PLATFORM
+	VIRTUAL,
+	// 少量调度线程驱动各会话，由采集写入广播缓冲区时唤醒，会话空闲时不占用线程
+	EVENT_LOOP
+}
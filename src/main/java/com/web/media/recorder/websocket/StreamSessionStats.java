@@ -0,0 +1,70 @@
+package com.web.media.recorder.websocket;
+
+/**
+ * 推流会话的出站队列状态快照
+ */
+public class StreamSessionStats {
+	private final String sessionId;
+	private final long queuedBytes;
+	private final int queuedFrames;
+	private final long sentFrames;
+	private final long sentBytes;
+	private final long droppedFrames;
+	private final long droppedBytes;
+	private final double lastSendLatencyMs;
+	private final double avgSendLatencyMs;
+	private final double maxSendLatencyMs;
+
+	StreamSessionStats(String sessionId, OutboundQueue queue) {
+		this.sessionId = sessionId;
+		this.queuedBytes = queue.getQueuedBytes();
+		this.queuedFrames = queue.getQueuedFrames();
+		this.sentFrames = queue.getSentFrames();
+		this.sentBytes = queue.getSentBytes();
+		this.droppedFrames = queue.getDroppedFrames();
+		this.droppedBytes = queue.getDroppedBytes();
+		this.lastSendLatencyMs = queue.getLastSendLatencyMillis();
+		this.avgSendLatencyMs = queue.getAverageSendLatencyMillis();
+		this.maxSendLatencyMs = queue.getMaxSendLatencyMillis();
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	public long getQueuedBytes() {
+		return queuedBytes;
+	}
+
+	public int getQueuedFrames() {
+		return queuedFrames;
+	}
+
+	public long getSentFrames() {
+		return sentFrames;
+	}
+
+	public long getSentBytes() {
+		return sentBytes;
+	}
+
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+	public long getDroppedBytes() {
+		return droppedBytes;
+	}
+
+	public double getLastSendLatencyMs() {
+		return lastSendLatencyMs;
+	}
+
+	public double getAvgSendLatencyMs() {
+		return avgSendLatencyMs;
+	}
+
+	public double getMaxSendLatencyMs() {
+		return maxSendLatencyMs;
+	}
+}
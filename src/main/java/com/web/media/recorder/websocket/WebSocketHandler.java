@@ -1,88 +1,255 @@
 package com.web.media.recorder.websocket;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.PreDestroy;
+import javax.websocket.Session;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.media.recorder.config.CaptureProcessorConfig;
 import com.web.media.recorder.config.MediaConfig;
 import com.web.media.recorder.media.MediaType;
+import com.web.media.recorder.media.dsp.PcmConverter;
+import com.web.media.recorder.media.dsp.PcmKernels;
+import com.web.media.recorder.media.encoder.AudioCodec;
 import com.web.media.recorder.media.file.AudioFile;
 import com.web.media.recorder.media.file.MediaFile;
 import com.web.media.recorder.media.file.VideoFile;
-import com.web.media.recorder.media.processor.jni.NativeProcessor;
+import com.web.media.recorder.media.file.WavHeader;
+import com.web.media.recorder.media.processor.AbstractMediaProcessor;
+import com.web.media.recorder.media.processor.broadcast.BroadcastRing.Subscription;
+import com.web.media.recorder.media.processor.broadcast.CaptureBroadcaster;
+import com.web.media.recorder.metrics.MediaMetrics;
+import com.web.media.recorder.metrics.MediaMetrics.SessionMeters;
 
 @Component
 public class WebSocketHandler extends TextWebSocketHandler {
 	private static final Logger logger = LoggerFactory.getLogger(WebSocketHandler.class);
-	private static final int BUFFER_SIZE = 4096;
-	private static final int MAX_SESSIONS = 10;
 	private static final int SHUTDOWN_TIMEOUT = 5;
-	private static final int MAX_RETRY_COUNT = 3;
-	private static final long RETRY_DELAY_MS = 1000;
+	private static final int MAX_POOLED_BUFFERS = 1024;
+	private static final long READ_TIMEOUT_MS = 500;
+	// 连续无数据超过该时长后停止推流
+	private static final long MAX_IDLE_MS = READ_TIMEOUT_MS * 5;
+	private static final long QUEUE_CHECK_INTERVAL_MS = 1000;
+	// 启用时间戳时每帧开头的采集时间（8 字节大端，服务端 System.nanoTime 时钟）
+	private static final int TIMING_HEADER_SIZE = Long.BYTES;
+	// 超过该值的播放延迟回报视为无效
+	private static final long MAX_PLAYOUT_DELAY_NANOS = TimeUnit.SECONDS.toNanos(60);
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	// 采集进入静音门限关闭期间时通知客户端，之后直到语音恢复都不再有数据帧
+	private static final String SILENCE_MESSAGE = "{\"type\":\"silence\"}";
+	// Tomcat 阻塞发送的时限（毫秒），会话属性中的值对该会话生效
+	private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
 
 	private final Map<String, MediaFile> mediaHandlers = new ConcurrentHashMap<>();
-	private final Map<String, Boolean> sentHeaders = new ConcurrentHashMap<>();
 	private final Map<String, Boolean> activeSessions = new ConcurrentHashMap<>();
-	private final Map<String, AtomicInteger> retryCounts = new ConcurrentHashMap<>();
+	private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+	private final Map<String, OutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+	// 正在接收分片消息（尚未收到最后一个分片）的会话
+	private final Set<String> partialUploads = ConcurrentHashMap.newKeySet();
+	private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+	// 排队期间收到的开始推流请求（媒体类型），获得名额后补发
+	private final Map<String, Byte> pendingStarts = new ConcurrentHashMap<>();
+	// 已激活会话的收发计量器
+	private final Map<String, SessionMeters> sessionMeters = new ConcurrentHashMap<>();
+	// 请求了逐帧时间戳（?timing=1）的推流会话，只接受这些会话的播放延迟回报
+	private final Set<String> timedSessions = ConcurrentHashMap.newKeySet();
+	private final SessionAdmission admission;
+	private final StreamExecutionMode executionMode;
+	// 线程模式下运行推流循环，事件循环模式下为 null
 	private final ExecutorService executorService;
-	private final NativeProcessor nativeProcessor;
+	// 事件循环模式下驱动各会话推流，同时负责清理排队超时的会话
+	private final ScheduledExecutorService scheduler;
+	// 执行各会话出站队列的发送任务
+	private final ExecutorService sendExecutor;
+	private final BufferPool bufferPool;
+	private final AbstractMediaProcessor captureProcessor;
+	private final CaptureBroadcaster captureBroadcaster;
 	private final MediaConfig mediaConfig;
+	private final MediaMetrics metrics;
+	// 监听流格式转换使用的计算核心，首次需要时选定
+	private volatile PcmKernels monitorKernels;
 
 	@Autowired
-	public WebSocketHandler(MediaConfig mediaConfig, NativeProcessor nativeProcessor) {
+	public WebSocketHandler(MediaConfig mediaConfig,
+			@Qualifier(CaptureProcessorConfig.CAPTURE_PROCESSOR) AbstractMediaProcessor captureProcessor,
+			CaptureBroadcaster captureBroadcaster, MediaMetrics metrics) {
 		this.mediaConfig = mediaConfig;
-		this.nativeProcessor = nativeProcessor;
-		this.executorService = Executors.newFixedThreadPool(MAX_SESSIONS);
+		this.metrics = metrics;
+		this.captureProcessor = captureProcessor;
+		this.captureBroadcaster = captureBroadcaster;
+		int maxSessions = mediaConfig.getWebsocketMaxSessions();
+		this.admission = new SessionAdmission(maxSessions, mediaConfig.getWebsocketMaxQueued(),
+				mediaConfig.getWebsocketQueueTimeoutMs());
+
+		StreamExecutionMode mode = mediaConfig.getWebsocketExecutionMode();
+		ExecutorService executor = null;
+		if (mode == StreamExecutionMode.VIRTUAL) {
+			executor = newVirtualThreadExecutor();
+			if (executor == null) {
+				logger.warn("当前运行时不支持虚拟线程，推流执行模型回退为 PLATFORM");
+				mode = StreamExecutionMode.PLATFORM;
+			}
+		}
+		if (mode == StreamExecutionMode.PLATFORM) {
+			executor = Executors.newFixedThreadPool(maxSessions, namedThreadFactory("ws-stream-"));
+		}
+		this.executionMode = mode;
+		this.executorService = executor;
+		this.sendExecutor = mode == StreamExecutionMode.VIRTUAL
+				? newVirtualThreadExecutor()
+				: newSendExecutor(mediaConfig.getWebsocketSendThreads(), maxSessions);
+		this.bufferPool = new BufferPool(Math.max(1, mediaConfig.getOutboundFrameSize()), MAX_POOLED_BUFFERS);
+		int schedulerThreads = mode == StreamExecutionMode.EVENT_LOOP
+				? Math.max(1, mediaConfig.getWebsocketEventLoopThreads())
+				: 1;
+		ScheduledThreadPoolExecutor eventLoop = new ScheduledThreadPoolExecutor(schedulerThreads,
+				namedThreadFactory("ws-event-loop-"));
+		// 各会话的期限定时器随数据到达频繁取消，取消后立即移出队列
+		eventLoop.setRemoveOnCancelPolicy(true);
+		this.scheduler = eventLoop;
+		this.scheduler.scheduleWithFixedDelay(this::expireQueuedSessions, QUEUE_CHECK_INTERVAL_MS,
+				QUEUE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		if (mediaConfig.getOutboundSendTimeoutMs() > 0) {
+			this.scheduler.scheduleWithFixedDelay(this::expireStalledSends, QUEUE_CHECK_INTERVAL_MS,
+					QUEUE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		}
+		logger.info("WebSocket推流执行模型: {}, 最大会话数: {}, 最大排队数: {}", mode, maxSessions,
+				mediaConfig.getWebsocketMaxQueued());
 	}
 
 	@Override
 	public void afterConnectionEstablished(WebSocketSession session) {
 		String sessionId = session.getId();
-		if (activeSessions.size() >= MAX_SESSIONS) {
+		sessions.put(sessionId, session);
+		applySendTimeout(session);
+		switch (admission.tryAdmit(sessionId)) {
+		case ADMITTED:
+			activate(session);
+			break;
+		case QUEUED:
+			int position = admission.queuePosition(sessionId);
+			logger.info("达到最大连接数限制，会话{}进入等待队列，位置: {}", sessionId, position);
+			sendStatus(session, "queued", position);
+			break;
+		default:
+			sessions.remove(sessionId);
+			metrics.sessionRejected();
 			try {
-				session.close(CloseStatus.POLICY_VIOLATION.withReason("达到最大连接数限制"));
-				return;
+				session.close(CloseStatus.SERVICE_OVERLOAD.withReason("达到最大连接数限制"));
 			} catch (IOException e) {
 				logger.error("关闭连接失败: {}", e.getMessage());
 			}
 		}
+	}
+
+	/**
+	 * 让容器的阻塞发送也按配置的时限中断，超时的发送抛出异常后按消费过慢断开；
+	 * 不是 Tomcat 会话时只由 {@link #expireStalledSends()} 检查
+	 */
+	private void applySendTimeout(WebSocketSession session) {
+		long timeout = mediaConfig.getOutboundSendTimeoutMs();
+		if (timeout <= 0 || !(session instanceof NativeWebSocketSession)) {
+			return;
+		}
+		Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
+		if (nativeSession != null) {
+			nativeSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT, timeout);
+		}
+	}
+
+	private void activate(WebSocketSession session) {
+		String sessionId = session.getId();
+		sessionMeters.computeIfAbsent(sessionId, metrics::registerSession);
 		activeSessions.put(sessionId, true);
-		retryCounts.put(sessionId, new AtomicInteger(0));
 		logger.info("新的WebSocket连接已建立: {}", sessionId);
+		Byte type = pendingStarts.remove(sessionId);
+		if (type != null) {
+			startStream(session, type);
+		}
+	}
+
+	@Override
+	public boolean supportsPartialMessages() {
+		return true;
 	}
 
+	/**
+	 * 大消息会被拆成多个分片依次到达，只有首个分片以类型字节开头，后续分片整体都是媒体数据。
+	 * 数据以负载缓冲区切片的形式直接写入文件，不复制到中间数组
+	 */
 	@Override
 	protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
-		if (!activeSessions.getOrDefault(session.getId(), false)) {
-			logger.warn("收到未激活会话的消息: {}", session.getId());
+		String sessionId = session.getId();
+		boolean continuation = message.isLast() ? partialUploads.remove(sessionId)
+				: !partialUploads.add(sessionId);
+		if (!activeSessions.getOrDefault(sessionId, false)) {
+			if (!continuation) {
+				handleQueuedMessage(session, message);
+			}
 			return;
 		}
 
-		byte[] data = message.getPayload().array();
-		if (data.length == 0) {
-			logger.warn("收到空数据包");
-			return;
+		ByteBuffer payload = message.getPayload();
+		SessionMeters meters = sessionMeters.get(sessionId);
+		if (meters != null) {
+			meters.received(payload.remaining());
 		}
-
 		try {
-			byte type = data[0];
-			byte[] mediaData = Arrays.copyOfRange(data, 1, data.length);
+			if (continuation) {
+				MediaFile mediaFile = mediaHandlers.get(sessionId);
+				if (mediaFile != null) {
+					mediaFile.writeData(payload);
+				}
+				return;
+			}
+			if (!payload.hasRemaining()) {
+				logger.warn("收到空数据包");
+				return;
+			}
+
+			byte type = payload.get(payload.position());
+			ByteBuffer mediaData = payload.duplicate();
+			mediaData.position(mediaData.position() + 1);
 			boolean isAudio = (MediaType.getMediaType(type) == MediaType.AUDIO);
-			logger.info("收到{}数据流大小: {}", isAudio ? "音频" : "视频", mediaData.length);
+			if (logger.isDebugEnabled()) {
+				logger.debug("收到{}数据流大小: {}", isAudio ? "音频" : "视频", mediaData.remaining());
+			}
 
 			MediaFile mediaFile = getOrCreateMediaFile(session, isAudio);
 			if (mediaFile == null) {
@@ -90,14 +257,96 @@ public class WebSocketHandler extends TextWebSocketHandler {
 				return;
 			}
 
-			if (mediaData.length == 0) {
+			if (!mediaData.hasRemaining() && message.isLast()) {
 				handleEmptyMediaData(session, mediaFile, isAudio);
 			} else {
-				handleMediaData(mediaFile, mediaData, isAudio);
+				handleMediaData(mediaFile, mediaData);
+			}
+		} catch (IllegalArgumentException e) {
+			// 上传格式不受支持（如视频不是 Annex B 裸流），以 1003 关闭，客户端据此提示而不是重试
+			logger.warn("会话{}上传的数据格式不受支持: {}", sessionId, e.getMessage());
+			rejectUpload(session, e);
+		} catch (Exception e) {
+			logger.error("处理消息时发生错误: {}", e.getMessage(), e);
+			handleError(session, e);
+		}
+	}
+
+	private void rejectUpload(WebSocketSession session, IllegalArgumentException e) {
+		try {
+			session.close(CloseStatus.NOT_ACCEPTABLE.withReason(closeReason(e.getMessage())));
+		} catch (IOException ex) {
+			logger.error("关闭会话失败: {}", ex.getMessage());
+		} finally {
+			cleanupSession(session.getId());
+		}
+	}
+
+	// 关闭原因最多 123 字节（UTF-8）
+	private static String closeReason(String message) {
+		String reason = message == null ? "" : message;
+		while (reason.getBytes(StandardCharsets.UTF_8).length > 123) {
+			reason = reason.substring(0, reason.length() - 1);
+		}
+		return reason;
+	}
+
+	/**
+	 * 文本消息目前只有浏览器的播放延迟回报：{"type":"playout","capture":"<帧头中的采集时间>"}，
+	 * 服务端以收到回报的时间减去采集时间记为 playout 阶段，因此包含回报的上行传输时间
+	 */
+	@Override
+	protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+		String sessionId = session.getId();
+		if (!timedSessions.contains(sessionId)) {
+			return;
+		}
+		long now = System.nanoTime();
+		try {
+			JsonNode report = objectMapper.readTree(message.getPayload());
+			if (!"playout".equals(report.path("type").asText())) {
+				return;
+			}
+			// 纳秒时间超出 JS 安全整数范围，客户端以字符串回传
+			long capture = Long.parseLong(report.path("capture").asText());
+			long delay = now - capture;
+			if (capture != 0 && delay >= 0 && delay <= MAX_PLAYOUT_DELAY_NANOS) {
+				metrics.recordPlayoutLatency(delay);
+			}
+		} catch (JsonProcessingException | NumberFormatException e) {
+			logger.warn("会话{}的播放延迟回报格式错误: {}", sessionId, e.getMessage());
+		}
+	}
+
+	/**
+	 * 排队中的会话只记录开始推流请求，获得名额后再处理；上传的数据直接丢弃
+	 */
+	private void handleQueuedMessage(WebSocketSession session, BinaryMessage message) {
+		String sessionId = session.getId();
+		ByteBuffer payload = message.getPayload();
+		if (!sessions.containsKey(sessionId) || !message.isLast() || payload.remaining() != 1) {
+			logger.warn("收到未激活会话的消息: {}", sessionId);
+			return;
+		}
+		pendingStarts.put(sessionId, payload.get(payload.position()));
+		// 记录期间可能刚好获得名额，此时由本线程补发
+		if (activeSessions.getOrDefault(sessionId, false)) {
+			Byte type = pendingStarts.remove(sessionId);
+			if (type != null) {
+				startStream(session, type);
 			}
+		}
+	}
 
-			// 重置重试计数
-			retryCounts.get(session.getId()).set(0);
+	private void startStream(WebSocketSession session, byte type) {
+		try {
+			boolean isAudio = (MediaType.getMediaType(type) == MediaType.AUDIO);
+			MediaFile mediaFile = getOrCreateMediaFile(session, isAudio);
+			if (mediaFile == null) {
+				logger.error("创建媒体文件失败");
+				return;
+			}
+			handleEmptyMediaData(session, mediaFile, isAudio);
 		} catch (Exception e) {
 			logger.error("处理消息时发生错误: {}", e.getMessage(), e);
 			handleError(session, e);
@@ -108,10 +357,7 @@ public class WebSocketHandler extends TextWebSocketHandler {
 		return mediaHandlers.computeIfAbsent(session.getId(), id -> {
 			try {
 				if (isAudio) {
-					int[] params = nativeProcessor.getAudioParams();
-					if (params == null || params.length < 3) {
-						params = new int[] { 44100, 2, 16 };
-					}
+					int[] params = captureAudioParams();
 					return new AudioFile(mediaConfig.getAudioDir(), params[0], params[1], params[2]);
 				} else {
 					return new VideoFile(mediaConfig.getVideoDir());
@@ -123,112 +369,162 @@ public class WebSocketHandler extends TextWebSocketHandler {
 		});
 	}
 
+	/**
+	 * @return 采集格式 {采样率, 声道数, 位深}，本地库未提供时使用默认值
+	 */
+	private int[] captureAudioParams() {
+		int[] params = captureProcessor.getAudioParams();
+		if (params == null || params.length < 3) {
+			params = new int[] { 44100, 2, 16 };
+		}
+		return params;
+	}
+
 	private void handleEmptyMediaData(WebSocketSession session, MediaFile mediaFile, boolean isAudio) {
-		nativeProcessor.start(isAudio);
-		executorService.submit(() -> {
-			try {
-				processMediaStream(session, mediaFile);
-			} catch (Exception e) {
-				logger.error("处理媒体流时发生错误: {}", e.getMessage());
-				handleError(session, e);
+		String sessionId = session.getId();
+		if (subscriptions.containsKey(sessionId)) {
+			return;
+		}
+		Subscription subscription = captureBroadcaster.subscribe(isAudio, isAudio ? requestedCodec(session) : null);
+		subscriptions.put(sessionId, subscription);
+		SessionMeters meters = sessionMeters.get(sessionId);
+		PcmConverter converter = isAudio ? createMonitorConverter(session) : null;
+		byte[] preamble = converter == null ? mediaFile.getHeaderBytes()
+				: WavHeader.createHeader(0, converter.getOutputRate(), converter.getOutputChannels(),
+						converter.getOutputBits());
+		OutboundQueue queue = outboundQueues.computeIfAbsent(sessionId, id -> {
+			OutboundQueue created = new OutboundQueue(session, preamble, bufferPool, sendExecutor,
+					mediaConfig.getOutboundMaxBytes(), mediaConfig.getOutboundOverflowPolicy(),
+					e -> handleSendFailure(session, e), meters, mediaConfig.getOutboundSendTimeoutMs());
+			if (meters != null) {
+				meters.bindQueue(created);
 			}
+			return created;
 		});
+		boolean timing = requestedTiming(session);
+		if (timing) {
+			timedSessions.add(sessionId);
+		}
+		MediaStream stream = new MediaStream(session, mediaFile, subscription, queue, timing, converter);
+		if (executorService != null) {
+			executorService.execute(stream::run);
+		} else {
+			stream.schedule();
+		}
 	}
 
-	private void processMediaStream(WebSocketSession session, MediaFile mediaFile) {
-		byte[] buffer = new byte[BUFFER_SIZE];
-		int bufferPos = 0;
-		int consecutiveErrors = 0;
-		final int MAX_CONSECUTIVE_ERRORS = 5;
-
-		while (nativeProcessor.isRunning.get() && activeSessions.getOrDefault(session.getId(), false)) {
-			try {
-				byte[] bytes = nativeProcessor.getRealtimeData();
-				if (bytes == null) {
-					consecutiveErrors++;
-					if (consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
-						logger.error("连续{}次获取数据失败，停止处理", MAX_CONSECUTIVE_ERRORS);
-						break;
-					}
-					Thread.sleep(100);
-					continue;
-				}
-
-				consecutiveErrors = 0;
-				int offset = 0;
-				while (offset < bytes.length) {
-					int toCopy = Math.min(BUFFER_SIZE - bufferPos, bytes.length - offset);
-					System.arraycopy(bytes, offset, buffer, bufferPos, toCopy);
-					bufferPos += toCopy;
-					offset += toCopy;
-
-					if (bufferPos == BUFFER_SIZE) {
-						sendMessageWithRetry(session, mediaFile, Arrays.copyOf(buffer, BUFFER_SIZE));
-						bufferPos = 0;
-					}
-				}
-			} catch (Exception e) {
-				logger.error("处理媒体流时发生错误: {}", e.getMessage());
-				consecutiveErrors++;
-				if (consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
-					break;
-				}
-			}
+	/**
+	 * 连接地址中的 codec 参数（如 ?codec=flac）指定录音存储格式，缺省或无效时使用配置的默认格式
+	 */
+	private AudioCodec requestedCodec(WebSocketSession session) {
+		URI uri = session.getUri();
+		if (uri == null) {
+			return null;
 		}
+		String value = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("codec");
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		try {
+			return AudioCodec.of(value);
+		} catch (IllegalArgumentException e) {
+			logger.warn("会话{}请求了不支持的录音格式: {}", session.getId(), value);
+			return null;
+		}
+	}
 
-		if (bufferPos > 0) {
-			sendMessageWithRetry(session, mediaFile, Arrays.copyOf(buffer, bufferPos));
+	/**
+	 * 连接地址中的 timing 参数（?timing=1）使格式头之后的每帧以 8 字节采集时间开头，供浏览器回报播放延迟
+	 */
+	private boolean requestedTiming(WebSocketSession session) {
+		URI uri = session.getUri();
+		if (uri == null) {
+			return false;
 		}
+		String value = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("timing");
+		return "1".equals(value) || "true".equalsIgnoreCase(value);
 	}
 
-	private void sendMessageWithRetry(WebSocketSession session, MediaFile mediaFile, byte[] data) {
-		String sessionId = session.getId();
-		AtomicInteger retryCount = retryCounts.get(sessionId);
-		
-		for (int i = 0; i < MAX_RETRY_COUNT; i++) {
-			try {
-				sendMessage(session, mediaFile, data);
-				retryCount.set(0);
-				return;
-			} catch (Exception e) {
-				logger.warn("发送消息失败，重试 {}/{}: {}", i + 1, MAX_RETRY_COUNT, e.getMessage());
-				try {
-					Thread.sleep(RETRY_DELAY_MS);
-				} catch (InterruptedException ie) {
-					Thread.currentThread().interrupt();
-					break;
-				}
+	/**
+	 * 按配置和连接地址中的 monitor 参数（?monitor=1 或 0）决定是否转换监听流格式，只支持 16 位采集数据
+	 *
+	 * @return 该会话的格式转换器，不需要转换时返回 null
+	 */
+	private PcmConverter createMonitorConverter(WebSocketSession session) {
+		boolean enabled = mediaConfig.isMonitorEnabled();
+		URI uri = session.getUri();
+		if (uri != null) {
+			String value = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("monitor");
+			if (value != null && !value.isEmpty()) {
+				enabled = "1".equals(value) || "true".equalsIgnoreCase(value);
 			}
 		}
-		
-		retryCount.incrementAndGet();
-		if (retryCount.get() >= MAX_RETRY_COUNT) {
-			handleError(session, new IOException("发送消息重试次数超过限制"));
+		if (!enabled) {
+			return null;
+		}
+		int[] source = captureAudioParams();
+		if (source[2] != 16) {
+			logger.warn("监听流格式转换只支持 16 位采集数据，当前为{}位，按原格式推送", source[2]);
+			return null;
+		}
+		int sampleRate = mediaConfig.getMonitorSampleRate() > 0 ? mediaConfig.getMonitorSampleRate() : source[0];
+		int channels = mediaConfig.getMonitorChannels() == 1 ? 1 : source[1];
+		PcmKernels kernels = monitorKernels;
+		if (kernels == null) {
+			kernels = PcmKernels.select(mediaConfig.isMonitorVector());
+			monitorKernels = kernels;
+		}
+		try {
+			return new PcmConverter(source[0], source[1], sampleRate, channels, mediaConfig.getMonitorBitsPerSample(),
+					kernels);
+		} catch (IllegalArgumentException e) {
+			logger.warn("监听流格式配置无效，按原格式推送: {}", e.getMessage());
+			return null;
 		}
 	}
 
-	private void handleMediaData(MediaFile mediaFile, byte[] mediaData, boolean isAudio) {
-		if (mediaData != null && mediaData.length > 0) {
-			logger.info("写入{}数据流:{}", isAudio ? "音频" : "视频", mediaData.length);
+	private void handleMediaData(MediaFile mediaFile, ByteBuffer mediaData) {
+		if (mediaData.hasRemaining()) {
 			mediaFile.writeData(mediaData);
 		}
 	}
 
-	public void sendMessage(WebSocketSession session, MediaFile mediaFile, byte[] data) throws IOException {
-		String sessionId = session.getId();
-		if (!activeSessions.getOrDefault(sessionId, false)) {
-			throw new IOException("会话未激活");
+	private void sendStatus(WebSocketSession session, String status, int position) {
+		try {
+			session.sendMessage(new TextMessage(
+					String.format("{\"type\":\"%s\",\"position\":%d}", status, position)));
+		} catch (IOException e) {
+			logger.warn("发送会话状态失败: {}", e.getMessage());
 		}
+	}
 
-		if (!sentHeaders.getOrDefault(sessionId, false)) {
-			byte[] header = mediaFile.getHeaderBytes();
-			if (header != null) {
-				session.sendMessage(new BinaryMessage(header));
-				sentHeaders.put(sessionId, true);
-			}
+	private void handleSendFailure(WebSocketSession session, Exception e) {
+		OutboundQueue queue = outboundQueues.get(session.getId());
+		if (queue != null && queue.isOverflowed()) {
+			logger.warn("会话{}发送队列积压超过上限，断开连接", session.getId());
+			metrics.overflowDisconnected();
+			closeSlowConsumer(session);
+			return;
+		}
+		if (queue != null && queue.isTimedOut()) {
+			logger.warn("会话{}单次发送超过时限，断开连接", session.getId());
+			metrics.sendTimeoutDisconnected();
+			closeSlowConsumer(session);
+			return;
+		}
+		logger.warn("会话{}发送消息失败: {}", session.getId(), e.getMessage());
+		metrics.sendFailed();
+		handleError(session, e);
+	}
+
+	private void closeSlowConsumer(WebSocketSession session) {
+		try {
+			session.close(CloseStatus.SESSION_NOT_RELIABLE.withReason("消费过慢"));
+		} catch (IOException ex) {
+			logger.error("关闭会话失败: {}", ex.getMessage());
+		} finally {
+			cleanupSession(session.getId());
 		}
-		logger.debug("发送数据大小: {}", data.length);
-		session.sendMessage(new BinaryMessage(data));
 	}
 
 	private void handleError(WebSocketSession session, Exception e) {
@@ -249,25 +545,433 @@ public class WebSocketHandler extends TextWebSocketHandler {
 	}
 
 	private void cleanupSession(String sessionId) {
+		sessions.remove(sessionId);
 		activeSessions.remove(sessionId);
-		sentHeaders.remove(sessionId);
-		retryCounts.remove(sessionId);
-		nativeProcessor.stop();
+		pendingStarts.remove(sessionId);
+		partialUploads.remove(sessionId);
+		timedSessions.remove(sessionId);
+		releaseSubscription(sessionId);
+		OutboundQueue queue = outboundQueues.remove(sessionId);
+		if (queue != null) {
+			queue.close();
+		}
 		MediaFile file = mediaHandlers.remove(sessionId);
 		if (file != null) {
 			file.close();
 		}
+		SessionMeters meters = sessionMeters.remove(sessionId);
+		if (meters != null) {
+			meters.close();
+		}
+		String next = admission.release(sessionId);
+		if (next != null) {
+			promote(next);
+		}
+	}
+
+	/**
+	 * 排队会话获得名额；若其已断开则继续放行下一个
+	 */
+	private void promote(String sessionId) {
+		WebSocketSession session = sessions.get(sessionId);
+		if (session == null || !session.isOpen()) {
+			cleanupSession(sessionId);
+			return;
+		}
+		logger.info("会话{}结束排队", sessionId);
+		sendStatus(session, "admitted", 0);
+		activate(session);
+	}
+
+	private void expireQueuedSessions() {
+		for (String sessionId : admission.expire(System.currentTimeMillis())) {
+			WebSocketSession session = sessions.remove(sessionId);
+			pendingStarts.remove(sessionId);
+			if (session == null) {
+				continue;
+			}
+			logger.info("会话{}排队超时", sessionId);
+			try {
+				session.close(CloseStatus.SERVICE_OVERLOAD.withReason("排队超时"));
+			} catch (IOException e) {
+				logger.error("关闭连接失败: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * 关闭单次发送超过时限的会话，不依赖容器是否支持阻塞发送时限
+	 */
+	private void expireStalledSends() {
+		long now = System.nanoTime();
+		for (OutboundQueue queue : outboundQueues.values()) {
+			queue.checkSendDeadline(now);
+		}
+	}
+
+	private void releaseSubscription(String sessionId) {
+		Subscription subscription = subscriptions.remove(sessionId);
+		if (subscription != null) {
+			captureBroadcaster.unsubscribe(subscription);
+		}
+	}
+
+	public int getActiveSessionCount() {
+		return admission.getActiveCount();
+	}
+
+	public int getQueuedSessionCount() {
+		return admission.getQueuedCount();
+	}
+
+	public List<StreamSessionStats> getSessionStats() {
+		List<StreamSessionStats> stats = new ArrayList<>();
+		outboundQueues.forEach((sessionId, queue) -> stats.add(new StreamSessionStats(sessionId, queue)));
+		return stats;
+	}
+
+	public StreamExecutionMode getExecutionMode() {
+		return executionMode;
 	}
 
+	@PreDestroy
 	public void shutdown() {
+		scheduler.shutdownNow();
+		if (executorService != null) {
+			awaitShutdown(executorService);
+		}
+		awaitShutdown(sendExecutor);
+	}
+
+	private static void awaitShutdown(ExecutorService executor) {
 		try {
-			executorService.shutdown();
-			if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
-				executorService.shutdownNow();
+			executor.shutdown();
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				executor.shutdownNow();
 			}
 		} catch (InterruptedException e) {
-			executorService.shutdownNow();
+			executor.shutdownNow();
 			Thread.currentThread().interrupt();
 		}
 	}
+
+	/**
+	 * JDK 21+ 提供 Executors.newVirtualThreadPerTaskExecutor，编译目标较低时通过反射获取
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 每个会话的出站队列同一时刻至多提交一个发送任务，队列容量取会话上限即不会拒绝；
+	 * 单次发送超过 media.websocket.outbound.send-timeout-ms 的会话被断开，慢速客户端占住线程不超过该时限
+	 */
+	private static ExecutorService newSendExecutor(int threads, int maxSessions) {
+		int count = Math.max(1, Math.min(threads, maxSessions));
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(count, count, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, maxSessions)), namedThreadFactory("ws-send-"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static ThreadFactory namedThreadFactory(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return r -> {
+			Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * 单个会话的推流状态。线程模式下由 {@link #run()} 循环阻塞读取；
+	 * 事件循环模式下由调度线程执行 {@link #tick()}，读空后登记广播缓冲区的数据回调并按帧发送期限或空闲期限设定定时器，
+	 * 由采集写入或定时器唤醒，不按固定间隔轮询。
+	 * 读到的数据直接写入池化缓冲区，凑满目标帧大小或首字节等待超过最大延迟时整帧交给出站队列，
+	 * 发送不在推流线程上进行。帧首字节的采集时间随帧入队，用于统计端到端延迟；
+	 * 启用监听流转换时先读入转换器的输入缓冲区，转换结果写入当前帧
+	 */
+	private final class MediaStream {
+		private final WebSocketSession session;
+		private final String sessionId;
+		private final Subscription subscription;
+		private final OutboundQueue queue;
+		private final int frameLimit;
+		private final int blockAlign;
+		private final long maxLatencyMs;
+		// 每帧开头为时间戳预留的字节数，未启用时为 0
+		private final int header;
+		// 监听流格式转换，未启用时为 null
+		private final PcmConverter converter;
+		// 正在填充的帧
+		private ByteBuffer frame;
+		private long frameStartedAt;
+		// 当前帧首字节的采集时间与进入广播缓冲区的时间，未知时为 0
+		private long frameCapture;
+		private long frameArrival;
+		private long lastDataAt = System.currentTimeMillis();
+		// 本次静音期间是否已通知客户端
+		private boolean silenceNotified;
+		private volatile boolean finished;
+		// 事件循环模式下未处理的唤醒次数，非 0 时已有 tick 在执行或排队
+		private final AtomicInteger wakeups = new AtomicInteger();
+		// 最近一次推进是否读到数据
+		private boolean lastReadData;
+		private volatile ScheduledFuture<?> timer;
+		private long timerDeadline;
+
+		MediaStream(WebSocketSession session, MediaFile mediaFile, Subscription subscription, OutboundQueue queue,
+				boolean timing, PcmConverter converter) {
+			this.session = session;
+			this.sessionId = session.getId();
+			this.subscription = subscription;
+			this.queue = queue;
+			this.converter = converter;
+			this.blockAlign = converter != null ? converter.getOutputBlockAlign() : mediaFile.getBlockAlign();
+			this.header = timing ? TIMING_HEADER_SIZE : 0;
+			// 整帧数据按对齐单位向下取整，保证每帧都是完整样本
+			int frameSize = bufferPool.getBufferSize() - header;
+			this.frameLimit = header + Math.max(blockAlign, frameSize - frameSize % blockAlign);
+			this.maxLatencyMs = Math.max(1, mediaConfig.getOutboundMaxLatencyMs());
+		}
+
+		void run() {
+			try {
+				boolean running = true;
+				while (running) {
+					running = pump(READ_TIMEOUT_MS);
+				}
+			} catch (Exception e) {
+				logger.error("处理媒体流时发生错误: {}", e.getMessage());
+				handleError(session, e);
+			} finally {
+				finish();
+			}
+		}
+
+		void schedule() {
+			wake();
+		}
+
+		/**
+		 * 请求执行一次 tick；可能在采集线程上调用，只提交任务
+		 */
+		private void wake() {
+			if (wakeups.getAndIncrement() != 0) {
+				return;
+			}
+			try {
+				scheduler.execute(this::tick);
+			} catch (RejectedExecutionException e) {
+				// 调度线程已停止，应用正在关闭
+				wakeups.set(0);
+			}
+		}
+
+		/**
+		 * 推进到读空为止，期间到达的唤醒在本次执行内处理，同一会话不会并发执行
+		 */
+		private void tick() {
+			int seen;
+			do {
+				seen = wakeups.get();
+				if (finished) {
+					return;
+				}
+				boolean more;
+				try {
+					more = pump(0);
+				} catch (Exception e) {
+					logger.error("处理媒体流时发生错误: {}", e.getMessage());
+					handleError(session, e);
+					more = false;
+				}
+				if (!more) {
+					finish();
+					return;
+				}
+				if (lastReadData) {
+					// 可能还有数据，继续推进
+					seen = -1;
+				} else {
+					awaitWake();
+				}
+			} while (!wakeups.compareAndSet(seen, 0));
+		}
+
+		/**
+		 * 登记数据回调，并按当前帧的发送期限或空闲期限设定定时器
+		 */
+		private void awaitWake() {
+			long now = System.currentTimeMillis();
+			long deadline = frame != null && frame.position() > header ? frameStartedAt + maxLatencyMs
+					: lastDataAt + MAX_IDLE_MS;
+			ScheduledFuture<?> previous = timer;
+			if (previous == null || previous.isDone() || timerDeadline != deadline) {
+				if (previous != null) {
+					previous.cancel(false);
+				}
+				try {
+					timer = scheduler.schedule(this::wake, Math.max(1, deadline - now), TimeUnit.MILLISECONDS);
+				} catch (RejectedExecutionException e) {
+					return;
+				}
+				timerDeadline = deadline;
+			}
+			subscription.onData(this::wake);
+		}
+
+		/**
+		 * 推进一步：读取广播数据到当前帧，帧满或到达延迟期限时入队
+		 *
+		 * @return 是否需要继续推进
+		 */
+		private boolean pump(long timeoutMs) {
+			if (queue.isClosed() || subscription.isClosed() || !activeSessions.getOrDefault(sessionId, false)) {
+				return false;
+			}
+			if (frame == null) {
+				frame = nextFrame();
+			}
+			long now = System.currentTimeMillis();
+			long wait = timeoutMs;
+			if (frame.position() > header) {
+				// 已有数据时最多等到本帧的发送期限
+				wait = Math.min(wait, Math.max(0, frameStartedAt + maxLatencyMs - now));
+			}
+
+			lastReadData = false;
+			int read;
+			if (converter == null) {
+				read = subscription.read(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining(),
+						wait, TimeUnit.MILLISECONDS);
+			} else {
+				int capacity = converter.inputCapacity(frame.remaining());
+				if (capacity == 0) {
+					// 剩余空间放不下一次转换的结果，先发出当前帧
+					flushFrame(now);
+					return !queue.isClosed();
+				}
+				read = subscription.read(converter.inputBuffer(), converter.inputOffset(), capacity, wait,
+						TimeUnit.MILLISECONDS);
+			}
+			if (read < 0) {
+				if (subscription.isEvicted()) {
+					logger.warn("会话{}消费过慢（落后超过广播缓冲区限制），断开连接", sessionId);
+					metrics.slowConsumerDisconnected();
+					closeQuietly(CloseStatus.SESSION_NOT_RELIABLE.withReason("消费过慢"));
+				}
+				return false;
+			}
+			now = System.currentTimeMillis();
+			if (read > 0) {
+				int produced = converter == null ? read
+						: converter.convert(read, frame.array(), frame.arrayOffset() + frame.position());
+				if (produced > 0) {
+					if (frame.position() == header) {
+						frameStartedAt = now;
+						frameCapture = subscription.getLastCaptureNanos();
+						frameArrival = subscription.getLastArrivalNanos();
+					}
+					frame.position(frame.position() + produced);
+				}
+				lastDataAt = now;
+				silenceNotified = false;
+				lastReadData = true;
+			} else if (captureProcessor.isSilenceGated()) {
+				// 静音门限关闭期间没有数据属于正常情况：先发出已有数据再通知一次，不计入空闲时长
+				if (!silenceNotified) {
+					if (frame.position() > header) {
+						flushFrame(now);
+					}
+					queue.offerText(SILENCE_MESSAGE);
+					silenceNotified = true;
+				}
+				lastDataAt = now;
+			} else if (now - lastDataAt >= MAX_IDLE_MS) {
+				logger.error("超过{}ms未获取到数据，停止处理", MAX_IDLE_MS);
+				return false;
+			}
+
+			if (!frame.hasRemaining() || (frame.position() > header && now - frameStartedAt >= maxLatencyMs)) {
+				flushFrame(now);
+			}
+			return !queue.isClosed();
+		}
+
+		/**
+		 * 将当前帧中完整对齐的部分入队，不足一个对齐单位的尾部移入下一帧
+		 */
+		private void flushFrame(long now) {
+			int filled = frame.position() - header;
+			int length = filled - filled % blockAlign;
+			if (length == 0) {
+				// 不足一个对齐单位，顺延期限等待后续数据
+				frameStartedAt = now;
+				return;
+			}
+			ByteBuffer next = nextFrame();
+			int rest = filled - length;
+			if (rest > 0) {
+				System.arraycopy(frame.array(), frame.arrayOffset() + header + length, next.array(),
+						next.arrayOffset() + header, rest);
+				next.position(header + rest);
+			}
+			if (frameArrival != 0) {
+				metrics.recordQueueLatency(System.nanoTime() - frameArrival);
+			}
+			if (header > 0) {
+				frame.putLong(0, frameCapture);
+			}
+			frame.flip();
+			frame.limit(header + length);
+			queue.offer(frame, true, frameCapture);
+			frame = next;
+			frameStartedAt = now;
+			// 移入下一帧的尾部来自最近一次读取，时间戳按该次读取的首字节近似
+			if (rest > 0) {
+				frameCapture = subscription.getLastCaptureNanos();
+				frameArrival = subscription.getLastArrivalNanos();
+			}
+		}
+
+		private ByteBuffer nextFrame() {
+			ByteBuffer buffer = bufferPool.acquire();
+			buffer.limit(frameLimit);
+			buffer.position(header);
+			return buffer;
+		}
+
+		private void finish() {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			ScheduledFuture<?> f = timer;
+			if (f != null) {
+				f.cancel(false);
+			}
+			if (frame != null) {
+				if (frame.position() > header && activeSessions.getOrDefault(sessionId, false)) {
+					flushFrame(System.currentTimeMillis());
+				}
+				bufferPool.release(frame);
+				frame = null;
+			}
+			releaseSubscription(sessionId);
+		}
+
+		private void closeQuietly(CloseStatus status) {
+			try {
+				session.close(status);
+			} catch (IOException e) {
+				logger.error("关闭会话失败: {}", e.getMessage());
+			}
+		}
+	}
 }
\ No newline at end of file
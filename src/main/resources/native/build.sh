@@ -1,4 +1,9 @@
 #!/bin/bash
+# 用法: build.sh [输出目录]
+# 不带参数时在脚本所在目录生成 libmediaProcessor.so；指定输出目录时生成到 <输出目录>/linux-<arch>/，供打包进 jar
+
+[ -n "$1" ] && OUT_DIR=$(realpath -m "$1")
+cd "$(dirname "$0")" || exit 1
 
 # 动态获取 JDK 的 include 目录
 JNI_HEADERS=$(dirname $(dirname $(which javac)))/include
@@ -21,6 +26,12 @@ fi
 # 动态生成输出文件名，使用第一个 C 文件名的前缀
 FIRST_C_FILE=$(basename "$(echo "$C_FILES" | awk '{print $1}')" .c)
 OUTPUT_FILE="${FIRST_C_FILE}.so"
+if [ -n "$OUT_DIR" ]; then
+    ARCH=$(uname -m)
+    [ "$ARCH" == "arm64" ] && ARCH=aarch64
+    mkdir -p "$OUT_DIR/linux-$ARCH" || exit 1
+    OUTPUT_FILE="$OUT_DIR/linux-$ARCH/${FIRST_C_FILE}.so"
+fi
 
 # 编译命令
 if [[ "$OS" == "Linux" || "$OS" == "Darwin" ]]; then
@@ -28,15 +39,15 @@ if [[ "$OS" == "Linux" || "$OS" == "Darwin" ]]; then
     if ! pkg-config --exists alsa; then
         echo "sudo apt-get install libasound2-dev" && sudo apt-get install libasound2-dev
     fi
-    [ -f ./$OUTPUT_FILE ] && mv ./$OUTPUT_FILE ./${OUTPUT_FILE}.bak
-gcc -shared -fPIC -O2 $INCLUDE_DIR $C_FILES -o $OUTPUT_FILE $LINK_OPTIONS
-    if [ -f $OUTPUT_FILE ]; then
+    [ -f "$OUTPUT_FILE" ] && mv "$OUTPUT_FILE" "${OUTPUT_FILE}.bak"
+gcc -shared -fPIC -O2 $INCLUDE_DIR $C_FILES -o "$OUTPUT_FILE" $LINK_OPTIONS
+    if [ -f "$OUTPUT_FILE" ]; then
 	    echo "原生库编译成功。"
-	    [ -f ./${OUTPUT_FILE}.bak ] && rm -rf ./${OUTPUT_FILE}.bak
+	    [ -f "${OUTPUT_FILE}.bak" ] && rm -rf "${OUTPUT_FILE}.bak"
 	    exit 0
 	else
 	    echo "原生库编译失败！"
-	    [ -f ./${OUTPUT_FILE}.bak ] && mv ./${OUTPUT_FILE}.bak ./${OUTPUT_FILE}
+	    [ -f "${OUTPUT_FILE}.bak" ] && mv "${OUTPUT_FILE}.bak" "$OUTPUT_FILE"
 	    exit 1
 	fi
 fi
\ No newline at end of file
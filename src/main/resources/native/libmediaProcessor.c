@@ -1,7 +1,9 @@
+#define _GNU_SOURCE
 #include <jni.h>
 #include <stdio.h>
 #include <stdlib.h>
 #include <string.h>
+#include <errno.h>
 #include <unistd.h>
 #include <fcntl.h>
 #include <sys/ioctl.h>
@@ -11,32 +13,123 @@
 #include <stdint.h>
 #include <termios.h>
 #include <pthread.h>
+#include <sched.h>
+#include <time.h>
 #include <alsa/asoundlib.h>
 
 // 宏定义
 #define FRAME_SIZE 2048
-#define BUFFER_SIZE (1024 * 1024)
 
 // 结构体定义
-static pthread_t captureThread;
+// 采集参数档位，由 Java 层在采集开始前设置，对之后打开的设备生效
+typedef struct {
+    // 周期帧数，0 表示由驱动决定
+    unsigned int periodFrames;
+    unsigned int bufferFrames;
+    // 每次 mmap 读取并回调的最大帧数
+    unsigned int chunkFrames;
+    // 字节数组回调模式下凑满多少字节再推送
+    unsigned int callbackBytes;
+    int waitMs;
+    // 设备无数据时的重试间隔
+    int retryMicros;
+    // 采集线程的 SCHED_FIFO 优先级，0 表示不启用
+    int realtimePriority;
+    // 采集线程绑定的 CPU，负数表示不绑定
+    int cpu;
+} CaptureProfile;
+
+// 每路采集一个上下文，各自持有设备句柄、采集线程与回调；旧接口使用静态的默认上下文
 typedef struct {
     atomic_bool isCapturing;
     snd_pcm_t *pcmHandle;
-    char *ringBuffer;
-    atomic_size_t writePos;
-    JavaVM *jvm;
+    pthread_t captureThread;
+    int threadStarted;
+    // 设备名（如 hw:1,0），为 NULL 时自动选择第一个可用的采集设备
+    char *deviceName;
+    unsigned int requestedRate;
+    unsigned int requestedChannels;
     jobject globalCallback;
     jmethodID onAudioDataMethod;
+    // 直接缓冲区模式：数据写入 Java 分配的共享内存，只回调偏移与长度
+    jobject globalDirectBuffer;
+    char *directBuffer;
+    size_t directCapacity;
+    size_t directWritePos;
+    jmethodID onDataCapturedMethod;
+    // 回调是否带时间戳参数 (IIJJ)V
+    int directTimestamps;
+    unsigned int sampleRate;
+    unsigned int channels;
+    // 每帧字节数（16 位采样 × 声道数）
+    size_t frameBytes;
+    // 字节数组回调模式下凑满 profile.callbackBytes 字节再推送
+    char *sendBuffer;
+    size_t sendBufferSize;
+    size_t sendBufferPos;
+    CaptureProfile profile;
+    // 与设备实际协商到的周期与缓冲区帧数，以及采集线程是否已以实时优先级运行
+    snd_pcm_uframes_t periodFrames;
+    snd_pcm_uframes_t bufferFrames;
+    atomic_int realtimeApplied;
+    // 采集统计：xrun/挂起次数、recover 成功次数、重新打开设备次数，供 Java 层导出指标
+    atomic_llong xrunCount;
+    atomic_llong recoverCount;
+    atomic_llong restartCount;
+    // 暂停时采集线程停止设备并保持 prepared 状态，在条件变量上等待恢复，设备不关闭、不重新配置
+    atomic_bool isPaused;
+    // 采集线程已停在暂停处（受 pauseLock 保护），暂停调用据此确认之后不再有回调
+    int pauseParked;
+    pthread_mutex_t pauseLock;
+    pthread_cond_t pauseCond;
 } AudioContext;
 
+static JavaVM *javaVm = NULL;
+
+// 与此前硬编码的参数一致
+static CaptureProfile captureProfile = {
+    .periodFrames = 0,
+    .bufferFrames = FRAME_SIZE * 4,
+    .chunkFrames = FRAME_SIZE,
+    .callbackBytes = 1024,
+    .waitMs = 1000,
+    .retryMicros = 2000,
+    .realtimePriority = 0,
+    .cpu = -1
+};
+static pthread_mutex_t profileLock = PTHREAD_MUTEX_INITIALIZER;
+
 static AudioContext context = {
     .isCapturing = ATOMIC_VAR_INIT(0),
     .pcmHandle = NULL,
-    .ringBuffer = NULL,
-    .writePos = 0,
-    .jvm = NULL,
+    .threadStarted = 0,
+    .deviceName = NULL,
+    .requestedRate = 44100,
+    .requestedChannels = 2,
     .globalCallback = NULL,
-    .onAudioDataMethod = NULL
+    .onAudioDataMethod = NULL,
+    .globalDirectBuffer = NULL,
+    .directBuffer = NULL,
+    .directCapacity = 0,
+    .directWritePos = 0,
+    .onDataCapturedMethod = NULL,
+    .directTimestamps = 0,
+    .sampleRate = 44100,
+    .channels = 2,
+    .frameBytes = 4,
+    .sendBuffer = NULL,
+    .sendBufferSize = 0,
+    .sendBufferPos = 0,
+    .periodFrames = 0,
+    .bufferFrames = 0,
+    .realtimeApplied = ATOMIC_VAR_INIT(0),
+    .xrunCount = ATOMIC_VAR_INIT(0),
+    .recoverCount = ATOMIC_VAR_INIT(0),
+    .restartCount = ATOMIC_VAR_INIT(0),
+    .isPaused = ATOMIC_VAR_INIT(0),
+    .pauseParked = 0,
+    .pauseLock = PTHREAD_MUTEX_INITIALIZER,
+    .pauseCond = PTHREAD_COND_INITIALIZER
 };
 typedef struct {
     char     riff[4];        // "RIFF"
@@ -54,26 +147,44 @@ typedef struct {
     uint32_t dataSize;       // 音频数据总大小
 } WavHeader;
 JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved) {
-    context.jvm = vm;
+    javaVm = vm;
     return JNI_VERSION_1_8;
 }
 
-static int configureAlsaParams(snd_pcm_t *pcm, snd_pcm_hw_params_t *params) {
-    // 获取支持的格式列表
-    snd_pcm_format_t format;
-    snd_pcm_hw_params_get_format(params, &format);
-    //fprintf(stderr, "[ALSA] 硬件支持的格式: %s\n", snd_pcm_format_name(format));
+// 本地方法增删或签名变化时递增，与 NativeLibraryLoader.ABI_VERSION 一致；加载时核对，不一致的库不会被调用
+#define MEDIA_PROCESSOR_ABI 2
+
+JNIEXPORT jint JNICALL Java_com_web_media_recorder_media_processor_jni_NativeLibraryLoader_abiVersion(
+    JNIEnv *env, jclass cls) {
+    return MEDIA_PROCESSOR_ABI;
+}
+
+static int configureAlsaParams(AudioContext *ctx, snd_pcm_t *pcm, snd_pcm_hw_params_t *params) {
+    // 采集循环按 mmap 交错方式读取 16 位小端样本
+    if (snd_pcm_hw_params_set_access(pcm, params, SND_PCM_ACCESS_MMAP_INTERLEAVED) < 0) {
+        fprintf(stderr, "[ALSA] 不支持 mmap 交错访问\n");
+        return -1;
+    }
+    if (snd_pcm_hw_params_set_format(pcm, params, SND_PCM_FORMAT_S16_LE) < 0) {
+        fprintf(stderr, "[ALSA] 不支持 16 位小端格式\n");
+        return -1;
+    }
 
     // 动态设置采样率
-    unsigned int targetRate = 44100;
+    unsigned int targetRate = ctx->requestedRate;
     if (snd_pcm_hw_params_set_rate_near(pcm, params, &targetRate, NULL) < 0) {
         fprintf(stderr, "[ALSA] 不支持的采样率: %u Hz\n", targetRate);
         return -1;
     }
+    ctx->sampleRate = targetRate;
 
-    // 动态设置声道数
-    int channels = 2;
+    // 动态设置声道数，请求双声道不支持时回退到单声道
+    unsigned int channels = ctx->requestedChannels;
     if (snd_pcm_hw_params_set_channels(pcm, params, channels) < 0) {
+        if (channels != 2) {
+            fprintf(stderr, "[ALSA] 不支持 %u 声道\n", channels);
+            return -1;
+        }
         fprintf(stderr, "[ALSA] 不支持双声道，回退到单声道\n");
         channels = 1;
         if (snd_pcm_hw_params_set_channels(pcm, params, channels) < 0) {
@@ -81,6 +192,8 @@ static int configureAlsaParams(snd_pcm_t *pcm, snd_pcm_hw_params_t *params) {
             return -1;
         }
     }
+    ctx->channels = channels;
+    ctx->frameBytes = channels * 2;
 
     return 0;
 }
@@ -133,43 +246,71 @@ static const char* getFirstAvailableCaptureDevice() {
     // 回退到默认设备
     return strdup("default");
 }
-static int initAlsaDevice() {
-	snd_ctl_card_info_t *ctl_info;
+// 启用单调时钟的硬件时间戳，与 Java 的 System.nanoTime 同一时钟；不支持时只是没有时间戳
+static void configureTimestamps(snd_pcm_t *pcm) {
+    snd_pcm_sw_params_t *swParams;
+    snd_pcm_sw_params_alloca(&swParams);
+    if (snd_pcm_sw_params_current(pcm, swParams) < 0) return;
+    snd_pcm_sw_params_set_tstamp_mode(pcm, swParams, SND_PCM_TSTAMP_ENABLE);
+    snd_pcm_sw_params_set_tstamp_type(pcm, swParams, SND_PCM_TSTAMP_TYPE_MONOTONIC);
+    if (snd_pcm_sw_params(pcm, swParams) < 0) {
+        fprintf(stderr, "[ALSA] 无法启用硬件时间戳\n");
+    }
+}
+
+static jlong monotonicNanos() {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return (jlong)ts.tv_sec * 1000000000LL + ts.tv_nsec;
+}
+
+static jlong framesToNanos(AudioContext *ctx, snd_pcm_sframes_t frames) {
+    return ctx->sampleRate == 0 ? 0 : (jlong)frames * 1000000000LL / ctx->sampleRate;
+}
+
+static int initAlsaDevice(AudioContext *ctx) {
     snd_pcm_hw_params_t *params;
-    const char *device = getFirstAvailableCaptureDevice();
+    const char *device = ctx->deviceName ? strdup(ctx->deviceName) : getFirstAvailableCaptureDevice();
     if (!device) {
         fprintf(stderr, "未找到可用音频设备\n");
         return -1;
     }
     //fprintf(stderr, "[ALSA] 尝试打开设备: %s\n", device);
-    int ret = snd_pcm_open(&context.pcmHandle, device,  SND_PCM_STREAM_CAPTURE,  SND_PCM_NONBLOCK);
-    free((void*)device);
+    int ret = snd_pcm_open(&ctx->pcmHandle, device,  SND_PCM_STREAM_CAPTURE,  SND_PCM_NONBLOCK);
     if (ret < 0) {
-	    fprintf(stderr, "[ALSA] 打开失败: %s\n", snd_strerror(ret));
+	    fprintf(stderr, "[ALSA] 打开 %s 失败: %s\n", device, snd_strerror(ret));
+	    free((void*)device);
+	    ctx->pcmHandle = NULL;
 	    return -1;
 	}
-    if ((ret = snd_pcm_nonblock(context.pcmHandle, 1)) < 0) goto error_close;
+    free((void*)device);
+    if ((ret = snd_pcm_nonblock(ctx->pcmHandle, 1)) < 0) goto error_close;
     snd_pcm_hw_params_alloca(&params);
-    snd_pcm_hw_params_any(context.pcmHandle, params);
-	unsigned int minRate, maxRate;
-    snd_pcm_hw_params_get_rate_min(params, &minRate, NULL);
-    snd_pcm_hw_params_get_rate_max(params, &maxRate, NULL);
-    //fprintf(stderr, "[ALSA] 支持的采样率范围: %u - %u Hz\n", minRate, maxRate);
-    if (configureAlsaParams(context.pcmHandle, params) < 0) goto error_close;
-
-    snd_pcm_uframes_t bufferSize = FRAME_SIZE * 4;
-    if (snd_pcm_hw_params_set_buffer_size_near(context.pcmHandle, params, &bufferSize) < 0) goto error_close;
-
-    if (snd_pcm_hw_params(context.pcmHandle, params) < 0 || 
-        snd_pcm_prepare(context.pcmHandle) < 0 || 
-        snd_pcm_start(context.pcmHandle) < 0) {
+    snd_pcm_hw_params_any(ctx->pcmHandle, params);
+    if (configureAlsaParams(ctx, ctx->pcmHandle, params) < 0) goto error_close;
+
+    if (ctx->profile.periodFrames > 0) {
+        snd_pcm_uframes_t periodSize = ctx->profile.periodFrames;
+        if (snd_pcm_hw_params_set_period_size_near(ctx->pcmHandle, params, &periodSize, NULL) < 0) goto error_close;
+    }
+    snd_pcm_uframes_t bufferSize = ctx->profile.bufferFrames > 0 ? ctx->profile.bufferFrames : FRAME_SIZE * 4;
+    if (snd_pcm_hw_params_set_buffer_size_near(ctx->pcmHandle, params, &bufferSize) < 0) goto error_close;
+
+    if (snd_pcm_hw_params(ctx->pcmHandle, params) < 0) goto error_close;
+    snd_pcm_hw_params_get_period_size(params, &ctx->periodFrames, NULL);
+    snd_pcm_hw_params_get_buffer_size(params, &ctx->bufferFrames);
+    fprintf(stderr, "[ALSA] 周期 %lu 帧，缓冲区 %lu 帧\n", (unsigned long)ctx->periodFrames, (unsigned long)ctx->bufferFrames);
+    configureTimestamps(ctx->pcmHandle);
+
+    if (snd_pcm_prepare(ctx->pcmHandle) < 0 || 
+        snd_pcm_start(ctx->pcmHandle) < 0) {
         goto error_close;
     }
     return 0;
     
 error_close:
-    snd_pcm_close(context.pcmHandle);
-error:
+    snd_pcm_close(ctx->pcmHandle);
+    ctx->pcmHandle = NULL;
     return -1;
 }
 
@@ -193,51 +334,142 @@ int getch() {
     return ch;
 }
 
+// 拷贝到共享缓冲区并通知 Java，跨越缓冲区末尾时拆成两段
+// deviceTime 为首帧的采集时间（0 表示未知），readTime 为本地循环取出数据的时间
+static void deliverDirect(AudioContext *ctx, JNIEnv *env, const char *src, size_t len, jlong deviceTime, jlong readTime) {
+    // 只使用整帧倍数的容量，回绕处不拆开一帧
+    size_t usable = ctx->directCapacity - ctx->directCapacity % ctx->frameBytes;
+    while (len > 0) {
+        size_t space = usable - ctx->directWritePos;
+        size_t toCopy = len < space ? len : space;
+        memcpy(ctx->directBuffer + ctx->directWritePos, src, toCopy);
+        if (ctx->directTimestamps) {
+            (*env)->CallVoidMethod(env, ctx->globalCallback, ctx->onDataCapturedMethod,
+                                   (jint)ctx->directWritePos, (jint)toCopy, deviceTime, readTime);
+        } else {
+            (*env)->CallVoidMethod(env, ctx->globalCallback, ctx->onDataCapturedMethod,
+                                   (jint)ctx->directWritePos, (jint)toCopy);
+        }
+        if ((*env)->ExceptionCheck(env)) {
+            (*env)->ExceptionDescribe(env);
+            (*env)->ExceptionClear(env);
+        }
+        ctx->directWritePos = (ctx->directWritePos + toCopy) % usable;
+        if (deviceTime != 0) {
+            deviceTime += framesToNanos(ctx, toCopy / ctx->frameBytes);
+        }
+        src += toCopy;
+        len -= toCopy;
+    }
+}
+
+// 暂停期间阻塞采集线程，返回时设备已重新启动；停止采集时返回 -1
+static int awaitResume(AudioContext *ctx) {
+    snd_pcm_drop(ctx->pcmHandle);
+    snd_pcm_prepare(ctx->pcmHandle);
+    pthread_mutex_lock(&ctx->pauseLock);
+    ctx->pauseParked = 1;
+    pthread_cond_broadcast(&ctx->pauseCond);
+    while (atomic_load(&ctx->isPaused) && atomic_load(&ctx->isCapturing)) {
+        pthread_cond_wait(&ctx->pauseCond, &ctx->pauseLock);
+    }
+    ctx->pauseParked = 0;
+    pthread_mutex_unlock(&ctx->pauseLock);
+    if (!atomic_load(&ctx->isCapturing)) return -1;
+    // 设备已是 prepared 状态，启动后一个周期内即有数据
+    snd_pcm_start(ctx->pcmHandle);
+    return 0;
+}
+
+// 按档位设置采集线程的 CPU 亲和性与实时优先级，失败时只打印警告，以普通线程继续采集
+static void applyThreadProfile(AudioContext *ctx) {
+    if (ctx->profile.cpu >= 0) {
+        cpu_set_t cpus;
+        CPU_ZERO(&cpus);
+        CPU_SET(ctx->profile.cpu, &cpus);
+        int err = pthread_setaffinity_np(pthread_self(), sizeof(cpus), &cpus);
+        if (err != 0) {
+            fprintf(stderr, "[ALSA] 无法绑定 CPU %d: %s\n", ctx->profile.cpu, strerror(err));
+        }
+    }
+    atomic_store(&ctx->realtimeApplied, 0);
+    if (ctx->profile.realtimePriority > 0) {
+        struct sched_param param = { .sched_priority = ctx->profile.realtimePriority };
+        int err = pthread_setschedparam(pthread_self(), SCHED_FIFO, &param);
+        if (err != 0) {
+            fprintf(stderr, "[ALSA] 无法启用 SCHED_FIFO（需要 CAP_SYS_NICE 或 rtprio 限制）: %s\n", strerror(err));
+        } else {
+            atomic_store(&ctx->realtimeApplied, 1);
+        }
+    }
+}
+
 static void* captureLoop(void* arg) {
+    AudioContext *ctx = (AudioContext*)arg;
     JNIEnv *env;
-    if ((*context.jvm)->AttachCurrentThread(context.jvm, (void**)&env,  NULL) != JNI_OK) {
+    if ((*javaVm)->AttachCurrentThread(javaVm, (void**)&env,  NULL) != JNI_OK) {
         return NULL;
     }
+    applyThreadProfile(ctx);
 
-    // 新增发送缓冲区和指针
-    static char sendBuffer[1024];
-    static int sendBufferPos = 0;
-
-    while (atomic_load(&context.isCapturing)) {
-        int waitResult = snd_pcm_wait(context.pcmHandle, 1000); 
+    while (atomic_load(&ctx->isCapturing)) {
+        if (atomic_load(&ctx->isPaused)) {
+            if (awaitResume(ctx) < 0) break;
+            continue;
+        }
+        int waitResult = snd_pcm_wait(ctx->pcmHandle, ctx->profile.waitMs);
         if (waitResult < 0) {
             fprintf(stderr, "等待错误: %s\n", snd_strerror(waitResult));
             continue;
         }
-        snd_pcm_sframes_t avail = snd_pcm_avail(context.pcmHandle);
+        snd_pcm_sframes_t avail = snd_pcm_avail(ctx->pcmHandle);
         snd_pcm_uframes_t commitFrames = 0;
 
         if (avail < 0) {
-            if (snd_pcm_recover(context.pcmHandle, avail, 1) < 0) {
+            if (avail == -EPIPE || avail == -ESTRPIPE) {
+                atomic_fetch_add(&ctx->xrunCount, 1);
+            }
+            if (snd_pcm_recover(ctx->pcmHandle, avail, 1) < 0) {
                 fprintf(stderr, "无法恢复设备，尝试重启...\n");
-                snd_pcm_close(context.pcmHandle);
-                if (initAlsaDevice() < 0) break;
-                snd_pcm_prepare(context.pcmHandle);
-                snd_pcm_start(context.pcmHandle);
+                atomic_fetch_add(&ctx->restartCount, 1);
+                snd_pcm_close(ctx->pcmHandle);
+                if (initAlsaDevice(ctx) < 0) break;
+                snd_pcm_prepare(ctx->pcmHandle);
+                snd_pcm_start(ctx->pcmHandle);
                 continue;
             }
+            atomic_fetch_add(&ctx->recoverCount, 1);
+            // 采集流 recover 后只回到 PREPARED，不会自行开始；不立即 start 的话 snd_pcm_wait 要等满 waitMs，
+            // 每次 xrun 都会丢掉这么长的音频。本次的 avail 已无效，启动后等待下一次可读
+            snd_pcm_start(ctx->pcmHandle);
+            continue;
         }
 
         if (avail == 0) {
-            int state = snd_pcm_state(context.pcmHandle);
+            int state = snd_pcm_state(ctx->pcmHandle);
             if (state != SND_PCM_STATE_RUNNING) {
                 fprintf(stderr, "ALSA device not running. State: %s\n", snd_pcm_state_name(state));
-                snd_pcm_start(context.pcmHandle);
+                snd_pcm_start(ctx->pcmHandle);
             }
-            usleep(2000);
+            usleep(ctx->profile.retryMicros);
             continue;
         }
 
-        commitFrames = (avail > FRAME_SIZE) ? FRAME_SIZE : avail;
+        commitFrames = (avail > ctx->profile.chunkFrames) ? ctx->profile.chunkFrames : avail;
+
+        // 硬件时间戳对应最新一帧，往前推可读帧数得到本段首帧的采集时间
+        jlong readTime = monotonicNanos();
+        jlong deviceTime = 0;
+        snd_pcm_uframes_t stampedAvail;
+        snd_htimestamp_t tstamp;
+        if (snd_pcm_htimestamp(ctx->pcmHandle, &stampedAvail, &tstamp) == 0
+                && (tstamp.tv_sec != 0 || tstamp.tv_nsec != 0)) {
+            deviceTime = (jlong)tstamp.tv_sec * 1000000000LL + tstamp.tv_nsec - framesToNanos(ctx, stampedAvail);
+        }
 
         const snd_pcm_channel_area_t *areas;
         snd_pcm_uframes_t offset;
-        snd_pcm_sframes_t frames = snd_pcm_mmap_begin(context.pcmHandle, &areas, &offset, &commitFrames);
+        snd_pcm_sframes_t frames = snd_pcm_mmap_begin(ctx->pcmHandle, &areas, &offset, &commitFrames);
 
         if (frames < 0) {
             fprintf(stderr, "mmap_begin错误: %s\n", snd_strerror(frames));
@@ -246,116 +478,233 @@ static void* captureLoop(void* arg) {
 
         if (commitFrames > 0) {
             char *buffer = (char*)areas[0].addr + (offset * areas[0].step / 8);
-            size_t dataSize = commitFrames * 4;
-
-            // 分包逻辑：累积到sendBuffer，满1024字节就推送
-            size_t copied = 0;
-            while (copied < dataSize) {
-                size_t toCopy = (dataSize - copied) < (1024 - sendBufferPos) ? (dataSize - copied) : (1024 - sendBufferPos);
-                memcpy(sendBuffer + sendBufferPos, buffer + copied, toCopy);
-                sendBufferPos += toCopy;
-                copied += toCopy;
-                if (sendBufferPos == 1024) {
-                    if (context.globalCallback && context.onAudioDataMethod) {
-                        jbyteArray dataArray = (*env)->NewByteArray(env, 1024);
-                        if (dataArray) {
-                            (*env)->SetByteArrayRegion(env, dataArray, 0, 1024, (jbyte*)sendBuffer);
-                            (*env)->CallVoidMethod(env, context.globalCallback, context.onAudioDataMethod, dataArray);
-                            (*env)->DeleteLocalRef(env, dataArray);
+            size_t dataSize = commitFrames * ctx->frameBytes;
+
+            if (ctx->directBuffer) {
+                deliverDirect(ctx, env, buffer, dataSize, deviceTime, readTime);
+            } else {
+                // 分包逻辑：累积到sendBuffer，满sendBufferSize字节就推送
+                size_t copied = 0;
+                size_t chunk = ctx->sendBufferSize;
+                while (copied < dataSize) {
+                    size_t toCopy = (dataSize - copied) < (chunk - ctx->sendBufferPos) ? (dataSize - copied) : (chunk - ctx->sendBufferPos);
+                    memcpy(ctx->sendBuffer + ctx->sendBufferPos, buffer + copied, toCopy);
+                    ctx->sendBufferPos += toCopy;
+                    copied += toCopy;
+                    if (ctx->sendBufferPos == chunk) {
+                        if (ctx->globalCallback && ctx->onAudioDataMethod) {
+                            jbyteArray dataArray = (*env)->NewByteArray(env, (jsize)chunk);
+                            if (dataArray) {
+                                (*env)->SetByteArrayRegion(env, dataArray, 0, (jsize)chunk, (jbyte*)ctx->sendBuffer);
+                                (*env)->CallVoidMethod(env, ctx->globalCallback, ctx->onAudioDataMethod, dataArray);
+                                (*env)->DeleteLocalRef(env, dataArray);
+                            }
                         }
+                        ctx->sendBufferPos = 0;
                     }
-                    sendBufferPos = 0;
                 }
             }
         }
 
-        int commitResult = snd_pcm_mmap_commit(context.pcmHandle, offset, commitFrames);
+        int commitResult = snd_pcm_mmap_commit(ctx->pcmHandle, offset, commitFrames);
         if (commitResult < 0 || commitResult != (int)commitFrames) {
             fprintf(stderr, "提交错误: 预期%lu 实际%d\n", commitFrames, commitResult);
         }
     }
 
     // 采集结束时，推送剩余未满1024字节的数据
-    if (sendBufferPos > 0 && context.globalCallback && context.onAudioDataMethod) {
+    if (!ctx->directBuffer && ctx->sendBufferPos > 0 && ctx->globalCallback && ctx->onAudioDataMethod) {
         JNIEnv *env;
-        if ((*context.jvm)->AttachCurrentThread(context.jvm, (void**)&env,  NULL) == JNI_OK) {
-            jbyteArray dataArray = (*env)->NewByteArray(env, sendBufferPos);
+        if ((*javaVm)->AttachCurrentThread(javaVm, (void**)&env,  NULL) == JNI_OK) {
+            jbyteArray dataArray = (*env)->NewByteArray(env, ctx->sendBufferPos);
             if (dataArray) {
-                (*env)->SetByteArrayRegion(env, dataArray, 0, sendBufferPos, (jbyte*)sendBuffer);
-                (*env)->CallVoidMethod(env, context.globalCallback, context.onAudioDataMethod, dataArray);
+                (*env)->SetByteArrayRegion(env, dataArray, 0, ctx->sendBufferPos, (jbyte*)ctx->sendBuffer);
+                (*env)->CallVoidMethod(env, ctx->globalCallback, ctx->onAudioDataMethod, dataArray);
                 (*env)->DeleteLocalRef(env, dataArray);
             }
         }
-        sendBufferPos = 0;
+        ctx->sendBufferPos = 0;
     }
 
-    (*context.jvm)->DetachCurrentThread(context.jvm);
+    (*javaVm)->DetachCurrentThread(javaVm);
     return NULL;
 }
 
-JNIEXPORT void JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_startCapture(
-    JNIEnv *env, jobject obj, jobject callback, jboolean isAudio) {
-    if (atomic_exchange(&context.isCapturing, 1)) return;
+static void releaseDirectBuffer(AudioContext *ctx, JNIEnv *env) {
+    if (ctx->globalDirectBuffer) {
+        (*env)->DeleteGlobalRef(env, ctx->globalDirectBuffer);
+        ctx->globalDirectBuffer = NULL;
+    }
+    ctx->directBuffer = NULL;
+    ctx->directCapacity = 0;
+    ctx->directWritePos = 0;
+}
 
-    if (context.globalCallback) {
-        (*env)->DeleteGlobalRef(env, context.globalCallback);
-        context.globalCallback = NULL;
+// 保存回调对象并解析回调方法，失败时返回 NULL
+static jmethodID bindCallback(AudioContext *ctx, JNIEnv *env, jobject callback, const char *name, const char *sig) {
+    if (ctx->globalCallback) {
+        (*env)->DeleteGlobalRef(env, ctx->globalCallback);
+        ctx->globalCallback = NULL;
     }
-	if (context.globalCallback) {
-	    (*env)->DeleteGlobalRef(env, context.globalCallback);
-	}
-	context.globalCallback = (*env)->NewGlobalRef(env, callback);
-    jclass callbackClass = (*env)->GetObjectClass(env, context.globalCallback);
-    context.onAudioDataMethod = (*env)->GetMethodID(env, callbackClass, "onDataReceived", "([B)V");
-    if (!context.onAudioDataMethod) {
-        fprintf(stderr, "严重错误：未找到 onDataReceived 方法 !!!!\n");
-        return;
+	ctx->globalCallback = (*env)->NewGlobalRef(env, callback);
+    jclass callbackClass = (*env)->GetObjectClass(env, ctx->globalCallback);
+    jmethodID method = (*env)->GetMethodID(env, callbackClass, name, sig);
+    if (!method) {
+        fprintf(stderr, "严重错误：未找到 %s 方法 !!!!\n", name);
     }
+    return method;
+}
 
+// 绑定共享直接缓冲区与 onDataCaptured 回调，失败时抛出异常并返回 -1
+static int bindDirect(AudioContext *ctx, JNIEnv *env, jobject buffer, jobject callback) {
+    char *address = (char*)(*env)->GetDirectBufferAddress(env, buffer);
+    jlong capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!address || capacity <= 0) {
+        jclass exCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, exCls, "Capture buffer must be a direct ByteBuffer");
+        return -1;
+    }
+    releaseDirectBuffer(ctx, env);
+    ctx->globalDirectBuffer = (*env)->NewGlobalRef(env, buffer);
+    ctx->directBuffer = address;
+    ctx->directCapacity = (size_t)capacity;
+    ctx->directWritePos = 0;
+    ctx->onAudioDataMethod = NULL;
+    // 优先使用带时间戳的回调，Java 端未提供时回退到只带偏移与长度的版本
+    ctx->onDataCapturedMethod = bindCallback(ctx, env, callback, "onDataCaptured", "(IIJJ)V");
+    ctx->directTimestamps = ctx->onDataCapturedMethod != NULL;
+    if (!ctx->onDataCapturedMethod) {
+        (*env)->ExceptionClear(env);
+        ctx->onDataCapturedMethod = bindCallback(ctx, env, callback, "onDataCaptured", "(II)V");
+    }
+    if (!ctx->onDataCapturedMethod) {
+        releaseDirectBuffer(ctx, env);
+        return -1;
+    }
+    return 0;
+}
+
+static void copyProfile(AudioContext *ctx) {
+    pthread_mutex_lock(&profileLock);
+    ctx->profile = captureProfile;
+    pthread_mutex_unlock(&profileLock);
+}
+
+// 初始化设备并启动采集线程，失败时复位采集标志并返回 -1
+static int launchCapture(AudioContext *ctx, JNIEnv *env, jboolean isAudio) {
     if (isAudio) {
-        if (!context.pcmHandle && initAlsaDevice() < 0) {
+        if (!ctx->pcmHandle && initAlsaDevice(ctx) < 0) {
+            atomic_store(&ctx->isCapturing, 0);
             jclass exCls = (*env)->FindClass(env, "java/lang/RuntimeException");
             (*env)->ThrowNew(env, exCls, "Failed to initialize audio device");
-            return;
+            return -1;
         }
     } else {
+        atomic_store(&ctx->isCapturing, 0);
         fprintf(stderr, "Video capture initialization not implemented yet.\n");
+        return -1;
+    }
+
+    // 凑包缓冲区只在字节数组回调模式下需要，直接缓冲区模式写入 Java 分配的共享内存
+    if (ctx->directBuffer) {
+        free(ctx->sendBuffer);
+        ctx->sendBuffer = NULL;
+        ctx->sendBufferSize = 0;
+    } else {
+        size_t callbackBytes = ctx->profile.callbackBytes > 0 ? ctx->profile.callbackBytes : 1024;
+        if (ctx->sendBufferSize != callbackBytes) {
+            free(ctx->sendBuffer);
+            ctx->sendBuffer = (char*)malloc(callbackBytes);
+            ctx->sendBufferSize = ctx->sendBuffer ? callbackBytes : 0;
+        }
+    }
+    ctx->sendBufferPos = 0;
+    if (!ctx->directBuffer && !ctx->sendBuffer) {
+        atomic_store(&ctx->isCapturing, 0);
+        jclass exCls = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
+        (*env)->ThrowNew(env, exCls, "Failed to allocate callback buffer");
+        return -1;
+    }
+
+    if (pthread_create(&ctx->captureThread, NULL, captureLoop, ctx) != 0) {
+        atomic_store(&ctx->isCapturing, 0);
+        jclass exCls = (*env)->FindClass(env, "java/lang/RuntimeException");
+        (*env)->ThrowNew(env, exCls, "Failed to start capture thread");
+        return -1;
+    }
+    ctx->threadStarted = 1;
+    return 0;
+}
+
+static void joinCapture(AudioContext *ctx) {
+    atomic_store(&ctx->isCapturing, 0);
+    // 唤醒暂停中的采集线程使其退出
+    pthread_mutex_lock(&ctx->pauseLock);
+    pthread_cond_broadcast(&ctx->pauseCond);
+    pthread_mutex_unlock(&ctx->pauseLock);
+    if (ctx->threadStarted) {
+        pthread_join(ctx->captureThread, NULL);
+        ctx->threadStarted = 0;
+    }
+}
+
+// 关闭设备并释放 Java 引用，上下文本身可再次使用
+static void releaseContext(AudioContext *ctx, JNIEnv *env) {
+    if (ctx->pcmHandle) {
+        snd_pcm_drop(ctx->pcmHandle); 
+        snd_pcm_close(ctx->pcmHandle);
+        ctx->pcmHandle = NULL;
+    }
+    free(ctx->sendBuffer);
+    ctx->sendBuffer = NULL;
+    ctx->sendBufferSize = 0;
+    if (ctx->globalCallback) {
+        (*env)->DeleteGlobalRef(env, ctx->globalCallback);
+        ctx->globalCallback = NULL;
+    }
+    releaseDirectBuffer(ctx, env);
+}
+
+JNIEXPORT void JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_startCapture(
+    JNIEnv *env, jobject obj, jobject callback, jboolean isAudio) {
+    if (atomic_exchange(&context.isCapturing, 1)) return;
+
+    copyProfile(&context);
+    releaseDirectBuffer(&context, env);
+    context.onDataCapturedMethod = NULL;
+    context.onAudioDataMethod = bindCallback(&context, env, callback, "onDataReceived", "([B)V");
+    if (!context.onAudioDataMethod) {
+        atomic_store(&context.isCapturing, 0);
         return;
     }
+    launchCapture(&context, env, isAudio);
+}
 
-    if (!context.ringBuffer) {
-        context.ringBuffer = (char*)calloc(BUFFER_SIZE, 1);
+JNIEXPORT void JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_startCaptureDirect(
+    JNIEnv *env, jobject obj, jobject buffer, jobject callback, jboolean isAudio) {
+    if ((*env)->GetDirectBufferAddress(env, buffer) == NULL) {
+        jclass exCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, exCls, "Capture buffer must be a direct ByteBuffer");
+        return;
     }
+    if (atomic_exchange(&context.isCapturing, 1)) return;
 
-    pthread_create(&captureThread, NULL, captureLoop, NULL);
+    copyProfile(&context);
+    if (bindDirect(&context, env, buffer, callback) < 0) {
+        atomic_store(&context.isCapturing, 0);
+        return;
+    }
+    launchCapture(&context, env, isAudio);
 }
 
 JNIEXPORT void JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_stopCapture(
     JNIEnv *env, jobject obj) { 
-    atomic_store(&context.isCapturing, 0);
-    pthread_join(captureThread, NULL);
-    atomic_store(&context.writePos, 0);
+    joinCapture(&context);
 }
 
 // 释放资源时关闭文件
 void Java_com_web_media_recorder_media_processor_jni_NativeProcessor_releaseResources(JNIEnv *env, jclass clazz) {
-    if (context.pcmHandle) {
-        snd_pcm_drop(context.pcmHandle); 
-        snd_pcm_close(context.pcmHandle);
-        context.pcmHandle = NULL;
-    }
-    if (context.ringBuffer) {
-	    free(context.ringBuffer);
-	    context.ringBuffer = NULL; 
-	}
-    context.ringBuffer = (char*)calloc(BUFFER_SIZE, 1);
-    if (context.globalCallback) {
-        (*env)->DeleteGlobalRef(env, context.globalCallback);
-    }
-    // 清空结构体字段以避免悬空指针
-    context.pcmHandle = NULL;
-    context.ringBuffer = NULL;
-    context.globalCallback = NULL;
+    releaseContext(&context, env);
 }
 
 JNIEXPORT jboolean JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_isKeyPressed(
@@ -368,15 +717,216 @@ JNIEXPORT jboolean JNICALL Java_com_web_media_recorder_media_processor_jni_Nativ
     }
     return JNI_FALSE;
 }
-JNIEXPORT jintArray JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_getAudioParams(JNIEnv *env, jobject obj) {
-    jintArray params = (*env)->NewIntArray(env, 3); 
+// 打开并配置默认采集设备（已打开时沿用），返回设备实际协商的 {采样率, 声道数, 位深}；
+// 之后的 startCapture/startCaptureDirect 直接使用这个设备，录音文件按返回的格式创建
+JNIEXPORT jintArray JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_openDefaultCapture(JNIEnv *env, jobject obj) {
+    if (!context.pcmHandle && !atomic_load(&context.isCapturing)) {
+        copyProfile(&context);
+        if (initAlsaDevice(&context) < 0) {
+            jclass exCls = (*env)->FindClass(env, "java/lang/RuntimeException");
+            (*env)->ThrowNew(env, exCls, "Failed to initialize audio device");
+            return NULL;
+        }
+    }
+    jintArray params = (*env)->NewIntArray(env, 3);
     if (params == NULL) return NULL;
 
     jint buf[] = {
-        44100,     // 采样率
-        2,         // 声道数
-        16         // 位深度
+        (jint)context.sampleRate,
+        (jint)context.channels,
+        16
     };
     (*env)->SetIntArrayRegion(env, params, 0, 3, buf);
     return params;
 }
+
+static jlongArray countersOf(JNIEnv *env, AudioContext *ctx) {
+    jlongArray counters = (*env)->NewLongArray(env, 6);
+    if (counters == NULL) return NULL;
+
+    jlong buf[] = {
+        (jlong)atomic_load(&ctx->xrunCount),
+        (jlong)atomic_load(&ctx->recoverCount),
+        (jlong)atomic_load(&ctx->restartCount),
+        (jlong)ctx->periodFrames,
+        (jlong)ctx->bufferFrames,
+        (jlong)atomic_load(&ctx->realtimeApplied)
+    };
+    (*env)->SetLongArrayRegion(env, counters, 0, 6, buf);
+    return counters;
+}
+
+// 返回 {xrun 次数, recover 成功次数, 重新打开设备次数, 周期帧数, 缓冲区帧数, 是否实时优先级}，计数在进程内累计
+JNIEXPORT jlongArray JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_getCaptureCounters(JNIEnv *env, jobject obj) {
+    return countersOf(env, &context);
+}
+
+// 设置之后打开的设备使用的参数档位：
+// {周期帧数, 缓冲区帧数, 每次回调最大帧数, 字节数组回调字节数, 等待超时毫秒, 重试间隔微秒, 实时优先级, 绑定 CPU}
+JNIEXPORT void JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_applyCaptureProfile(
+    JNIEnv *env, jobject obj, jintArray profile) {
+    if (profile == NULL || (*env)->GetArrayLength(env, profile) < 8) {
+        jclass exCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, exCls, "Capture profile needs 8 values");
+        return;
+    }
+    jint v[8];
+    (*env)->GetIntArrayRegion(env, profile, 0, 8, v);
+    pthread_mutex_lock(&profileLock);
+    captureProfile.periodFrames = v[0] > 0 ? (unsigned int)v[0] : 0;
+    captureProfile.bufferFrames = v[1] > 0 ? (unsigned int)v[1] : FRAME_SIZE * 4;
+    captureProfile.chunkFrames = v[2] > 0 ? (unsigned int)v[2] : FRAME_SIZE;
+    captureProfile.callbackBytes = v[3] > 0 ? (unsigned int)v[3] : 1024;
+    captureProfile.waitMs = v[4] > 0 ? v[4] : 1000;
+    captureProfile.retryMicros = v[5] > 0 ? v[5] : 2000;
+    captureProfile.realtimePriority = v[6] > 0 ? v[6] : 0;
+    captureProfile.cpu = v[7];
+    pthread_mutex_unlock(&profileLock);
+}
+
+// ---- 多设备采集：每路一个句柄（上下文指针），互不影响 ----
+
+// 列出所有采集设备，返回 {设备名, 描述, 设备名, 描述, ...}
+JNIEXPORT jobjectArray JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_listCaptureDevices(
+    JNIEnv *env, jobject obj) {
+    char names[64][32];
+    char descriptions[64][160];
+    int count = 0;
+    int card_num = -1;
+    snd_ctl_card_info_t *ctl_info;
+    snd_pcm_info_t *pcminfo;
+    snd_ctl_card_info_alloca(&ctl_info);
+    snd_pcm_info_alloca(&pcminfo);
+
+    while (count < 64 && snd_card_next(&card_num) >= 0 && card_num >= 0) {
+        char name[32];
+        snd_ctl_t *ctl_handle = NULL;
+        snprintf(name, sizeof(name), "hw:%d", card_num);
+        if (snd_ctl_open(&ctl_handle, name, 0) != 0) continue;
+        if (snd_ctl_card_info(ctl_handle, ctl_info) < 0) {
+            snd_ctl_close(ctl_handle);
+            continue;
+        }
+        int dev_num = -1;
+        while (count < 64 && snd_ctl_pcm_next_device(ctl_handle, &dev_num) >= 0 && dev_num >= 0) {
+            snd_pcm_info_set_device(pcminfo, dev_num);
+            snd_pcm_info_set_subdevice(pcminfo, 0);
+            snd_pcm_info_set_stream(pcminfo, SND_PCM_STREAM_CAPTURE);
+            if (snd_ctl_pcm_info(ctl_handle, pcminfo) != 0) continue;
+            snprintf(names[count], sizeof(names[count]), "hw:%d,%d", card_num, dev_num);
+            snprintf(descriptions[count], sizeof(descriptions[count]), "%s: %s",
+                     snd_ctl_card_info_get_name(ctl_info), snd_pcm_info_get_name(pcminfo));
+            count++;
+        }
+        snd_ctl_close(ctl_handle);
+    }
+
+    jclass stringClass = (*env)->FindClass(env, "java/lang/String");
+    jobjectArray result = (*env)->NewObjectArray(env, count * 2, stringClass, NULL);
+    if (result == NULL) return NULL;
+    for (int i = 0; i < count; i++) {
+        jstring name = (*env)->NewStringUTF(env, names[i]);
+        jstring description = (*env)->NewStringUTF(env, descriptions[i]);
+        (*env)->SetObjectArrayElement(env, result, i * 2, name);
+        (*env)->SetObjectArrayElement(env, result, i * 2 + 1, description);
+        (*env)->DeleteLocalRef(env, name);
+        (*env)->DeleteLocalRef(env, description);
+    }
+    return result;
+}
+
+// 打开指定设备并启动独立的采集线程，返回句柄；失败时抛出异常并返回 0
+JNIEXPORT jlong JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_openCapture(
+    JNIEnv *env, jobject obj, jstring device, jint sampleRate, jint channels, jobject buffer, jobject callback) {
+    AudioContext *ctx = (AudioContext*)calloc(1, sizeof(AudioContext));
+    if (!ctx) {
+        jclass exCls = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
+        (*env)->ThrowNew(env, exCls, "Failed to allocate capture context");
+        return 0;
+    }
+    atomic_init(&ctx->isCapturing, 1);
+    atomic_init(&ctx->xrunCount, 0);
+    atomic_init(&ctx->recoverCount, 0);
+    atomic_init(&ctx->restartCount, 0);
+    atomic_init(&ctx->isPaused, 0);
+    pthread_mutex_init(&ctx->pauseLock, NULL);
+    pthread_cond_init(&ctx->pauseCond, NULL);
+    copyProfile(ctx);
+    ctx->requestedRate = sampleRate > 0 ? (unsigned int)sampleRate : 44100;
+    ctx->requestedChannels = channels > 0 ? (unsigned int)channels : 2;
+    ctx->sampleRate = ctx->requestedRate;
+    ctx->channels = ctx->requestedChannels;
+    ctx->frameBytes = ctx->channels * 2;
+    if (device) {
+        const char *utf = (*env)->GetStringUTFChars(env, device, NULL);
+        if (utf && utf[0]) {
+            ctx->deviceName = strdup(utf);
+        }
+        if (utf) (*env)->ReleaseStringUTFChars(env, device, utf);
+    }
+
+    if (bindDirect(ctx, env, buffer, callback) < 0 || launchCapture(ctx, env, JNI_TRUE) < 0) {
+        releaseContext(ctx, env);
+        pthread_cond_destroy(&ctx->pauseCond);
+        pthread_mutex_destroy(&ctx->pauseLock);
+        free(ctx->deviceName);
+        free(ctx);
+        return 0;
+    }
+    return (jlong)(intptr_t)ctx;
+}
+
+// 停止采集线程、关闭设备并释放句柄，之后句柄不可再用
+JNIEXPORT void JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_closeCapture(
+    JNIEnv *env, jobject obj, jlong handle) {
+    AudioContext *ctx = (AudioContext*)(intptr_t)handle;
+    if (!ctx) return;
+    joinCapture(ctx);
+    releaseContext(ctx, env);
+    pthread_cond_destroy(&ctx->pauseCond);
+    pthread_mutex_destroy(&ctx->pauseLock);
+    free(ctx->deviceName);
+    free(ctx);
+}
+
+// 暂停或恢复句柄的数据流，设备保持打开。暂停等到采集线程停下才返回，之后不再有回调；
+// 采集线程因设备故障已退出时最多等待 2 秒
+JNIEXPORT void JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_setCapturePaused(
+    JNIEnv *env, jobject obj, jlong handle, jboolean paused) {
+    AudioContext *ctx = (AudioContext*)(intptr_t)handle;
+    if (!ctx) return;
+    pthread_mutex_lock(&ctx->pauseLock);
+    atomic_store(&ctx->isPaused, paused ? 1 : 0);
+    pthread_cond_broadcast(&ctx->pauseCond);
+    if (paused && ctx->threadStarted) {
+        struct timespec deadline;
+        clock_gettime(CLOCK_REALTIME, &deadline);
+        deadline.tv_sec += 2;
+        while (!ctx->pauseParked && atomic_load(&ctx->isCapturing)) {
+            if (pthread_cond_timedwait(&ctx->pauseCond, &ctx->pauseLock, &deadline) == ETIMEDOUT) {
+                fprintf(stderr, "[ALSA] 等待采集线程暂停超时\n");
+                break;
+            }
+        }
+    }
+    pthread_mutex_unlock(&ctx->pauseLock);
+}
+
+// 返回句柄实际协商到的 {采样率, 声道数, 位深}
+JNIEXPORT jintArray JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_getCaptureFormat(
+    JNIEnv *env, jobject obj, jlong handle) {
+    AudioContext *ctx = (AudioContext*)(intptr_t)handle;
+    if (!ctx) return NULL;
+    jintArray params = (*env)->NewIntArray(env, 3);
+    if (params == NULL) return NULL;
+    jint buf[] = { (jint)ctx->sampleRate, (jint)ctx->channels, 16 };
+    (*env)->SetIntArrayRegion(env, params, 0, 3, buf);
+    return params;
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_web_media_recorder_media_processor_jni_NativeProcessor_getHandleCounters(
+    JNIEnv *env, jobject obj, jlong handle) {
+    AudioContext *ctx = (AudioContext*)(intptr_t)handle;
+    if (!ctx) return NULL;
+    return countersOf(env, ctx);
+}
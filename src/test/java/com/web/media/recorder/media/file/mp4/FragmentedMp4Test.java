@@ -0,0 +1,263 @@
+package com.web.media.recorder.media.file.mp4;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.web.media.recorder.media.file.mp4.H264StreamParser.AccessUnit;
+
+/**
+ * Annex B 流按任意位置分块（包括起始码被切开）送入解析器，组出的帧与整块送入时一致；
+ * 再把这些帧封装为 moof+mdat，逐个核对 box 长度、trun 的 data_offset 与 mdat 中的长度前缀 NAL。
+ */
+class FragmentedMp4Test {
+	// x264 输出的 1280x720 High Profile SPS
+	private static final byte[] SPS = hex("6764001facd9405005bb0110000003001000000303c0f183196");
+	private static final byte[] PPS = hex("68ebe3cb22c0");
+	private static final byte[] IDR = hex("6588840033");
+	private static final byte[] P_FIRST = hex("419a1122");
+	// first_mb_in_slice 不为 0，与上一个条带同属一帧
+	private static final byte[] P_SECOND = hex("411a33");
+	private static final byte[] AUD = hex("09f0");
+	private static final byte[] P_LAST = hex("419a4455");
+
+	private static final byte[] START_3 = { 0, 0, 1 };
+	private static final byte[] START_4 = { 0, 0, 0, 1 };
+
+	/**
+	 * 参数集、IDR 帧、两个条带的 P 帧、AUD 加一个 P 帧，三字节与四字节起始码混用，最后一个 NAL 带尾随零字节
+	 */
+	private static byte[] stream() {
+		return concat(START_4, SPS, START_3, PPS, START_4, IDR, START_3, P_FIRST, START_3, P_SECOND, START_4, AUD,
+				START_3, P_LAST, new byte[] { 0 });
+	}
+
+	@Test
+	void splitsAtEveryOffsetYieldSameAccessUnits() {
+		byte[] stream = stream();
+		for (int split = 1; split < stream.length; split++) {
+			H264StreamParser parser = new H264StreamParser();
+			List<AccessUnit> units = new ArrayList<>(parser.feed(ByteBuffer.wrap(stream, 0, split), 1));
+			units.addAll(parser.feed(ByteBuffer.wrap(stream, split, stream.length - split), 2));
+			units.addAll(parser.finish(3));
+			assertExpectedUnits(units, "在偏移 " + split + " 处分块");
+			assertEquals(0, parser.getDiscardedBytes());
+		}
+	}
+
+	@Test
+	void byteByByteFeedYieldsSameAccessUnits() {
+		byte[] stream = stream();
+		H264StreamParser parser = new H264StreamParser();
+		List<AccessUnit> units = new ArrayList<>();
+		for (int i = 0; i < stream.length; i++) {
+			units.addAll(parser.feed(ByteBuffer.wrap(stream, i, 1), i));
+		}
+		units.addAll(parser.finish(stream.length));
+		assertExpectedUnits(units, "逐字节送入");
+	}
+
+	@Test
+	void rejectsContainerInput() {
+		byte[] mp4 = concat(new byte[] { 0, 0, 0, 24 }, "ftypisom".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IllegalArgumentException.class, () -> new H264StreamParser().feed(ByteBuffer.wrap(mp4), 0));
+	}
+
+	private static void assertExpectedUnits(List<AccessUnit> units, String context) {
+		assertEquals(3, units.size(), context + "：帧数");
+
+		AccessUnit idr = units.get(0);
+		assertTrue(idr.isKeyFrame(), context);
+		assertNals(idr, context, IDR);
+		assertArrayEquals(SPS, idr.getSps(), context + "：SPS");
+		assertArrayEquals(PPS, idr.getPps(), context + "：PPS");
+
+		AccessUnit p = units.get(1);
+		assertFalse(p.isKeyFrame(), context);
+		assertNals(p, context, P_FIRST, P_SECOND);
+
+		// AUD 开始新的一帧但不放入帧数据，尾随零字节被去掉
+		AccessUnit last = units.get(2);
+		assertFalse(last.isKeyFrame(), context);
+		assertNals(last, context, P_LAST);
+	}
+
+	private static void assertNals(AccessUnit unit, String context, byte[]... expected) {
+		List<byte[]> nals = unit.getNals();
+		assertEquals(expected.length, nals.size(), context + "：NAL 个数");
+		for (int i = 0; i < expected.length; i++) {
+			assertArrayEquals(expected[i], nals.get(i), context + "：第 " + i + " 个 NAL");
+		}
+	}
+
+	@Test
+	void fragmentLayoutMatchesSamples() {
+		H264StreamParser parser = new H264StreamParser();
+		List<AccessUnit> units = new ArrayList<>(parser.feed(ByteBuffer.wrap(stream()), 0));
+		units.addAll(parser.finish(0));
+		List<FragmentedMp4Muxer.Sample> samples = new ArrayList<>();
+		for (AccessUnit unit : units) {
+			FragmentedMp4Muxer.Sample sample = new FragmentedMp4Muxer.Sample(unit.getNals(), unit.isKeyFrame());
+			sample.setDuration(3000);
+			samples.add(sample);
+		}
+
+		FragmentedMp4Muxer muxer = new FragmentedMp4Muxer();
+		byte[] first = toArray(muxer.fragment(samples.subList(0, 2)));
+		int[] sizes = { 4 + IDR.length, 4 + P_FIRST.length + 4 + P_SECOND.length };
+		assertFragment(first, 1, 0, sizes, new boolean[] { true, false },
+				Arrays.asList(IDR, P_FIRST, P_SECOND));
+
+		// 第二个分片的序号递增，解码时间从上一个分片结束处接续
+		byte[] second = toArray(muxer.fragment(samples.subList(2, 3)));
+		assertFragment(second, 2, 6000, new int[] { 4 + P_LAST.length }, new boolean[] { false },
+				Arrays.asList(P_LAST));
+		assertEquals(9000, muxer.getDuration());
+	}
+
+	private static void assertFragment(byte[] data, int sequence, long baseTime, int[] sizes, boolean[] keyFrames,
+			List<byte[]> nals) {
+		int moofSize = u32(data, 0);
+		assertEquals("moof", type(data, 0));
+		assertEquals("mdat", type(data, moofSize));
+		int payload = Arrays.stream(sizes).sum();
+		assertEquals(8 + payload, u32(data, moofSize), "mdat 长度");
+		assertEquals(data.length, moofSize + 8 + payload, "分片只有 moof 与 mdat");
+
+		int mfhd = 8;
+		assertEquals("mfhd", type(data, mfhd));
+		assertEquals(16, u32(data, mfhd));
+		assertEquals(sequence, u32(data, mfhd + 12));
+
+		int traf = mfhd + 16;
+		assertEquals("traf", type(data, traf));
+		assertEquals(moofSize - traf, u32(data, traf), "traf 应占满 moof 余下部分");
+
+		int tfhd = traf + 8;
+		assertEquals("tfhd", type(data, tfhd));
+		assertEquals(16, u32(data, tfhd));
+		assertEquals(0x020000, u32(data, tfhd + 8), "default-base-is-moof");
+		assertEquals(1, u32(data, tfhd + 12));
+
+		int tfdt = tfhd + 16;
+		assertEquals("tfdt", type(data, tfdt));
+		assertEquals(20, u32(data, tfdt));
+		assertEquals(1, data[tfdt + 8], "tfdt 版本 1 使用 64 位时间");
+		assertEquals(baseTime, ((long) u32(data, tfdt + 12) << 32) | (u32(data, tfdt + 16) & 0xffffffffL));
+
+		int trun = tfdt + 20;
+		assertEquals("trun", type(data, trun));
+		assertEquals(20 + 12 * sizes.length, u32(data, trun), "trun 长度");
+		assertEquals(traf + u32(data, traf), trun + u32(data, trun), "trun 是 traf 的最后一个子 box");
+		assertEquals(0x000701, u32(data, trun + 8));
+		assertEquals(sizes.length, u32(data, trun + 12));
+		int dataOffset = u32(data, trun + 16);
+		assertEquals(moofSize + 8, dataOffset, "data_offset 应指向 mdat 负载起点（相对 moof）");
+		for (int i = 0; i < sizes.length; i++) {
+			int entry = trun + 20 + 12 * i;
+			assertEquals(3000, u32(data, entry));
+			assertEquals(sizes[i], u32(data, entry + 4), "第 " + i + " 个样本长度");
+			assertEquals(keyFrames[i] ? 0x02000000 : 0x01010000, u32(data, entry + 8), "第 " + i + " 个样本标志");
+		}
+
+		// mdat 中依次是 4 字节长度前缀加 NAL
+		int position = dataOffset;
+		for (byte[] nal : nals) {
+			assertEquals(nal.length, u32(data, position));
+			assertArrayEquals(nal, Arrays.copyOfRange(data, position + 4, position + 4 + nal.length));
+			position += 4 + nal.length;
+		}
+		assertEquals(data.length, position);
+	}
+
+	@Test
+	void initSegmentCarriesParameterSets() {
+		H264Sps info = H264Sps.parse(SPS);
+		assertNotNull(info);
+		assertEquals(1280, info.getWidth());
+		assertEquals(720, info.getHeight());
+
+		byte[] data = toArray(new FragmentedMp4Muxer().initSegment(info, SPS, PPS));
+		int ftypSize = u32(data, 0);
+		assertEquals("ftyp", type(data, 0));
+		assertEquals("moov", type(data, ftypSize));
+		assertEquals(data.length, ftypSize + u32(data, ftypSize), "初始化段只有 ftyp 与 moov");
+
+		int avcC = indexOf(data, "avcC".getBytes(StandardCharsets.US_ASCII)) - 4;
+		assertTrue(avcC > 0, "缺少 avcC");
+		int position = avcC + 8;
+		assertEquals(1, data[position]);
+		assertEquals(0xff, data[position + 4] & 0xff, "NAL 长度字段应为 4 字节");
+		assertEquals(0xe1, data[position + 5] & 0xff, "应有一个 SPS");
+		assertEquals(SPS.length, u16(data, position + 6));
+		assertArrayEquals(SPS, Arrays.copyOfRange(data, position + 8, position + 8 + SPS.length));
+		position += 8 + SPS.length;
+		assertEquals(1, data[position], "应有一个 PPS");
+		assertEquals(PPS.length, u16(data, position + 1));
+		assertArrayEquals(PPS, Arrays.copyOfRange(data, position + 3, position + 3 + PPS.length));
+	}
+
+	private static int u32(byte[] data, int offset) {
+		return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) | ((data[offset + 2] & 0xff) << 8)
+				| (data[offset + 3] & 0xff);
+	}
+
+	private static int u16(byte[] data, int offset) {
+		return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+	}
+
+	private static String type(byte[] data, int boxStart) {
+		return new String(data, boxStart + 4, 4, StandardCharsets.US_ASCII);
+	}
+
+	private static int indexOf(byte[] data, byte[] target) {
+		outer: for (int i = 0; i + target.length <= data.length; i++) {
+			for (int j = 0; j < target.length; j++) {
+				if (data[i + j] != target[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return data;
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		int length = 0;
+		for (byte[] part : parts) {
+			length += part.length;
+		}
+		byte[] out = new byte[length];
+		int position = 0;
+		for (byte[] part : parts) {
+			System.arraycopy(part, 0, out, position, part.length);
+			position += part.length;
+		}
+		return out;
+	}
+
+	private static byte[] hex(String value) {
+		byte[] bytes = new byte[value.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(value.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,252 @@
+package com.web.media.recorder.media.processor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+import com.web.media.recorder.media.processor.SpscByteRingBuffer.OverflowPolicy;
+
+/**
+ * 环形缓冲区的绕圈读写、三种溢出策略与读取等待，以及一写一读压力下的字节顺序。
+ * 写入的字节值由其位置决定，读到的内容可以逐字节核对。
+ */
+class SpscByteRingBufferTest {
+	private static final int STRESS_CAPACITY = 1 << 12;
+	private static final int STRESS_MAX_CHUNK = 1500;
+	private static final long STRESS_BYTES = 8L << 20;
+
+	@Test
+	void readsAcrossWrapAround() {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(10, OverflowPolicy.DROP_NEWEST);
+		assertEquals(16, ring.capacity(), "容量应向上取整为 2 的幂");
+
+		assertTrue(ring.offer(sequence(0, 12), 0, 12));
+		byte[] dst = new byte[16];
+		assertEquals(8, ring.read(dst, 0, 8, 0, TimeUnit.MILLISECONDS));
+		assertArrayEquals(sequence(0, 8), slice(dst, 8));
+
+		// 写入位置 12..21，跨过缓冲区末尾回到开头
+		assertTrue(ring.offer(ByteBuffer.wrap(sequence(12, 10))));
+		assertEquals(14, ring.size());
+		assertEquals(14, ring.read(dst, 0, dst.length, 0, TimeUnit.MILLISECONDS));
+		assertArrayEquals(sequence(8, 14), slice(dst, 14));
+		assertEquals(0, ring.size());
+		assertEquals(0, ring.getOverrunCount());
+	}
+
+	@Test
+	void dropNewestRejectsWhenFull() {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(16, OverflowPolicy.DROP_NEWEST);
+		assertTrue(ring.offer(sequence(0, 12), 0, 12));
+		assertFalse(ring.offer(sequence(12, 8), 0, 8), "空间不足时应丢弃本次写入");
+		assertFalse(ring.offer(new byte[32], 0, 32), "超过容量的写入应直接丢弃");
+		assertEquals(2, ring.getOverrunCount());
+		assertEquals(40, ring.getDroppedBytes());
+
+		byte[] dst = new byte[16];
+		assertEquals(12, ring.read(dst, 0, dst.length, 0, TimeUnit.MILLISECONDS));
+		assertArrayEquals(sequence(0, 12), slice(dst, 12), "已写入的数据不应受影响");
+	}
+
+	@Test
+	void dropOldestKeepsNewestBytes() {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(16, OverflowPolicy.DROP_OLDEST);
+		assertTrue(ring.offer(sequence(0, 16), 0, 16));
+		assertTrue(ring.offer(sequence(16, 8), 0, 8));
+		assertEquals(1, ring.getOverrunCount());
+		assertEquals(8, ring.getDroppedBytes());
+
+		byte[] dst = new byte[16];
+		assertEquals(16, ring.read(dst, 0, dst.length, 0, TimeUnit.MILLISECONDS));
+		assertArrayEquals(sequence(8, 16), dst, "应丢弃最旧的 8 字节");
+	}
+
+	/**
+	 * 读取方慢于生产者，生产者不断剔除旧数据：每次成功读到的都必须是一段连续的原始数据，
+	 * 读到的与被剔除的字节数之和等于写入总量
+	 */
+	@Test
+	void dropOldestEvictsUnderActiveReader() throws Exception {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(256, OverflowPolicy.DROP_OLDEST);
+		long produced = 64L << 10;
+		AtomicLong read = new AtomicLong();
+		AtomicLong torn = new AtomicLong();
+		Thread producer = new Thread(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			byte[] chunk = new byte[64];
+			long position = 0;
+			while (position < produced) {
+				int length = (int) Math.min(1 + random.nextInt(chunk.length), produced - position);
+				for (int i = 0; i < length; i++) {
+					chunk[i] = (byte) (position + i);
+				}
+				ring.offer(chunk, 0, length);
+				position += length;
+			}
+		}, "ring-producer");
+		Thread reader = new Thread(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			byte[] dst = new byte[96];
+			while (true) {
+				int n = ring.read(dst, 0, 1 + random.nextInt(dst.length), 1, TimeUnit.MILLISECONDS);
+				if (n == 0) {
+					if (!producer.isAlive() && ring.size() == 0) {
+						return;
+					}
+					continue;
+				}
+				// 低 8 位连续递增说明这一段没有混入覆盖后的数据
+				for (int i = 1; i < n; i++) {
+					if ((byte) (dst[i - 1] + 1) != dst[i]) {
+						torn.incrementAndGet();
+					}
+				}
+				read.addAndGet(n);
+				if (random.nextInt(4) == 0) {
+					LockSupport.parkNanos(50_000);
+				}
+			}
+		}, "ring-reader");
+		producer.start();
+		reader.start();
+		producer.join();
+		reader.join(TimeUnit.SECONDS.toMillis(5));
+		assertFalse(reader.isAlive(), "读取方未退出");
+		assertEquals(0, torn.get(), "读到了被覆盖的数据");
+		assertTrue(ring.getOverrunCount() > 0, "读取方没有被套圈");
+		assertEquals(produced, read.get() + ring.getDroppedBytes(), "读到与剔除的字节数之和应等于写入总量");
+	}
+
+	@Test
+	void blockWaitsForReaderThenTimesOut() throws Exception {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(16, OverflowPolicy.BLOCK);
+		assertTrue(ring.offer(sequence(0, 16), 0, 16));
+		byte[] dst = new byte[16];
+		Thread reader = new Thread(() -> {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+			ring.read(dst, 0, 8, 0, TimeUnit.MILLISECONDS);
+		}, "ring-reader");
+		reader.start();
+		assertTrue(ring.offer(sequence(16, 8), 0, 8), "读取方腾出空间后应写入成功");
+		reader.join();
+		assertEquals(0, ring.getOverrunCount());
+
+		long start = System.nanoTime();
+		assertFalse(ring.offer(sequence(24, 1), 0, 1), "无人读取时应在超时后丢弃");
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(elapsedMs >= SpscByteRingBuffer.BLOCK_TIMEOUT_MS / 2, "未等待就丢弃: " + elapsedMs + " ms");
+		assertEquals(1, ring.getOverrunCount());
+
+		assertEquals(16, ring.read(dst, 0, dst.length, 0, TimeUnit.MILLISECONDS));
+		assertArrayEquals(sequence(8, 16), dst);
+	}
+
+	@Test
+	void readTimesOutWhenEmpty() {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(16, OverflowPolicy.DROP_OLDEST);
+		byte[] dst = new byte[16];
+		assertEquals(0, ring.read(dst, 0, dst.length, 0, TimeUnit.MILLISECONDS), "不等待时应立即返回");
+
+		long start = System.nanoTime();
+		assertEquals(0, ring.read(dst, 0, dst.length, 30, TimeUnit.MILLISECONDS));
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(elapsedMs >= 25, "未等到超时就返回: " + elapsedMs + " ms");
+	}
+
+	@Test
+	void readWakesOnPublish() throws Exception {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(16, OverflowPolicy.DROP_OLDEST);
+		Thread producer = new Thread(() -> {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+			ring.offer(sequence(0, 4), 0, 4);
+		}, "ring-producer");
+		producer.start();
+		byte[] dst = new byte[16];
+		long start = System.nanoTime();
+		assertEquals(4, ring.read(dst, 0, dst.length, 5, TimeUnit.SECONDS));
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(elapsedMs < 1000, "写入后读取方未被唤醒: " + elapsedMs + " ms");
+		assertArrayEquals(sequence(0, 4), slice(dst, 4));
+		producer.join();
+	}
+
+	/**
+	 * 一写一读压力测试：随机块大小交替使用两种写入方式，读取长度也随机，
+	 * 被阻塞策略拒绝的写入重试，读到的字节必须与写入顺序逐字节一致
+	 */
+	@Test
+	void producerConsumerPreservesByteOrder() throws Exception {
+		SpscByteRingBuffer ring = new SpscByteRingBuffer(STRESS_CAPACITY, OverflowPolicy.BLOCK);
+		AtomicLong mismatches = new AtomicLong();
+		AtomicLong received = new AtomicLong();
+		Thread producer = new Thread(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			byte[] chunk = new byte[STRESS_MAX_CHUNK];
+			long position = 0;
+			while (position < STRESS_BYTES) {
+				int length = (int) Math.min(1 + random.nextInt(STRESS_MAX_CHUNK), STRESS_BYTES - position);
+				for (int i = 0; i < length; i++) {
+					chunk[i] = pattern(position + i);
+				}
+				boolean direct = (position & 1) == 0;
+				while (direct ? !ring.offer(chunk, 0, length) : !ring.offer(ByteBuffer.wrap(chunk, 0, length))) {
+					Thread.onSpinWait();
+				}
+				position += length;
+			}
+		}, "ring-producer");
+		Thread consumer = new Thread(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			byte[] dst = new byte[STRESS_CAPACITY];
+			long position = 0;
+			while (position < STRESS_BYTES) {
+				int n = ring.read(dst, 0, 1 + random.nextInt(dst.length), 10, TimeUnit.MILLISECONDS);
+				for (int i = 0; i < n; i++) {
+					if (dst[i] != pattern(position + i)) {
+						mismatches.incrementAndGet();
+					}
+				}
+				position += n;
+				if (n == 0 && !producer.isAlive() && ring.size() == 0) {
+					break;
+				}
+			}
+			received.set(position);
+		}, "ring-consumer");
+		producer.start();
+		consumer.start();
+		producer.join(TimeUnit.SECONDS.toMillis(30));
+		consumer.join(TimeUnit.SECONDS.toMillis(30));
+		assertFalse(producer.isAlive() || consumer.isAlive(), "生产者或读取方未退出");
+		assertEquals(0, mismatches.get(), "读到的字节顺序与写入不一致");
+		assertEquals(STRESS_BYTES, received.get(), "读到的字节数与写入不一致");
+	}
+
+	private static byte[] sequence(int start, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (start + i);
+		}
+		return bytes;
+	}
+
+	private static byte[] slice(byte[] bytes, int length) {
+		byte[] copy = new byte[length];
+		System.arraycopy(bytes, 0, copy, 0, length);
+		return copy;
+	}
+
+	// 每个字节的值由其绝对位置决定，相差整圈的两个位置取值不同
+	private static byte pattern(long position) {
+		return (byte) (position ^ (position >>> 8) ^ (position >>> 16) ^ (position >>> 24));
+	}
+}
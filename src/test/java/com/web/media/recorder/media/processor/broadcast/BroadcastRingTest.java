@@ -0,0 +1,134 @@
+package com.web.media.recorder.media.processor.broadcast;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 一写多读压力测试：生产者不断绕圈覆盖，订阅者刻意停在即将被覆盖的边缘读取，
+ * 校验每个成功读到的字节都与其绝对位置对应，被覆盖的数据只能以剔除的形式出现，不能读到撕裂的内容。
+ * 生产者以每段的起点作为采集时间，查到的时间戳必须是所读首字节所在的那一段。
+ */
+class BroadcastRingTest {
+	private static final int CAPACITY = 1 << 16;
+	private static final int MAX_CHUNK = 4096;
+	private static final long TRIAL_MS = 200;
+	private static final int TRIALS = 10;
+
+	@Test
+	void lappedReadersNeverSeeTornPayload() throws Exception {
+		AtomicLong verified = new AtomicLong();
+		AtomicLong mismatches = new AtomicLong();
+		AtomicLong wrapped = new AtomicLong();
+		AtomicLong badMarks = new AtomicLong();
+		for (int trial = 0; trial < TRIALS; trial++) {
+			runTrial(verified, mismatches, wrapped, badMarks);
+		}
+		assertEquals(0, mismatches.get(), "读到了已被覆盖的数据");
+		assertEquals(0, badMarks.get(), "查到的时间戳不属于所读数据");
+		assertTrue(verified.get() > 0, "没有成功读取的数据");
+		assertTrue(wrapped.get() > 0, "订阅者没有读到绕圈后的数据");
+	}
+
+	private void runTrial(AtomicLong verified, AtomicLong mismatches, AtomicLong wrapped, AtomicLong badMarks)
+			throws Exception {
+		BroadcastRing ring = new BroadcastRing(CAPACITY, CAPACITY);
+		List<Thread> readers = new ArrayList<>();
+		long[] edges = { 0, CAPACITY - 2 * MAX_CHUNK, CAPACITY - MAX_CHUNK / 2, -1 };
+		Thread producer = new Thread(() -> produce(ring), "ring-producer");
+		for (long edge : edges) {
+			BroadcastRing.Subscription subscription = ring.subscribe();
+			readers.add(new Thread(() -> consume(subscription, edge, producer, verified, mismatches, wrapped,
+					badMarks), "ring-reader"));
+		}
+		readers.forEach(Thread::start);
+		producer.start();
+		producer.join();
+		for (Thread reader : readers) {
+			reader.join(TimeUnit.SECONDS.toMillis(5));
+			assertTrue(!reader.isAlive(), "订阅者未退出");
+		}
+	}
+
+	private static void produce(BroadcastRing ring) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		byte[] chunk = new byte[MAX_CHUNK];
+		long position = 0;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TRIAL_MS);
+		while (System.nanoTime() < deadline) {
+			int length = 1 + random.nextInt(MAX_CHUNK);
+			for (int i = 0; i < length; i++) {
+				chunk[i] = pattern(position + i);
+			}
+			if ((position & 1) == 0) {
+				ring.publish(chunk, 0, length, position);
+			} else {
+				ring.publish(ByteBuffer.wrap(chunk, 0, length), position);
+			}
+			position += length;
+			// 突发与停顿交替，订阅者既有追上的机会，也会被套圈
+			if (random.nextInt(8) == 0) {
+				LockSupport.parkNanos(20_000);
+			}
+		}
+	}
+
+	/**
+	 * @param edge 落后达到这么多字节才读取，0 表示有数据就读，负数表示随机停顿
+	 */
+	private static void consume(BroadcastRing.Subscription subscription, long edge, Thread producer,
+			AtomicLong verified, AtomicLong mismatches, AtomicLong wrapped, AtomicLong badMarks) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		byte[] dst = new byte[CAPACITY / 2];
+		long position = 0;
+		while (true) {
+			if (edge > 0) {
+				while (subscription.getLag() < edge && producer.isAlive()) {
+					Thread.onSpinWait();
+				}
+			} else if (edge < 0 && random.nextInt(16) == 0) {
+				Thread.yield();
+			}
+			int n = subscription.read(dst, 0, random.nextInt(1, dst.length + 1), 1, TimeUnit.MILLISECONDS);
+			if (n < 0) {
+				break;
+			}
+			if (n == 0) {
+				if (!producer.isAlive() && subscription.getLag() == 0) {
+					break;
+				}
+				continue;
+			}
+			for (int i = 0; i < n; i++) {
+				if (dst[i] != pattern(position + i)) {
+					mismatches.incrementAndGet();
+				}
+			}
+			// 时间戳被覆盖时为 0，否则是首字节所在那一段的起点
+			long capture = subscription.getLastCaptureNanos();
+			if (capture != 0 && (capture > position || position - capture >= MAX_CHUNK)) {
+				badMarks.incrementAndGet();
+			}
+			verified.addAndGet(n);
+			position += n;
+			if (position > CAPACITY) {
+				wrapped.incrementAndGet();
+			}
+		}
+		subscription.close();
+	}
+
+	// 每个字节的值由其绝对位置决定，相差整圈的两个位置取值不同
+	private static byte pattern(long position) {
+		return (byte) (position ^ (position >>> 8) ^ (position >>> 16) ^ (position >>> 24));
+	}
+}
@@ -0,0 +1,416 @@
+package com.web.media.recorder.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.web.media.recorder.websocket.OutboundQueue.OverflowPolicy;
+
+/**
+ * 出站队列的溢出策略、控制消息在剔除中的保留，以及每个会话同一时刻至多一个发送任务。
+ * 发送任务交给手动执行器，在测试中决定何时发送，会话只记录收到的消息。
+ */
+class OutboundQueueTest {
+	private static final byte[] PREAMBLE = ascii("HEAD");
+
+	@Test
+	void dropNewestRejectsBeyondBudget() {
+		ManualExecutor executor = new ManualExecutor();
+		RecordingSession session = new RecordingSession();
+		BufferPool pool = new BufferPool(4, 16);
+		OutboundQueue queue = new OutboundQueue(session, PREAMBLE, pool, executor, 8, OverflowPolicy.DROP_NEWEST,
+				e -> { throw new AssertionError(e); });
+
+		assertTrue(queue.offer(pooled(pool, "aaaa"), true));
+		assertTrue(queue.offer(pooled(pool, "bbbb"), true));
+		assertFalse(queue.offer(pooled(pool, "cccc"), true), "超出预算的帧应被丢弃");
+		assertEquals(8, queue.getQueuedBytes());
+		assertEquals(1, queue.getDroppedFrames());
+		assertEquals(4, queue.getDroppedBytes());
+		assertEquals(1, pool.getPooledCount(), "被丢弃的池化缓冲区应归还");
+
+		executor.runAll();
+		assertEquals(Arrays.asList("bin:HEAD", "bin:aaaa", "bin:bbbb"), session.messages, "格式头应先于首帧发送");
+		assertEquals(0, queue.getQueuedBytes());
+		assertEquals(0, queue.getQueuedFrames());
+		assertEquals(2, queue.getSentFrames());
+		assertEquals(8, queue.getSentBytes());
+		assertEquals(3, pool.getPooledCount(), "发送完成的池化缓冲区应归还");
+	}
+
+	@Test
+	void dropOldestEvictsDataButKeepsLatestControl() {
+		ManualExecutor executor = new ManualExecutor();
+		RecordingSession session = new RecordingSession();
+		OutboundQueue queue = new OutboundQueue(session, null, new BufferPool(4, 16), executor, 8,
+				OverflowPolicy.DROP_OLDEST, e -> { throw new AssertionError(e); });
+
+		assertTrue(queue.offer(wrap("aaaa"), false));
+		assertTrue(queue.offerText("first"));
+		assertTrue(queue.offerText("second"));
+		assertTrue(queue.offer(wrap("bbbb"), false));
+		// 控制消息不计入预算，新帧需要剔除两个旧数据帧
+		assertEquals(8, queue.getQueuedBytes());
+		assertTrue(queue.offer(wrap("cccccccc"), false));
+
+		assertEquals(2, queue.getDroppedFrames());
+		assertEquals(8, queue.getDroppedBytes());
+		assertEquals(2, queue.getQueuedFrames(), "两条控制消息只保留最近一条");
+		executor.runAll();
+		assertEquals(Arrays.asList("text:second", "bin:cccccccc"), session.messages, "保留的控制消息应放回队首");
+	}
+
+	@Test
+	void controlMessagesKeepOrderWithDataFrames() {
+		ManualExecutor executor = new ManualExecutor();
+		RecordingSession session = new RecordingSession();
+		OutboundQueue queue = new OutboundQueue(session, PREAMBLE, new BufferPool(4, 16), executor, 64,
+				OverflowPolicy.DROP_OLDEST, e -> { throw new AssertionError(e); });
+
+		queue.offer(wrap("aaaa"), false);
+		queue.offerText("silence");
+		queue.offer(wrap("bbbb"), false);
+		executor.runAll();
+		assertEquals(Arrays.asList("bin:HEAD", "bin:aaaa", "text:silence", "bin:bbbb"), session.messages);
+	}
+
+	@Test
+	void closePolicyFailsQueueOnce() {
+		ManualExecutor executor = new ManualExecutor();
+		RecordingSession session = new RecordingSession();
+		BufferPool pool = new BufferPool(4, 16);
+		List<Exception> errors = new ArrayList<>();
+		OutboundQueue queue = new OutboundQueue(session, null, pool, executor, 4, OverflowPolicy.CLOSE, errors::add);
+
+		assertTrue(queue.offer(pooled(pool, "aaaa"), true));
+		assertFalse(queue.offer(pooled(pool, "bbbb"), true));
+		assertTrue(queue.isOverflowed());
+		assertTrue(queue.isClosed());
+		assertEquals(1, errors.size());
+		assertEquals(0, queue.getQueuedFrames(), "关闭时应丢弃积压的帧");
+		assertEquals(2, pool.getPooledCount(), "积压与被拒绝的池化缓冲区都应归还");
+
+		assertFalse(queue.offer(wrap("cccc"), false), "关闭后不再入队");
+		assertFalse(queue.offerText("late"));
+		executor.runAll();
+		assertTrue(session.messages.isEmpty());
+		assertEquals(1, errors.size(), "失败只回调一次");
+	}
+
+	@Test
+	void sendFailureClosesQueue() {
+		ManualExecutor executor = new ManualExecutor();
+		RecordingSession session = new RecordingSession();
+		session.failure = new IOException("连接已断开");
+		AtomicReference<Exception> error = new AtomicReference<>();
+		OutboundQueue queue = new OutboundQueue(session, null, new BufferPool(4, 16), executor, 64,
+				OverflowPolicy.DROP_OLDEST, error::set);
+
+		queue.offer(wrap("aaaa"), false);
+		queue.offer(wrap("bbbb"), false);
+		executor.runAll();
+		assertEquals(session.failure, error.get());
+		assertTrue(queue.isClosed());
+		assertFalse(queue.isOverflowed());
+		assertEquals(0, queue.getQueuedFrames());
+	}
+
+	@Test
+	void schedulesOneDrainForBurst() {
+		ManualExecutor executor = new ManualExecutor();
+		RecordingSession session = new RecordingSession();
+		OutboundQueue queue = new OutboundQueue(session, null, new BufferPool(4, 16), executor, 1024,
+				OverflowPolicy.DROP_OLDEST, e -> { throw new AssertionError(e); });
+
+		for (int i = 0; i < 10; i++) {
+			queue.offer(wrap("f" + i), false);
+		}
+		queue.offerText("control");
+		assertEquals(1, executor.submitted, "发送任务未结束前不应重复提交");
+
+		executor.runAll();
+		assertEquals(11, session.messages.size());
+		queue.offer(wrap("next"), false);
+		assertEquals(2, executor.submitted, "发送任务结束后的新帧应重新提交");
+	}
+
+	/**
+	 * 多个线程同时入队、发送线程池有多个线程时，同一会话的发送不能并发，每个生产者的帧保持入队顺序
+	 */
+	@Test
+	void concurrentOffersNeverSendConcurrently() throws Exception {
+		int producers = 4;
+		int framesPerProducer = 2000;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger overlaps = new AtomicInteger();
+		AtomicInteger outOfOrder = new AtomicInteger();
+		int[] lastSeq = new int[producers];
+		Arrays.fill(lastSeq, -1);
+		RecordingSession session = new RecordingSession() {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message) {
+				if (inFlight.incrementAndGet() > 1) {
+					overlaps.incrementAndGet();
+				}
+				ByteBuffer payload = ((BinaryMessage) message).getPayload();
+				int producer = payload.getInt(payload.position());
+				int seq = payload.getInt(payload.position() + 4);
+				if (seq <= lastSeq[producer]) {
+					outOfOrder.incrementAndGet();
+				}
+				lastSeq[producer] = seq;
+				if (seq % 64 == 0) {
+					LockSupport.parkNanos(10_000);
+				}
+				inFlight.decrementAndGet();
+			}
+		};
+		OutboundQueue queue = new OutboundQueue(session, null, new BufferPool(8, 16), executor, Long.MAX_VALUE,
+				OverflowPolicy.DROP_NEWEST, e -> { throw new AssertionError(e); });
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int seq = 0; seq < framesPerProducer; seq++) {
+					ByteBuffer frame = ByteBuffer.allocate(8).putInt(producer).putInt(seq);
+					frame.flip();
+					queue.offer(frame, false);
+				}
+			}, "queue-producer");
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (queue.getSentFrames() < producers * framesPerProducer && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(1_000_000);
+		}
+		executor.shutdownNow();
+		assertEquals(0, overlaps.get(), "同一会话出现并发发送");
+		assertEquals(0, outOfOrder.get(), "同一生产者的帧乱序");
+		assertEquals(producers * framesPerProducer, queue.getSentFrames(), "有帧未发送");
+		assertEquals(0, queue.getQueuedFrames());
+	}
+
+	@Test
+	void stalledSendExpiresAfterDeadline() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch sending = new CountDownLatch(1);
+		RecordingSession session = new RecordingSession() {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message) throws IOException {
+				sending.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				throw new IOException("会话已关闭");
+			}
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+		OutboundQueue queue = new OutboundQueue(session, null, new BufferPool(4, 16), executor, 64,
+				OverflowPolicy.DROP_OLDEST, errors::add, null, 50);
+		try {
+			queue.offer(wrap("aaaa"), false);
+			queue.offer(wrap("bbbb"), false);
+			assertTrue(sending.await(5, TimeUnit.SECONDS));
+			assertFalse(queue.checkSendDeadline(System.nanoTime()), "未到时限不应判定超时");
+
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(60);
+			assertTrue(queue.checkSendDeadline(deadline));
+			assertTrue(queue.isTimedOut());
+			assertTrue(queue.isClosed());
+			assertEquals(0, queue.getQueuedFrames(), "超时后应丢弃积压的帧");
+			assertEquals(1, errors.size());
+			assertNotNull(errors.get(0).getMessage());
+			assertFalse(queue.offer(wrap("cccc"), false));
+
+			// 阻塞的发送随会话关闭返回后不再重复回调
+			release.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+			assertEquals(1, errors.size());
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private static ByteBuffer pooled(BufferPool pool, String text) {
+		ByteBuffer buffer = pool.acquire();
+		buffer.put(ascii(text)).flip();
+		return buffer;
+	}
+
+	private static ByteBuffer wrap(String text) {
+		return ByteBuffer.wrap(ascii(text));
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * 提交的任务先排着，由测试调用 {@link #runAll()} 时在当前线程执行
+	 */
+	private static final class ManualExecutor implements Executor {
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+		int submitted;
+
+		@Override
+		public void execute(Runnable task) {
+			submitted++;
+			tasks.add(task);
+		}
+
+		void runAll() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+		}
+	}
+
+	/**
+	 * 只记录发送内容的会话：二进制消息记为 "bin:内容"，文本消息记为 "text:内容"
+	 */
+	private static class RecordingSession implements WebSocketSession {
+		final List<String> messages = new ArrayList<>();
+		IOException failure;
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			if (failure != null) {
+				throw failure;
+			}
+			if (message instanceof TextMessage) {
+				messages.add("text:" + ((TextMessage) message).getPayload());
+			} else {
+				ByteBuffer payload = ((BinaryMessage) message).getPayload().duplicate();
+				byte[] bytes = new byte[payload.remaining()];
+				payload.get(bytes);
+				messages.add("bin:" + new String(bytes, StandardCharsets.US_ASCII));
+			}
+		}
+
+		@Override
+		public String getId() {
+			return "test";
+		}
+
+		@Override
+		public URI getUri() {
+			return null;
+		}
+
+		@Override
+		public HttpHeaders getHandshakeHeaders() {
+			return new HttpHeaders();
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public Principal getPrincipal() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getLocalAddress() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getRemoteAddress() {
+			return null;
+		}
+
+		@Override
+		public String getAcceptedProtocol() {
+			return null;
+		}
+
+		@Override
+		public void setTextMessageSizeLimit(int messageSizeLimit) {
+		}
+
+		@Override
+		public int getTextMessageSizeLimit() {
+			return 0;
+		}
+
+		@Override
+		public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+		}
+
+		@Override
+		public int getBinaryMessageSizeLimit() {
+			return 0;
+		}
+
+		@Override
+		public List<WebSocketExtension> getExtensions() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public void close(CloseStatus status) {
+		}
+	}
+}